@@ -0,0 +1,104 @@
+package de.hindenbug.gameoflife;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures editing and publishing a {@linkplain SparseGameOfLife} with a random soup of 25% density: toggling and
+ * adding beings, copying the beings into a {@linkplain GenerationSnapshot} and the copy on write snapshot, that
+ * is taken by the {@linkplain GameOfLifeService} after each generation.</p>
+ * <pre>
+ *     java -jar target/benchmarks.jar EditBenchmark -prof gc
+ * </pre>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 19:40
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditBenchmark
+{
+    private static final int EDITS = 4096;
+
+    @Param({"256", "1024"})
+    public int size;
+
+    private SparseGameOfLife gameOfLife;
+    private int[] rows;
+    private int[] columns;
+    private int edit;
+    private long generation;
+
+    @Setup(Level.Trial)
+    public void createEdits()
+    {
+        Random random = new Random(size);
+        rows = new int[EDITS];
+        columns = new int[EDITS];
+        for (int i = 0; i < EDITS; i++)
+        {
+            rows[i] = random.nextInt(size);
+            columns[i] = random.nextInt(size);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        gameOfLife = new SparseGameOfLife(GameOfLifeSample.randomSoup(size, .25, size));
+    }
+
+    @Benchmark
+    public boolean toggleBeing()
+    {
+        int i = edit++ & (EDITS - 1);
+        return gameOfLife.toggleBeing(rows[i], columns[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EDITS)
+    public int addBeing()
+    {
+        SparseGameOfLife empty = new SparseGameOfLife();
+        for (int i = 0; i < EDITS; i++)
+        {
+            empty.addBeing(rows[i], columns[i]);
+        }
+        return empty.getPopulation();
+    }
+
+    @Benchmark
+    public GenerationSnapshot copySnapshot()
+    {
+        return GenerationSnapshot.copyOf(generation, gameOfLife.getBeings());
+    }
+
+    /**
+     * A snapshot followed by an edit, that has to copy the shared cells.
+     */
+    @Benchmark
+    public boolean snapshotAndEdit()
+    {
+        gameOfLife.snapshot(generation++);
+        int i = edit++ & (EDITS - 1);
+        return gameOfLife.toggleBeing(rows[i], columns[i]);
+    }
+}
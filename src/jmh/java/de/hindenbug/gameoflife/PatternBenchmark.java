@@ -0,0 +1,59 @@
+package de.hindenbug.gameoflife;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the generations per second of each engine on the canonical patterns: an oscillator, a gun, that
+ * grows linearly, and two methuselahs.</p>
+ * <p>The pattern is placed again before each iteration, so every iteration starts at the first generation and
+ * measures the mix of generations reached within the iteration time. Run with <code>-prof gc</code> to see the
+ * bytes allocated per generation (<code>gc.alloc.rate.norm</code>):</p>
+ * <pre>
+ *     java -jar target/benchmarks.jar PatternBenchmark -prof gc
+ * </pre>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 19:40
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternBenchmark
+{
+    @Param({"blinker", "gosper-gun", "r-pentomino", "acorn"})
+    public String pattern;
+
+    @Param({"sparse", "tiled", "hashlife", "adaptive"})
+    public String engine;
+
+    private Universe universe;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        universe = Workloads.populate(Workloads.universe(engine, 0), Workloads.pattern(pattern));
+    }
+
+    @Benchmark
+    public int generateNextGeneration()
+    {
+        universe.generateNextGeneration();
+        return universe.getPopulation();
+    }
+}
@@ -0,0 +1,75 @@
+package de.hindenbug.gameoflife;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the generations per second of each engine on random soups of different sizes and densities. The
+ * dense engine is bounded to the square of the soup with a dead border, all other engines are unbounded. Besides
+ * conway's rule HighLife is measured, other rules must not be slower than conway's hard-coded formula.</p>
+ * <p>The soup is placed again before each iteration. Run with <code>-prof gc</code> to see the bytes allocated per
+ * generation (<code>gc.alloc.rate.norm</code>):</p>
+ * <pre>
+ *     java -jar target/benchmarks.jar SoupBenchmark -p size=1024 -prof gc
+ * </pre>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 19:40
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoupBenchmark
+{
+    @Param({"0.05", "0.25", "0.5"})
+    public double density;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"sparse", "dense", "tiled", "hashlife", "adaptive"})
+    public String engine;
+
+    @Param({"B3/S23", "B36/S23"})
+    public String rule;
+
+    private Set<Being> soup;
+    private Universe universe;
+
+    @Setup(Level.Trial)
+    public void createSoup()
+    {
+        soup = GameOfLifeSample.randomSoup(size, density, size);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        universe = Workloads.universe(engine, size);
+        universe.setRule(Rule.parse(rule));
+        Workloads.populate(universe, soup);
+    }
+
+    @Benchmark
+    public int generateNextGeneration()
+    {
+        universe.generateNextGeneration();
+        return universe.getPopulation();
+    }
+}
@@ -0,0 +1,66 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Set;
+
+/**
+ * Creates the engines and patterns measured by the benchmarks.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 19:40
+ */
+final class Workloads
+{
+    private Workloads()
+    {
+    }
+
+    /**
+     * Creates an empty universe.
+     *
+     * @param engine name of the engine, one of <code>sparse</code>, <code>dense</code>, <code>tiled</code>,
+     *               <code>hashlife</code> and <code>adaptive</code>
+     * @param size   number of rows and columns of a dense universe, ignored by all other engines
+     * @return new empty universe
+     */
+    static Universe universe(String engine, int size)
+    {
+        switch (engine)
+        {
+            case "sparse":
+                return new SparseGameOfLife();
+            case "adaptive":
+                return new GameOfLife();
+            case "dense":
+                return new DenseGameOfLife(size, size);
+            case "tiled":
+                return new TiledGameOfLife();
+            case "hashlife":
+                return new HashLifeGameOfLife();
+            default:
+                throw new IllegalArgumentException("unknown engine " + engine);
+        }
+    }
+
+    static Set<Being> pattern(String pattern)
+    {
+        switch (pattern)
+        {
+            case "blinker":
+                return GameOfLifeSample.blinker();
+            case "gosper-gun":
+                return GameOfLifeSample.gosperGliderGun();
+            case "r-pentomino":
+                return GameOfLifeSample.rPentomino();
+            case "acorn":
+                return GameOfLifeSample.acorn();
+            default:
+                throw new IllegalArgumentException("unknown pattern " + pattern);
+        }
+    }
+
+    static <T extends Universe> T populate(T universe, Set<Being> beings)
+    {
+        beings.forEach(being -> universe.addBeing(being.getRow(), being.getColumn()));
+        return universe;
+    }
+}
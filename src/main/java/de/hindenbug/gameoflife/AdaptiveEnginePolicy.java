@@ -0,0 +1,112 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p>An <code>AdaptiveEnginePolicy</code> chooses the engine by the shape of a universe:</p>
+ * <ul>
+ * <li>Small populations run on the {@linkplain Engine#SPARSE} engine, their cost depends on the population
+ * only.</li>
+ * <li>Universes, that repeat their generations, run on the {@linkplain Engine#HASHLIFE} engine. Each generation
+ * is a memoized quadtree, that was calculated before.</li>
+ * <li>Dense universes and universes with a low churn run on the {@linkplain Engine#TILED} engine. A dense
+ * bounding box fills the bitmaps of the tiles, a low churn leaves most tiles stable, that are skipped.</li>
+ * <li>Everything else, for example gliders scattered over a large area, runs on the sparse engine.</li>
+ * </ul>
+ * <p>An engine is only left for another one, if the other engine is preferred by several samples in a row and the
+ * tiled engine is only left, if the statistics clearly fall below the thresholds. So the universe does not
+ * alternate between engines while the statistics move around a threshold. A universe, whose population was at
+ * least doubled or halved by a {@linkplain EngineStatistics#isChanged() change}, for example by loading a pattern,
+ * moves at once.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+public class AdaptiveEnginePolicy implements EnginePolicy
+{
+    static final int DEFAULT_MIN_POPULATION = 1024;
+    static final double DEFAULT_TILED_DENSITY = 0.02;
+    static final double DEFAULT_TILED_CHURN = 0.05;
+    static final int DEFAULT_CONFIRMATIONS = 3;
+    /*
+    factor of the thresholds, that have to be crossed to leave the tiled engine again
+     */
+    private static final double HYSTERESIS = 0.5;
+
+    private final int minPopulation;
+    private final double tiledDensity;
+    private final double tiledChurn;
+    private final int confirmations;
+
+    private Engine candidate;
+    private int confirmed;
+    private int lastPopulation;
+
+    public AdaptiveEnginePolicy()
+    {
+        this(DEFAULT_MIN_POPULATION, DEFAULT_TILED_DENSITY, DEFAULT_TILED_CHURN, DEFAULT_CONFIRMATIONS);
+    }
+
+    /**
+     * @param minPopulation population below which the sparse engine is used
+     * @param tiledDensity  density of the bounding box from which the tiled engine is used
+     * @param tiledChurn    births and deaths per being up to which the tiled engine is used
+     * @param confirmations number of samples in a row, that have to prefer another engine, greater than zero
+     */
+    public AdaptiveEnginePolicy(int minPopulation, double tiledDensity, double tiledChurn, int confirmations)
+    {
+        if (confirmations <= 0)
+            throw new IllegalArgumentException("confirmations must be greater than zero");
+
+        this.minPopulation = minPopulation;
+        this.tiledDensity = tiledDensity;
+        this.tiledChurn = tiledChurn;
+        this.confirmations = confirmations;
+    }
+
+    @Override
+    public Engine choose(Engine current, EngineStatistics statistics)
+    {
+        int population = statistics.getPopulation();
+        boolean replaced = statistics.isChanged()
+                && (population >= 2L * lastPopulation || population <= lastPopulation / 2);
+        lastPopulation = population;
+
+        Engine preferred = prefer(current, statistics);
+        if (preferred == current)
+        {
+            candidate = null;
+            confirmed = 0;
+            return current;
+        }
+        if (preferred != candidate)
+        {
+            candidate = preferred;
+            confirmed = 0;
+        }
+        if (++confirmed < confirmations && !replaced)
+            return current;
+
+        candidate = null;
+        confirmed = 0;
+        return preferred;
+    }
+
+    /**
+     * @return engine, that suits given statistics best
+     */
+    Engine prefer(Engine current, EngineStatistics statistics)
+    {
+        if (statistics.getPopulation() < minPopulation)
+            return Engine.SPARSE;
+        if (statistics.getPeriod() > 0)
+            return Engine.HASHLIFE;
+
+        double hysteresis = current == Engine.TILED
+                            ? HYSTERESIS
+                            : 1;
+        // an unknown churn is NaN, that is never low
+        if (statistics.getDensity() >= tiledDensity * hysteresis
+                || statistics.getChurn() <= tiledChurn / hysteresis)
+            return Engine.TILED;
+        return Engine.SPARSE;
+    }
+}
@@ -0,0 +1,188 @@
+package de.hindenbug.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>An <code>AshClassifier</code> names the objects, that remain after a soup stabilized. An object is run alone
+ * until it returns to its first shape. It is named by an apgcode: a prefix with its kind and period, followed by
+ * the extended Wechsler format of its smallest representation among all phases, rotations and reflections.</p>
+ * <ul>
+ * <li><code>xs</code> still life, followed by the population, for example <code>xs4_33</code> for a block</li>
+ * <li><code>xp</code> oscillator, followed by the period, for example <code>xp2_7</code> for a blinker</li>
+ * <li><code>xq</code> spaceship, followed by the period, for example <code>xq4_153</code> for a glider</li>
+ * </ul>
+ * <p>Objects, that do not return to their shape within {@linkplain #MAX_PERIOD} generations, are
+ * <code>null</code>. Shapes, that were classified before, are looked up in a cache shared by all threads.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:20
+ */
+final class AshClassifier
+{
+    static final int MAX_PERIOD = 30;
+
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int STRIP_ROWS = 5;
+    /*
+    stored for shapes, that could not be classified, the cache does not accept null
+     */
+    private static final String UNKNOWN = "";
+
+    private final ConcurrentHashMap<CellBlock, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param cells packed cells of one object at any location, not null
+     * @param count number of cells inside the array
+     * @return apgcode of the object, <code>null</code> if it is not a still life, oscillator or spaceship
+     */
+    String classify(long[] cells, int count)
+    {
+        CellBlock shape = CellBlock.of(cells, count);
+        String code = cache.get(shape);
+        if (code == null)
+            code = classify(shape);
+        return code.isEmpty()
+               ? null
+               : code;
+    }
+
+    private String classify(CellBlock shape)
+    {
+        SparseGameOfLife universe = new SparseGameOfLife();
+        universe.addCells(shape.getCells(), shape.getPopulation());
+
+        List<CellBlock> phases = new ArrayList<>();
+        phases.add(shape);
+        for (int generation = 1; generation <= MAX_PERIOD; generation++)
+        {
+            universe.generateNextGeneration();
+            if (universe.getPopulation() == 0)
+                break;
+
+            long[] cells = Cells.toArray(universe.getBeings());
+            CellBlock phase = CellBlock.of(cells, cells.length);
+            if (!phase.equals(shape))
+            {
+                phases.add(phase);
+                continue;
+            }
+
+            int minRow = Integer.MAX_VALUE;
+            int minColumn = Integer.MAX_VALUE;
+            for (long cell : cells)
+            {
+                minRow = Math.min(minRow, Cells.row(cell));
+                minColumn = Math.min(minColumn, Cells.column(cell));
+            }
+            String prefix = minRow != 0 || minColumn != 0
+                            ? "xq" + generation
+                            : generation == 1
+                              ? "xs" + shape.getPopulation()
+                              : "xp" + generation;
+            String code = prefix + "_" + canonicalWechsler(phases);
+            for (CellBlock known : phases)
+            {
+                cache.put(known, code);
+            }
+            return code;
+        }
+        cache.put(shape, UNKNOWN);
+        return UNKNOWN;
+    }
+
+    /**
+     * @return shortest and then lexicographically smallest encoding of all phases in all orientations
+     */
+    private static String canonicalWechsler(List<CellBlock> phases)
+    {
+        String best = null;
+        for (CellBlock phase : phases)
+        {
+            for (Transform transform : Transform.values())
+            {
+                String code = wechsler(phase.transform(transform));
+                if (best == null || code.length() < best.length()
+                        || code.length() == best.length() && code.compareTo(best) < 0)
+                    best = code;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Encodes a block in the extended Wechsler format. The rows are split into strips of five rows, that are
+     * separated by <code>z</code>. Each column of a strip is one digit, the upper row is the lowest bit. Trailing
+     * empty columns of a strip are left out, runs of empty columns are shortened with <code>w</code>,
+     * <code>x</code> and <code>y</code>.
+     *
+     * @param block block to encode, not null
+     * @return encoding of the block
+     */
+    static String wechsler(CellBlock block)
+    {
+        int columns = block.getColumns();
+        int strips = (block.getRows() + STRIP_ROWS - 1) / STRIP_ROWS;
+        int[] digits = new int[strips * columns];
+        for (long cell : block.getCells())
+        {
+            int row = Cells.row(cell);
+            digits[row / STRIP_ROWS * columns + Cells.column(cell)] |= 1 << row % STRIP_ROWS;
+        }
+
+        StringBuilder code = new StringBuilder();
+        for (int strip = 0; strip < strips; strip++)
+        {
+            if (strip > 0)
+                code.append('z');
+            int zeros = 0;
+            for (int column = 0; column < columns; column++)
+            {
+                int digit = digits[strip * columns + column];
+                if (digit == 0)
+                {
+                    zeros++;
+                    continue;
+                }
+                appendZeros(code, zeros);
+                zeros = 0;
+                code.append(DIGITS.charAt(digit));
+            }
+        }
+        return code.toString();
+    }
+
+    private static void appendZeros(StringBuilder code, int zeros)
+    {
+        while (zeros > 0)
+        {
+            if (zeros == 1)
+            {
+                code.append('0');
+                return;
+            }
+            if (zeros == 2)
+            {
+                code.append('w');
+                return;
+            }
+            if (zeros == 3)
+            {
+                code.append('x');
+                return;
+            }
+            int run = Math.min(zeros, 4 + DIGITS.length() - 1);
+            code.append('y').append(DIGITS.charAt(run - 4));
+            zeros -= run;
+        }
+    }
+
+    /**
+     * @return number of shapes inside the cache
+     */
+    int getCachedShapes()
+    {
+        return cache.size();
+    }
+}
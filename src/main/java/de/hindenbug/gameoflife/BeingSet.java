@@ -0,0 +1,93 @@
+package de.hindenbug.gameoflife;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A <code>BeingSet</code> is a view of packed cells as a set of {@linkplain Being}s. No being is stored, they are
+ * created on access. Changes of the view are written through to the packed cells and vice versa.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 11:50
+ */
+class BeingSet extends AbstractSet<Being>
+{
+    private final CellSet cells;
+
+    BeingSet(CellSet cells)
+    {
+        this.cells = cells;
+    }
+
+    @Override
+    public Iterator<Being> iterator()
+    {
+        // iterate over a copy of the cells, so that beings may be removed while iterating
+        long[] snapshot = cells.toArray();
+        return new Iterator<Being>()
+        {
+            private int index;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public Being next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                removable = true;
+                return Cells.toBeing(snapshot[index++]);
+            }
+
+            @Override
+            public void remove()
+            {
+                if (!removable)
+                    throw new IllegalStateException();
+                removable = false;
+                cells.remove(snapshot[index - 1]);
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        return cells.size();
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return o instanceof Being && cells.contains(Cells.pack((Being) o));
+    }
+
+    @Override
+    public boolean add(Being being)
+    {
+        return cells.add(Cells.pack(being));
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        return o instanceof Being && cells.remove(Cells.pack((Being) o));
+    }
+
+    @Override
+    public void clear()
+    {
+        cells.clear();
+    }
+
+    CellSet getCells()
+    {
+        return cells;
+    }
+}
@@ -0,0 +1,119 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p><code>BitLife</code> applies a {@linkplain Rule} to 64 cells at once. Each bit of a word is one cell, the
+ * eight neighbors of all cells are added with bitwise full adders, so that the neighbor count of every cell is
+ * available as bit planes.</p>
+ * <p>Conway's rule is a short formula of the bit planes. Any other rule selects the words of its lookup table with
+ * a multiplexer tree over the bit planes, that costs a fixed number of operations independent of the rule.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:45
+ */
+final class BitLife
+{
+    private BitLife()
+    {
+    }
+
+    /**
+     * Calculates the next state of 64 cells. All cell arguments are aligned to the center word: bit <code>i</code>
+     * of <code>west</code> contains the western neighbor of bit <code>i</code> of <code>center</code> and so on.
+     *
+     * @param rule rule to apply, not null
+     * @return next state of the 64 cells inside <code>center</code>
+     */
+    static long next(Rule rule,
+                     long northWest, long north, long northEast,
+                     long west, long center, long east,
+                     long southWest, long south, long southEast)
+    {
+        // full adder of the upper row
+        long upperOnes = northWest ^ north ^ northEast;
+        long upperTwos = (northWest & north) | (northEast & (northWest ^ north));
+
+        // full adder of the lower row
+        long lowerOnes = southWest ^ south ^ southEast;
+        long lowerTwos = (southWest & south) | (southEast & (southWest ^ south));
+
+        // half adder of the middle row, the center is no neighbor
+        long middleOnes = west ^ east;
+        long middleTwos = west & east;
+
+        // add the ones of all rows
+        long ones = upperOnes ^ lowerOnes ^ middleOnes;
+        long onesCarry = (upperOnes & lowerOnes) | (middleOnes & (upperOnes ^ lowerOnes));
+
+        // add the twos of all rows and the carry of the ones
+        long twosSum = upperTwos ^ lowerTwos ^ middleTwos;
+        long twosCarry = (upperTwos & lowerTwos) | (middleTwos & (upperTwos ^ lowerTwos));
+        long twos = twosSum ^ onesCarry;
+        long fours = twosCarry ^ (twosSum & onesCarry);
+        long eights = twosCarry & twosSum & onesCarry;
+
+        // alive with 2 or 3 neighbors, or born with exactly 3 neighbors
+        if (rule.isConway())
+            return twos & ~fours & ~eights & (ones | center);
+        return select(rule, center, ones, twos, fours, eights);
+    }
+
+    /**
+     * Selects the next state of each cell out of the lookup table of given rule. The table word of each neighbor
+     * count is either <code>0</code> or <code>-1</code>, the bit planes of the count choose one of them.
+     */
+    private static long select(Rule rule, long center, long ones, long twos, long fours, long eights)
+    {
+        // next state per neighbor count, depending on the state of each cell
+        long count0 = rule.birth0 ^ (center & rule.toggle0);
+        long count1 = rule.birth1 ^ (center & rule.toggle1);
+        long count2 = rule.birth2 ^ (center & rule.toggle2);
+        long count3 = rule.birth3 ^ (center & rule.toggle3);
+        long count4 = rule.birth4 ^ (center & rule.toggle4);
+        long count5 = rule.birth5 ^ (center & rule.toggle5);
+        long count6 = rule.birth6 ^ (center & rule.toggle6);
+        long count7 = rule.birth7 ^ (center & rule.toggle7);
+        long count8 = rule.birth8 ^ (center & rule.toggle8);
+
+        long counts01 = count0 ^ (ones & (count0 ^ count1));
+        long counts23 = count2 ^ (ones & (count2 ^ count3));
+        long counts45 = count4 ^ (ones & (count4 ^ count5));
+        long counts67 = count6 ^ (ones & (count6 ^ count7));
+        long counts03 = counts01 ^ (twos & (counts01 ^ counts23));
+        long counts47 = counts45 ^ (twos & (counts45 ^ counts67));
+        long counts07 = counts03 ^ (fours & (counts03 ^ counts47));
+        // all other planes are empty with eight neighbors
+        return counts07 ^ (eights & (counts07 ^ count8));
+    }
+
+    /**
+     * @param word    word whose bits are shifted
+     * @param carryIn word below the shifted one, its highest bit is shifted into the lowest bit of the result
+     * @return word with the western neighbor of each bit
+     */
+    static long west(long word, long carryIn)
+    {
+        return (word << 1) | (carryIn >>> 63);
+    }
+
+    /**
+     * @param word    word whose bits are shifted
+     * @param carryIn word above the shifted one, its lowest bit is shifted into the highest bit of the result
+     * @return word with the eastern neighbor of each bit
+     */
+    static long east(long word, long carryIn)
+    {
+        return (word >>> 1) | (carryIn << 63);
+    }
+
+    /**
+     * @param from lowest bit, inclusive, between <code>0</code> and <code>64</code>
+     * @param to   highest bit, exclusive, between <code>from</code> and <code>64</code>
+     * @return word with all bits between given bits set
+     */
+    static long range(int from, int to)
+    {
+        if (from >= to)
+            return 0L;
+        return (-1L << from) & (-1L >>> (64 - to));
+    }
+}
@@ -0,0 +1,160 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * A <code>CellBlock</code> is an immutable rectangle of cells, that was {@linkplain Universe#copy(Selection) copied}
+ * out of a universe or read from a pattern. The living cells are stored packed and relative to the upper left corner
+ * of the rectangle, so the block may be {@linkplain Universe#paste(CellBlock, int, int, Transform) pasted} at any
+ * location.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 23:10
+ */
+public final class CellBlock
+{
+    static final CellBlock EMPTY = new CellBlock(0, 0, new long[0]);
+
+    private final int rows;
+    private final int columns;
+    private final long[] cells;
+
+    /**
+     * @param rows    number of rows of the rectangle
+     * @param columns number of columns of the rectangle
+     * @param cells   packed living cells relative to the upper left corner, must never be changed afterwards
+     */
+    CellBlock(int rows, int columns, long[] cells)
+    {
+        this.rows = rows;
+        this.columns = columns;
+        this.cells = cells;
+    }
+
+    /**
+     * Creates a block of the bounding box of given cells, for example of a pattern that was read.
+     *
+     * @param cells packed cells at any location, they are copied
+     * @param count number of cells inside the array
+     * @return block of the cells
+     */
+    static CellBlock of(long[] cells, int count)
+    {
+        if (count == 0)
+            return EMPTY;
+
+        int minRow = Integer.MAX_VALUE;
+        int minColumn = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int maxColumn = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++)
+        {
+            minRow = Math.min(minRow, Cells.row(cells[i]));
+            maxRow = Math.max(maxRow, Cells.row(cells[i]));
+            minColumn = Math.min(minColumn, Cells.column(cells[i]));
+            maxColumn = Math.max(maxColumn, Cells.column(cells[i]));
+        }
+        long[] relative = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            relative[i] = Cells.pack(Cells.row(cells[i]) - minRow, Cells.column(cells[i]) - minColumn);
+        }
+        return new CellBlock(maxRow - minRow + 1, maxColumn - minColumn + 1, relative);
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * @return number of living cells
+     */
+    public int getPopulation()
+    {
+        return cells.length;
+    }
+
+    /**
+     * @return packed living cells relative to the upper left corner, must not be changed
+     */
+    long[] getCells()
+    {
+        return cells;
+    }
+
+    /**
+     * @param transform rotation or reflection, not null
+     * @return new block with the transformed cells
+     */
+    public CellBlock transform(Transform transform)
+    {
+        if (transform == Transform.IDENTITY)
+            return this;
+
+        long[] transformed = new long[cells.length];
+        for (int i = 0; i < cells.length; i++)
+        {
+            transformed[i] = transform.apply(Cells.row(cells[i]), Cells.column(cells[i]), rows, columns);
+        }
+        return transform.swapsAxes()
+               ? new CellBlock(columns, rows, transformed)
+               : new CellBlock(rows, columns, transformed);
+    }
+
+    /**
+     * Returns the cells of this block moved to given location, so they may be added to a universe.
+     *
+     * @param row    row of the upper left corner
+     * @param column column of the upper left corner
+     * @return new array of packed cells
+     */
+    long[] translate(int row, int column)
+    {
+        long[] translated = new long[cells.length];
+        for (int i = 0; i < cells.length; i++)
+        {
+            translated[i] = Cells.pack(row + Cells.row(cells[i]), column + Cells.column(cells[i]));
+        }
+        return translated;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof CellBlock)) return false;
+        CellBlock that = (CellBlock) o;
+        if (rows != that.rows || columns != that.columns || cells.length != that.cells.length)
+            return false;
+
+        long[] sorted = cells.clone();
+        long[] otherSorted = that.cells.clone();
+        Arrays.sort(sorted);
+        Arrays.sort(otherSorted);
+        return Arrays.equals(sorted, otherSorted);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = rows * 31 + columns;
+        for (long cell : cells)
+        {
+            // order independent, cells are not sorted
+            hash += Long.hashCode(Cells.zobrist(cell));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CellBlock " + rows + "x" + columns + ", " + cells.length + " beings";
+    }
+}
@@ -0,0 +1,34 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * A <code>CellSet</code> is a set of packed cells (see {@linkplain Cells}). It is the minimal storage contract a
+ * {@linkplain BeingSet} needs to present the cells of an engine as {@linkplain Being}s.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:30
+ */
+interface CellSet
+{
+    boolean contains(long cell);
+
+    /**
+     * @param cell packed cell to add
+     * @return <code>true</code> if the cell was added, <code>false</code> if it was present or can not be stored
+     */
+    boolean add(long cell);
+
+    /**
+     * @param cell packed cell to remove
+     * @return <code>true</code> if the cell was present
+     */
+    boolean remove(long cell);
+
+    int size();
+
+    void clear();
+
+    /**
+     * @return all cells of this set in no specific order
+     */
+    long[] toArray();
+}
@@ -0,0 +1,140 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * <code>Cells</code> packs the row and the column of a cell into one primitive <code>long</code>. The row is
+ * stored inside the upper 32 bits, the column inside the lower 32 bits. Packed cells are used as the internal
+ * storage of the game of life engines, so no object has to be created per living cell.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 11:20
+ */
+final class Cells
+{
+    private static final long COLUMN_MASK = 0xFFFFFFFFL;
+    /*
+    flipping the sign bit of the column lets packed cells compare like their rows first and columns second
+     */
+    private static final long COLUMN_SIGN = 0x80000000L;
+
+    private Cells()
+    {
+    }
+
+    /**
+     * Packs given row and column into one long.
+     *
+     * @param row    row of the cell, may be less than zero
+     * @param column column of the cell, may be less than zero
+     * @return packed cell
+     */
+    static long pack(int row, int column)
+    {
+        return ((long) row << 32) | (column & COLUMN_MASK);
+    }
+
+    static int row(long cell)
+    {
+        return (int) (cell >> 32);
+    }
+
+    static int column(long cell)
+    {
+        return (int) cell;
+    }
+
+    static long pack(Being being)
+    {
+        return pack(being.getRow(), being.getColumn());
+    }
+
+    static Being toBeing(long cell)
+    {
+        return new Being(row(cell), column(cell));
+    }
+
+    /**
+     * Spreads the bits of a packed cell, so that neighboring cells do not end up in neighboring slots of a hash
+     * table.
+     *
+     * @param cell packed cell
+     * @return mixed hash of the cell
+     */
+    static int hash(long cell)
+    {
+        long h = cell * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the zobrist key of a cell. The zobrist hash of a generation is the exclusive or of the keys of all
+     * living beings, so it is updated with one operation per birth or death. The keys are derived from the cell
+     * itself instead of a table, because the universe is unbounded.
+     *
+     * @param cell packed cell
+     * @return random looking, but stable key of the cell
+     */
+    static long zobrist(long cell)
+    {
+        // finalizer of SplitMix64
+        long z = cell + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return zobrist hash of all given cells
+     */
+    static long zobrist(CellSet cells)
+    {
+        long hash = 0;
+        for (long cell : cells.toArray())
+        {
+            hash ^= zobrist(cell);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the packed cells of given beings without creating a set in between if possible.
+     *
+     * @param beings beings to pack, not null
+     * @return new array of packed cells
+     */
+    static long[] toArray(Set<Being> beings)
+    {
+        if (beings instanceof BeingSet)
+            return ((BeingSet) beings).getCells().toArray();
+
+        long[] cells = new long[beings.size()];
+        int index = 0;
+        for (Being being : beings)
+        {
+            cells[index++] = pack(being);
+        }
+        return index == cells.length
+               ? cells
+               : Arrays.copyOf(cells, index);
+    }
+
+    /**
+     * Sorts given packed cells by their row and cells of the same row by their column.
+     *
+     * @param cells packed cells to sort, not null
+     */
+    static void sort(long[] cells)
+    {
+        for (int i = 0; i < cells.length; i++)
+        {
+            cells[i] ^= COLUMN_SIGN;
+        }
+        Arrays.sort(cells);
+        for (int i = 0; i < cells.length; i++)
+        {
+            cells[i] ^= COLUMN_SIGN;
+        }
+    }
+}
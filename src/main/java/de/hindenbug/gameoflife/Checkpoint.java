@@ -0,0 +1,512 @@
+package de.hindenbug.gameoflife;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * <p>A <code>Checkpoint</code> is the binary snapshot of a universe inside a file, so long simulations may be
+ * resumed. The file is written and read through memory mapped windows of a {@linkplain FileChannel}, so even
+ * universes with several gigabytes are saved without copying them into a stream.</p>
+ * <p>All values are stored big endian:</p>
+ * <pre>
+ *     int    magic "GOLC"
+ *     short  version
+ *     short  flags, reserved
+ *     long   generation
+ *     short  length of the rule, followed by the UTF-8 bytes of the rule
+ *     long   population
+ *     int    minimal row, minimal column, maximal row, maximal column of all beings
+ *     int    number of tiles
+ *     tiles  per tile of 64 x 64 cells, that contains at least one being:
+ *            int row of the tile, int column of the tile, byte encoding and
+ *            either 64 longs with one bit per cell (BITMAP) or the lengths of alternating dead and living runs
+ *            of the row wise cells as variable length integers, prefixed by the short number of runs (RUNS)
+ *     int    CRC32 of all preceding bytes
+ * </pre>
+ * <p>Empty tiles are omitted, each tile uses the smaller of both encodings. The checksum is verified before any
+ * being is added to a universe.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 21:00
+ */
+public final class Checkpoint
+{
+    static final int MAGIC = 0x474F4C43;
+    static final short VERSION = 1;
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+    private static final int BITMAP_BYTES = TILE_SIZE * Long.BYTES;
+    private static final byte BITMAP = 0;
+    private static final byte RUNS = 1;
+    private static final int WINDOW_SIZE = 1 << 26;
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final long generation;
+    private final String rule;
+    private final long population;
+    private final int minRow;
+    private final int minColumn;
+    private final int maxRow;
+    private final int maxColumn;
+
+    private Checkpoint(long generation, String rule, long population,
+                       int minRow, int minColumn, int maxRow, int maxColumn)
+    {
+        this.generation = generation;
+        this.rule = rule;
+        this.population = population;
+        this.minRow = minRow;
+        this.minColumn = minColumn;
+        this.maxRow = maxRow;
+        this.maxColumn = maxColumn;
+    }
+
+    /**
+     * Writes all beings of given universe into given file. An existing file is replaced.
+     *
+     * @param path       path of the checkpoint, not null
+     * @param universe   universe to save, not null
+     * @param generation number of the current generation of the universe
+     * @return meta data of the written checkpoint
+     * @throws IOException if the file could not be written
+     */
+    public static Checkpoint write(Path path, Universe universe, long generation) throws IOException
+    {
+        long[] keys = Cells.toArray(universe.getBeings());
+        int minRow = Integer.MAX_VALUE;
+        int minColumn = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int maxColumn = Integer.MIN_VALUE;
+        for (int i = 0; i < keys.length; i++)
+        {
+            int row = Cells.row(keys[i]);
+            int column = Cells.column(keys[i]);
+            minRow = Math.min(minRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxRow = Math.max(maxRow, row);
+            maxColumn = Math.max(maxColumn, column);
+            keys[i] = tileKey(row, column);
+        }
+        // the cells of one tile are adjacent after sorting
+        Arrays.sort(keys);
+        int tileCount = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (i == 0 || tileOf(keys[i]) != tileOf(keys[i - 1]))
+                tileCount++;
+        }
+        if (keys.length == 0)
+        {
+            minRow = minColumn = 0;
+            maxRow = maxColumn = -1;
+        }
+
+        Checkpoint checkpoint = new Checkpoint(generation, universe.getRule().toString(), keys.length, minRow, minColumn, maxRow, maxColumn);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            MappedWriter out = new MappedWriter(channel);
+            checkpoint.writeHeader(out, tileCount);
+
+            long[] bitmap = new long[TILE_SIZE];
+            byte[] runs = new byte[BITMAP_BYTES + 8];
+            int from = 0;
+            while (from < keys.length)
+            {
+                long tile = tileOf(keys[from]);
+                int to = from;
+                Arrays.fill(bitmap, 0L);
+                while (to < keys.length && tileOf(keys[to]) == tile)
+                {
+                    int key = (int) keys[to++];
+                    bitmap[(key >>> TILE_SHIFT) & (TILE_SIZE - 1)] |= 1L << (key & (TILE_SIZE - 1));
+                }
+                from = to;
+
+                out.ensure(2 * Integer.BYTES + 1 + BITMAP_BYTES);
+                out.buffer.putInt((int) (keys[to - 1] >> 38));
+                out.buffer.putInt((int) (keys[to - 1] << 26 >> 38));
+                int runsLength = encodeRuns(bitmap, runs);
+                if (runsLength < BITMAP_BYTES)
+                {
+                    out.buffer.put(RUNS);
+                    out.buffer.put(runs, 0, runsLength);
+                } else
+                {
+                    out.buffer.put(BITMAP);
+                    for (long row : bitmap)
+                    {
+                        out.buffer.putLong(row);
+                    }
+                }
+            }
+            out.finish();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Reads given checkpoint into given universe. All beings of the universe are removed before.
+     *
+     * @param path     path of the checkpoint, not null
+     * @param universe universe to restore the beings into, not null
+     * @return meta data of the checkpoint, for example the generation to resume with
+     * @throws IOException if the file could not be read, is corrupted or of an unsupported version
+     */
+    public static Checkpoint read(Path path, Universe universe) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            verifyChecksum(channel);
+
+            MappedReader in = new MappedReader(channel, channel.size() - Integer.BYTES);
+            in.ensure(Integer.BYTES + 2 * Short.BYTES + Long.BYTES + Short.BYTES);
+            if (in.buffer.getInt() != MAGIC)
+                throw new IOException(path + " is no checkpoint");
+            short version = in.buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("unsupported checkpoint version " + version);
+            in.buffer.getShort();
+            long generation = in.buffer.getLong();
+            byte[] ruleBytes = new byte[in.buffer.getShort() & 0xFFFF];
+            in.ensure(ruleBytes.length + Long.BYTES + 5 * Integer.BYTES);
+            in.buffer.get(ruleBytes);
+            String rule = new String(ruleBytes, StandardCharsets.UTF_8);
+            Rule parsedRule;
+            try
+            {
+                parsedRule = Rule.parse(rule);
+            } catch (IllegalArgumentException e)
+            {
+                throw new IOException("unsupported rule " + rule, e);
+            }
+
+            Checkpoint checkpoint = new Checkpoint(generation, rule, in.buffer.getLong(),
+                    in.buffer.getInt(), in.buffer.getInt(), in.buffer.getInt(), in.buffer.getInt());
+            int tileCount = in.buffer.getInt();
+
+            universe.clear();
+            universe.setRule(parsedRule);
+            long[] chunk = new long[CHUNK_SIZE];
+            int chunkSize = 0;
+            long[] bitmap = new long[TILE_SIZE];
+            for (int tile = 0; tile < tileCount; tile++)
+            {
+                in.ensure(2 * Integer.BYTES + 1);
+                int top = in.buffer.getInt() << TILE_SHIFT;
+                int left = in.buffer.getInt() << TILE_SHIFT;
+                byte encoding = in.buffer.get();
+                if (encoding == BITMAP)
+                {
+                    in.ensure(BITMAP_BYTES);
+                    for (int row = 0; row < TILE_SIZE; row++)
+                    {
+                        bitmap[row] = in.buffer.getLong();
+                    }
+                } else if (encoding == RUNS)
+                {
+                    decodeRuns(in, bitmap);
+                } else
+                {
+                    throw new IOException("unknown tile encoding " + encoding);
+                }
+
+                for (int row = 0; row < TILE_SIZE; row++)
+                {
+                    for (long bits = bitmap[row]; bits != 0; bits &= bits - 1)
+                    {
+                        chunk[chunkSize++] = Cells.pack(top + row, left + Long.numberOfTrailingZeros(bits));
+                        if (chunkSize == CHUNK_SIZE)
+                        {
+                            universe.addCells(chunk, chunkSize);
+                            chunkSize = 0;
+                        }
+                    }
+                }
+            }
+            universe.addCells(chunk, chunkSize);
+            return checkpoint;
+        }
+    }
+
+    private static void verifyChecksum(FileChannel channel) throws IOException
+    {
+        long size = channel.size() - Integer.BYTES;
+        if (size < 0)
+            throw new IOException("checkpoint is truncated");
+
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < size; position += WINDOW_SIZE)
+        {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position)));
+        }
+        ByteBuffer stored = ByteBuffer.allocate(Integer.BYTES);
+        while (stored.hasRemaining())
+        {
+            if (channel.read(stored, size + stored.position()) < 0)
+                throw new IOException("checkpoint is truncated");
+        }
+        if ((int) crc.getValue() != stored.getInt(0))
+            throw new IOException("checksum of checkpoint does not match");
+    }
+
+    private void writeHeader(MappedWriter out, int tileCount) throws IOException
+    {
+        byte[] ruleBytes = rule.getBytes(StandardCharsets.UTF_8);
+        out.ensure(Integer.BYTES + 2 * Short.BYTES + Long.BYTES + Short.BYTES + ruleBytes.length
+                + Long.BYTES + 5 * Integer.BYTES);
+        out.buffer.putInt(MAGIC);
+        out.buffer.putShort(VERSION);
+        out.buffer.putShort((short) 0);
+        out.buffer.putLong(generation);
+        out.buffer.putShort((short) ruleBytes.length);
+        out.buffer.put(ruleBytes);
+        out.buffer.putLong(population);
+        out.buffer.putInt(minRow);
+        out.buffer.putInt(minColumn);
+        out.buffer.putInt(maxRow);
+        out.buffer.putInt(maxColumn);
+        out.buffer.putInt(tileCount);
+    }
+
+    /**
+     * Sort key of a cell, the upper 52 bits contain the tile and the lower 12 bits the position inside the tile.
+     */
+    private static long tileKey(int row, int column)
+    {
+        return (long) (row >> TILE_SHIFT) << 38
+                | (long) ((column >> TILE_SHIFT) & 0x3FFFFFF) << 12
+                | (row & (TILE_SIZE - 1)) << TILE_SHIFT
+                | column & (TILE_SIZE - 1);
+    }
+
+    private static long tileOf(long key)
+    {
+        return key >> 12;
+    }
+
+    /**
+     * Encodes the cells of a tile row by row as alternating runs of dead and living cells, starting with dead
+     * cells. A trailing run of dead cells is omitted. Encoding stops as soon as the runs are not smaller than a
+     * bitmap.
+     *
+     * @return number of bytes written to given array
+     */
+    private static int encodeRuns(long[] bitmap, byte[] out)
+    {
+        int length = Short.BYTES;
+        int count = 0;
+        int position = 0;
+        boolean alive = false;
+        while (position < TILE_CELLS && length < BITMAP_BYTES)
+        {
+            int end = nextBit(bitmap, position, !alive);
+            if (end == TILE_CELLS && !alive)
+                break;
+            length = putVarInt(out, length, end - position);
+            count++;
+            position = end;
+            alive = !alive;
+        }
+        out[0] = (byte) (count >>> 8);
+        out[1] = (byte) count;
+        return length;
+    }
+
+    private static void decodeRuns(MappedReader in, long[] bitmap) throws IOException
+    {
+        Arrays.fill(bitmap, 0L);
+        in.ensure(Short.BYTES);
+        int count = in.buffer.getShort() & 0xFFFF;
+        int position = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int length = getVarInt(in);
+            if (position + length > TILE_CELLS)
+                throw new IOException("run exceeds tile");
+            if ((i & 1) != 0)
+            {
+                for (int cell = position; cell < position + length; cell++)
+                {
+                    bitmap[cell >>> TILE_SHIFT] |= 1L << (cell & (TILE_SIZE - 1));
+                }
+            }
+            position += length;
+        }
+    }
+
+    /**
+     * @return index of the first cell at or after given position with given state or the number of cells of a
+     * tile if there is none
+     */
+    private static int nextBit(long[] bitmap, int position, boolean alive)
+    {
+        while (position < TILE_CELLS)
+        {
+            long word = bitmap[position >>> TILE_SHIFT];
+            if (!alive)
+                word = ~word;
+            word &= -1L << (position & (TILE_SIZE - 1));
+            if (word != 0)
+                return (position & ~(TILE_SIZE - 1)) + Long.numberOfTrailingZeros(word);
+            position = (position & ~(TILE_SIZE - 1)) + TILE_SIZE;
+        }
+        return TILE_CELLS;
+    }
+
+    private static int putVarInt(byte[] out, int offset, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int getVarInt(MappedReader in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            in.ensure(1);
+            byte b = in.buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("malformed run length");
+    }
+
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    public String getRule()
+    {
+        return rule;
+    }
+
+    public long getPopulation()
+    {
+        return population;
+    }
+
+    public int getMinRow()
+    {
+        return minRow;
+    }
+
+    public int getMinColumn()
+    {
+        return minColumn;
+    }
+
+    public int getMaxRow()
+    {
+        return maxRow;
+    }
+
+    public int getMaxColumn()
+    {
+        return maxColumn;
+    }
+
+    /**
+     * Writes into consecutive mapped windows of a file. The checksum is updated with each window before the next
+     * one is mapped.
+     */
+    private static final class MappedWriter
+    {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private MappedByteBuffer buffer;
+        private long windowStart;
+
+        MappedWriter(FileChannel channel) throws IOException
+        {
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+        }
+
+        /**
+         * Maps the next window if less than given number of bytes remain inside the current one.
+         */
+        void ensure(int bytes) throws IOException
+        {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            completeWindow();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+        }
+
+        private void completeWindow()
+        {
+            ByteBuffer written = buffer.duplicate();
+            written.flip();
+            crc.update(written);
+            buffer.force();
+            windowStart += buffer.position();
+        }
+
+        /**
+         * Appends the checksum and cuts the file after it.
+         */
+        void finish() throws IOException
+        {
+            completeWindow();
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES);
+            checksum.putInt(0, (int) crc.getValue());
+            channel.truncate(windowStart);
+            while (checksum.hasRemaining())
+            {
+                channel.write(checksum, windowStart + checksum.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads out of consecutive mapped windows of a file.
+     */
+    private static final class MappedReader
+    {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long windowStart;
+
+        MappedReader(FileChannel channel, long size) throws IOException
+        {
+            this.channel = channel;
+            this.size = size;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, size));
+        }
+
+        /**
+         * Maps the next window if less than given number of bytes remain inside the current one.
+         */
+        void ensure(int bytes) throws IOException
+        {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            windowStart += buffer.position();
+            if (size - windowStart < bytes)
+                throw new IOException("checkpoint is truncated");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+        }
+    }
+}
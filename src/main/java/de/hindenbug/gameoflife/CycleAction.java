@@ -0,0 +1,23 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * Actions taken once a {@linkplain CycleDetector} found, that a universe became a still life or an oscillator.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 21:15
+ */
+public enum CycleAction
+{
+    /**
+     * Generations are calculated as before.
+     */
+    CONTINUE,
+    /**
+     * No further generations are calculated.
+     */
+    STOP,
+    /**
+     * The generations of one period are repeated without calculating them again.
+     */
+    SKIP
+}
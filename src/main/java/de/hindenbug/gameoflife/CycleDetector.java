@@ -0,0 +1,95 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p>A <code>CycleDetector</code> remembers the {@linkplain Universe#stateHash() state hashes} of the most recent
+ * generations inside a ring buffer. A generation whose hash and population equal those of a remembered generation
+ * repeats it, so the universe became a still life or an oscillator. The period is the distance between both
+ * generations.</p>
+ * <p>The hashes are indexed by a hash map from hash to slot, so each generation is checked in constant time. Periods
+ * greater than the capacity of the detector are not found. Moving patterns like gliders never repeat their
+ * hash, because it depends on the position of the beings.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 21:15
+ */
+final class CycleDetector
+{
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final long[] hashes;
+    private final long[] generations;
+    private final int[] populations;
+    /*
+    slot of each remembered hash plus one, so missing hashes map to zero
+     */
+    private final LongIntHashMap slots;
+    private int next;
+    private int size;
+
+    CycleDetector()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of remembered generations, that is the greatest period that is detected
+     */
+    CycleDetector(int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be greater than zero");
+
+        this.hashes = new long[capacity];
+        this.generations = new long[capacity];
+        this.populations = new int[capacity];
+        this.slots = new LongIntHashMap();
+    }
+
+    /**
+     * Remembers the state of a generation and checks whether it repeats a previous generation.
+     *
+     * @param generation number of the generation, greater than all generations given before
+     * @param hash       state hash of the generation
+     * @param population number of living beings of the generation
+     * @return period of the cycle, <code>1</code> for a still life, or <code>0</code> if the generation is new
+     */
+    int update(long generation, long hash, int population)
+    {
+        int period = 0;
+        int slot = slots.get(hash) - 1;
+        if (slot >= 0 && populations[slot] == population)
+            period = (int) (generation - generations[slot]);
+
+        if (size == hashes.length)
+        {
+            // the oldest generation is forgotten, unless its hash was remembered again later on
+            if (slots.get(hashes[next]) - 1 == next)
+                slots.remove(hashes[next]);
+        } else
+        {
+            size++;
+        }
+        slots.remove(hash);
+        slots.addTo(hash, next + 1);
+        hashes[next] = hash;
+        generations[next] = generation;
+        populations[next] = population;
+        next = (next + 1) % hashes.length;
+        return period;
+    }
+
+    /**
+     * Forgets all generations, for example after the universe was changed.
+     */
+    void reset()
+    {
+        slots.clear();
+        next = 0;
+        size = 0;
+    }
+
+    int getCapacity()
+    {
+        return hashes.length;
+    }
+}
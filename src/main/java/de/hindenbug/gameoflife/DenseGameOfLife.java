@@ -0,0 +1,610 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A <code>DenseGameOfLife</code> is a bounded universe of conway's game of life that stores each row as a
+ * bitmap of longs. It is the better choice compared to {@linkplain GameOfLife} if the universe is bounded and
+ * densely populated, for example random soups.</p>
+ * <p>A whole generation is calculated with bitwise full adders (see {@linkplain BitLife}), so 64 cells are
+ * updated with one word operation. Cells outside of the universe are handled according to the
+ * {@linkplain Border} of the universe.</p>
+ * <p>With a parallelism greater than one, the rows are split into stripes that are calculated on a fork join pool.
+ * Each stripe reads the rows around it from the current generation and writes only its own rows of the next
+ * generation, so no locking is required and the result is identical to the sequential calculation.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:50
+ */
+public class DenseGameOfLife implements Universe
+{
+    /**
+     * Defines how the cells at the border of a <code>DenseGameOfLife</code> see cells outside of the universe.
+     */
+    public enum Border
+    {
+        /**
+         * All cells outside of the universe are dead and can not be added.
+         */
+        DEAD,
+        /**
+         * The universe wraps around, the last row is the upper neighbor of the first row and the last column the
+         * left neighbor of the first column.
+         */
+        TOROIDAL
+    }
+
+    private static final int MIN_STRIPE_ROWS = 16;
+
+    private final int rows;
+    private final int columns;
+    private final Border border;
+
+    private final int words;
+    private final int lastBit;
+    private final long lastWordMask;
+
+    /*
+    both grids contain one padding row above and below the universe, that is either always empty or contains a copy
+    of the opposite row on a toroidal universe
+     */
+    private long[] cells;
+    private long[] nextCells;
+    private int population;
+    private Rule rule = Rule.CONWAY;
+    private long stateHash;
+    /*
+    exclusive or of the zobrist keys of all cells, that changed inside the generation being calculated
+     */
+    private final AtomicLong stateHashDelta = new AtomicLong();
+    /*
+    true if the previous generation is still available inside nextCells and the current generation is unchanged
+     */
+    private boolean deltaAvailable;
+
+    private ForkJoinPool pool;
+    private final BeingSet beings;
+
+    /**
+     * Creates a new empty <code>DenseGameOfLife</code> with a dead border.
+     *
+     * @param rows    number of rows, greater than zero
+     * @param columns number of columns, greater than zero
+     */
+    public DenseGameOfLife(int rows, int columns)
+    {
+        this(rows, columns, Border.DEAD);
+    }
+
+    /**
+     * Creates a new empty <code>DenseGameOfLife</code>.
+     *
+     * @param rows    number of rows, greater than zero
+     * @param columns number of columns, greater than zero
+     * @param border  handling of cells outside of the universe, not null
+     */
+    public DenseGameOfLife(int rows, int columns, Border border)
+    {
+        if (rows <= 0 || columns <= 0)
+            throw new IllegalArgumentException("rows and columns must be greater than zero");
+
+        this.rows = rows;
+        this.columns = columns;
+        this.border = border;
+        this.words = (columns + 63) >>> 6;
+        this.lastBit = (columns - 1) & 63;
+        this.lastWordMask = -1L >>> (63 - lastBit);
+        this.cells = new long[(rows + 2) * words];
+        this.nextCells = new long[cells.length];
+        this.beings = new BeingSet(new BitmapCells());
+    }
+
+    /**
+     * Generates the next generation according to the game of life rule set.
+     */
+    @Override
+    public void generateNextGeneration()
+    {
+        if (border == Border.TOROIDAL)
+        {
+            System.arraycopy(cells, rows * words, cells, 0, words);
+            System.arraycopy(cells, words, cells, (rows + 1) * words, words);
+        }
+
+        stateHashDelta.set(0);
+        if (pool == null)
+        {
+            population = generateRows(0, rows);
+        } else
+        {
+            AtomicInteger nextPopulation = new AtomicInteger();
+            RangeTask.Body stripe = (fromRow, toRow) -> nextPopulation.addAndGet(generateRows(fromRow, toRow));
+            pool.invoke(new RangeTask(stripe, 0, rows,
+                    RangeTask.partitionSize(rows, pool.getParallelism(), MIN_STRIPE_ROWS)));
+            population = nextPopulation.get();
+        }
+
+        stateHash ^= stateHashDelta.get();
+        long[] previousCells = cells;
+        cells = nextCells;
+        nextCells = previousCells;
+        deltaAvailable = true;
+    }
+
+    /**
+     * Compares the current generation with the previous one, that is still available after a generation was
+     * calculated.
+     *
+     * @param generation number of the current generation
+     * @return delta of the last generation or <code>null</code> if this universe was changed afterwards
+     */
+    @Override
+    public GenerationDelta getLastDelta(long generation)
+    {
+        if (!deltaAvailable)
+            return null;
+
+        LongList births = new LongList();
+        LongList deaths = new LongList();
+        for (int row = 0; row < rows; row++)
+        {
+            int rowStart = (row + 1) * words;
+            for (int word = 0; word < words; word++)
+            {
+                long current = cells[rowStart + word];
+                long previous = nextCells[rowStart + word];
+                if (current != previous)
+                {
+                    addCells(births, row, word, current & ~previous);
+                    addCells(deaths, row, word, previous & ~current);
+                }
+            }
+        }
+        return new GenerationDelta(generation, births.toArray(), deaths.toArray());
+    }
+
+    private static void addCells(LongList list, int row, int word, long bits)
+    {
+        while (bits != 0)
+        {
+            list.add(Cells.pack(row, (word << 6) + Long.numberOfTrailingZeros(bits)));
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * Calculates the next state of the rows between given indices into {@linkplain #nextCells}. The zobrist keys
+     * of all changed cells are combined into {@linkplain #stateHashDelta}.
+     *
+     * @param fromRow first row, inclusive
+     * @param toRow   last row, exclusive
+     * @return population of the calculated rows
+     */
+    private int generateRows(int fromRow, int toRow)
+    {
+        Rule rule = this.rule;
+        int rowPopulation = 0;
+        long hash = 0;
+        for (int row = fromRow; row < toRow; row++)
+        {
+            int center = (row + 1) * words;
+            int north = center - words;
+            int south = center + words;
+            for (int word = 0; word < words; word++)
+            {
+                long next = BitLife.next(rule,
+                        west(north, word), cells[north + word], east(north, word),
+                        west(center, word), cells[center + word], east(center, word),
+                        west(south, word), cells[south + word], east(south, word));
+                if (word == words - 1)
+                    next &= lastWordMask;
+                nextCells[center + word] = next;
+                rowPopulation += Long.bitCount(next);
+                for (long changed = next ^ cells[center + word]; changed != 0; changed &= changed - 1)
+                {
+                    hash ^= Cells.zobrist(Cells.pack(row, (word << 6) + Long.numberOfTrailingZeros(changed)));
+                }
+            }
+        }
+        stateHashDelta.accumulateAndGet(hash, (left, right) -> left ^ right);
+        return rowPopulation;
+    }
+
+    private long west(int rowStart, int word)
+    {
+        long carry;
+        if (word > 0)
+            carry = cells[rowStart + word - 1];
+        else if (border == Border.TOROIDAL)
+            carry = cells[rowStart + words - 1] << (63 - lastBit);
+        else
+            carry = 0;
+        return BitLife.west(cells[rowStart + word], carry);
+    }
+
+    private long east(int rowStart, int word)
+    {
+        if (word < words - 1)
+            return BitLife.east(cells[rowStart + word], cells[rowStart + word + 1]);
+
+        long result = cells[rowStart + word] >>> 1;
+        if (border == Border.TOROIDAL)
+            result |= (cells[rowStart] & 1L) << lastBit;
+        return result;
+    }
+
+    /**
+     * Add a new {@linkplain Being} to this universe. Beings outside of a universe with a dead border are ignored.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     */
+    @Override
+    public void addBeing(int row, int column)
+    {
+        setAlive(row, column, true);
+    }
+
+    /**
+     * Adds a new {@linkplain Being} to this universe if none exists on given row and column, otherwise it is
+     * removed. Beings outside of a universe with a dead border are never added.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     * @return <code>true</code> if the being was added, <code>false</code> otherwise
+     */
+    @Override
+    public boolean toggleBeing(int row, int column)
+    {
+        if (isAlive(row, column))
+        {
+            setAlive(row, column, false);
+            return false;
+        }
+        return setAlive(row, column, true);
+    }
+
+    @Override
+    public boolean isAlive(int row, int column)
+    {
+        int index = indexOf(row, column);
+        return index >= 0 && (cells[index] & bitOf(column)) != 0;
+    }
+
+    /**
+     * @return <code>true</code> if the state of the cell was changed
+     */
+    private boolean setAlive(int row, int column, boolean alive)
+    {
+        int index = indexOf(row, column);
+        if (index < 0)
+            return false;
+
+        long bit = bitOf(column);
+        boolean wasAlive = (cells[index] & bit) != 0;
+        if (wasAlive == alive)
+            return false;
+
+        cells[index] ^= bit;
+        stateHash ^= Cells.zobrist(Cells.pack(Math.floorMod(row, rows), Math.floorMod(column, columns)));
+        deltaAvailable = false;
+        population += alive
+                      ? 1
+                      : -1;
+        return true;
+    }
+
+    /**
+     * @return index of the word containing given cell or <code>-1</code> if it is located outside of this universe
+     */
+    private int indexOf(int row, int column)
+    {
+        if (border == Border.TOROIDAL)
+        {
+            row = Math.floorMod(row, rows);
+            column = Math.floorMod(column, columns);
+        } else if (row < 0 || row >= rows || column < 0 || column >= columns)
+        {
+            return -1;
+        }
+        return (row + 1) * words + (column >>> 6);
+    }
+
+    private long bitOf(int column)
+    {
+        return 1L << Math.floorMod(column, columns);
+    }
+
+    @Override
+    public void removeCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            setAlive(Cells.row(cells[i]), Cells.column(cells[i]), false);
+        }
+    }
+
+    /**
+     * Adds a being to every cell of given selection with one word operation per row and word. Cells outside of a
+     * universe with a dead border are ignored, a toroidal universe wraps the selection around.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void fill(Selection selection)
+    {
+        forEachRange(selection, (row, fromColumn, toColumn, i, j) -> setRange(row, fromColumn, toColumn, true));
+    }
+
+    /**
+     * Removes all beings of given selection with one word operation per row and word.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void clear(Selection selection)
+    {
+        forEachRange(selection, (row, fromColumn, toColumn, i, j) -> setRange(row, fromColumn, toColumn, false));
+    }
+
+    @Override
+    public CellBlock copy(Selection selection)
+    {
+        LongList inside = new LongList();
+        forEachRange(selection, (row, fromColumn, toColumn, i, j) ->
+        {
+            int rowStart = (row + 1) * words;
+            for (int word = fromColumn >>> 6; word <= (toColumn - 1) >>> 6; word++)
+            {
+                long bits = cells[rowStart + word] & rangeOf(word, fromColumn, toColumn);
+                for (; bits != 0; bits &= bits - 1)
+                {
+                    int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    inside.add(Cells.pack(i, j + column - fromColumn));
+                }
+            }
+        });
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    /**
+     * Splits a selection into ranges of columns of single rows of this universe.
+     */
+    private void forEachRange(Selection selection, ColumnRange action)
+    {
+        if (selection.isEmpty())
+            return;
+
+        if (border == Border.TOROIDAL)
+        {
+            // a selection greater than the universe covers each cell once
+            int rowCount = Math.min(selection.getRows(), rows);
+            int columnCount = Math.min(selection.getColumns(), columns);
+            int fromColumn = Math.floorMod(selection.getColumn(), columns);
+            int firstCount = Math.min(columnCount, columns - fromColumn);
+            for (int i = 0; i < rowCount; i++)
+            {
+                int row = Math.floorMod(selection.getRow() + i, rows);
+                action.accept(row, fromColumn, fromColumn + firstCount, i, 0);
+                if (firstCount < columnCount)
+                    action.accept(row, 0, columnCount - firstCount, i, firstCount);
+            }
+        } else
+        {
+            int fromRow = Math.max(0, selection.getRow());
+            int toRow = (int) Math.min(rows, (long) selection.getLastRow() + 1);
+            int fromColumn = Math.max(0, selection.getColumn());
+            int toColumn = (int) Math.min(columns, (long) selection.getLastColumn() + 1);
+            if (fromColumn >= toColumn)
+                return;
+
+            for (int row = fromRow; row < toRow; row++)
+            {
+                action.accept(row, fromColumn, toColumn, row - selection.getRow(),
+                        fromColumn - selection.getColumn());
+            }
+        }
+    }
+
+    /**
+     * Sets the cells of one row between given columns.
+     *
+     * @param fromColumn first column, inclusive
+     * @param toColumn   last column, exclusive
+     */
+    private void setRange(int row, int fromColumn, int toColumn, boolean alive)
+    {
+        int rowStart = (row + 1) * words;
+        for (int word = fromColumn >>> 6; word <= (toColumn - 1) >>> 6; word++)
+        {
+            long mask = rangeOf(word, fromColumn, toColumn);
+            long previous = cells[rowStart + word];
+            long current = alive
+                           ? previous | mask
+                           : previous & ~mask;
+            for (long changed = previous ^ current; changed != 0; changed &= changed - 1)
+            {
+                stateHash ^= Cells.zobrist(Cells.pack(row, (word << 6) + Long.numberOfTrailingZeros(changed)));
+            }
+            population += Long.bitCount(current) - Long.bitCount(previous);
+            cells[rowStart + word] = current;
+        }
+        deltaAvailable = false;
+    }
+
+    /**
+     * @return bits of given word, whose columns are between given columns
+     */
+    private static long rangeOf(int word, int fromColumn, int toColumn)
+    {
+        int wordStart = word << 6;
+        return BitLife.range(Math.max(0, fromColumn - wordStart), Math.min(64, toColumn - wordStart));
+    }
+
+    /**
+     * Receives a range of columns of a row, that is part of a {@linkplain Selection}.
+     */
+    @FunctionalInterface
+    private interface ColumnRange
+    {
+        /**
+         * @param row             row of this universe
+         * @param fromColumn      first column of this universe, inclusive
+         * @param toColumn        last column of this universe, exclusive
+         * @param selectionRow    row relative to the selection
+         * @param selectionColumn column of the first column relative to the selection
+         */
+        void accept(int row, int fromColumn, int toColumn, int selectionRow, int selectionColumn);
+    }
+
+    @Override
+    public Set<Being> getBeings()
+    {
+        return beings;
+    }
+
+    @Override
+    public int getPopulation()
+    {
+        return population;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(cells, 0L);
+        population = 0;
+        stateHash = 0;
+        deltaAvailable = false;
+    }
+
+    @Override
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule)
+    {
+        this.rule = rule;
+    }
+
+    /**
+     * Returns the zobrist hash of the current generation, that is combined from the changed cells while a
+     * generation is calculated.
+     *
+     * @return hash of the current generation
+     */
+    @Override
+    public long stateHash()
+    {
+        return stateHash;
+    }
+
+    /**
+     * Sets the number of threads used to calculate a generation. With one thread the generation is calculated
+     * on the calling thread.
+     *
+     * @param parallelism number of threads, greater than zero
+     */
+    @Override
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+        if (parallelism == getParallelism())
+            return;
+
+        if (pool != null)
+            pool.shutdown();
+        pool = parallelism > 1
+               ? new ForkJoinPool(parallelism)
+               : null;
+    }
+
+    @Override
+    public int getParallelism()
+    {
+        return pool != null
+               ? pool.getParallelism()
+               : 1;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public Border getBorder()
+    {
+        return border;
+    }
+
+    /**
+     * Presents the bitmap of this universe as packed cells.
+     */
+    private class BitmapCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return isAlive(Cells.row(cell), Cells.column(cell));
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), true);
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), false);
+        }
+
+        @Override
+        public int size()
+        {
+            return population;
+        }
+
+        @Override
+        public void clear()
+        {
+            DenseGameOfLife.this.clear();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            long[] result = new long[population];
+            int index = 0;
+            for (int row = 0; row < rows; row++)
+            {
+                int rowStart = (row + 1) * words;
+                for (int word = 0; word < words; word++)
+                {
+                    long bits = cells[rowStart + word];
+                    while (bits != 0)
+                    {
+                        int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        result[index++] = Cells.pack(row, column);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Set;
+
+/**
+ * <p>A <code>DensityIndex</code> is a pyramid of population counts over the beings of a universe. Level
+ * <code>0</code> contains the beings themselves, each higher level counts the beings inside blocks of
+ * 2<sup>level</sup> x 2<sup>level</sup> cells. The block of a cell on a level is given by shifting its row and
+ * column by the level, so negative coordinates are supported as well.</p>
+ * <p>The index is kept up to date with the deltas of each generation, so a renderer may visit only the blocks
+ * inside its viewport and skip empty regions without looking at the whole population.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 18:20
+ */
+final class DensityIndex
+{
+    /**
+     * Highest level of the index, a block on that level contains 2<sup>12</sup> x 2<sup>12</sup> cells.
+     */
+    static final int MAX_LEVEL = 12;
+
+    private final LongHashSet cells = new LongHashSet();
+    private final LongIntHashMap[] counts = new LongIntHashMap[MAX_LEVEL + 1];
+
+    DensityIndex()
+    {
+        for (int level = 1; level <= MAX_LEVEL; level++)
+        {
+            counts[level] = new LongIntHashMap();
+        }
+    }
+
+    /**
+     * Replaces the content of this index with given beings.
+     *
+     * @param beings beings to index, not null
+     */
+    void reset(Set<Being> beings)
+    {
+        clear();
+        for (long cell : LongHashSet.copyOf(beings).toArray())
+        {
+            add(Cells.row(cell), Cells.column(cell));
+        }
+    }
+
+    void clear()
+    {
+        cells.clear();
+        for (int level = 1; level <= MAX_LEVEL; level++)
+        {
+            counts[level].clear();
+        }
+    }
+
+    /**
+     * Applies the births and deaths of given delta to this index.
+     *
+     * @param delta delta of a generation, not null
+     */
+    void apply(GenerationDelta delta)
+    {
+        for (long cell : delta.getDeathCells())
+        {
+            remove(Cells.row(cell), Cells.column(cell));
+        }
+        for (long cell : delta.getBirthCells())
+        {
+            add(Cells.row(cell), Cells.column(cell));
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the being was not indexed before
+     */
+    boolean add(int row, int column)
+    {
+        if (!cells.add(Cells.pack(row, column)))
+            return false;
+
+        for (int level = 1; level <= MAX_LEVEL; level++)
+        {
+            counts[level].addTo(Cells.pack(row >> level, column >> level), 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the being was indexed before
+     */
+    boolean remove(int row, int column)
+    {
+        if (!cells.remove(Cells.pack(row, column)))
+            return false;
+
+        for (int level = 1; level <= MAX_LEVEL; level++)
+        {
+            long block = Cells.pack(row >> level, column >> level);
+            if (counts[level].addTo(block, -1) == 0)
+                counts[level].remove(block);
+        }
+        return true;
+    }
+
+    boolean isAlive(int row, int column)
+    {
+        return cells.contains(Cells.pack(row, column));
+    }
+
+    /**
+     * Returns the number of beings inside a block.
+     *
+     * @param level  level of the block, between <code>0</code> and {@linkplain #MAX_LEVEL}
+     * @param row    row of the block, that is the row of a cell shifted by the level
+     * @param column column of the block, that is the column of a cell shifted by the level
+     * @return number of beings inside the block
+     */
+    int count(int level, int row, int column)
+    {
+        if (level == 0)
+            return isAlive(row, column)
+                   ? 1
+                   : 0;
+        return counts[level].get(Cells.pack(row, column));
+    }
+
+    int getPopulation()
+    {
+        return cells.size();
+    }
+}
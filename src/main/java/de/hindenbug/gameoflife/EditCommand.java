@@ -0,0 +1,68 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p>An <code>EditCommand</code> is a change of a {@linkplain Universe} made by the user, that is
+ * {@linkplain GameOfLifeService#submit(EditCommand) submitted} to a running simulation instead of being applied by
+ * the editing thread. The simulation thread applies all submitted commands between two generations, so the
+ * editing thread neither races with the calculation nor waits for it.</p>
+ * <p>Commands are applied in the order they were submitted. Except for {@linkplain #toggle(int, int)} they set
+ * absolute states, so a command may be shown right away on the current generation and shown again on a later one
+ * until it was applied.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 23:40
+ */
+@FunctionalInterface
+public interface EditCommand
+{
+    /**
+     * Applies this command to the universe. The caller holds the lock of the universe.
+     *
+     * @param universe edited universe, not null
+     */
+    void apply(Universe universe);
+
+    /**
+     * @return command adding or removing the being on given cell
+     */
+    static EditCommand setAlive(int row, int column, boolean alive)
+    {
+        return universe ->
+        {
+            if (universe.isAlive(row, column) != alive)
+                universe.toggleBeing(row, column);
+        };
+    }
+
+    /**
+     * @return command adding a being to given cell if it is empty, otherwise removing it
+     */
+    static EditCommand toggle(int row, int column)
+    {
+        return universe -> universe.toggleBeing(row, column);
+    }
+
+    /**
+     * @return command adding the beings of a block (see {@linkplain Universe#paste(CellBlock, int, int, Transform)})
+     */
+    static EditCommand paste(CellBlock block, int row, int column, Transform transform)
+    {
+        return universe -> universe.paste(block, row, column, transform);
+    }
+
+    /**
+     * @return command adding a being to every cell of a selection
+     */
+    static EditCommand fill(Selection selection)
+    {
+        return universe -> universe.fill(selection);
+    }
+
+    /**
+     * @return command removing all beings of a selection
+     */
+    static EditCommand clear(Selection selection)
+    {
+        return universe -> universe.clear(selection);
+    }
+}
@@ -0,0 +1,41 @@
+package de.hindenbug.gameoflife;
+
+import java.util.function.Supplier;
+
+/**
+ * The engines a {@linkplain GameOfLife} may run on. All of them are infinite, so the state of a universe is moved
+ * from one engine to another without losing any being.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+public enum Engine
+{
+    /**
+     * Hash set of living cells (see {@linkplain SparseGameOfLife}), for small and scattered patterns.
+     */
+    SPARSE(SparseGameOfLife::new),
+    /**
+     * Bitmap tiles (see {@linkplain TiledGameOfLife}), for dense patterns and patterns that are mostly stable.
+     */
+    TILED(TiledGameOfLife::new),
+    /**
+     * Memoized quadtree (see {@linkplain HashLifeGameOfLife}), for patterns that repeat their generations.
+     */
+    HASHLIFE(HashLifeGameOfLife::new);
+
+    private final Supplier<Universe> factory;
+
+    Engine(Supplier<Universe> factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * @return new empty universe of this engine
+     */
+    Universe create()
+    {
+        return factory.get();
+    }
+}
@@ -0,0 +1,28 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * An <code>EnginePolicy</code> decides on which {@linkplain Engine} a {@linkplain GameOfLife} runs. It is asked
+ * with the statistics of every sampled generation, the universe migrates to another engine as soon as the policy
+ * chooses one. A policy may keep state, it belongs to one universe.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+@FunctionalInterface
+public interface EnginePolicy
+{
+    /**
+     * @param current    engine the universe runs on
+     * @param statistics statistics of the current generation
+     * @return engine the universe should run on
+     */
+    Engine choose(Engine current, EngineStatistics statistics);
+
+    /**
+     * @return policy keeping the engine the universe was created with
+     */
+    static EnginePolicy fixed()
+    {
+        return (current, statistics) -> current;
+    }
+}
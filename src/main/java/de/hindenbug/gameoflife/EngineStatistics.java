@@ -0,0 +1,99 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Locale;
+
+/**
+ * Statistics of a generation, that are sampled by a {@linkplain GameOfLife} and given to its
+ * {@linkplain EnginePolicy}.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+public final class EngineStatistics
+{
+    private final long generation;
+    private final int population;
+    private final long area;
+    private final double churn;
+    private final int period;
+    private final boolean changed;
+
+    /**
+     * @param generation number of the sampled generation
+     * @param population number of living beings
+     * @param area       number of cells inside the bounding box of the beings
+     * @param churn      births and deaths of the generation per living being, <code>NaN</code> if unknown
+     * @param period     period of the universe, if it repeats its generations, otherwise <code>0</code>
+     * @param changed    <code>true</code> if the universe was changed since the last generation
+     */
+    EngineStatistics(long generation, int population, long area, double churn, int period, boolean changed)
+    {
+        this.generation = generation;
+        this.population = population;
+        this.area = area;
+        this.churn = churn;
+        this.period = period;
+        this.changed = changed;
+    }
+
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    public int getPopulation()
+    {
+        return population;
+    }
+
+    /**
+     * @return number of cells inside the bounding box of the beings
+     */
+    public long getArea()
+    {
+        return area;
+    }
+
+    /**
+     * @return fraction of the bounding box, that is alive
+     */
+    public double getDensity()
+    {
+        return area > 0
+               ? (double) population / area
+               : 0;
+    }
+
+    /**
+     * @return births and deaths of the generation per living being, <code>NaN</code> if the engine does not record
+     * them
+     */
+    public double getChurn()
+    {
+        return churn;
+    }
+
+    /**
+     * @return period of the universe, if it repeats its generations, otherwise <code>0</code>
+     */
+    public int getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * @return <code>true</code> if the universe was changed since the last generation, for example a pattern was
+     * loaded, its churn is not known then
+     */
+    public boolean isChanged()
+    {
+        return changed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "population %d, density %.4f, churn %.4f, period %d%s",
+                population, getDensity(), churn, period, changed ? ", changed" : "");
+    }
+}
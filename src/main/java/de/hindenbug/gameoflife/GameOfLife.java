@@ -1,9 +1,9 @@
 package de.hindenbug.gameoflife;
 
-import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
 
 /**
  * <p>An instance of this <code>GameOfLife</code> is one possible solution to conway's game of life.</p>
@@ -17,33 +17,52 @@ import java.util.stream.Stream;
  * <li>Any live cell with more than three live neighbours dies, as if by overpopulation.</li>
  * <li>Any dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.</li>
  * </ul>
+ * <p>Other life-like rules are set with {@linkplain #setRule(Rule)}.</p>
+ * <p>The generations are calculated by one of the infinite {@linkplain Engine}s. Every
+ * {@linkplain #SAMPLE_INTERVAL} generations the population, the bounding box and the churn are sampled and given to
+ * the {@linkplain EnginePolicy}, by default an {@linkplain AdaptiveEnginePolicy}. If the policy chooses another
+ * engine, the beings are moved to it before the next generation. The delta of a generation, that was migrated, is
+ * not known, so {@linkplain #getLastDelta(long)} returns <code>null</code> once. Each migration is logged and
+ * recorded by the {@linkplain #setMetrics(Metrics) metrics}.</p>
+ * <p>The {@linkplain #setParallelism(int) parallelism} is kept across migrations, every engine the beings are moved
+ * to calculates its generations with the same number of threads, as far as it is able to.</p>
  *
  * @author Nils Verheyen
  * @see <a href="https://en.wikipedia.org/wiki/Conway's_Game_of_Life">Conway's Game of Life</a>
  * @since 11.03.17 16:35
  */
-public class GameOfLife
+public class GameOfLife implements Universe
 {
-    private final Predicate<Being> isAliveInNextGeneration = being ->
-    {
-        int neighborCount = getExistingNeighbors(being).size();
-        return neighborCount >= 2 && neighborCount <= 3;
-    };
+    private static final Logger LOG = LoggerFactory.getLogger(GameOfLife.class);
 
-    private final Predicate<Being> isNewInNextGeneration = being ->
-    {
-        int neighborCount = getExistingNeighbors(being).size();
-        return neighborCount == 3;
-    };
+    static final int SAMPLE_INTERVAL = 64;
 
-    private Set<Being> beings;
+    private final EnginePolicy policy;
+    private Universe engine;
+    private Engine engineType;
+    private final BeingSet beings;
+    private final CycleDetector cycleDetector = new CycleDetector();
+    /*
+    period found by the cycle detector, kept until the universe is changed
+     */
+    private int period;
+    /*
+    true if the universe was changed since the last sample, for example a pattern was loaded
+     */
+    private boolean changedSinceSample;
+    private long generation;
+    private boolean migrated;
+    private int migrations;
+    private long migrationNanos;
+    private Metrics metrics;
+    private int parallelism = 1;
 
     /**
-     * Creates a new empty <code>GameOfLife</code>
+     * Creates a new empty <code>GameOfLife</code>, that adapts its engine to the beings
      */
     public GameOfLife()
     {
-        beings = new HashSet<>();
+        this(Engine.SPARSE, new AdaptiveEnginePolicy());
     }
 
     /**
@@ -53,85 +72,364 @@ public class GameOfLife
      */
     public GameOfLife(Set<Being> beings)
     {
-        this.beings = new HashSet<>(beings);
+        this();
+        long[] cells = Cells.toArray(beings);
+        addCells(cells, cells.length);
     }
 
     /**
-     * Generates the next generation according to the game of life rule set.
+     * Creates a new empty game of life.
+     *
+     * @param engine engine of the first generation, not null
+     * @param policy policy choosing the engine of the following generations, not null
      */
-    public void generateNextGeneration()
+    public GameOfLife(Engine engine, EnginePolicy policy)
     {
-        // filter existing beings by those who survive in the next generation
-        Set<Being> survivors = beings.stream()
-                .filter(isAliveInNextGeneration)
-                .collect(Collectors.toSet());
-        Set<Being> newOnes = beings.stream()
-                // create a being for each neighbor of each existing being
-                .flatMap(this::getPossibleNeighbors)
-                // filter those beings that contain the required amount of existing neighbors
-                .filter(isNewInNextGeneration)
-                .collect(Collectors.toSet());
-        beings.clear();
-        beings.addAll(survivors);
-        beings.addAll(newOnes);
+        this.engineType = engine;
+        this.engine = engine.create();
+        this.policy = policy;
+        this.beings = new BeingSet(new EngineCells());
     }
 
-    private Set<Being> getExistingNeighbors(Being being)
+    /**
+     * Generates the next generation on the current engine and samples it for the engine policy if its turn has
+     * come. A universe, that was changed, is sampled before the generation, so a loaded pattern does not run on an
+     * unsuitable engine until the next sample. The state hash of each generation is given to a
+     * {@linkplain CycleDetector}, so universes that repeat their generations are found. On the HashLife engine only
+     * the sampled generations are checked, a period found there is a multiple of the real period.
+     */
+    @Override
+    public void generateNextGeneration()
     {
-        return beings.stream()
-                .filter(b -> b.isNeighborOf(being))
-                .collect(Collectors.toSet());
+        if (changedSinceSample)
+            sample(false);
+        migrated = false;
+        engine.generateNextGeneration();
+        generation++;
+        if (period == 0 && engineType != Engine.HASHLIFE)
+            period = cycleDetector.update(generation, engine.stateHash(), engine.getPopulation());
+
+        if (generation % SAMPLE_INTERVAL == 0)
+            sample(true);
     }
 
-    private Stream<Being> getPossibleNeighbors(Being being)
+    /**
+     * @param stepped <code>true</code> if the last generation was calculated after the last change, so its churn
+     *                is known
+     */
+    private void sample(boolean stepped)
     {
-        return Stream.of(being.createNeighbors());
+        changedSinceSample = false;
+        long[] cells = Cells.toArray(engine.getBeings());
+        long area = 0;
+        if (cells.length > 0)
+        {
+            int minRow = Integer.MAX_VALUE;
+            int minColumn = Integer.MAX_VALUE;
+            int maxRow = Integer.MIN_VALUE;
+            int maxColumn = Integer.MIN_VALUE;
+            for (long cell : cells)
+            {
+                minRow = Math.min(minRow, Cells.row(cell));
+                maxRow = Math.max(maxRow, Cells.row(cell));
+                minColumn = Math.min(minColumn, Cells.column(cell));
+                maxColumn = Math.max(maxColumn, Cells.column(cell));
+            }
+            area = ((long) maxRow - minRow + 1) * ((long) maxColumn - minColumn + 1);
+        }
+        if (period == 0 && engineType == Engine.HASHLIFE)
+        {
+            // the state hash of HashLife compares the quadtrees of two generations, so only the sampled generations
+            // are checked with the cells, that are collected anyway
+            long hash = 0;
+            for (long cell : cells)
+            {
+                hash ^= Cells.zobrist(cell);
+            }
+            period = cycleDetector.update(generation, hash, cells.length);
+        }
+        GenerationDelta delta = stepped
+                                ? engine.getLastDelta(generation)
+                                : null;
+        double churn = delta == null
+                       ? Double.NaN
+                       : cells.length > 0
+                         ? (double) (delta.getBirthCount() + delta.getDeathCount()) / cells.length
+                         : 0;
+
+        EngineStatistics statistics = new EngineStatistics(generation, cells.length, area, churn, period,
+                !stepped);
+        Engine chosen = policy.choose(engineType, statistics);
+        if (chosen != engineType)
+            migrate(chosen, cells, statistics);
     }
 
     /**
-     * Add a new {@linkplain Being} to the set of this game of life.
-     *
-     * @param row    row of the being, may be less than zero
-     * @param column column of the being, may be less than zero
+     * Moves the beings to a new universe of another engine.
      */
-    public void addBeing(int row, int column)
+    private void migrate(Engine target, long[] cells, EngineStatistics statistics)
     {
-        beings.add(new Being(row, column));
+        long start = System.nanoTime();
+        Universe next = target.create();
+        next.setParallelism(parallelism);
+        next.setRule(engine.getRule());
+        next.addCells(cells, cells.length);
+        long nanos = System.nanoTime() - start;
+
+        LOG.info("generation {}: migrated {} beings from {} to {} in {} us ({})", generation, cells.length,
+                engineType, target, nanos / 1000, statistics);
+        if (metrics != null)
+            metrics.recordMigration(generation, engineType.name(), target.name(), cells.length, nanos,
+                    statistics.toString());
+        // the threads of the previous engine are released
+        engine.setParallelism(1);
+        engine = next;
+        engineType = target;
+        migrated = true;
+        migrations++;
+        migrationNanos += nanos;
     }
 
     /**
-     * Adds a new {@linkplain Being} to this game of life if none exists on given row and column, otherwise it is
-     * removed.
-     *
-     * @param row    row of the being, may be less than zero
-     * @param column column of the being, may be less than zero
-     * @return <code>true</code> if the being was added, <code>false</code> otherwise
+     * The universe was changed by the user, so it may no longer repeat its generations.
      */
+    private void changed()
+    {
+        cycleDetector.reset();
+        period = 0;
+        changedSinceSample = true;
+    }
+
+    @Override
+    public void addBeing(int row, int column)
+    {
+        changed();
+        engine.addBeing(row, column);
+    }
+
+    @Override
     public boolean toggleBeing(int row, int column)
     {
-        Optional<Being> optionalBeing = beings.stream()
-                .filter(b -> b.getRow() == row && b.getColumn() == column)
-                .findAny();
+        changed();
+        return engine.toggleBeing(row, column);
+    }
 
-        if (optionalBeing.isPresent())
-        {
-            beings.remove(optionalBeing.get());
-            return false;
-        } else
-        {
-            beings.add(new Being(row, column));
-            return true;
-        }
+    @Override
+    public boolean isAlive(int row, int column)
+    {
+        return engine.isAlive(row, column);
     }
 
+    /**
+     * Returns a view of all living beings of this game of life. The view stays valid after the beings were moved to
+     * another engine, changes of the returned set are written through to this game of life.
+     *
+     * @return view of all living beings
+     */
+    @Override
     public Set<Being> getBeings()
     {
         return beings;
     }
 
+    @Override
+    public int getPopulation()
+    {
+        return engine.getPopulation();
+    }
+
+    @Override
     public void clear()
     {
-        beings.clear();
+        changed();
+        engine.clear();
+    }
+
+    @Override
+    public Rule getRule()
+    {
+        return engine.getRule();
+    }
+
+    @Override
+    public void setRule(Rule rule)
+    {
+        changed();
+        engine.setRule(rule);
+    }
+
+    @Override
+    public void addCells(long[] cells, int count)
+    {
+        changed();
+        engine.addCells(cells, count);
+    }
+
+    @Override
+    public void removeCells(long[] cells, int count)
+    {
+        changed();
+        engine.removeCells(cells, count);
+    }
+
+    @Override
+    public void fill(Selection selection)
+    {
+        changed();
+        engine.fill(selection);
+    }
+
+    @Override
+    public void clear(Selection selection)
+    {
+        changed();
+        engine.clear(selection);
+    }
+
+    @Override
+    public CellBlock copy(Selection selection)
+    {
+        return engine.copy(selection);
+    }
+
+    @Override
+    public void paste(CellBlock block, int row, int column, Transform transform)
+    {
+        changed();
+        engine.paste(block, row, column, transform);
+    }
+
+    @Override
+    public long stateHash()
+    {
+        return engine.stateHash();
+    }
+
+    @Override
+    public GenerationSnapshot snapshot(long generation)
+    {
+        return engine.snapshot(generation);
+    }
+
+    /**
+     * @return delta of the current engine, <code>null</code> if the beings were moved to another engine after the
+     * last generation
+     */
+    @Override
+    public GenerationDelta getLastDelta(long generation)
+    {
+        return migrated
+               ? null
+               : engine.getLastDelta(generation);
+    }
+
+    /**
+     * @return engine the universe runs on
+     */
+    public Engine getEngine()
+    {
+        return engineType;
+    }
+
+    /**
+     * @return number of moves to another engine
+     */
+    public int getMigrations()
+    {
+        return migrations;
+    }
+
+    /**
+     * @return time in nanoseconds spent to move the beings to other engines
+     */
+    public long getMigrationNanos()
+    {
+        return migrationNanos;
+    }
+
+    /**
+     * Sets the number of threads used to calculate a generation on the current engine and on every engine the
+     * beings are moved to afterwards. Engines that calculate on one thread ignore it until the beings are moved to
+     * one that does not.
+     *
+     * @param parallelism number of threads, greater than zero
+     */
+    @Override
+    public void setParallelism(int parallelism)
+    {
+        engine.setParallelism(parallelism);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return number of threads used to calculate a generation on the engines that are able to
+     */
+    @Override
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Sets the metrics, that record the engine and each migration.
+     *
+     * @param metrics metrics of the simulation, null to record nothing
+     */
+    public void setMetrics(Metrics metrics)
+    {
+        this.metrics = metrics;
+        if (metrics != null)
+            metrics.recordEngine(engineType.name());
+    }
+
+    /**
+     * Presents the beings of the current engine to the {@linkplain BeingSet}.
+     */
+    private class EngineCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return engine.isAlive(Cells.row(cell), Cells.column(cell));
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            if (contains(cell))
+                return false;
+
+            addBeing(Cells.row(cell), Cells.column(cell));
+            return true;
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            if (!contains(cell))
+                return false;
+
+            toggleBeing(Cells.row(cell), Cells.column(cell));
+            return true;
+        }
+
+        @Override
+        public int size()
+        {
+            return engine.getPopulation();
+        }
+
+        @Override
+        public void clear()
+        {
+            GameOfLife.this.clear();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            return Cells.toArray(engine.getBeings());
+        }
     }
 
     @Override
@@ -140,12 +438,13 @@ public class GameOfLife
         if (this == o) return true;
         if (!(o instanceof GameOfLife)) return false;
         GameOfLife that = (GameOfLife) o;
-        return Objects.equals(beings, that.beings);
+        return stateHash() == that.stateHash() && getPopulation() == that.getPopulation()
+                && beings.containsAll(that.beings);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(beings);
+        return Long.hashCode(stateHash());
     }
 }
@@ -1,5 +1,8 @@
 package de.hindenbug.gameoflife;
 
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -8,48 +11,119 @@ import java.util.stream.Stream;
  */
 public class GameOfLifeSample
 {
-    public static final GameOfLife GosperGliderGun = new GameOfLife(
-            Stream.of(
-                    new Being(5, 1),
-                    new Being(6, 1),
-                    new Being(5, 2),
-                    new Being(6, 2),
-
-                    new Being(5, 11),
-                    new Being(6, 11),
-                    new Being(7, 11),
-                    new Being(4, 12),
-                    new Being(8, 12),
-                    new Being(3, 13),
-                    new Being(9, 13),
-                    new Being(3, 14),
-                    new Being(9, 14),
-                    new Being(6, 15),
-                    new Being(4, 16),
-                    new Being(8, 16),
-                    new Being(5, 17),
-                    new Being(6, 17),
-                    new Being(7, 17),
-                    new Being(6, 18),
-
-                    new Being(5, 21),
-                    new Being(5, 22),
-                    new Being(4, 21),
-                    new Being(4, 22),
-                    new Being(3, 21),
-                    new Being(3, 22),
-                    new Being(2, 23),
-                    new Being(6, 23),
-                    new Being(6, 25),
-                    new Being(7, 25),
-                    new Being(1, 25),
-                    new Being(2, 25),
-
-                    new Being(3, 35),
-                    new Being(4, 35),
-                    new Being(3, 36),
-                    new Being(4, 36)
-
-            ).collect(Collectors.toSet())
-    );
+    public static final GameOfLife GosperGliderGun = new GameOfLife(gosperGliderGun());
+
+    /**
+     * @return beings of a period 2 oscillator
+     */
+    public static Set<Being> blinker()
+    {
+        return Stream.of(
+                new Being(1, 0),
+                new Being(1, 1),
+                new Being(1, 2)
+        ).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return beings of a gun, that emits a glider every 30 generations
+     */
+    public static Set<Being> gosperGliderGun()
+    {
+        return Stream.of(
+                new Being(5, 1),
+                new Being(6, 1),
+                new Being(5, 2),
+                new Being(6, 2),
+
+                new Being(5, 11),
+                new Being(6, 11),
+                new Being(7, 11),
+                new Being(4, 12),
+                new Being(8, 12),
+                new Being(3, 13),
+                new Being(9, 13),
+                new Being(3, 14),
+                new Being(9, 14),
+                new Being(6, 15),
+                new Being(4, 16),
+                new Being(8, 16),
+                new Being(5, 17),
+                new Being(6, 17),
+                new Being(7, 17),
+                new Being(6, 18),
+
+                new Being(5, 21),
+                new Being(5, 22),
+                new Being(4, 21),
+                new Being(4, 22),
+                new Being(3, 21),
+                new Being(3, 22),
+                new Being(2, 23),
+                new Being(6, 23),
+                new Being(6, 25),
+                new Being(7, 25),
+                new Being(1, 25),
+                new Being(2, 25),
+
+                new Being(3, 35),
+                new Being(4, 35),
+                new Being(3, 36),
+                new Being(4, 36)
+
+        ).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return beings of a methuselah, that stabilizes after 1103 generations
+     */
+    public static Set<Being> rPentomino()
+    {
+        return Stream.of(
+                new Being(0, 1),
+                new Being(0, 2),
+                new Being(1, 0),
+                new Being(1, 1),
+                new Being(2, 1)
+        ).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return beings of a methuselah, that stabilizes after 5206 generations
+     */
+    public static Set<Being> acorn()
+    {
+        return Stream.of(
+                new Being(0, 1),
+                new Being(1, 3),
+                new Being(2, 0),
+                new Being(2, 1),
+                new Being(2, 4),
+                new Being(2, 5),
+                new Being(2, 6)
+        ).collect(Collectors.toSet());
+    }
+
+    /**
+     * Creates a random soup inside the square between <code>(0, 0)</code> and <code>(size - 1, size - 1)</code>.
+     *
+     * @param size    number of rows and columns of the soup
+     * @param density probability of each cell to be alive, between <code>0</code> and <code>1</code>
+     * @param seed    seed of the random generator, equal seeds create equal soups
+     * @return beings of the soup
+     */
+    public static Set<Being> randomSoup(int size, double density, long seed)
+    {
+        Random random = new Random(seed);
+        Set<Being> beings = new HashSet<>();
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                if (random.nextDouble() < density)
+                    beings.add(new Being(row, column));
+            }
+        }
+        return beings;
+    }
 }
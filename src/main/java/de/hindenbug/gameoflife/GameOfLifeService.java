@@ -9,87 +9,197 @@ import javafx.concurrent.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 /**
- * A <code>GameOfLifeService</code> is a javafx service capable of generating a {@linkplain GameOfLife} object.
+ * A <code>GameOfLifeService</code> is a javafx service capable of generating the generations of a
+ * {@linkplain Universe}, for example a {@linkplain GameOfLife} or a {@linkplain DenseGameOfLife}.
  * To listen to generation events add change listeners with {@linkplain #addListener(ChangeListener)}.
+ * <p>After each generation an immutable {@linkplain GenerationSnapshot} is published. Listeners and renderers
+ * read the snapshot without any lock, so the generating thread never waits for them. The
+ * {@linkplain #getGameOfLifeSync() sync} only guards changes of the universe made by other threads.</p>
+ * <p>Consumers that only need the changes of each generation add a {@linkplain GenerationDeltaListener} with
+ * {@linkplain #addDeltaListener(GenerationDeltaListener)}.</p>
+ * <p>The {@linkplain Universe#stateHash() state hash} of each generation is passed to a {@linkplain CycleDetector},
+ * so still lifes and oscillators are found without comparing generations. Depending on the
+ * {@linkplain CycleAction} the service stops once a cycle was found or replays the generations of one period
+ * instead of calculating them.</p>
+ * <p>The rate of the generations is given by the {@linkplain SchedulerMode}. Change listeners are not informed
+ * about every generation: at most one notification is queued on the javafx application thread, it carries the
+ * latest snapshot once it runs. Renderers should rather pull the {@linkplain #getSnapshot() latest snapshot} once
+ * per frame.</p>
+ * <p>Other threads change the universe by {@linkplain #submit(EditCommand) submitting} edit commands. The commands
+ * are pushed onto a lock-free stack and applied by the generating thread between two generations, so editing
+ * never waits for a generation and never races with it.</p>
+ * <p>With a {@linkplain #setLookahead(int) lookahead} the generations are calculated ahead into a bounded queue
+ * and presented at a steady rate, so generations of varying cost do not make the playback stutter.</p>
+ * <p>The published generations are recorded by a {@linkplain GenerationHistory}, so the service is able to
+ * {@linkplain #rewind(long) rewind} to a past generation within the budget of the history.</p>
  *
  * @author Nils Verheyen
  * @since 14.03.17 21:31
  */
-public class GameOfLifeService extends Service<GameOfLife> implements ObservableValue<GameOfLife>
+public class GameOfLifeService extends Service<GenerationSnapshot> implements ObservableValue<GenerationSnapshot>
 {
+    private static final Logger LOG = LoggerFactory.getLogger(GameOfLifeService.class);
+
     static final int DEFAULT_GENERATION_TIME_MS = 150;
+    /*
+    greatest period, whose generations are replayed, the snapshots of each generation are kept
+     */
+    static final int MAX_REPLAY_PERIOD = 64;
 
-    private final GameOfLife gameOfLife;
+    private final Universe gameOfLife;
     private final Semaphore gameOfLifeSync;
-    private int generation;
+    private long generation;
+    private final AtomicReference<GenerationSnapshot> snapshot;
+    private final AtomicReference<GenerationDelta> delta;
+    private final RateMeter generationRate;
+    private final Metrics metrics;
+    private final GenerationHistory history;
+
+    private final CycleDetector cycleDetector;
+    private volatile CycleAction cycleAction;
+    private volatile int period;
+    /*
+    generation of the universe while a cycle is replayed, the published generations run ahead of it
+     */
+    private long cycleStart;
+    private long cycleHash;
+    private GenerationSnapshot[] cycleSnapshots;
+    private GenerationDelta[] cycleDeltas;
+    private int recorded;
 
-    private final List<ChangeListener<GameOfLife>> changeListeners;
+    private final List<ChangeListener<? super GenerationSnapshot>> changeListeners;
     private final List<InvalidationListener> invalidationListeners;
+    private final List<GenerationDeltaListener> deltaListeners;
+    /*
+    true while a notification of the change listeners is queued on the javafx application thread
+     */
+    private final AtomicBoolean changePending;
+    /*
+    snapshot the change listeners were informed about last, only accessed on the javafx application thread
+     */
+    private GenerationSnapshot notifiedSnapshot;
 
-    private int interval;
+    private volatile int interval;
+    private volatile SchedulerMode schedulerMode;
+
+    /*
+    latest submitted edit, each edit links to the one submitted before down to a marker without command, that
+    carries the sequence number of the last applied edit
+     */
+    private final AtomicReference<PendingEdit> pendingEdits;
+    /*
+    sequence number of the last applied edit, only changed while the sync is acquired
+     */
+    private long appliedEdits;
+    /*
+    true while the task generates, its thread applies the edits and publishes the snapshots then
+     */
+    private volatile boolean simulating;
+
+    /*
+    number of generations calculated ahead of the presented one, 0 to calculate and present in lockstep
+     */
+    private volatile int lookahead;
+    /*
+    number of threads the universe calculates a generation with, applied by the generating thread
+     */
+    private volatile int parallelism;
+    /*
+    generations calculated ahead while the task presents them, only replaced while the sync is acquired
+     */
+    private volatile BlockingQueue<Frame> lookaheadFrames;
+    /*
+    incremented once the generations calculated ahead became invalid, frames of an older epoch are dropped
+     */
+    private volatile long lookaheadEpoch;
+    private volatile RuntimeException lookaheadFailure;
+    /*
+    guards the presentation of a generation calculated ahead against its invalidation
+     */
+    private final Object presentLock = new Object();
+    /*
+    generations calculated ahead of the presented one, oldest first, only accessed while the sync is acquired
+     */
+    private final Deque<Frame> calculatedFrames = new ArrayDeque<>();
 
-    public GameOfLifeService(GameOfLife gameOfLife)
+    public GameOfLifeService(Universe gameOfLife)
     {
         this(gameOfLife, DEFAULT_GENERATION_TIME_MS, new Semaphore(1));
     }
 
-    public GameOfLifeService(GameOfLife gameOfLife, int interval, Semaphore gameOfLifeSync)
+    public GameOfLifeService(Universe gameOfLife, int interval, Semaphore gameOfLifeSync)
+    {
+        this(gameOfLife, interval, gameOfLifeSync, new Metrics());
+    }
+
+    /**
+     * @param gameOfLife     universe whose generations are generated, not null
+     * @param interval       time between two generations in milliseconds
+     * @param gameOfLifeSync guards changes of the universe, not null
+     * @param metrics        records the timings and the population of each generation, not null
+     */
+    public GameOfLifeService(Universe gameOfLife, int interval, Semaphore gameOfLifeSync, Metrics metrics)
+    {
+        this(gameOfLife, interval, gameOfLifeSync, metrics, new GenerationHistory());
+    }
+
+    /**
+     * @param gameOfLife     universe whose generations are generated, not null
+     * @param interval       time between two generations in milliseconds
+     * @param gameOfLifeSync guards changes of the universe, not null
+     * @param metrics        records the timings and the population of each generation, not null
+     * @param history        records the published generations, not null
+     */
+    public GameOfLifeService(Universe gameOfLife, int interval, Semaphore gameOfLifeSync, Metrics metrics,
+                             GenerationHistory history)
     {
         this.gameOfLife = gameOfLife;
         this.interval = interval;
         this.changeListeners = new ArrayList<>();
         this.invalidationListeners = new ArrayList<>();
+        this.deltaListeners = new CopyOnWriteArrayList<>();
         this.gameOfLifeSync = gameOfLifeSync;
+        this.snapshot = new AtomicReference<>(gameOfLife.snapshot(generation));
+        this.delta = new AtomicReference<>();
+        this.generationRate = new RateMeter();
+        this.metrics = metrics;
+        this.history = history;
+        this.history.record(snapshot.get(), null);
+        this.changePending = new AtomicBoolean();
+        this.notifiedSnapshot = snapshot.get();
+        this.schedulerMode = SchedulerMode.FIXED_RATE;
+        this.cycleDetector = new CycleDetector();
+        this.cycleAction = CycleAction.CONTINUE;
+        this.pendingEdits = new AtomicReference<>(new PendingEdit(null, 0, null));
+        this.parallelism = gameOfLife.getParallelism();
     }
 
     @Override
-    protected Task<GameOfLife> createTask()
+    protected Task<GenerationSnapshot> createTask()
     {
-        return new Task<GameOfLife>()
+        return new Task<GenerationSnapshot>()
         {
-            private final Logger LOG = LoggerFactory.getLogger(GameOfLifeService.class);
-
             @Override
-            protected GameOfLife call() throws Exception
+            protected GenerationSnapshot call() throws Exception
             {
-                LOG.info("game of life task called");
-                while (!this.isCancelled())
-                {
-                    LOG.debug("not cancelled");
-                    GameOfLife oldValue;
-                    try
-                    {
-                        LOG.debug("acquire");
-                        gameOfLifeSync.acquire();
-                        LOG.debug("cs");
-                        oldValue = new GameOfLife(gameOfLife.getBeings());
-                        gameOfLife.generateNextGeneration();
-                    } finally
-                    {
-                        gameOfLifeSync.release();
-                        LOG.debug("released");
-                    }
-                    generation++;
-                    LOG.debug("generation #" + generation + " generated");
-                    Platform.runLater(() -> changeListeners.forEach(cl -> cl.changed(null, oldValue, gameOfLife)));
-                    LOG.debug("listeners called");
-                    try
-                    {
-                        LOG.debug("sleeping");
-                        Thread.sleep(interval);
-                        LOG.debug("woke up");
-                    } catch (InterruptedException e)
-                    {
-                        LOG.info("generated cancelled");
-                    }
-                }
-                LOG.info("...finished");
-                return gameOfLife;
+                return simulate(this::isCancelled);
             }
 
             @Override
@@ -116,23 +226,618 @@ public class GameOfLifeService extends Service<GameOfLife> implements Observable
     }
 
     /**
-     * Adds a new listener that will be informed, after a new generation was created in this {@linkplain #gameOfLife}.
-     * The thrown event will consist of the old game of life and the new one. No observable value is given!
+     * Calculates and publishes generations until the simulation is cancelled. The thread running the simulation
+     * is interrupted to cancel it.
+     *
+     * @param cancelled tells if the simulation was cancelled
+     * @return snapshot of the latest generation
+     */
+    GenerationSnapshot simulate(BooleanSupplier cancelled) throws Exception
+    {
+        LOG.info("game of life task called");
+        simulating = true;
+        lookaheadFailure = null;
+        generationRate.reset();
+        int frames = lookahead;
+        if (frames > 0)
+            presentLookahead(new ArrayBlockingQueue<>(frames), cancelled);
+        else
+            generateInLockstep(cancelled);
+        // the task may be interrupted already, the universe has to be aligned anyway
+        gameOfLifeSync.acquireUninterruptibly();
+        try
+        {
+            alignCycle();
+            lookaheadFrames = null;
+            simulating = false;
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+        // edits submitted while the task finished are not left behind
+        applySubmittedEdits();
+        LOG.info("...finished");
+        return snapshot.get();
+    }
+
+    /**
+     * Calculates and publishes one generation after another.
+     */
+    private void generateInLockstep(BooleanSupplier cancelled)
+    {
+        long deadline = System.nanoTime();
+        while (!cancelled.getAsBoolean())
+        {
+            try
+            {
+                Frame frame = nextFrame(true);
+                publish(frame);
+                if (frame.stop)
+                    break;
+                deadline = awaitNextGeneration(deadline);
+            } catch (InterruptedException e)
+            {
+                LOG.info("generated cancelled");
+            }
+        }
+    }
+
+    /**
+     * Presents the generations calculated ahead by a producer thread at the rate of the scheduler mode. A
+     * generation, that takes longer than the generation time, is covered by the generations in the queue.
+     */
+    private void presentLookahead(BlockingQueue<Frame> queue, BooleanSupplier cancelled) throws Exception
+    {
+        gameOfLifeSync.acquireUninterruptibly();
+        try
+        {
+            lookaheadFrames = queue;
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+        Thread producer = new Thread(() -> produce(queue, cancelled), "game of life lookahead");
+        producer.setDaemon(true);
+        producer.start();
+        try
+        {
+            long deadline = System.nanoTime();
+            while (!cancelled.getAsBoolean())
+            {
+                try
+                {
+                    Frame frame = queue.poll(interval, TimeUnit.MILLISECONDS);
+                    if (lookaheadFailure != null)
+                        throw lookaheadFailure;
+                    // a frame calculated before an edit is dropped and the next one is presented at once
+                    if (frame == null || !present(frame))
+                        continue;
+                    if (frame.stop)
+                        break;
+                    deadline = awaitNextGeneration(deadline);
+                } catch (InterruptedException e)
+                {
+                    LOG.info("generated cancelled");
+                }
+            }
+        } finally
+        {
+            producer.interrupt();
+            joinUninterruptibly(producer);
+        }
+    }
+
+    /**
+     * Calculates generations ahead until the task is cancelled. The producer waits while the queue is full
+     * and drops its generation if edits were submitted meanwhile.
+     */
+    private void produce(BlockingQueue<Frame> queue, BooleanSupplier cancelled)
+    {
+        try
+        {
+            while (!cancelled.getAsBoolean())
+            {
+                Frame frame = nextFrame(false);
+                while (!queue.offer(frame, interval, TimeUnit.MILLISECONDS))
+                {
+                    if (frame.epoch != lookaheadEpoch || pendingEdits.get().command != null)
+                        break;
+                }
+            }
+        } catch (InterruptedException e)
+        {
+            LOG.debug("lookahead stopped");
+        } catch (RuntimeException e)
+        {
+            lookaheadFailure = e;
+        }
+    }
+
+    /**
+     * Applies the submitted edits and calculates the next generation while the universe is locked.
+     *
+     * @param record <code>true</code> if the generation is recorded by the history right away, otherwise
+     *               it is recorded once it is presented
+     */
+    private Frame nextFrame(boolean record) throws InterruptedException
+    {
+        GenerationSnapshot newValue;
+        GenerationDelta delta;
+        Frame frame;
+        boolean stop = false;
+        boolean stepped = false;
+        // nothing is measured unless the metrics or the flight recorder events are enabled
+        boolean measuring = metrics.isMeasuring();
+        long acquireStart = measuring
+                            ? System.nanoTime()
+                            : 0;
+        long stepStart = 0;
+        long allocatedBefore = 0;
+        long stepNanos = 0;
+        long allocatedBytes = -1;
+        gameOfLifeSync.acquire();
+        try
+        {
+            if (measuring)
+            {
+                stepStart = System.nanoTime();
+                allocatedBefore = metrics.currentThreadAllocatedBytes();
+            }
+            boolean edited = applyEdits();
+            if (isReplaying())
+            {
+                generation++;
+                int phase = (int) ((generation - cycleStart) % period);
+                newValue = cycleSnapshots[phase].withGeneration(generation);
+                delta = cycleDeltas[phase] != null
+                        ? cycleDeltas[phase].withGeneration(generation)
+                        : null;
+            } else
+            {
+                if (gameOfLife.getParallelism() != parallelism)
+                    gameOfLife.setParallelism(parallelism);
+                gameOfLife.generateNextGeneration();
+                stepped = true;
+                generation++;
+                newValue = stamp(gameOfLife.snapshot(generation));
+                // the delta of the step misses the edits made before it
+                delta = edited
+                        ? null
+                        : gameOfLife.getLastDelta(generation);
+                stop = detectCycle(newValue, delta) && cycleAction == CycleAction.STOP;
+            }
+            frame = new Frame(newValue, delta, snapshot.get(), lookaheadEpoch, stop, stepped);
+            // recorded while the universe is locked, so the history always ends with its generation
+            if (record)
+            {
+                history.record(newValue, delta);
+            } else
+            {
+                // the presented generations are not taken back anymore
+                long presented = frame.previous.getGeneration();
+                while (!calculatedFrames.isEmpty()
+                        && calculatedFrames.peekFirst().snapshot.getGeneration() <= presented)
+                {
+                    calculatedFrames.removeFirst();
+                }
+                calculatedFrames.addLast(frame);
+            }
+            if (measuring)
+            {
+                stepNanos = System.nanoTime() - stepStart;
+                if (allocatedBefore >= 0)
+                    allocatedBytes = metrics.currentThreadAllocatedBytes() - allocatedBefore;
+            }
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+        if (measuring)
+        {
+            metrics.recordGeneration(newValue.getGeneration(), stepNanos, stepStart - acquireStart,
+                    allocatedBytes, newValue.getPopulation(), delta);
+        }
+        return frame;
+    }
+
+    /**
+     * Publishes a generation, unless another thread rewound or restored the universe after the generation
+     * was calculated.
+     */
+    private void publish(Frame frame)
+    {
+        // the delta is published first, so a reader of the snapshot finds its delta or a newer one
+        delta.set(frame.delta);
+        if (!snapshot.compareAndSet(frame.previous, frame.snapshot))
+        {
+            // a delta of an unknown generation is allowed, the readers compare the snapshots then
+            delta.compareAndSet(frame.delta, null);
+            return;
+        }
+        notifyPublished(frame.previous, frame);
+    }
+
+    /**
+     * Publishes a generation calculated ahead and records it by the history, unless the generations
+     * calculated ahead were invalidated since.
+     *
+     * @return <code>false</code> if the frame was dropped
+     */
+    private boolean present(Frame frame)
+    {
+        GenerationSnapshot oldValue;
+        synchronized (presentLock)
+        {
+            if (frame.epoch != lookaheadEpoch)
+                return false;
+            history.record(frame.snapshot, frame.delta);
+            delta.set(frame.delta);
+            oldValue = snapshot.getAndSet(frame.snapshot);
+        }
+        notifyPublished(oldValue, frame);
+        return true;
+    }
+
+    private void notifyPublished(GenerationSnapshot oldValue, Frame frame)
+    {
+        generationRate.mark();
+        notifyDeltaListeners(oldValue, frame.snapshot, frame.delta);
+        LOG.debug("generation #{} generated", frame.snapshot.getGeneration());
+        notifyChangeListeners();
+    }
+
+    /**
+     * Waits until the next generation is due according to the scheduler mode.
+     *
+     * @param deadline time the last generation was due at
+     * @return time the next generation is due at
+     */
+    private long awaitNextGeneration(long deadline) throws InterruptedException
+    {
+        long generationTime = TimeUnit.MILLISECONDS.toNanos(interval);
+        switch (schedulerMode)
+        {
+            case FIXED_DELAY:
+                TimeUnit.NANOSECONDS.sleep(generationTime);
+                return System.nanoTime();
+            case FIXED_RATE:
+                long now = System.nanoTime();
+                deadline += generationTime;
+                if (deadline - now < -generationTime)
+                {
+                    // more than one generation behind, the schedule starts again instead of bursting
+                    return now;
+                }
+                TimeUnit.NANOSECONDS.sleep(deadline - now);
+                return deadline;
+            default:
+                return System.nanoTime();
+        }
+    }
+
+    /**
+     * Passes the state of the new generation to the cycle detector and records the generations of a
+     * found cycle, that are replayed later on.
+     *
+     * @return <code>true</code> if the generation repeats a previous one
+     */
+    private boolean detectCycle(GenerationSnapshot newValue, GenerationDelta delta)
+    {
+        if (cycleSnapshots != null)
+        {
+            // a cycle is recorded, the universe must repeat it exactly
+            int phase = (int) ((generation - cycleStart) % period);
+            cycleSnapshots[phase] = newValue;
+            cycleDeltas[phase] = delta;
+            if (++recorded < period)
+                return true;
+            if (gameOfLife.stateHash() == cycleHash)
+            {
+                cycleStart = generation;
+                LOG.info("replaying cycle of period {} since generation #{}", period, generation);
+                return true;
+            }
+            leaveCycle();
+        }
+
+        int detectedPeriod = cycleDetector.update(generation, gameOfLife.stateHash(),
+                gameOfLife.getPopulation());
+        if (detectedPeriod == 0)
+        {
+            period = 0;
+            return false;
+        }
+
+        // the detector reports the period on every following generation, only a new cycle is logged
+        if (period != detectedPeriod)
+        {
+            LOG.info("generation #{} repeats generation #{}, period {}", generation,
+                    generation - detectedPeriod, detectedPeriod);
+        }
+        period = detectedPeriod;
+        if (cycleAction == CycleAction.SKIP && detectedPeriod <= MAX_REPLAY_PERIOD)
+        {
+            cycleStart = generation;
+            cycleHash = gameOfLife.stateHash();
+            cycleSnapshots = new GenerationSnapshot[detectedPeriod];
+            cycleDeltas = new GenerationDelta[detectedPeriod];
+            recorded = 0;
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if a cycle was recorded and the universe was not changed since
+     */
+    private boolean isReplaying()
+    {
+        if (cycleSnapshots == null || recorded < period)
+            return false;
+        if (gameOfLife.stateHash() == cycleHash)
+            return true;
+
+        // the universe was changed by another thread
+        leaveCycle();
+        return false;
+    }
+
+    /**
+     * Advances the universe to the generation that was published last, if the published generations of a cycle
+     * ran ahead of it, or resets it to that generation, if it was calculated ahead. The sync has to be acquired.
+     */
+    private void alignCycle()
+    {
+        if (alignLookahead())
+            return;
+        if (!isReplaying())
+            return;
+
+        for (long i = (generation - cycleStart) % period; i > 0; i--)
+        {
+            gameOfLife.generateNextGeneration();
+        }
+        leaveCycle();
+    }
+
+    /**
+     * Drops the generations calculated ahead and resets the universe to the generation that was published last.
+     * The sync has to be acquired.
+     *
+     * @return <code>true</code> if the universe was reset
+     */
+    private boolean alignLookahead()
+    {
+        BlockingQueue<Frame> frames = lookaheadFrames;
+        if (frames == null)
+            return false;
+
+        synchronized (presentLock)
+        {
+            lookaheadEpoch++;
+            frames.clear();
+        }
+        GenerationSnapshot presented = snapshot.get();
+        if (presented.getGeneration() == generation)
+        {
+            calculatedFrames.clear();
+            return false;
+        }
+
+        if (!takeBackCalculatedFrames(presented.getGeneration()))
+        {
+            // the presented snapshot is immutable, it is restored instead of calculating the generation again
+            long[] cells = presented.getCells().toArray();
+            gameOfLife.clear();
+            gameOfLife.addCells(cells, cells.length);
+        }
+        calculatedFrames.clear();
+        generation = presented.getGeneration();
+        leaveCycle();
+        return true;
+    }
+
+    /**
+     * Takes back the births and deaths of the generations calculated after the presented one, newest first. The
+     * cost depends on the changes of at most a few generations instead of the population. The sync has to be
+     * acquired.
+     *
+     * @param presented number of the presented generation
+     * @return <code>false</code> if the universe was not changed, because a delta is unknown or a generation was
+     * replayed without advancing the universe
+     */
+    private boolean takeBackCalculatedFrames(long presented)
+    {
+        long expected = generation;
+        Iterator<Frame> newestFirst = calculatedFrames.descendingIterator();
+        while (expected > presented)
+        {
+            if (!newestFirst.hasNext())
+                return false;
+            Frame frame = newestFirst.next();
+            if (frame.snapshot.getGeneration() != expected || !frame.stepped || frame.delta == null)
+                return false;
+            expected--;
+        }
+
+        newestFirst = calculatedFrames.descendingIterator();
+        for (long i = generation; i > presented; i--)
+        {
+            GenerationDelta delta = newestFirst.next().delta;
+            long[] births = delta.getBirthCells();
+            long[] deaths = delta.getDeathCells();
+            gameOfLife.removeCells(births, births.length);
+            gameOfLife.addCells(deaths, deaths.length);
+        }
+        return true;
+    }
+
+    /**
+     * Submits a change of the universe. The change is applied by the generating thread before the next generation
+     * is calculated. If the service does not generate and the universe is not locked, it is applied right away and
+     * a snapshot of the changed universe is published.
+     *
+     * @param command change of the universe, not null
+     * @return sequence number of the command, the command is contained in all snapshots whose
+     * {@linkplain GenerationSnapshot#getLastEdit() last edit} is not less than it
+     */
+    public long submit(EditCommand command)
+    {
+        PendingEdit previous;
+        PendingEdit edit;
+        do
+        {
+            previous = pendingEdits.get();
+            edit = new PendingEdit(command, previous.sequence + 1, previous);
+        } while (!pendingEdits.compareAndSet(previous, edit));
+
+        applySubmittedEdits();
+        return edit.sequence;
+    }
+
+    /**
+     * Applies the submitted edits and publishes the changed universe, unless the generating thread is running or
+     * the universe is locked by another thread.
+     */
+    private void applySubmittedEdits()
+    {
+        if (simulating || !gameOfLifeSync.tryAcquire())
+            return;
+
+        try
+        {
+            // the task may have started before the sync was acquired
+            if (simulating || !applyEdits())
+                return;
+
+            GenerationSnapshot newValue = stamp(gameOfLife.snapshot(generation));
+            history.record(newValue, null);
+            publishLocked(newValue, null);
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * Applies all submitted edits in the order they were submitted. A replayed cycle is aligned first, so the
+     * edits change the published generation. The sync has to be acquired.
+     *
+     * @return <code>true</code> if any edit was applied
+     */
+    private boolean applyEdits()
+    {
+        PendingEdit latest;
+        do
+        {
+            latest = pendingEdits.get();
+            if (latest.command == null)
+                return false;
+        } while (!pendingEdits.compareAndSet(latest, new PendingEdit(null, latest.sequence, null)));
+
+        alignCycle();
+        List<EditCommand> commands = new ArrayList<>();
+        for (PendingEdit edit = latest; edit.command != null; edit = edit.previous)
+        {
+            commands.add(edit.command);
+        }
+        for (int i = commands.size() - 1; i >= 0; i--)
+        {
+            commands.get(i).apply(gameOfLife);
+        }
+        appliedEdits = latest.sequence;
+        // the edited universe does not repeat any previous generation
+        leaveCycle();
+        return true;
+    }
+
+    /**
+     * @return snapshot carrying the sequence number of the last applied edit
+     */
+    private GenerationSnapshot stamp(GenerationSnapshot snapshot)
+    {
+        return appliedEdits != 0
+               ? snapshot.withLastEdit(appliedEdits)
+               : snapshot;
+    }
+
+    private void leaveCycle()
+    {
+        cycleSnapshots = null;
+        cycleDeltas = null;
+        recorded = 0;
+        period = 0;
+        cycleDetector.reset();
+    }
+
+    /**
+     * Queues the notification of the change listeners, unless one is queued already. The queued notification
+     * informs about the latest snapshot, so intermediate generations are dropped if the javafx application thread
+     * is slower than the generations.
+     */
+    private void notifyChangeListeners()
+    {
+        if (changeListeners.isEmpty() || !changePending.compareAndSet(false, true))
+            return;
+
+        Platform.runLater(() ->
+        {
+            changePending.set(false);
+            GenerationSnapshot oldValue = notifiedSnapshot;
+            GenerationSnapshot newValue = snapshot.get();
+            notifiedSnapshot = newValue;
+            if (oldValue != newValue)
+                changeListeners.forEach(cl -> cl.changed(GameOfLifeService.this, oldValue, newValue));
+        });
+    }
+
+    /**
+     * Adds a new listener that will be informed on the javafx application thread, after a new generation was
+     * created in this {@linkplain #gameOfLife}. The thrown event will consist of the snapshot the listeners were
+     * informed about last and the latest snapshot, generations in between may be skipped.
      *
      * @param changeListener contains the listener that will be informed, not null
      */
     @Override
-    public void addListener(ChangeListener changeListener)
+    public void addListener(ChangeListener<? super GenerationSnapshot> changeListener)
     {
         this.changeListeners.add(changeListener);
     }
 
     @Override
-    public void removeListener(ChangeListener changeListener)
+    public void removeListener(ChangeListener<? super GenerationSnapshot> changeListener)
     {
         this.changeListeners.remove(changeListener);
     }
 
+    private void notifyDeltaListeners(GenerationSnapshot oldValue, GenerationSnapshot newValue, GenerationDelta delta)
+    {
+        if (deltaListeners.isEmpty())
+            return;
+
+        if (delta == null)
+            delta = GenerationDelta.between(oldValue, newValue);
+        for (GenerationDeltaListener deltaListener : deltaListeners)
+        {
+            deltaListener.generationChanged(delta);
+        }
+    }
+
+    /**
+     * Adds a new listener that will be informed about the births and deaths of each generation. In contrast to
+     * change listeners, delta listeners are called on the generating thread.
+     *
+     * @param deltaListener contains the listener that will be informed, not null
+     */
+    public void addDeltaListener(GenerationDeltaListener deltaListener)
+    {
+        this.deltaListeners.add(deltaListener);
+    }
+
+    public void removeDeltaListener(GenerationDeltaListener deltaListener)
+    {
+        this.deltaListeners.remove(deltaListener);
+    }
+
     @Override
     public void addListener(InvalidationListener invalidationListener)
     {
@@ -145,6 +850,331 @@ public class GameOfLifeService extends Service<GameOfLife> implements Observable
         this.invalidationListeners.remove(invalidationListener);
     }
 
+    /**
+     * @return snapshot of the latest generation, never null
+     */
+    public GenerationSnapshot getSnapshot()
+    {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the delta of the latest generation. The delta may belong to a newer generation than a snapshot read
+     * before, so its generation has to be compared with the generation of the snapshot.
+     *
+     * @return delta of the latest generation or <code>null</code> if the engine does not record deltas
+     */
+    public GenerationDelta getLastDelta()
+    {
+        return delta.get();
+    }
+
+    /**
+     * @return generations per second, that were achieved lately
+     */
+    public double getGenerationRate()
+    {
+        return generationRate.getRate();
+    }
+
+    /**
+     * @return metrics of the generations, that may be registered as MBean
+     */
+    public Metrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return number of the latest generation
+     */
+    public long getGeneration()
+    {
+        return snapshot.get().getGeneration();
+    }
+
+    /**
+     * Writes the current generation into a {@linkplain Checkpoint}. The universe is locked while it is written.
+     *
+     * @param path path of the checkpoint, not null
+     * @return meta data of the written checkpoint
+     * @throws IOException          if the checkpoint could not be written
+     * @throws InterruptedException if the thread was interrupted while waiting for the universe
+     */
+    public Checkpoint checkpoint(Path path) throws IOException, InterruptedException
+    {
+        gameOfLifeSync.acquire();
+        try
+        {
+            alignCycle();
+            return Checkpoint.write(path, gameOfLife, generation);
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * Replaces the beings of the universe with the beings of a {@linkplain Checkpoint} and resumes with its
+     * generation.
+     *
+     * @param path path of the checkpoint, not null
+     * @return meta data of the restored checkpoint
+     * @throws IOException          if the checkpoint could not be read or is corrupted
+     * @throws InterruptedException if the thread was interrupted while waiting for the universe
+     */
+    public Checkpoint restore(Path path) throws IOException, InterruptedException
+    {
+        gameOfLifeSync.acquire();
+        try
+        {
+            // edits submitted before are applied and replaced by the checkpoint
+            applyEdits();
+            alignCycle();
+            Checkpoint checkpoint = Checkpoint.read(path, gameOfLife);
+            leaveCycle();
+            generation = checkpoint.getGeneration();
+            GenerationSnapshot newValue = stamp(gameOfLife.snapshot(generation));
+            history.record(newValue, null);
+            delta.set(null);
+            snapshot.set(newValue);
+            return checkpoint;
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * Steps back to the generation before the latest one, see {@linkplain #rewind(long)}.
+     *
+     * @return <code>true</code> if the universe was rewound, <code>false</code> if the previous generation is not
+     * kept by the history
+     * @throws InterruptedException if the thread was interrupted while waiting for the universe
+     */
+    public boolean previousGeneration() throws InterruptedException
+    {
+        gameOfLifeSync.acquire();
+        try
+        {
+            // the universe may run ahead of the presented generation
+            alignCycle();
+            return rewindTo(generation - 1);
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * Replaces the beings of the universe with the beings of a past generation, that is kept by the
+     * {@linkplain #getHistory() history}, and resumes with it. The generations after it are dropped from the history,
+     * edits submitted before are applied and replaced as well. The rule of the universe is not rewound.
+     *
+     * @param generation number of the past generation
+     * @return <code>true</code> if the universe was rewound, <code>false</code> if the generation is not kept by the
+     * history
+     * @throws InterruptedException if the thread was interrupted while waiting for the universe
+     */
+    public boolean rewind(long generation) throws InterruptedException
+    {
+        gameOfLifeSync.acquire();
+        try
+        {
+            return rewindTo(generation);
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * The sync has to be acquired.
+     */
+    private boolean rewindTo(long target)
+    {
+        boolean edited = applyEdits();
+        alignCycle();
+        if (target < 0 || target > generation || !history.contains(target))
+            return false;
+
+        GenerationDelta last = edited || target != generation - 1
+                               ? null
+                               : history.getDelta(generation);
+        GenerationDelta newDelta = null;
+        if (last != null)
+        {
+            // one step back only takes back the births and deaths of the latest generation
+            long[] births = last.getBirthCells();
+            long[] deaths = last.getDeathCells();
+            gameOfLife.removeCells(births, births.length);
+            gameOfLife.addCells(deaths, deaths.length);
+            newDelta = new GenerationDelta(target, deaths, births);
+        } else
+        {
+            long[] cells = history.seek(target).getCells().toArray();
+            gameOfLife.clear();
+            gameOfLife.addCells(cells, cells.length);
+        }
+        leaveCycle();
+        generation = target;
+        history.truncate(target);
+
+        publishLocked(stamp(gameOfLife.snapshot(generation)), newDelta);
+        return true;
+    }
+
+    /**
+     * Calculates the next generation right away, for example to step through the generations while the service
+     * does not run. Submitted edits are applied before. The generation is published and recorded by the history
+     * just like a generation of the task.
+     *
+     * @return snapshot of the new generation
+     * @throws InterruptedException if the thread was interrupted while waiting for the universe
+     */
+    public GenerationSnapshot step() throws InterruptedException
+    {
+        gameOfLifeSync.acquire();
+        try
+        {
+            boolean edited = applyEdits();
+            alignCycle();
+            gameOfLife.generateNextGeneration();
+            generation++;
+            GenerationSnapshot newValue = stamp(gameOfLife.snapshot(generation));
+            // the delta of the step misses the edits made before it
+            GenerationDelta newDelta = edited
+                                       ? null
+                                       : gameOfLife.getLastDelta(generation);
+            // the cycle detector only sees the generations of the task
+            leaveCycle();
+            history.record(newValue, newDelta);
+            publishLocked(newValue, newDelta);
+            return newValue;
+        } finally
+        {
+            gameOfLifeSync.release();
+        }
+    }
+
+    /**
+     * Publishes a snapshot, that was made by another thread than the task. The sync has to be acquired.
+     *
+     * @param newDelta births and deaths since the published snapshot, <code>null</code> if they are unknown
+     */
+    private void publishLocked(GenerationSnapshot newValue, GenerationDelta newDelta)
+    {
+        delta.set(newDelta);
+        GenerationSnapshot oldValue = snapshot.getAndSet(newValue);
+        notifyDeltaListeners(oldValue, newValue, newDelta);
+        notifyChangeListeners();
+    }
+
+    /**
+     * @return history of the published generations
+     */
+    public GenerationHistory getHistory()
+    {
+        return history;
+    }
+
+    /**
+     * Sets the action taken once the universe became a still life or an oscillator. Oscillators with a period
+     * greater than {@value #MAX_REPLAY_PERIOD} are not replayed, the service continues with them.
+     *
+     * @param cycleAction action on detected cycles, not null
+     */
+    public void setCycleAction(CycleAction cycleAction)
+    {
+        this.cycleAction = cycleAction;
+    }
+
+    public CycleAction getCycleAction()
+    {
+        return cycleAction;
+    }
+
+    /**
+     * @return period of the cycle the universe is in, <code>1</code> for a still life or <code>0</code> if no cycle
+     * was detected
+     */
+    public int getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * Sets the number of generations, that are calculated ahead of the presented generation while the service
+     * runs. Generations are calculated by a producer thread into a bounded queue and presented by the task at the
+     * rate of the {@linkplain SchedulerMode}, so a generation that takes longer than the generation time does not
+     * delay the presentation as long as the queue is not empty. The producer waits while the queue is full.
+     * Edits, rewinds and checkpoints drop the queued generations and continue from the presented one. Delta
+     * listeners are called on the presenting thread then. The lookahead is applied once the service is started
+     * the next time.
+     *
+     * @param lookahead number of generations calculated ahead, <code>0</code> to calculate and present in
+     *                  lockstep
+     */
+    public void setLookahead(int lookahead)
+    {
+        if (lookahead < 0)
+            throw new IllegalArgumentException("lookahead must not be negative");
+
+        this.lookahead = lookahead;
+    }
+
+    public int getLookahead()
+    {
+        return lookahead;
+    }
+
+    /**
+     * Sets the number of threads the universe calculates a generation with (see
+     * {@linkplain Universe#setParallelism(int)}). It is applied by the generating thread before the next
+     * generation, so the universe is never changed while it calculates.
+     *
+     * @param parallelism number of threads, greater than zero
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * @return number of generations calculated ahead of the presented one, that are waiting in the queue
+     */
+    public int getBufferedGenerations()
+    {
+        BlockingQueue<Frame> frames = lookaheadFrames;
+        return frames != null
+               ? frames.size()
+               : 0;
+    }
+
+    /**
+     * Sets the scheduling of the following generations, the generation time is ignored by
+     * {@linkplain SchedulerMode#AS_FAST_AS_POSSIBLE}.
+     *
+     * @param schedulerMode mode of the scheduler, not null
+     */
+    public void setSchedulerMode(SchedulerMode schedulerMode)
+    {
+        this.schedulerMode = schedulerMode;
+    }
+
+    public SchedulerMode getSchedulerMode()
+    {
+        return schedulerMode;
+    }
+
     synchronized void setGenerationTime(int millis)
     {
         if (millis <= 0)
@@ -157,4 +1187,71 @@ public class GameOfLifeService extends Service<GameOfLife> implements Observable
     {
         return gameOfLifeSync;
     }
+
+    /**
+     * Waits until a thread died, an interrupt is restored afterwards.
+     */
+    private static void joinUninterruptibly(Thread thread)
+    {
+        boolean interrupted = false;
+        while (thread.isAlive())
+        {
+            try
+            {
+                thread.join();
+            } catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * A calculated generation, that waits to be published.
+     */
+    private static final class Frame
+    {
+        final GenerationSnapshot snapshot;
+        final GenerationDelta delta;
+        /*
+        snapshot that was published when the generation was calculated
+         */
+        final GenerationSnapshot previous;
+        final long epoch;
+        final boolean stop;
+        /*
+        true if the universe was advanced, false if a generation of a cycle was replayed
+         */
+        final boolean stepped;
+
+        Frame(GenerationSnapshot snapshot, GenerationDelta delta, GenerationSnapshot previous, long epoch,
+              boolean stop, boolean stepped)
+        {
+            this.snapshot = snapshot;
+            this.delta = delta;
+            this.previous = previous;
+            this.epoch = epoch;
+            this.stop = stop;
+            this.stepped = stepped;
+        }
+    }
+
+    /**
+     * An edit command on the stack of submitted edits.
+     */
+    private static final class PendingEdit
+    {
+        final EditCommand command;
+        final long sequence;
+        final PendingEdit previous;
+
+        PendingEdit(EditCommand command, long sequence, PendingEdit previous)
+        {
+            this.command = command;
+            this.sequence = sequence;
+            this.previous = previous;
+        }
+    }
 }
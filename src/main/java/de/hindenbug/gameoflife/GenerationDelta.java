@@ -0,0 +1,147 @@
+package de.hindenbug.gameoflife;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A <code>GenerationDelta</code> contains the beings that were born and the beings that died while a
+ * {@linkplain Universe} advanced to a generation. Consumers like the {@linkplain UI} are able to update their state
+ * at a cost proportional to the change instead of the population.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 16:55
+ */
+public final class GenerationDelta
+{
+    private final long generation;
+    private final long[] births;
+    private final long[] deaths;
+
+    /**
+     * @param generation number of the generation the universe advanced to
+     * @param births     packed cells that were born, must never be changed afterwards
+     * @param deaths     packed cells that died, must never be changed afterwards
+     */
+    GenerationDelta(long generation, long[] births, long[] deaths)
+    {
+        this.generation = generation;
+        this.births = births;
+        this.deaths = deaths;
+    }
+
+    /**
+     * Calculates the delta between two snapshots by comparing all of their beings.
+     *
+     * @param previous snapshot of the previous generation, not null
+     * @param current  snapshot of the generation to calculate the delta for, not null
+     * @return delta between both snapshots
+     */
+    static GenerationDelta between(GenerationSnapshot previous, GenerationSnapshot current)
+    {
+        LongList births = new LongList();
+        LongList deaths = new LongList();
+        for (long cell : current.getCells().toArray())
+        {
+            if (!previous.getCells().contains(cell))
+                births.add(cell);
+        }
+        for (long cell : previous.getCells().toArray())
+        {
+            if (!current.getCells().contains(cell))
+                deaths.add(cell);
+        }
+        return new GenerationDelta(current.getGeneration(), births.toArray(), deaths.toArray());
+    }
+
+    /**
+     * Returns the same births and deaths as delta of another generation, for example if a cycle repeats.
+     *
+     * @param generation number of the generation
+     * @return delta sharing the cells of this delta
+     */
+    GenerationDelta withGeneration(long generation)
+    {
+        return new GenerationDelta(generation, births, deaths);
+    }
+
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * @return read only view of all beings that were born
+     */
+    public List<Being> getBirths()
+    {
+        return new BeingList(births);
+    }
+
+    /**
+     * @return read only view of all beings that died
+     */
+    public List<Being> getDeaths()
+    {
+        return new BeingList(deaths);
+    }
+
+    public int getBirthCount()
+    {
+        return births.length;
+    }
+
+    public int getDeathCount()
+    {
+        return deaths.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return births.length == 0 && deaths.length == 0;
+    }
+
+    long[] getBirthCells()
+    {
+        return births;
+    }
+
+    long[] getDeathCells()
+    {
+        return deaths;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GenerationDelta{" +
+                "generation=" + generation +
+                ", births=" + births.length +
+                ", deaths=" + deaths.length +
+                '}';
+    }
+
+    /**
+     * Presents packed cells as list of beings, that are created on access.
+     */
+    private static class BeingList extends AbstractList<Being>
+    {
+        private final long[] cells;
+
+        BeingList(long[] cells)
+        {
+            this.cells = cells;
+        }
+
+        @Override
+        public Being get(int index)
+        {
+            return Cells.toBeing(cells[index]);
+        }
+
+        @Override
+        public int size()
+        {
+            return cells.length;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * A <code>GenerationDeltaListener</code> is informed about the beings that were born and died in each generation
+ * of a {@linkplain GameOfLifeService}.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 17:00
+ */
+@FunctionalInterface
+public interface GenerationDeltaListener
+{
+    /**
+     * Called on the generating thread after a new generation was created. Implementations must not block, work
+     * for another thread like the javafx application thread has to be handed over.
+     *
+     * @param delta births and deaths of the new generation, not null
+     */
+    void generationChanged(GenerationDelta delta);
+}
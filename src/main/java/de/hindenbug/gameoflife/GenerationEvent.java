@@ -0,0 +1,46 @@
+package de.hindenbug.gameoflife;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of one generation, that is committed by {@linkplain Metrics#recordGeneration}. The event
+ * is disabled unless a recording enables it, it costs nothing more than a flag check then.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:40
+ */
+@Name("de.hindenbug.gameoflife.Generation")
+@Label("Generation")
+@Category("Game of Life")
+@Description("Calculation of one generation of a universe")
+class GenerationEvent extends jdk.jfr.Event
+{
+    @Label("Generation")
+    long generation;
+
+    @Label("Step")
+    @Timespan
+    long stepNanos;
+
+    @Label("Lock Wait")
+    @Timespan
+    long lockWaitNanos;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Population")
+    int population;
+
+    @Label("Births")
+    int births;
+
+    @Label("Deaths")
+    int deaths;
+}
@@ -0,0 +1,308 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>A <code>GenerationHistory</code> keeps the past generations of a {@linkplain GameOfLifeService}, so the
+ * service is able to step backwards. Storing a snapshot of each generation is too expensive for large universes,
+ * therefore only every {@linkplain #getKeyframeInterval() keyframe interval} generations a snapshot is kept as
+ * keyframe. The generations in between are kept as {@linkplain GenerationDelta deltas}, that only contain the
+ * births and deaths. A generation is restored from the keyframe before it and at most <code>interval - 1</code>
+ * deltas. Snapshots of the sparse engine are immutable and share their cells with the universe as long as it is
+ * unchanged, so their keyframes rarely cost a copy. Snapshots of other engines may retain the rows of whole tiles
+ * or the nodes of a quadtree, their keyframes are {@linkplain GenerationSnapshot#compact() compacted} into a hash
+ * set, so the budget is charged with the memory they really retain.</p>
+ * <p>A keyframe and its deltas form a segment. The history is bounded by a budget in bytes, once it is exceeded
+ * the least recently used segment is dropped, the generations of a dropped segment are not available anymore.
+ * Recording a generation makes its segment the most recently used one, just like seeking a generation inside it,
+ * so generations the user returns to outlive older ones. The segment of the latest generation is never
+ * dropped.</p>
+ * <p>Recording a generation, that is not newer than the latest recorded one, drops the recorded generations from
+ * it on: they belong to a future that was replaced, for example by an edit.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:31
+ */
+public final class GenerationHistory
+{
+    static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+    static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    /*
+    estimated size of a segment or delta without its cells and of a cell inside a keyframe, which is a hash set
+    with a load factor of at most one half
+     */
+    private static final long OVERHEAD_BYTES = 64;
+    private static final long KEYFRAME_CELL_BYTES = 16;
+    private static final long DELTA_CELL_BYTES = 8;
+
+    private final long budgetBytes;
+    private final int keyframeInterval;
+    /*
+    segments by the generation of their keyframe
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private long retainedBytes;
+    private long clock;
+    private long evictions;
+
+    /**
+     * Creates a history of 64 MiB with a keyframe every 64 generations.
+     */
+    public GenerationHistory()
+    {
+        this(DEFAULT_BUDGET_BYTES, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param budgetBytes      estimated number of bytes the history may keep, the latest keyframe is kept even if
+     *                         it exceeds the budget
+     * @param keyframeInterval maximum number of generations between two keyframes, greater than zero
+     */
+    public GenerationHistory(long budgetBytes, int keyframeInterval)
+    {
+        if (budgetBytes < 0)
+            throw new IllegalArgumentException("budgetBytes must not be negative");
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("keyframeInterval must be greater than zero");
+
+        this.budgetBytes = budgetBytes;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Records a generation. A keyframe is stored if the delta is unknown, the generation does not follow the latest
+     * recorded one or the keyframe interval has passed.
+     *
+     * @param snapshot snapshot of the generation, not null
+     * @param delta    births and deaths since the previous generation, <code>null</code> if they are unknown
+     */
+    synchronized void record(GenerationSnapshot snapshot, GenerationDelta delta)
+    {
+        long generation = snapshot.getGeneration();
+        truncate(generation - 1);
+
+        Map.Entry<Long, Segment> latest = segments.lastEntry();
+        Segment segment = latest != null
+                          ? latest.getValue()
+                          : null;
+        if (segment != null && delta != null && delta.getGeneration() == generation
+                && segment.getLatestGeneration() == generation - 1 && segment.count < keyframeInterval - 1)
+        {
+            long bytes = OVERHEAD_BYTES + DELTA_CELL_BYTES * (delta.getBirthCount() + delta.getDeathCount());
+            segment.deltas[segment.count++] = delta;
+            segment.bytes += bytes;
+            retainedBytes += bytes;
+        } else
+        {
+            segment = new Segment(snapshot.compact(), new GenerationDelta[keyframeInterval - 1]);
+            segments.put(generation, segment);
+            retainedBytes += segment.bytes;
+        }
+        segment.lastUse = ++clock;
+        evict();
+    }
+
+    /**
+     * Drops the least recently used segments until the budget is kept.
+     */
+    private void evict()
+    {
+        while (retainedBytes > budgetBytes && segments.size() > 1)
+        {
+            Segment latest = segments.lastEntry().getValue();
+            Map.Entry<Long, Segment> leastRecent = null;
+            for (Map.Entry<Long, Segment> entry : segments.entrySet())
+            {
+                if (entry.getValue() != latest
+                        && (leastRecent == null || entry.getValue().lastUse < leastRecent.getValue().lastUse))
+                    leastRecent = entry;
+            }
+            segments.remove(leastRecent.getKey());
+            retainedBytes -= leastRecent.getValue().bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops all generations after given generation.
+     *
+     * @param generation last generation to keep
+     */
+    synchronized void truncate(long generation)
+    {
+        Iterator<Segment> later = segments.tailMap(generation, false).values().iterator();
+        while (later.hasNext())
+        {
+            retainedBytes -= later.next().bytes;
+            later.remove();
+        }
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last == null)
+            return;
+
+        Segment segment = last.getValue();
+        while (segment.getLatestGeneration() > generation)
+        {
+            GenerationDelta dropped = segment.deltas[--segment.count];
+            segment.deltas[segment.count] = null;
+            long bytes = OVERHEAD_BYTES + DELTA_CELL_BYTES * (dropped.getBirthCount() + dropped.getDeathCount());
+            segment.bytes -= bytes;
+            retainedBytes -= bytes;
+        }
+    }
+
+    /**
+     * Restores a recorded generation from its keyframe and the deltas after it.
+     *
+     * @param generation number of the generation
+     * @return snapshot of the generation, <code>null</code> if it was not recorded or was dropped
+     */
+    synchronized GenerationSnapshot seek(long generation)
+    {
+        Segment segment = find(generation);
+        if (segment == null)
+            return null;
+
+        segment.lastUse = ++clock;
+        int steps = (int) (generation - segment.keyframe.getGeneration());
+        if (steps == 0)
+            return segment.keyframe;
+
+        LongHashSet cells = LongHashSet.copyOf(segment.keyframe.getCells());
+        for (int i = 0; i < steps; i++)
+        {
+            GenerationDelta delta = segment.deltas[i];
+            for (long cell : delta.getDeathCells())
+            {
+                cells.remove(cell);
+            }
+            for (long cell : delta.getBirthCells())
+            {
+                cells.add(cell);
+            }
+        }
+        return new GenerationSnapshot(generation, cells);
+    }
+
+    /**
+     * @param generation number of the generation
+     * @return births and deaths of the generation, <code>null</code> if the generation was recorded as keyframe,
+     * was not recorded or was dropped
+     */
+    synchronized GenerationDelta getDelta(long generation)
+    {
+        Segment segment = find(generation);
+        if (segment == null)
+            return null;
+
+        int steps = (int) (generation - segment.keyframe.getGeneration());
+        return steps > 0
+               ? segment.deltas[steps - 1]
+               : null;
+    }
+
+    private Segment find(long generation)
+    {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(generation);
+        return entry != null && entry.getValue().getLatestGeneration() >= generation
+               ? entry.getValue()
+               : null;
+    }
+
+    /**
+     * @param generation number of the generation
+     * @return <code>true</code> if the generation is able to be restored
+     */
+    public synchronized boolean contains(long generation)
+    {
+        return find(generation) != null;
+    }
+
+    /**
+     * @return number of the oldest generation, that is able to be restored, <code>-1</code> if nothing was recorded
+     */
+    public synchronized long getOldestGeneration()
+    {
+        return segments.isEmpty()
+               ? -1
+               : segments.firstKey();
+    }
+
+    /**
+     * @return number of the latest recorded generation, <code>-1</code> if nothing was recorded
+     */
+    public synchronized long getLatestGeneration()
+    {
+        return segments.isEmpty()
+               ? -1
+               : segments.lastEntry().getValue().getLatestGeneration();
+    }
+
+    /**
+     * @return number of kept keyframes
+     */
+    public synchronized int getKeyframes()
+    {
+        return segments.size();
+    }
+
+    /**
+     * @return estimated number of bytes of all kept keyframes and deltas
+     */
+    public synchronized long getRetainedBytes()
+    {
+        return retainedBytes;
+    }
+
+    /**
+     * @return number of segments, that were dropped to keep the budget
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    public long getBudgetBytes()
+    {
+        return budgetBytes;
+    }
+
+    public int getKeyframeInterval()
+    {
+        return keyframeInterval;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "GenerationHistory " + getOldestGeneration() + ".." + getLatestGeneration() + ", "
+                + segments.size() + " keyframes, " + retainedBytes / 1024 + " KiB";
+    }
+
+    /**
+     * A keyframe followed by the deltas of the next generations.
+     */
+    private static final class Segment
+    {
+        final GenerationSnapshot keyframe;
+        final GenerationDelta[] deltas;
+        int count;
+        long bytes;
+        long lastUse;
+
+        Segment(GenerationSnapshot keyframe, GenerationDelta[] deltas)
+        {
+            this.keyframe = keyframe;
+            this.deltas = deltas;
+            this.bytes = OVERHEAD_BYTES + KEYFRAME_CELL_BYTES * keyframe.getPopulation();
+        }
+
+        long getLatestGeneration()
+        {
+            return keyframe.getGeneration() + count;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A <code>GenerationSnapshot</code> is an immutable view of one generation of a {@linkplain Universe}. Snapshots
+ * may be read by any thread without synchronization, for example by the {@linkplain UI} while the
+ * {@linkplain GameOfLifeService} already calculates the next generation.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 16:20
+ */
+public final class GenerationSnapshot
+{
+    private final long generation;
+    private final CellSet cells;
+    private final Set<Being> beings;
+    private final long lastEdit;
+    /*
+    shared by all snapshots of the cells, the engine reuses the cells once it is not reachable anymore
+     */
+    private final Object lease;
+
+    /**
+     * @param generation number of the generation
+     * @param cells      cells of the generation, must never be changed afterwards
+     */
+    GenerationSnapshot(long generation, CellSet cells)
+    {
+        this(generation, cells, null);
+    }
+
+    /**
+     * @param generation number of the generation
+     * @param cells      cells of the generation, must not be changed while the lease is reachable
+     * @param lease      object the engine watches to reuse the cells, null if the cells are never reused
+     */
+    GenerationSnapshot(long generation, CellSet cells, Object lease)
+    {
+        this(generation, cells, 0, lease);
+    }
+
+    private GenerationSnapshot(long generation, CellSet cells, long lastEdit, Object lease)
+    {
+        this.generation = generation;
+        this.cells = cells;
+        this.beings = Collections.unmodifiableSet(new BeingSet(new SnapshotCells()));
+        this.lastEdit = lastEdit;
+        this.lease = lease;
+    }
+
+    /**
+     * Creates a snapshot containing a copy of given beings.
+     *
+     * @param generation number of the generation
+     * @param beings     beings of the generation, not null
+     * @return new snapshot
+     */
+    static GenerationSnapshot copyOf(long generation, Set<Being> beings)
+    {
+        return new GenerationSnapshot(generation, LongHashSet.copyOf(beings));
+    }
+
+    /**
+     * Returns a snapshot of the same beings as another generation, for example if a cycle repeats.
+     *
+     * @param generation number of the generation
+     * @return snapshot sharing the cells of this snapshot
+     */
+    GenerationSnapshot withGeneration(long generation)
+    {
+        return new GenerationSnapshot(generation, cells, lastEdit, lease);
+    }
+
+    /**
+     * Returns a snapshot, whose cells are stored inside a hash set of their own. Other storages, like the rows of
+     * whole tiles or the nodes of a quadtree, retain memory that is not proportional to the population.
+     *
+     * @return this snapshot if its cells are a hash set, otherwise a snapshot of a copy of its cells
+     */
+    GenerationSnapshot compact()
+    {
+        return cells instanceof LongHashSet
+               ? this
+               : new GenerationSnapshot(generation, LongHashSet.copyOf(cells), lastEdit, null);
+    }
+
+    /**
+     * @param lastEdit sequence number of the last {@linkplain EditCommand} applied before this generation
+     * @return snapshot sharing the cells of this snapshot
+     */
+    GenerationSnapshot withLastEdit(long lastEdit)
+    {
+        return new GenerationSnapshot(generation, cells, lastEdit, lease);
+    }
+
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * @return read only view of all living beings of the generation
+     */
+    public Set<Being> getBeings()
+    {
+        return beings;
+    }
+
+    public boolean isAlive(int row, int column)
+    {
+        return cells.contains(Cells.pack(row, column));
+    }
+
+    public int getPopulation()
+    {
+        return cells.size();
+    }
+
+    /**
+     * @return sequence number of the last {@linkplain EditCommand} that is contained in this generation, edits with
+     * a greater number were not applied yet (see {@linkplain GameOfLifeService#submit(EditCommand)})
+     */
+    public long getLastEdit()
+    {
+        return lastEdit;
+    }
+
+    /**
+     * Copies the beings of a selection of this generation without locking the universe.
+     *
+     * @param selection rectangle of cells, not null
+     * @return beings of the selection relative to its upper left cell
+     */
+    public CellBlock copy(Selection selection)
+    {
+        LongList inside = new LongList();
+        for (long cell : cells.toArray())
+        {
+            if (selection.contains(Cells.row(cell), Cells.column(cell)))
+                inside.add(Cells.pack(Cells.row(cell) - selection.getRow(),
+                        Cells.column(cell) - selection.getColumn()));
+        }
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    /**
+     * @return read only cells of the generation, that must not be kept longer than this snapshot, an engine may reuse
+     * them afterwards
+     */
+    CellSet getCells()
+    {
+        return cells;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GenerationSnapshot{" +
+                "generation=" + generation +
+                ", population=" + cells.size() +
+                '}';
+    }
+
+    /**
+     * Read only cells of the beings view, the view keeps this snapshot and its lease reachable.
+     */
+    private class SnapshotCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return cells.contains(cell);
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size()
+        {
+            return cells.size();
+        }
+
+        @Override
+        public void clear()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            return cells.toArray();
+        }
+    }
+}
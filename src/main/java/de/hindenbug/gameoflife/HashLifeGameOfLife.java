@@ -0,0 +1,983 @@
+package de.hindenbug.gameoflife;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>A <code>HashLifeGameOfLife</code> is an infinite universe of conway's game of life using Bill Gosper's
+ * HashLife algorithm. The universe is a quadtree of canonical {@linkplain HashLifeNode}s, equal squares are stored
+ * once and the future of each square is memoized. Periodic patterns like the
+ * {@linkplain GameOfLifeSample#GosperGliderGun} can be advanced by millions of generations with
+ * {@linkplain #advance(long)} at the cost of a few steps.</p>
+ * <p>All nodes are stored inside a node cache. If the cache contains more than the configured number of nodes,
+ * nodes that are no longer reachable from the universe are collected and if that is not enough, all memoized
+ * results are dropped.</p>
+ * <p>The zobrist {@linkplain #stateHash() state hash} is not updated while the universe steps, nodes are shared
+ * by many positions. Instead it is updated from the cells, that differ between the root it was calculated for and
+ * the current root. Equal nodes are compared by identity, so only changed nodes are descended.</p>
+ * <p>Nodes are never changed once they are created, so a {@linkplain #snapshot(long) snapshot} shares the root
+ * and the {@linkplain #getLastDelta(long) delta} of the last advance is found by comparing the previous root with
+ * the current one.</p>
+ * <p>The universe is centered at row and column zero. Beings outside of the integer range can not be represented
+ * as {@linkplain Being} and are not contained inside {@linkplain #getBeings()}.</p>
+ *
+ * @author Nils Verheyen
+ * @see <a href="https://en.wikipedia.org/wiki/Hashlife">Hashlife</a>
+ * @since 18.10.26 14:50
+ */
+public class HashLifeGameOfLife implements Universe
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HashLifeGameOfLife.class);
+
+    static final int DEFAULT_MAX_NODES = 1 << 21;
+    private static final int MIN_LEVEL = 3;
+
+    private final int maxNodes;
+    private HashLifeNode[] table;
+    private int tableSize;
+    private final List<HashLifeNode> emptyNodes;
+
+    private HashLifeNode root;
+    private long generation;
+    /*
+    root the state hash was calculated for, the hash is updated from the cells that differ from the current root
+     */
+    private HashLifeNode hashedRoot;
+    private long stateHash;
+    /*
+    roots before and after the last advance, the delta is available while the root is unchanged
+     */
+    private HashLifeNode advancedFrom;
+    private HashLifeNode advancedTo;
+    private final BeingSet beings;
+    private Rule rule = Rule.CONWAY;
+    /*
+    center 2x2 cells of each 4x4 square after one generation (see Rule#getLevel2Results())
+     */
+    private byte[] level2Results = Rule.CONWAY.getLevel2Results();
+
+    /**
+     * Creates a new empty <code>HashLifeGameOfLife</code> with the default size of the node cache.
+     */
+    public HashLifeGameOfLife()
+    {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Creates a new empty <code>HashLifeGameOfLife</code>.
+     *
+     * @param maxNodes number of nodes the cache may contain until unreachable nodes are collected
+     */
+    public HashLifeGameOfLife(int maxNodes)
+    {
+        if (maxNodes <= 0)
+            throw new IllegalArgumentException("maxNodes must be greater than zero");
+
+        this.maxNodes = maxNodes;
+        this.table = new HashLifeNode[1 << 10];
+        this.emptyNodes = new ArrayList<>();
+        this.emptyNodes.add(HashLifeNode.DEAD);
+        this.root = empty(MIN_LEVEL);
+        this.hashedRoot = root;
+        this.beings = new BeingSet(new NodeCells());
+    }
+
+    /**
+     * Creates a new HashLife game of life with given beings as initial set of life forms
+     *
+     * @param beings initial set of beings, not null
+     */
+    public HashLifeGameOfLife(Set<Being> beings)
+    {
+        this();
+        beings.forEach(being -> addBeing(being.getRow(), being.getColumn()));
+    }
+
+    /**
+     * Returns the canonical node with given children.
+     */
+    private HashLifeNode node(HashLifeNode northWest, HashLifeNode northEast,
+                              HashLifeNode southWest, HashLifeNode southEast)
+    {
+        int hash = HashLifeNode.hash(northWest, northEast, southWest, southEast);
+        int index = hash & (table.length - 1);
+        for (HashLifeNode node = table[index]; node != null; node = node.next)
+        {
+            if (node.is(northWest, northEast, southWest, southEast))
+                return node;
+        }
+
+        HashLifeNode node = new HashLifeNode(northWest, northEast, southWest, southEast, hash);
+        node.next = table[index];
+        table[index] = node;
+        if (++tableSize > table.length - (table.length >>> 2))
+            resize(table.length << 1);
+        return node;
+    }
+
+    private void resize(int capacity)
+    {
+        HashLifeNode[] oldTable = table;
+        table = new HashLifeNode[capacity];
+        for (HashLifeNode bucket : oldTable)
+        {
+            HashLifeNode node = bucket;
+            while (node != null)
+            {
+                HashLifeNode next = node.next;
+                int index = node.hash & (capacity - 1);
+                node.next = table[index];
+                table[index] = node;
+                node = next;
+            }
+        }
+    }
+
+    private HashLifeNode empty(int level)
+    {
+        while (emptyNodes.size() <= level)
+        {
+            HashLifeNode e = emptyNodes.get(emptyNodes.size() - 1);
+            emptyNodes.add(node(e, e, e, e));
+        }
+        return emptyNodes.get(level);
+    }
+
+    /**
+     * Advances this universe by given number of generations. The generations are decomposed into powers of two,
+     * each power is calculated with one HashLife step.
+     *
+     * @param generations number of generations to advance, not negative
+     */
+    public void advance(long generations)
+    {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations must not be negative");
+
+        advancedFrom = root;
+        for (int stepLog = 0; generations != 0; stepLog++, generations >>>= 1)
+        {
+            if ((generations & 1) != 0)
+            {
+                step(stepLog);
+                collectGarbageIfRequired();
+            }
+        }
+        advancedTo = root;
+    }
+
+    /**
+     * Advances the universe by 2<sup>stepLog</sup> generations.
+     */
+    private void step(int stepLog)
+    {
+        // the pattern must fit into the center of the center, so it stays inside the result while it grows
+        while (root.level < stepLog + 3 || !isPadded(root))
+        {
+            root = expand(root);
+        }
+        root = successor(root, stepLog);
+        generation += 1L << stepLog;
+    }
+
+    private boolean isPadded(HashLifeNode node)
+    {
+        return node.northWest.southEast.southEast.population
+                + node.northEast.southWest.southWest.population
+                + node.southWest.northEast.northEast.population
+                + node.southEast.northWest.northWest.population == node.population;
+    }
+
+    /**
+     * Returns a node with the next level, containing given node at its center.
+     */
+    private HashLifeNode expand(HashLifeNode node)
+    {
+        HashLifeNode e = empty(node.level - 1);
+        return node(node(e, e, e, node.northWest),
+                node(e, e, node.northEast, e),
+                node(e, node.southWest, e, e),
+                node(node.southEast, e, e, e));
+    }
+
+    /**
+     * Returns the center of given node advanced by 2<sup>stepLog</sup> generations.
+     *
+     * @param node    node to advance, at least level 2
+     * @param stepLog logarithm of the generations to advance, at most the level of the node minus two
+     * @return node with the level of given node minus one
+     */
+    private HashLifeNode successor(HashLifeNode node, int stepLog)
+    {
+        boolean maximalStep = stepLog == node.level - 2;
+        if (maximalStep && node.result != null)
+            return node.result;
+        if (!maximalStep && node.stepLog == stepLog)
+            return node.stepResult;
+
+        HashLifeNode result;
+        if (node.isEmpty())
+            result = empty(node.level - 1);
+        else if (node.level == 2)
+            result = successorOfLevel2(node);
+        else
+            result = successorOfChildren(node, stepLog, maximalStep);
+
+        if (maximalStep)
+        {
+            node.result = result;
+        } else
+        {
+            node.stepResult = result;
+            node.stepLog = stepLog;
+        }
+        return result;
+    }
+
+    private HashLifeNode successorOfLevel2(HashLifeNode node)
+    {
+        int square = 0;
+        HashLifeNode[] quadrants = {node.northWest, node.northEast, node.southWest, node.southEast};
+        for (int i = 0; i < quadrants.length; i++)
+        {
+            HashLifeNode quadrant = quadrants[i];
+            int offset = (i >> 1) * 8 + (i & 1) * 2;
+            square |= (int) quadrant.northWest.population << offset;
+            square |= (int) quadrant.northEast.population << (offset + 1);
+            square |= (int) quadrant.southWest.population << (offset + 4);
+            square |= (int) quadrant.southEast.population << (offset + 5);
+        }
+        int result = level2Results[square];
+        return node(leaf(result, 0), leaf(result, 1), leaf(result, 2), leaf(result, 3));
+    }
+
+    private static HashLifeNode leaf(int bits, int index)
+    {
+        return ((bits >>> index) & 1) != 0
+               ? HashLifeNode.ALIVE
+               : HashLifeNode.DEAD;
+    }
+
+    private HashLifeNode successorOfChildren(HashLifeNode node, int stepLog, boolean maximalStep)
+    {
+        HashLifeNode nw = node.northWest;
+        HashLifeNode ne = node.northEast;
+        HashLifeNode sw = node.southWest;
+        HashLifeNode se = node.southEast;
+
+        // nine overlapping squares with the half size of the node
+        HashLifeNode n00 = nw;
+        HashLifeNode n01 = node(nw.northEast, ne.northWest, nw.southEast, ne.southWest);
+        HashLifeNode n02 = ne;
+        HashLifeNode n10 = node(nw.southWest, nw.southEast, sw.northWest, sw.northEast);
+        HashLifeNode n11 = node(nw.southEast, ne.southWest, sw.northEast, se.northWest);
+        HashLifeNode n12 = node(ne.southWest, ne.southEast, se.northWest, se.northEast);
+        HashLifeNode n20 = sw;
+        HashLifeNode n21 = node(sw.northEast, se.northWest, sw.southEast, se.southWest);
+        HashLifeNode n22 = se;
+
+        if (maximalStep)
+        {
+            // advance twice by half of the generations
+            int halfStep = stepLog - 1;
+            HashLifeNode c00 = successor(n00, halfStep);
+            HashLifeNode c01 = successor(n01, halfStep);
+            HashLifeNode c02 = successor(n02, halfStep);
+            HashLifeNode c10 = successor(n10, halfStep);
+            HashLifeNode c11 = successor(n11, halfStep);
+            HashLifeNode c12 = successor(n12, halfStep);
+            HashLifeNode c20 = successor(n20, halfStep);
+            HashLifeNode c21 = successor(n21, halfStep);
+            HashLifeNode c22 = successor(n22, halfStep);
+            return node(successor(node(c00, c01, c10, c11), halfStep),
+                    successor(node(c01, c02, c11, c12), halfStep),
+                    successor(node(c10, c11, c20, c21), halfStep),
+                    successor(node(c11, c12, c21, c22), halfStep));
+        }
+
+        // advance once and combine the centers
+        HashLifeNode c00 = successor(n00, stepLog);
+        HashLifeNode c01 = successor(n01, stepLog);
+        HashLifeNode c02 = successor(n02, stepLog);
+        HashLifeNode c10 = successor(n10, stepLog);
+        HashLifeNode c11 = successor(n11, stepLog);
+        HashLifeNode c12 = successor(n12, stepLog);
+        HashLifeNode c20 = successor(n20, stepLog);
+        HashLifeNode c21 = successor(n21, stepLog);
+        HashLifeNode c22 = successor(n22, stepLog);
+        return node(node(c00.southEast, c01.southWest, c10.northEast, c11.northWest),
+                node(c01.southEast, c02.southWest, c11.northEast, c12.northWest),
+                node(c10.southEast, c11.southWest, c20.northEast, c21.northWest),
+                node(c11.southEast, c12.southWest, c21.northEast, c22.northWest));
+    }
+
+    private void collectGarbageIfRequired()
+    {
+        if (tableSize <= maxNodes)
+            return;
+
+        int before = tableSize;
+        rebuildTable(true);
+        if (tableSize > maxNodes >>> 1)
+            rebuildTable(false);
+        LOG.debug("node cache collected from {} to {} nodes", before, tableSize);
+    }
+
+    /**
+     * Rebuilds the node cache with all nodes that are reachable from the root and the empty nodes.
+     *
+     * @param keepResults <code>true</code> if memoized results are kept alive, otherwise they are dropped
+     */
+    private void rebuildTable(boolean keepResults)
+    {
+        table = new HashLifeNode[table.length];
+        tableSize = 0;
+        keep(root, keepResults);
+        // the previous root stays canonical, so the last delta only descends changed nodes
+        keep(advancedFrom, keepResults);
+        emptyNodes.forEach(node -> keep(node, keepResults));
+    }
+
+    private void keep(HashLifeNode node, boolean keepResults)
+    {
+        if (node == null || node.level == 0)
+            return;
+
+        int index = node.hash & (table.length - 1);
+        for (HashLifeNode kept = table[index]; kept != null; kept = kept.next)
+        {
+            if (kept == node)
+                return;
+        }
+        node.next = table[index];
+        table[index] = node;
+        if (++tableSize > table.length - (table.length >>> 2))
+            resize(table.length << 1);
+
+        keep(node.northWest, keepResults);
+        keep(node.northEast, keepResults);
+        keep(node.southWest, keepResults);
+        keep(node.southEast, keepResults);
+        if (keepResults)
+        {
+            keep(node.result, true);
+            keep(node.stepResult, true);
+        } else
+        {
+            node.result = null;
+            node.stepResult = null;
+            node.stepLog = -1;
+        }
+    }
+
+    @Override
+    public void generateNextGeneration()
+    {
+        advance(1);
+    }
+
+    @Override
+    public void addBeing(int row, int column)
+    {
+        setAlive(row, column, true);
+    }
+
+    @Override
+    public boolean toggleBeing(int row, int column)
+    {
+        boolean alive = !isAlive(row, column);
+        setAlive(row, column, alive);
+        return alive;
+    }
+
+    @Override
+    public boolean isAlive(int row, int column)
+    {
+        return isAlive(root, row, column);
+    }
+
+    private static boolean isAlive(HashLifeNode root, int row, int column)
+    {
+        long offset = 1L << (root.level - 1);
+        long r = row + offset;
+        long c = column + offset;
+        if (r < 0 || c < 0 || r >= offset * 2 || c >= offset * 2)
+            return false;
+
+        HashLifeNode node = root;
+        while (node.level > 0 && !node.isEmpty())
+        {
+            long half = 1L << (node.level - 1);
+            if (r < half)
+            {
+                node = c < half
+                       ? node.northWest
+                       : node.northEast;
+            } else
+            {
+                node = c < half
+                       ? node.southWest
+                       : node.southEast;
+            }
+            r &= half - 1;
+            c &= half - 1;
+        }
+        return node == HashLifeNode.ALIVE;
+    }
+
+    /**
+     * @return <code>true</code> if the state of the cell was changed
+     */
+    private boolean setAlive(int row, int column, boolean alive)
+    {
+        if (isAlive(row, column) == alive)
+            return false;
+
+        while (!contains(root, row, column))
+        {
+            root = expand(root);
+        }
+        long offset = 1L << (root.level - 1);
+        root = set(root, row + offset, column + offset, alive);
+        return true;
+    }
+
+    /**
+     * Inserts all cells into the quadtree at once. The cells are partitioned in place into the quadrants of each
+     * node, so every node on the way is created once per call instead of once per cell.
+     */
+    @Override
+    public void addCells(long[] cells, int count)
+    {
+        if (count == 0)
+            return;
+
+        int minRow = Integer.MAX_VALUE;
+        int minColumn = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int maxColumn = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++)
+        {
+            minRow = Math.min(minRow, Cells.row(cells[i]));
+            maxRow = Math.max(maxRow, Cells.row(cells[i]));
+            minColumn = Math.min(minColumn, Cells.column(cells[i]));
+            maxColumn = Math.max(maxColumn, Cells.column(cells[i]));
+        }
+        while (!contains(root, minRow, minColumn) || !contains(root, maxRow, maxColumn))
+        {
+            root = expand(root);
+        }
+        long offset = 1L << (root.level - 1);
+        root = insert(root, cells, 0, count, -offset, -offset);
+    }
+
+    @Override
+    public void removeCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            setAlive(Cells.row(cells[i]), Cells.column(cells[i]), false);
+        }
+    }
+
+    /**
+     * Adds a being to every cell of given selection. Nodes that are completely covered by the selection are
+     * replaced by the canonical full node of their level, so the quadtree is only descended along the border of
+     * the selection.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void fill(Selection selection)
+    {
+        if (selection.isEmpty())
+            return;
+
+        while (!contains(root, selection.getRow(), selection.getColumn())
+                || !contains(root, selection.getLastRow(), selection.getLastColumn()))
+        {
+            root = expand(root);
+        }
+        long offset = 1L << (root.level - 1);
+        root = setRegion(root, -offset, -offset, selection, true);
+    }
+
+    /**
+     * Removes all beings of given selection. Nodes that are completely covered by the selection are replaced by
+     * the empty node of their level.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void clear(Selection selection)
+    {
+        if (selection.isEmpty())
+            return;
+
+        long offset = 1L << (root.level - 1);
+        root = setRegion(root, -offset, -offset, selection, false);
+    }
+
+    /**
+     * @param top  row of the upper left cell of the node
+     * @param left column of the upper left cell of the node
+     */
+    private HashLifeNode setRegion(HashLifeNode node, long top, long left, Selection selection, boolean alive)
+    {
+        long size = 1L << node.level;
+        long bottom = (long) selection.getLastRow() + 1;
+        long right = (long) selection.getLastColumn() + 1;
+        if (top >= bottom || top + size <= selection.getRow() || left >= right || left + size <= selection.getColumn()
+                || (!alive && node.isEmpty()))
+            return node;
+        if (top >= selection.getRow() && top + size <= bottom && left >= selection.getColumn() && left + size <= right)
+            return alive
+                   ? full(node.level)
+                   : empty(node.level);
+
+        long half = size >>> 1;
+        return node(setRegion(node.northWest, top, left, selection, alive),
+                setRegion(node.northEast, top, left + half, selection, alive),
+                setRegion(node.southWest, top + half, left, selection, alive),
+                setRegion(node.southEast, top + half, left + half, selection, alive));
+    }
+
+    /**
+     * @return canonical node of given level, whose cells are all alive
+     */
+    private HashLifeNode full(int level)
+    {
+        if (level == 0)
+            return HashLifeNode.ALIVE;
+
+        HashLifeNode quadrant = full(level - 1);
+        return node(quadrant, quadrant, quadrant, quadrant);
+    }
+
+    /**
+     * Copies the beings of given selection. Empty nodes and nodes outside of the selection are skipped.
+     *
+     * @param selection rectangle of cells, not null
+     * @return beings of the selection relative to its upper left cell
+     */
+    @Override
+    public CellBlock copy(Selection selection)
+    {
+        LongList inside = new LongList();
+        if (!selection.isEmpty())
+        {
+            long offset = 1L << (root.level - 1);
+            collect(root, -offset, -offset, selection, inside);
+        }
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    private static void collect(HashLifeNode node, long top, long left, Selection selection, LongList inside)
+    {
+        long size = 1L << node.level;
+        if (node.isEmpty()
+                || top > selection.getLastRow() || top + size <= selection.getRow()
+                || left > selection.getLastColumn() || left + size <= selection.getColumn())
+            return;
+
+        if (node.level == 0)
+        {
+            inside.add(Cells.pack((int) (top - selection.getRow()), (int) (left - selection.getColumn())));
+            return;
+        }
+
+        long half = size >>> 1;
+        collect(node.northWest, top, left, selection, inside);
+        collect(node.northEast, top, left + half, selection, inside);
+        collect(node.southWest, top + half, left, selection, inside);
+        collect(node.southEast, top + half, left + half, selection, inside);
+    }
+
+    /**
+     * @param top  row of the upper left cell of the node
+     * @param left column of the upper left cell of the node
+     */
+    private HashLifeNode insert(HashLifeNode node, long[] cells, int from, int to, long top, long left)
+    {
+        if (from == to)
+            return node;
+        if (node.level == 0)
+            return HashLifeNode.ALIVE;
+
+        long half = 1L << (node.level - 1);
+        int south = partition(cells, from, to, top + half, true);
+        int northEast = partition(cells, from, south, left + half, false);
+        int southEast = partition(cells, south, to, left + half, false);
+        return node(insert(node.northWest, cells, from, northEast, top, left),
+                insert(node.northEast, cells, northEast, south, top, left + half),
+                insert(node.southWest, cells, south, southEast, top + half, left),
+                insert(node.southEast, cells, southEast, to, top + half, left + half));
+    }
+
+    /**
+     * Moves all cells with a row or column less than given bound in front of the other cells.
+     *
+     * @return index of the first cell, whose row or column is not less than the bound
+     */
+    private static int partition(long[] cells, int from, int to, long bound, boolean byRow)
+    {
+        int i = from;
+        int j = to - 1;
+        while (i <= j)
+        {
+            long value = byRow
+                         ? Cells.row(cells[i])
+                         : Cells.column(cells[i]);
+            if (value < bound)
+            {
+                i++;
+            } else
+            {
+                long swap = cells[i];
+                cells[i] = cells[j];
+                cells[j--] = swap;
+            }
+        }
+        return i;
+    }
+
+    private static boolean contains(HashLifeNode node, long row, long column)
+    {
+        long offset = 1L << (node.level - 1);
+        return row >= -offset && row < offset && column >= -offset && column < offset;
+    }
+
+    private HashLifeNode set(HashLifeNode node, long row, long column, boolean alive)
+    {
+        if (node.level == 0)
+            return alive
+                   ? HashLifeNode.ALIVE
+                   : HashLifeNode.DEAD;
+
+        long half = 1L << (node.level - 1);
+        long r = row & (half - 1);
+        long c = column & (half - 1);
+        if (row < half)
+        {
+            return column < half
+                   ? node(set(node.northWest, r, c, alive), node.northEast, node.southWest, node.southEast)
+                   : node(node.northWest, set(node.northEast, r, c, alive), node.southWest, node.southEast);
+        }
+        return column < half
+               ? node(node.northWest, node.northEast, set(node.southWest, r, c, alive), node.southEast)
+               : node(node.northWest, node.northEast, node.southWest, set(node.southEast, r, c, alive));
+    }
+
+    @Override
+    public Set<Being> getBeings()
+    {
+        return beings;
+    }
+
+    /**
+     * @return number of living beings, at most {@linkplain Integer#MAX_VALUE}
+     * @see #getLongPopulation()
+     */
+    @Override
+    public int getPopulation()
+    {
+        return (int) Math.min(Integer.MAX_VALUE, root.population);
+    }
+
+    public long getLongPopulation()
+    {
+        return root.population;
+    }
+
+    /**
+     * @return number of generations this universe was advanced
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * @return number of nodes inside the node cache
+     */
+    public int getNodeCount()
+    {
+        return tableSize;
+    }
+
+    @Override
+    public void clear()
+    {
+        root = empty(MIN_LEVEL);
+    }
+
+    @Override
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * Sets the rule of the following generations. All memoized results are dropped, because they were calculated
+     * with the previous rule.
+     *
+     * @param rule rule of the universe, not null
+     */
+    @Override
+    public void setRule(Rule rule)
+    {
+        if (rule.equals(this.rule))
+            return;
+
+        this.rule = rule;
+        this.level2Results = rule.getLevel2Results();
+        rebuildTable(false);
+    }
+
+    /**
+     * Returns the zobrist hash of the current generation. The hash is updated from the births and deaths since it
+     * was requested last, which are found by comparing both quadtrees. So the cost depends on the changed nodes
+     * instead of the population.
+     *
+     * @return hash of the current generation
+     */
+    @Override
+    public long stateHash()
+    {
+        if (hashedRoot != root)
+        {
+            LongList changes = new LongList();
+            compare(hashedRoot, root, changes, changes);
+            updateStateHash(changes);
+            hashedRoot = root;
+        }
+        return stateHash;
+    }
+
+    private void updateStateHash(LongList changes)
+    {
+        for (int i = 0; i < changes.size(); i++)
+        {
+            stateHash ^= Cells.zobrist(changes.get(i));
+        }
+    }
+
+    /**
+     * Returns the current generation without copying its beings. The snapshot shares the root, that is never
+     * changed.
+     *
+     * @param generation number of the current generation
+     * @return snapshot sharing the root of this universe
+     */
+    @Override
+    public GenerationSnapshot snapshot(long generation)
+    {
+        return new GenerationSnapshot(generation, new RootCells(root));
+    }
+
+    /**
+     * Compares the roots before and after the last {@linkplain #advance(long)}, which may have advanced this universe
+     * by more than one generation. The state hash is updated on the way if it was calculated for the previous root.
+     *
+     * @param generation number of the current generation
+     * @return delta of the last advance or <code>null</code> if this universe was changed afterwards
+     */
+    @Override
+    public GenerationDelta getLastDelta(long generation)
+    {
+        if (advancedFrom == null || advancedTo != root)
+            return null;
+
+        LongList births = new LongList();
+        LongList deaths = new LongList();
+        compare(advancedFrom, root, births, deaths);
+        if (hashedRoot == advancedFrom)
+        {
+            updateStateHash(births);
+            updateStateHash(deaths);
+            hashedRoot = root;
+        }
+        return new GenerationDelta(generation, births.toArray(), deaths.toArray());
+    }
+
+    /**
+     * Collects the cells, that are alive in only one of two quadtrees. The smaller tree is expanded first, both
+     * trees are centered at row and column zero.
+     *
+     * @param births cells that are only alive in the current tree
+     * @param deaths cells that are only alive in the previous tree
+     */
+    private void compare(HashLifeNode previous, HashLifeNode current, LongList births, LongList deaths)
+    {
+        while (previous.level < current.level)
+        {
+            previous = expand(previous);
+        }
+        while (current.level < previous.level)
+        {
+            current = expand(current);
+        }
+        long offset = 1L << (current.level - 1);
+        compare(previous, current, -offset, -offset, births, deaths);
+    }
+
+    /**
+     * @param top  row of the upper left cell of both nodes
+     * @param left column of the upper left cell of both nodes
+     */
+    private static void compare(HashLifeNode previous, HashLifeNode current, long top, long left,
+                                LongList births, LongList deaths)
+    {
+        long size = 1L << current.level;
+        // beings outside of the integer range are not represented, just like in getBeings()
+        if (previous == current
+                || top > Integer.MAX_VALUE || left > Integer.MAX_VALUE
+                || top + size <= Integer.MIN_VALUE || left + size <= Integer.MIN_VALUE)
+            return;
+
+        if (current.level == 0)
+        {
+            long cell = Cells.pack((int) top, (int) left);
+            if (current == HashLifeNode.ALIVE)
+                births.add(cell);
+            else
+                deaths.add(cell);
+            return;
+        }
+
+        long half = size >>> 1;
+        compare(previous.northWest, current.northWest, top, left, births, deaths);
+        compare(previous.northEast, current.northEast, top, left + half, births, deaths);
+        compare(previous.southWest, current.southWest, top + half, left, births, deaths);
+        compare(previous.southEast, current.southEast, top + half, left + half, births, deaths);
+    }
+
+    /**
+     * Presents the quadtree of this universe as packed cells.
+     */
+    private class NodeCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return isAlive(Cells.row(cell), Cells.column(cell));
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), true);
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), false);
+        }
+
+        @Override
+        public int size()
+        {
+            return getPopulation();
+        }
+
+        @Override
+        public void clear()
+        {
+            HashLifeGameOfLife.this.clear();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            return new RootCells(root).toArray();
+        }
+    }
+
+    /**
+     * Read only cells of a root, that is shared with a snapshot.
+     */
+    private static final class RootCells implements CellSet
+    {
+        private final HashLifeNode root;
+
+        RootCells(HashLifeNode root)
+        {
+            this.root = root;
+        }
+
+        @Override
+        public boolean contains(long cell)
+        {
+            return isAlive(root, Cells.row(cell), Cells.column(cell));
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size()
+        {
+            return (int) Math.min(Integer.MAX_VALUE, root.population);
+        }
+
+        @Override
+        public void clear()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            long offset = 1L << (root.level - 1);
+            long[] result = new long[size()];
+            int count = collect(root, -offset, -offset, result, 0);
+            return count == result.length
+                   ? result
+                   : Arrays.copyOf(result, count);
+        }
+
+        /**
+         * Snapshots are read by many threads, so the cells are collected without state of this set.
+         *
+         * @return number of collected cells
+         */
+        private static int collect(HashLifeNode node, long top, long left, long[] result, int count)
+        {
+            long size = 1L << node.level;
+            if (node.isEmpty()
+                    || top > Integer.MAX_VALUE || left > Integer.MAX_VALUE
+                    || top + size <= Integer.MIN_VALUE || left + size <= Integer.MIN_VALUE
+                    || count == result.length)
+                return count;
+
+            if (node.level == 0)
+            {
+                result[count] = Cells.pack((int) top, (int) left);
+                return count + 1;
+            }
+
+            long half = size >>> 1;
+            count = collect(node.northWest, top, left, result, count);
+            count = collect(node.northEast, top, left + half, result, count);
+            count = collect(node.southWest, top + half, left, result, count);
+            return collect(node.southEast, top + half, left + half, result, count);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * A <code>HashLifeNode</code> is a square of 2<sup>level</sup> x 2<sup>level</sup> cells inside the quadtree of a
+ * {@linkplain HashLifeGameOfLife}. Nodes are canonical, equal squares are represented by the same node, so they
+ * are compared by identity. Leaves have the level <code>0</code> and represent one cell.
+ * <p>Each node memoizes its future: the center of the node advanced by 2<sup>level - 2</sup> generations and the
+ * center advanced by the last requested smaller power of two.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 14:40
+ */
+final class HashLifeNode
+{
+    static final HashLifeNode DEAD = new HashLifeNode(0, 0x2D1A3F57);
+    static final HashLifeNode ALIVE = new HashLifeNode(1, 0x6B43A9B5);
+
+    final HashLifeNode northWest;
+    final HashLifeNode northEast;
+    final HashLifeNode southWest;
+    final HashLifeNode southEast;
+    final int level;
+    final long population;
+    final int hash;
+
+    /*
+    next node inside the same bucket of the node cache
+     */
+    HashLifeNode next;
+
+    /*
+    center of this node advanced by 2^(level - 2) generations
+     */
+    HashLifeNode result;
+
+    /*
+    center of this node advanced by 2^stepLog generations with stepLog < level - 2
+     */
+    HashLifeNode stepResult;
+    int stepLog = -1;
+
+    private HashLifeNode(long population, int hash)
+    {
+        this.northWest = null;
+        this.northEast = null;
+        this.southWest = null;
+        this.southEast = null;
+        this.level = 0;
+        this.population = population;
+        this.hash = hash;
+    }
+
+    HashLifeNode(HashLifeNode northWest, HashLifeNode northEast,
+                 HashLifeNode southWest, HashLifeNode southEast,
+                 int hash)
+    {
+        this.northWest = northWest;
+        this.northEast = northEast;
+        this.southWest = southWest;
+        this.southEast = southEast;
+        this.level = northWest.level + 1;
+        this.population = northWest.population + northEast.population
+                + southWest.population + southEast.population;
+        this.hash = hash;
+    }
+
+    static int hash(HashLifeNode northWest, HashLifeNode northEast,
+                    HashLifeNode southWest, HashLifeNode southEast)
+    {
+        int h = northWest.hash;
+        h = h * 0x9E3779B1 + northEast.hash;
+        h = h * 0x9E3779B1 + southWest.hash;
+        h = h * 0x9E3779B1 + southEast.hash;
+        return h ^ (h >>> 15);
+    }
+
+    boolean isEmpty()
+    {
+        return population == 0;
+    }
+
+    boolean is(HashLifeNode northWest, HashLifeNode northEast,
+               HashLifeNode southWest, HashLifeNode southEast)
+    {
+        return this.northWest == northWest
+                && this.northEast == northEast
+                && this.southWest == southWest
+                && this.southEast == southEast;
+    }
+}
@@ -0,0 +1,365 @@
+package de.hindenbug.gameoflife;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>The <code>HeadlessRunner</code> advances a universe by a number of generations without any user interface and
+ * prints the achieved throughput. It does not touch any JavaFX class, so it may be used on machines without a
+ * display.</p>
+ * <pre>
+ *     java -jar game-of-life.jar --headless [--engine sparse|dense|tiled|hashlife|adaptive] [--threads n]
+ *          [--generations n] [--size rows x columns] [--pattern file] [--output file]
+ *          [--restore checkpoint] [--checkpoint checkpoint] [--cycle continue|stop|skip] [--rule B3/S23]
+ *     java -jar game-of-life.jar --headless --census soups [--seed n] [--threads n]
+ * </pre>
+ * <p>Without a pattern the {@linkplain GameOfLifeSample#GosperGliderGun} is used. Patterns are read and written in
+ * the format given by the extension of the file (see {@linkplain PatternFormat#of(Path)}). A simulation is resumed
+ * from a {@linkplain Checkpoint} with <code>--restore</code>, <code>--checkpoint</code> saves the last generation
+ * into one.</p>
+ * <p>The engine <code>adaptive</code> is a {@linkplain GameOfLife}, that moves its beings between the sparse, tiled
+ * and HashLife engines while it runs (see {@linkplain AdaptiveEnginePolicy}), the number of migrations is
+ * printed.</p>
+ * <p>The rule of a pattern or checkpoint is kept, unless another {@linkplain Rule} is given with
+ * <code>--rule</code>.</p>
+ * <p>With <code>--cycle stop</code> the run ends as soon as the universe became a still life or an oscillator
+ * (see {@linkplain CycleDetector}). With <code>--cycle skip</code> the remaining generations of the cycle are
+ * skipped, only the remaining generations modulo the period are calculated, so the last generation is the same as
+ * without skipping.</p>
+ * <p>The engine <code>hashlife</code> does not step through the generations one by one unless it has to look at
+ * them: with <code>--cycle continue</code> the universe is {@linkplain HashLifeGameOfLife#advance(long) advanced}
+ * by all generations at once, with <code>--cycle skip</code> by the remaining generations once a cycle was found.
+ * The generations advanced that way are printed, their step latency and population are not measured.</p>
+ * <p>With <code>--census</code> no universe is advanced, instead the given number of random soups is searched by a
+ * {@linkplain SoupCensus}, starting with the soup of <code>--seed</code>. The found objects and the soups per
+ * second and thread are printed.</p>
+ * <p>The step latency and the allocation of each generation are recorded by {@linkplain Metrics}, that are
+ * registered as MBean with the name <code>headless</code> while the universe runs.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 19:05
+ */
+public class HeadlessRunner
+{
+    static final String HEADLESS_OPTION = "--headless";
+
+    private static final String USAGE = "usage: " + HEADLESS_OPTION
+            + " [--engine sparse|dense|tiled|hashlife|adaptive] [--threads n] [--generations n]"
+            + " [--size rows x columns] [--pattern file] [--output file]"
+            + " [--restore checkpoint] [--checkpoint checkpoint] [--cycle continue|stop|skip] [--rule B3/S23]"
+            + " [--census soups] [--seed n]";
+
+    private String engine = "sparse";
+    private int threads = 1;
+    private long generations = 1000;
+    private int rows = 1024;
+    private int columns = 1024;
+    private Path pattern;
+    private Path output;
+    private Path restore;
+    private Path checkpoint;
+    private CycleAction cycleAction = CycleAction.CONTINUE;
+    private Rule rule;
+    private int census;
+    private long seed;
+
+    public static void main(String[] args)
+    {
+        HeadlessRunner runner = new HeadlessRunner();
+        try
+        {
+            runner.parse(args);
+            runner.run();
+        } catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException e)
+        {
+            System.err.println("i/o error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String option = args[i];
+            if (HEADLESS_OPTION.equals(option))
+                continue;
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("missing value of " + option);
+
+            String value = args[++i];
+            try
+            {
+                switch (option)
+                {
+                    case "--engine":
+                        engine = value;
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--generations":
+                        generations = Long.parseLong(value);
+                        break;
+                    case "--size":
+                        String[] size = value.split("x");
+                        rows = Integer.parseInt(size[0].trim());
+                        columns = Integer.parseInt(size[size.length - 1].trim());
+                        break;
+                    case "--pattern":
+                        pattern = Paths.get(value);
+                        break;
+                    case "--output":
+                        output = Paths.get(value);
+                        break;
+                    case "--restore":
+                        restore = Paths.get(value);
+                        break;
+                    case "--checkpoint":
+                        checkpoint = Paths.get(value);
+                        break;
+                    case "--rule":
+                        rule = Rule.parse(value);
+                        break;
+                    case "--census":
+                        census = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--cycle":
+                        cycleAction = CycleAction.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            } catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("invalid value of " + option + ": " + value);
+            }
+        }
+        if (threads <= 0 || generations < 0 || census < 0)
+            throw new IllegalArgumentException("threads, generations and census must not be negative");
+    }
+
+    private Universe createUniverse()
+    {
+        Universe universe;
+        switch (engine)
+        {
+            case "sparse":
+                universe = new SparseGameOfLife();
+                break;
+            case "adaptive":
+                universe = new GameOfLife();
+                break;
+            case "dense":
+                universe = new DenseGameOfLife(rows, columns);
+                break;
+            case "tiled":
+                universe = new TiledGameOfLife();
+                break;
+            case "hashlife":
+                universe = new HashLifeGameOfLife();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown engine " + engine);
+        }
+        universe.setParallelism(threads);
+        return universe;
+    }
+
+    private void run() throws IOException
+    {
+        if (census > 0)
+        {
+            runCensus();
+            return;
+        }
+
+        Universe universe = createUniverse();
+        long firstGeneration = 0;
+        if (restore != null)
+        {
+            long loadStart = System.nanoTime();
+            firstGeneration = Checkpoint.read(restore, universe).getGeneration();
+            System.out.printf("restored        %d beings of generation %d in %.3f s%n", universe.getPopulation(),
+                    firstGeneration, (System.nanoTime() - loadStart) / 1e9);
+        } else if (pattern != null)
+        {
+            long loadStart = System.nanoTime();
+            PatternReader.read(pattern, universe);
+            System.out.printf("loaded          %d beings in %.3f s%n", universe.getPopulation(),
+                    (System.nanoTime() - loadStart) / 1e9);
+        } else
+        {
+            GameOfLifeSample.GosperGliderGun.getBeings()
+                    .forEach(being -> universe.addBeing(being.getRow(), being.getColumn()));
+        }
+
+        if (rule != null)
+            universe.setRule(rule);
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans();
+        heapPools.removeIf(pool -> pool.getType() != MemoryType.HEAP);
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        Metrics metrics = new Metrics();
+        try
+        {
+            metrics.register("headless");
+        } catch (JMException e)
+        {
+            System.err.println("metrics could not be registered: " + e.getMessage());
+        }
+        if (universe instanceof GameOfLife)
+            ((GameOfLife) universe).setMetrics(metrics);
+
+        HashLifeGameOfLife hashLife = universe instanceof HashLifeGameOfLife
+                                      ? (HashLifeGameOfLife) universe
+                                      : null;
+        CycleDetector cycleDetector = new CycleDetector();
+        cycleDetector.update(0, universe.stateHash(), universe.getPopulation());
+        int period = 0;
+        long cycleGeneration = 0;
+        long peakPopulation = universe.getPopulation();
+        long updatedCells = 0;
+        long calculated = 0;
+        long advanced = 0;
+        long end = generations;
+        long start = System.nanoTime();
+        if (hashLife != null && cycleAction == CycleAction.CONTINUE)
+        {
+            // no generation has to be looked at, HashLife jumps over all of them at once
+            hashLife.advance(generations);
+            advanced = generations;
+            end = 0;
+        }
+        for (long generation = 0; generation < end; generation++)
+        {
+            updatedCells += universe.getPopulation();
+            long allocatedBefore = metrics.currentThreadAllocatedBytes();
+            long stepStart = System.nanoTime();
+            universe.generateNextGeneration();
+            long stepNanos = System.nanoTime() - stepStart;
+            long allocatedBytes = allocatedBefore >= 0
+                                  ? metrics.currentThreadAllocatedBytes() - allocatedBefore
+                                  : -1;
+            calculated++;
+            // deltas are not requested, they would be allocated for the metrics only
+            metrics.recordGeneration(firstGeneration + generation + 1, stepNanos, 0, allocatedBytes,
+                    universe.getPopulation(), null);
+            peakPopulation = Math.max(peakPopulation, universe.getPopulation());
+            if (cycleAction == CycleAction.CONTINUE || period > 0)
+                continue;
+
+            period = cycleDetector.update(generation + 1, universe.stateHash(), universe.getPopulation());
+            if (period == 0)
+                continue;
+
+            cycleGeneration = firstGeneration + generation + 1 - period;
+            if (cycleAction == CycleAction.STOP)
+            {
+                generations = generation + 1;
+                end = generations;
+            } else if (hashLife != null)
+            {
+                // whole periods end with the same generation, HashLife jumps over the rest
+                advanced = (generations - generation - 1) % period;
+                hashLife.advance(advanced);
+                end = generation + 1;
+            } else
+            {
+                // whole periods end with the same generation, only the rest has to be calculated
+                end = generation + 1 + (generations - generation - 1) % period;
+            }
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        peakPopulation = Math.max(peakPopulation, universe.getPopulation());
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools)
+        {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        // the sparse and HashLife engines calculate on one thread whatever was given
+        System.out.printf("engine          %s, %d thread(s), rule %s%n", engine, universe.getParallelism(),
+                universe.getRule());
+        System.out.printf("generations     %d in %.3f s, %d calculated%n", generations, seconds,
+                calculated + advanced);
+        if (advanced > 0)
+        {
+            System.out.printf("mode            %d stepped, %d advanced by HashLife jumps%n", calculated,
+                    advanced);
+        }
+        System.out.printf("generations/s   %.1f%n", (calculated + advanced) / seconds);
+        // the population of the generations jumped over is not known
+        if (calculated > 0)
+            System.out.printf("cells/s         %.1f%n", updatedCells / seconds);
+        System.out.printf("population      %d, peak %d%n", universe.getPopulation(), peakPopulation);
+        System.out.printf("peak heap       %.1f MiB%n", peakHeap / (1024. * 1024.));
+        if (calculated > 0)
+        {
+            Metrics.LatencySummary stepLatency = metrics.getStepLatency();
+            System.out.printf("step latency    p50 %.1f us, p99 %.1f us, max %.1f us%n", stepLatency.getP50(),
+                    stepLatency.getP99(), stepLatency.getMax());
+            if (metrics.getAllocatedBytes() >= 0)
+            {
+                System.out.printf("allocation      %.1f bytes/generation%n",
+                        metrics.getAllocatedBytesPerGeneration());
+            }
+        }
+        if (universe instanceof GameOfLife)
+        {
+            GameOfLife adaptive = (GameOfLife) universe;
+            System.out.printf("migrations      %d in %.3f s, last engine %s%n", adaptive.getMigrations(),
+                    adaptive.getMigrationNanos() / 1e9, adaptive.getEngine());
+        }
+        if (period > 0)
+            System.out.printf("cycle           period %d since generation %d%n", period, cycleGeneration);
+
+        long lastGeneration = firstGeneration + generations;
+        if (output != null)
+            PatternWriter.write(output, universe, "generation " + lastGeneration);
+        if (checkpoint != null)
+            Checkpoint.write(checkpoint, universe, lastGeneration);
+
+        try
+        {
+            metrics.unregister();
+        } catch (JMException e)
+        {
+            System.err.println("metrics could not be unregistered: " + e.getMessage());
+        }
+    }
+
+    private void runCensus()
+    {
+        SoupCensus soupCensus = new SoupCensus(SoupCensus.DEFAULT_SOUP_SIZE, SoupCensus.DEFAULT_DENSITY,
+                SoupCensus.DEFAULT_MAX_GENERATIONS, threads);
+        SoupCensus.Census result = soupCensus.run(seed, census);
+
+        System.out.printf("census          %d soups from seed %d, %d thread(s)%n", result.getSoups(), seed, threads);
+        System.out.printf("generations     %d in %.3f s%n", result.getGenerations(), result.getSeconds());
+        System.out.printf("soups/s         %.1f%n", result.getSoupsPerSecond());
+        System.out.printf("soups/s/core    %.1f%n", result.getSoupsPerSecondPerCore());
+        for (Map.Entry<String, Long> count : result.getCounts())
+        {
+            System.out.printf("%-15s %d%n", count.getKey(), count.getValue());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package de.hindenbug.gameoflife;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A <code>LatencyHistogram</code> counts durations in nanoseconds inside logarithmic buckets. Each power of two
+ * is split into eight buckets, so percentiles are exact within 12.5 percent. Recording a duration costs a few
+ * atomic increments and never allocates, so it may be used inside the generation loop.</p>
+ * <p>Durations may be recorded and summarized by different threads.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:40
+ */
+final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos duration in nanoseconds, negative durations are counted as zero
+     */
+    void record(long nanos)
+    {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    static int bucketOf(long nanos)
+    {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * @return smallest duration counted inside given bucket
+     */
+    static long lowerBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Returns the duration below which given fraction of all durations are, as middle of its bucket.
+     *
+     * @param fraction fraction between <code>0</code> and <code>1</code>
+     * @return duration in nanoseconds or <code>0</code> if nothing was recorded
+     */
+    long percentile(double fraction)
+    {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+            {
+                long lower = lowerBoundOf(bucket);
+                long upper = bucket + 1 < BUCKETS
+                             ? lowerBoundOf(bucket + 1)
+                             : Long.MAX_VALUE;
+                return Math.min(max.get(), lower + (upper - lower) / 2);
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return summary of all recorded durations in microseconds
+     */
+    Metrics.LatencySummary summarize()
+    {
+        long total = count.get();
+        return new Metrics.LatencySummary(total,
+                total > 0
+                ? sum.get() / 1e3 / total
+                : 0,
+                percentile(.5) / 1e3, percentile(.9) / 1e3, percentile(.99) / 1e3, max.get() / 1e3);
+    }
+
+    void reset()
+    {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,329 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * A <code>LongHashSet</code> is a set of primitive longs using open addressing with linear probing. It is used to
+ * store packed cells (see {@linkplain Cells}) without boxing them.
+ * <p>The value <code>0</code> marks a free slot inside the table, therefore the key <code>0</code> is tracked
+ * separately. Removal shifts the following entries of a probe sequence back, so no tombstones are needed.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 11:25
+ */
+class LongHashSet implements CellSet
+{
+    private static final int MIN_CAPACITY = 16;
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+
+    /**
+     * Creates a new empty <code>LongHashSet</code>
+     */
+    LongHashSet()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty set that is able to hold given number of elements without growing.
+     *
+     * @param expectedSize number of elements that are expected to be added
+     */
+    LongHashSet(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Creates a copy of given set.
+     *
+     * @param other set to copy, not null
+     */
+    LongHashSet(LongHashSet other)
+    {
+        this.keys = other.keys.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.containsFree = other.containsFree;
+    }
+
+    /**
+     * Creates a set containing the cells of another set. Another <code>LongHashSet</code> is copied without
+     * rehashing its cells.
+     *
+     * @param cells cells to copy, not null
+     * @return new set
+     */
+    static LongHashSet copyOf(CellSet cells)
+    {
+        if (cells instanceof LongHashSet)
+            return new LongHashSet((LongHashSet) cells);
+
+        long[] array = cells.toArray();
+        LongHashSet result = new LongHashSet(array.length);
+        for (long cell : array)
+        {
+            result.add(cell);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a set containing the packed cells of given beings.
+     *
+     * @param beings beings to copy, not null
+     * @return new set
+     */
+    static LongHashSet copyOf(Set<Being> beings)
+    {
+        if (beings instanceof BeingSet)
+            return copyOf(((BeingSet) beings).getCells());
+
+        LongHashSet result = new LongHashSet(beings.size());
+        for (Being being : beings)
+        {
+            result.add(Cells.pack(being));
+        }
+        return result;
+    }
+
+    private static int capacityFor(int expectedSize)
+    {
+        long required = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (required > 1 << 30)
+            throw new IllegalArgumentException("too many elements: " + expectedSize);
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds given key to this set.
+     *
+     * @param key key to add
+     * @return <code>true</code> if the key was not present before
+     */
+    @Override
+    public boolean add(long key)
+    {
+        if (key == FREE)
+        {
+            if (containsFree)
+                return false;
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length)
+            rehash(keys.length << 1);
+        return true;
+    }
+
+    @Override
+    public boolean contains(long key)
+    {
+        if (key == FREE)
+            return containsFree;
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes given key from this set.
+     *
+     * @param key key to remove
+     * @return <code>true</code> if the key was present
+     */
+    @Override
+    public boolean remove(long key)
+    {
+        if (key == FREE)
+        {
+            if (!containsFree)
+                return false;
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+            {
+                shiftKeys(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Closes the gap at given slot by moving following keys of the probe sequence back.
+     */
+    private void shiftKeys(int gap)
+    {
+        int slot = gap;
+        while (true)
+        {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == FREE)
+                break;
+            int home = Cells.hash(key) & mask;
+            // move the key if its home slot is not located cyclically between the gap and the current slot
+            if (gap <= slot
+                ? gap >= home || home > slot
+                : gap >= home && home > slot)
+            {
+                keys[gap] = key;
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+    }
+
+    /**
+     * Ensures that given number of elements fit into this set without growing.
+     *
+     * @param expectedSize number of elements that are expected
+     */
+    void ensureCapacity(int expectedSize)
+    {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length)
+            rehash(capacity);
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys)
+        {
+            if (key != FREE)
+            {
+                int slot = Cells.hash(key) & mask;
+                while (keys[slot] != FREE)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        if (size > 0)
+        {
+            Arrays.fill(keys, FREE);
+            containsFree = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * Calls given consumer for each key of this set. The set must not be modified by the consumer.
+     *
+     * @param consumer consumer of each key, not null
+     */
+    void forEach(LongConsumer consumer)
+    {
+        if (containsFree)
+            consumer.accept(FREE);
+        for (long key : keys)
+        {
+            if (key != FREE)
+                consumer.accept(key);
+        }
+    }
+
+    /**
+     * @return all keys of this set in no specific order
+     */
+    @Override
+    public long[] toArray()
+    {
+        long[] result = new long[size];
+        int index = 0;
+        if (containsFree)
+            result[index++] = FREE;
+        for (long key : keys)
+        {
+            if (key != FREE)
+                result[index++] = key;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof LongHashSet)) return false;
+        LongHashSet that = (LongHashSet) o;
+        if (size != that.size || containsFree != that.containsFree) return false;
+        for (long key : keys)
+        {
+            if (key != FREE && !that.contains(key))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = 0;
+        for (long key : keys)
+        {
+            if (key != FREE)
+                result += Cells.hash(key);
+        }
+        return containsFree
+               ? result + Cells.hash(FREE)
+               : result;
+    }
+}
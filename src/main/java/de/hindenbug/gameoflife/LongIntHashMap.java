@@ -0,0 +1,211 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * A <code>LongIntHashMap</code> maps primitive long keys to primitive int values using open addressing with linear
+ * probing. It is used to accumulate the neighbor counts of packed cells (see {@linkplain Cells}). Missing keys have
+ * the value <code>0</code>.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 11:40
+ */
+class LongIntHashMap
+{
+    private static final int MIN_CAPACITY = 16;
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+    private int freeValue;
+
+    /**
+     * Consumer of the entries of a <code>LongIntHashMap</code>
+     */
+    @FunctionalInterface
+    interface EntryConsumer
+    {
+        void accept(long key, int value);
+    }
+
+    LongIntHashMap()
+    {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds given delta to the value of given key.
+     *
+     * @param key   key whose value is changed
+     * @param delta value to add
+     * @return the new value of the key
+     */
+    int addTo(long key, int delta)
+    {
+        if (key == FREE)
+        {
+            if (!containsFree)
+            {
+                containsFree = true;
+                size++;
+            }
+            return freeValue += delta;
+        }
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+                return values[slot] += delta;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length)
+            rehash(keys.length << 1);
+        return delta;
+    }
+
+    int get(long key)
+    {
+        if (key == FREE)
+            return containsFree
+                   ? freeValue
+                   : 0;
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Removes given key from this map.
+     *
+     * @param key key to remove
+     * @return the value of the removed key or <code>0</code> if it was missing
+     */
+    int remove(long key)
+    {
+        if (key == FREE)
+        {
+            if (!containsFree)
+                return 0;
+            int value = freeValue;
+            containsFree = false;
+            freeValue = 0;
+            size--;
+            return value;
+        }
+        int slot = Cells.hash(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE)
+        {
+            if (current == key)
+            {
+                int value = values[slot];
+                shiftKeys(slot);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Closes the gap at given slot by moving following entries of the probe sequence back.
+     */
+    private void shiftKeys(int gap)
+    {
+        int slot = gap;
+        while (true)
+        {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == FREE)
+                break;
+            int home = Cells.hash(key) & mask;
+            // move the entry if its home slot is not located cyclically between the gap and the current slot
+            if (gap <= slot
+                ? gap >= home || home > slot
+                : gap >= home && home > slot)
+            {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            long key = oldKeys[i];
+            if (key != FREE)
+            {
+                int slot = Cells.hash(key) & mask;
+                while (keys[slot] != FREE)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all entries but keeps the allocated table, so the map may be reused without allocating again.
+     */
+    void clear()
+    {
+        if (size > 0)
+        {
+            Arrays.fill(keys, FREE);
+            containsFree = false;
+            freeValue = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Calls given consumer for each entry of this map. The map must not be modified by the consumer.
+     *
+     * @param consumer consumer of each entry, not null
+     */
+    void forEach(EntryConsumer consumer)
+    {
+        if (containsFree)
+            consumer.accept(FREE, freeValue);
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != FREE)
+                consumer.accept(keys[i], values[i]);
+        }
+    }
+}
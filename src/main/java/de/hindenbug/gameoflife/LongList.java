@@ -0,0 +1,60 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * A <code>LongList</code> is a growable list of primitive longs, for example packed cells (see
+ * {@linkplain Cells}). Clearing the list keeps its capacity, so it may be reused without allocating again.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 16:50
+ */
+class LongList
+{
+    private long[] values;
+    private int size;
+
+    LongList()
+    {
+        this(16);
+    }
+
+    LongList(int capacity)
+    {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    void add(long value)
+    {
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length << 1);
+        values[size++] = value;
+    }
+
+    long get(int index)
+    {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        return values[index];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    long[] toArray()
+    {
+        return Arrays.copyOf(values, size);
+    }
+}
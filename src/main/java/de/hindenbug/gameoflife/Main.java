@@ -1,8 +1,14 @@
 package de.hindenbug.gameoflife;
 
+import java.util.Arrays;
+
 public class Main {
 
     public static void main(String[] args) {
-        UI.main(args);
+        // the user interface is only loaded if it is used, so headless runs never initialize JavaFX
+        if (Arrays.asList(args).contains(HeadlessRunner.HEADLESS_OPTION))
+            HeadlessRunner.main(args);
+        else
+            UI.main(args);
     }
 }
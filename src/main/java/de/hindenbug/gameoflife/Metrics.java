@@ -0,0 +1,390 @@
+package de.hindenbug.gameoflife;
+
+import jdk.jfr.EventType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p><code>Metrics</code> collect the runtime behaviour of a simulation: latency histograms of the generation
+ * steps, of the time waited for the lock of the universe and of drawn frames, the population, births and deaths of
+ * the last generation, the bytes allocated per generation and the migrations of a {@linkplain GameOfLife} between
+ * its engines.</p>
+ * <p>The metrics are published as {@linkplain MetricsMXBean} once {@linkplain #register(String) registered} and
+ * each generation, frame and migration is committed as flight recorder event ({@linkplain GenerationEvent},
+ * {@linkplain RenderEvent}, {@linkplain MigrationEvent}). Callers ask {@linkplain #isMeasuring()} once per
+ * generation, if neither the metrics nor the events are enabled nothing is measured at all.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:40
+ */
+public final class Metrics implements MetricsMXBean
+{
+    static final String DOMAIN = "de.hindenbug.gameoflife";
+
+    private static final EventType GENERATION_EVENT = EventType.getEventType(GenerationEvent.class);
+    private static final EventType RENDER_EVENT = EventType.getEventType(RenderEvent.class);
+
+    private volatile boolean enabled = true;
+    private final LatencyHistogram stepLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+    private final LatencyHistogram migrationTime = new LatencyHistogram();
+    private final AtomicLong generationCount = new AtomicLong();
+    private final AtomicLong totalAllocatedBytes = new AtomicLong();
+    private volatile long generation;
+    private volatile int population;
+    private volatile int births;
+    private volatile int deaths;
+    private volatile long allocatedBytes = -1;
+    private volatile String engine = "";
+
+    private final com.sun.management.ThreadMXBean threads;
+    private ObjectName objectName;
+
+    public Metrics()
+    {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported())
+        {
+            threads = (com.sun.management.ThreadMXBean) threadBean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else
+        {
+            threads = null;
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * <code>de.hindenbug.gameoflife:type=Metrics,name=&lt;name&gt;</code>.
+     *
+     * @param name name of the simulation, not null
+     * @throws JMException if the metrics could not be registered, for example if the name is taken
+     */
+    public synchronized void register(String name) throws JMException
+    {
+        unregister();
+        ObjectName newName = new ObjectName(DOMAIN, "type", "Metrics");
+        newName = new ObjectName(newName + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        objectName = newName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server if they are registered.
+     *
+     * @throws JMException if the metrics could not be unregistered
+     */
+    public synchronized void unregister() throws JMException
+    {
+        if (objectName == null)
+            return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName))
+            server.unregisterMBean(objectName);
+        objectName = null;
+    }
+
+    /**
+     * @return <code>true</code> if generations should be measured, because the metrics or the flight recorder
+     * event are enabled
+     */
+    boolean isMeasuring()
+    {
+        return enabled || GENERATION_EVENT.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if frames should be measured
+     */
+    boolean isMeasuringRender()
+    {
+        return enabled || RENDER_EVENT.isEnabled();
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far or <code>-1</code> if not supported by the jvm
+     */
+    long currentThreadAllocatedBytes()
+    {
+        return threads != null
+               ? threads.getThreadAllocatedBytes(Thread.currentThread().getId())
+               : -1;
+    }
+
+    /**
+     * Records one generation.
+     *
+     * @param generation     number of the generation
+     * @param stepNanos      time to calculate the generation
+     * @param lockWaitNanos  time waited for the lock of the universe
+     * @param allocatedBytes bytes allocated while the generation was calculated or <code>-1</code> if unknown
+     * @param population     number of living beings
+     * @param delta          births and deaths of the generation, may be null
+     */
+    void recordGeneration(long generation, long stepNanos, long lockWaitNanos, long allocatedBytes, int population,
+                          GenerationDelta delta)
+    {
+        int births = delta != null
+                     ? delta.getBirthCount()
+                     : -1;
+        int deaths = delta != null
+                     ? delta.getDeathCount()
+                     : -1;
+        if (enabled)
+        {
+            stepLatency.record(stepNanos);
+            lockWait.record(lockWaitNanos);
+            generationCount.incrementAndGet();
+            if (allocatedBytes >= 0)
+                totalAllocatedBytes.addAndGet(allocatedBytes);
+            this.generation = generation;
+            this.population = population;
+            this.births = births;
+            this.deaths = deaths;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        GenerationEvent event = new GenerationEvent();
+        if (event.shouldCommit())
+        {
+            event.generation = generation;
+            event.stepNanos = stepNanos;
+            event.lockWaitNanos = lockWaitNanos;
+            event.allocatedBytes = allocatedBytes;
+            event.population = population;
+            event.births = births;
+            event.deaths = deaths;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records one drawn frame.
+     *
+     * @param generation  number of the drawn generation
+     * @param renderNanos time to draw the frame
+     * @param fullRedraw  <code>true</code> if the whole canvas was drawn instead of the changed beings
+     */
+    void recordRender(long generation, long renderNanos, boolean fullRedraw)
+    {
+        if (enabled)
+            renderTime.record(renderNanos);
+
+        RenderEvent event = new RenderEvent();
+        if (event.shouldCommit())
+        {
+            event.generation = generation;
+            event.renderNanos = renderNanos;
+            event.fullRedraw = fullRedraw;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the engine a universe runs on, for example when the universe is created.
+     *
+     * @param engine name of the engine, not null
+     */
+    void recordEngine(String engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * Records the move of a universe from one engine to another.
+     *
+     * @param generation     number of the generation, that was migrated
+     * @param from           engine the universe ran on
+     * @param to             engine the universe runs on now
+     * @param population     number of moved beings
+     * @param migrationNanos time to move the beings
+     * @param reason         statistics the decision was based on
+     */
+    void recordMigration(long generation, String from, String to, int population, long migrationNanos,
+                         String reason)
+    {
+        engine = to;
+        migrationTime.record(migrationNanos);
+
+        MigrationEvent event = new MigrationEvent();
+        if (event.shouldCommit())
+        {
+            event.generation = generation;
+            event.from = from;
+            event.to = to;
+            event.population = population;
+            event.migrationNanos = migrationNanos;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    @Override
+    public long getGenerationCount()
+    {
+        return generationCount.get();
+    }
+
+    @Override
+    public int getPopulation()
+    {
+        return population;
+    }
+
+    @Override
+    public int getBirths()
+    {
+        return births;
+    }
+
+    @Override
+    public int getDeaths()
+    {
+        return deaths;
+    }
+
+    @Override
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    @Override
+    public double getAllocatedBytesPerGeneration()
+    {
+        long count = generationCount.get();
+        return count > 0 && threads != null
+               ? (double) totalAllocatedBytes.get() / count
+               : 0;
+    }
+
+    @Override
+    public LatencySummary getStepLatency()
+    {
+        return stepLatency.summarize();
+    }
+
+    @Override
+    public LatencySummary getLockWait()
+    {
+        return lockWait.summarize();
+    }
+
+    @Override
+    public LatencySummary getRenderTime()
+    {
+        return renderTime.summarize();
+    }
+
+    @Override
+    public String getEngine()
+    {
+        return engine;
+    }
+
+    @Override
+    public LatencySummary getMigrationTime()
+    {
+        return migrationTime.summarize();
+    }
+
+    @Override
+    public void reset()
+    {
+        stepLatency.reset();
+        lockWait.reset();
+        renderTime.reset();
+        migrationTime.reset();
+        generationCount.set(0);
+        totalAllocatedBytes.set(0);
+    }
+
+    /**
+     * Summary of a {@linkplain LatencyHistogram} in microseconds, that is published as composite data by the
+     * MBean.
+     */
+    public static final class LatencySummary
+    {
+        private final long count;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double max;
+
+        @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+        public LatencySummary(long count, double mean, double p50, double p90, double p99, double max)
+        {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public double getMean()
+        {
+            return mean;
+        }
+
+        public double getP50()
+        {
+            return p50;
+        }
+
+        public double getP90()
+        {
+            return p90;
+        }
+
+        public double getP99()
+        {
+            return p99;
+        }
+
+        public double getMax()
+        {
+            return max;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f us",
+                    count, mean, p50, p90, p99, max);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * Management interface of the {@linkplain Metrics} of a simulation, registered with the platform MBean server.
+ * Durations are given in microseconds.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:40
+ */
+public interface MetricsMXBean
+{
+    /**
+     * @return <code>true</code> if generations and frames are measured
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return number of the last measured generation
+     */
+    long getGeneration();
+
+    /**
+     * @return number of measured generations
+     */
+    long getGenerationCount();
+
+    /**
+     * @return population of the last measured generation
+     */
+    int getPopulation();
+
+    /**
+     * @return births of the last measured generation or <code>-1</code> if the engine does not record them
+     */
+    int getBirths();
+
+    /**
+     * @return deaths of the last measured generation or <code>-1</code> if the engine does not record them
+     */
+    int getDeaths();
+
+    /**
+     * @return bytes allocated by the last measured generation or <code>-1</code> if not supported by the jvm
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return mean bytes allocated per measured generation
+     */
+    double getAllocatedBytesPerGeneration();
+
+    /**
+     * @return time to calculate a generation
+     */
+    Metrics.LatencySummary getStepLatency();
+
+    /**
+     * @return time waited for the lock of the universe before a generation
+     */
+    Metrics.LatencySummary getLockWait();
+
+    /**
+     * @return time to draw a frame
+     */
+    Metrics.LatencySummary getRenderTime();
+
+    /**
+     * @return engine the universe runs on, empty if unknown
+     */
+    String getEngine();
+
+    /**
+     * @return time to move a universe from one engine to another, the count is the number of migrations
+     */
+    Metrics.LatencySummary getMigrationTime();
+
+    /**
+     * Forgets all measurements.
+     */
+    void reset();
+}
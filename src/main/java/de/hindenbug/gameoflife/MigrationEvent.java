@@ -0,0 +1,40 @@
+package de.hindenbug.gameoflife;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a universe, that moved to another engine, committed by
+ * {@linkplain Metrics#recordMigration}.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+@Name("de.hindenbug.gameoflife.Migration")
+@Label("Engine Migration")
+@Category("Game of Life")
+@Description("Move of the beings of a universe from one engine to another")
+class MigrationEvent extends jdk.jfr.Event
+{
+    @Label("Generation")
+    long generation;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Population")
+    int population;
+
+    @Label("Migration Time")
+    @Timespan
+    long migrationNanos;
+
+    @Label("Reason")
+    String reason;
+}
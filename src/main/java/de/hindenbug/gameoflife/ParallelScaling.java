@@ -0,0 +1,71 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Random;
+
+/**
+ * <code>ParallelScaling</code> prints the scaling curve of the parallel {@linkplain DenseGameOfLife}. A random soup
+ * is advanced with one up to the given number of threads and the achieved generations per second are printed
+ * together with the speedup compared to one thread.
+ * <pre>
+ *     java -cp game-of-life.jar de.hindenbug.gameoflife.ParallelScaling [size] [generations] [threads]
+ * </pre>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 16:05
+ */
+public class ParallelScaling
+{
+    private static final double DENSITY = .35;
+
+    public static void main(String[] args)
+    {
+        int size = args.length > 0
+                   ? Integer.parseInt(args[0])
+                   : 4096;
+        int generations = args.length > 1
+                          ? Integer.parseInt(args[1])
+                          : 50;
+        int maxThreads = args.length > 2
+                         ? Integer.parseInt(args[2])
+                         : Runtime.getRuntime().availableProcessors();
+
+        DenseGameOfLife soup = new DenseGameOfLife(size, size, DenseGameOfLife.Border.TOROIDAL);
+        Random random = new Random(size);
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                if (random.nextDouble() < DENSITY)
+                    soup.addBeing(row, column);
+            }
+        }
+
+        System.out.printf("%d x %d soup, %d generations%n", size, size, generations);
+        System.out.printf("%8s %14s %10s%n", "threads", "generations/s", "speedup");
+        double sequential = 0;
+        for (int threads = 1; threads <= maxThreads; threads++)
+        {
+            DenseGameOfLife universe = new DenseGameOfLife(size, size, DenseGameOfLife.Border.TOROIDAL);
+            soup.getBeings().forEach(being -> universe.addBeing(being.getRow(), being.getColumn()));
+            universe.setParallelism(threads);
+
+            // warm up
+            for (int i = 0; i < generations / 5 + 1; i++)
+            {
+                universe.generateNextGeneration();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < generations; i++)
+            {
+                universe.generateNextGeneration();
+            }
+            double rate = generations / ((System.nanoTime() - start) / 1e9);
+            if (threads == 1)
+                sequential = rate;
+            universe.setParallelism(1);
+
+            System.out.printf("%8d %14.1f %10.2f%n", threads, rate, rate / sequential);
+        }
+    }
+}
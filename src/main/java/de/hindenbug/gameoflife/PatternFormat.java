@@ -0,0 +1,44 @@
+package de.hindenbug.gameoflife;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats of patterns, that are read by the {@linkplain PatternReader} and written by the
+ * {@linkplain PatternWriter}.
+ *
+ * @author Nils Verheyen
+ * @see <a href="https://conwaylife.com/wiki/File_formats">File formats</a>
+ * @since 18.10.26 20:10
+ */
+public enum PatternFormat
+{
+    /**
+     * Run length encoded rows of a pattern, the common format of large patterns.
+     */
+    RLE,
+    /**
+     * One line with the column and row of each living being.
+     */
+    LIFE_106,
+    /**
+     * One line per row with <code>O</code> for each living and <code>.</code> for each dead cell.
+     */
+    PLAINTEXT;
+
+    /**
+     * Returns the format of given file by its extension. Unknown extensions are treated as RLE.
+     *
+     * @param path path of the pattern file, not null
+     * @return format of the file
+     */
+    public static PatternFormat of(Path path)
+    {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".cells") || name.endsWith(".txt"))
+            return PLAINTEXT;
+        if (name.endsWith(".lif") || name.endsWith(".life") || name.endsWith(".l106"))
+            return LIFE_106;
+        return RLE;
+    }
+}
@@ -0,0 +1,405 @@
+package de.hindenbug.gameoflife;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>A <code>PatternReader</code> reads a pattern from a channel and adds its beings to a {@linkplain Universe}.
+ * The input is parsed byte by byte out of one buffer, no line or {@linkplain Being} is created per cell. The cells
+ * are collected in chunks of packed cells, that are bulk inserted with {@linkplain Universe#addCells(long[], int)},
+ * so patterns with millions of cells are loaded within seconds.</p>
+ * <p>The position of RLE patterns is taken from an <code>#CXRLE Pos=x,y</code>, <code>#P x y</code> or
+ * <code>#R x y</code> line, otherwise the pattern starts at row and column <code>0</code>. Additional states of
+ * multi state RLE files are treated as living beings. The rule of the pattern is set on the universe.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 20:10
+ */
+public final class PatternReader
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final int EOF = -1;
+
+    private final ReadableByteChannel channel;
+    private final PatternFormat format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private Universe universe;
+    private final long[] chunk = new long[CHUNK_SIZE];
+    private int chunkSize;
+    private long cellCount;
+
+    private String name;
+    private String rule;
+    private int width;
+    private int height;
+
+    /**
+     * Creates a new reader of given channel. The channel is not closed by the reader.
+     *
+     * @param channel channel to read from, not null
+     * @param format  format of the pattern, not null
+     */
+    public PatternReader(ReadableByteChannel channel, PatternFormat format)
+    {
+        this.channel = channel;
+        this.format = format;
+        this.buffer.flip();
+    }
+
+    /**
+     * Reads the pattern of given file into given universe, the format is given by the extension of the file.
+     *
+     * @param path     path of the pattern file, not null
+     * @param universe universe to add the beings to, not null
+     * @return reader with the meta data of the pattern
+     * @throws IOException if the file could not be read or is malformed
+     */
+    public static PatternReader read(Path path, Universe universe) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            PatternReader reader = new PatternReader(channel, PatternFormat.of(path));
+            reader.read(universe);
+            return reader;
+        }
+    }
+
+    /**
+     * Reads the whole pattern and adds its beings to given universe. If the pattern contains a rule, the rule is
+     * set on the universe as well.
+     *
+     * @param universe universe to add the beings to, not null
+     * @return number of living beings, that were read
+     * @throws IOException if the channel could not be read, the pattern is malformed or its rule is not supported
+     */
+    public long read(Universe universe) throws IOException
+    {
+        this.universe = universe;
+        switch (format)
+        {
+            case RLE:
+                readRle();
+                break;
+            case LIFE_106:
+                readLife106();
+                break;
+            case PLAINTEXT:
+                readPlaintext();
+                break;
+        }
+        flush();
+        if (rule != null)
+        {
+            try
+            {
+                universe.setRule(Rule.parse(rule));
+            } catch (IllegalArgumentException e)
+            {
+                throw new IOException("unsupported rule " + rule, e);
+            }
+        }
+        return cellCount;
+    }
+
+    /**
+     * @return name of the pattern or <code>null</code> if the pattern has no name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return rule of the pattern as given by the file or <code>null</code> if the file contains no rule
+     */
+    public String getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * @return width of the pattern as given by the header of a RLE file, otherwise <code>0</code>
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return height of the pattern as given by the header of a RLE file, otherwise <code>0</code>
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    private int next() throws IOException
+    {
+        if (!buffer.hasRemaining())
+        {
+            buffer.clear();
+            int read;
+            do
+            {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0)
+                return EOF;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private void add(int row, int column)
+    {
+        chunk[chunkSize++] = Cells.pack(row, column);
+        if (chunkSize == CHUNK_SIZE)
+            flush();
+    }
+
+    private void flush()
+    {
+        universe.addCells(chunk, chunkSize);
+        cellCount += chunkSize;
+        chunkSize = 0;
+    }
+
+    /**
+     * Reads the rest of the current line, only used for comments and headers.
+     */
+    private String readLine() throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = next()) != EOF && c != '\n')
+        {
+            if (c != '\r')
+                line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    private static boolean isWhitespace(int c)
+    {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private void readRle() throws IOException
+    {
+        int row = 0;
+        int column = 0;
+        int c = next();
+        // comments and header
+        while (true)
+        {
+            if (isWhitespace(c))
+            {
+                c = next();
+            } else if (c == '#')
+            {
+                int[] position = readRleComment(readLine());
+                if (position != null)
+                {
+                    column = position[0];
+                    row = position[1];
+                }
+                c = next();
+            } else if (c == 'x')
+            {
+                readRleHeader("x" + readLine());
+                c = next();
+            } else
+            {
+                break;
+            }
+        }
+
+        int left = column;
+        int run = 0;
+        for (; c != EOF && c != '!'; c = next())
+        {
+            if (c >= '0' && c <= '9')
+            {
+                run = run * 10 + c - '0';
+            } else if (c == 'b' || c == '.')
+            {
+                column += Math.max(run, 1);
+                run = 0;
+            } else if (c == '$')
+            {
+                row += Math.max(run, 1);
+                column = left;
+                run = 0;
+            } else if (c == '#')
+            {
+                // comment inside of the body
+                readLine();
+            } else if (!isWhitespace(c))
+            {
+                if (!Character.isLetter(c))
+                    throw new IOException("unexpected character '" + (char) c + "' inside RLE pattern");
+                for (int i = Math.max(run, 1); i > 0; i--)
+                {
+                    add(row, column++);
+                }
+                run = 0;
+            }
+        }
+    }
+
+    /**
+     * @return column and row of the pattern if the comment defines its position, otherwise <code>null</code>
+     */
+    private int[] readRleComment(String comment) throws IOException
+    {
+        try
+        {
+            if (comment.startsWith("N"))
+            {
+                name = comment.substring(1).trim();
+            } else if (comment.startsWith("CXRLE"))
+            {
+                int pos = comment.indexOf("Pos=");
+                if (pos >= 0)
+                {
+                    String[] position = comment.substring(pos + 4).trim().split("[\\s]+")[0].split(",");
+                    return new int[]{Integer.parseInt(position[0].trim()), Integer.parseInt(position[1].trim())};
+                }
+            } else if (comment.startsWith("P") || comment.startsWith("R"))
+            {
+                String[] position = comment.substring(1).trim().split("\\s+");
+                return new int[]{Integer.parseInt(position[0]), Integer.parseInt(position[1])};
+            } else if (comment.startsWith("r"))
+            {
+                rule = comment.substring(1).trim();
+            }
+            return null;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e)
+        {
+            throw new IOException("malformed position #" + comment);
+        }
+    }
+
+    private void readRleHeader(String header) throws IOException
+    {
+        for (String entry : header.split(","))
+        {
+            int separator = entry.indexOf('=');
+            if (separator < 0)
+                continue;
+
+            String key = entry.substring(0, separator).trim();
+            String value = entry.substring(separator + 1).trim();
+            try
+            {
+                if (key.equals("x"))
+                    width = Integer.parseInt(value);
+                else if (key.equals("y"))
+                    height = Integer.parseInt(value);
+                else if (key.equals("rule"))
+                    rule = value;
+            } catch (NumberFormatException e)
+            {
+                throw new IOException("malformed RLE header " + header);
+            }
+        }
+    }
+
+    private void readLife106() throws IOException
+    {
+        int c = next();
+        while (c != EOF)
+        {
+            if (isWhitespace(c))
+            {
+                c = next();
+            } else if (c == '#')
+            {
+                String comment = readLine();
+                if (comment.startsWith("N"))
+                    name = comment.substring(1).trim();
+                else if (comment.startsWith("R"))
+                    rule = comment.substring(1).trim();
+                c = next();
+            } else
+            {
+                long column = readInteger(c);
+                long row = readInteger(skipBlanks(next()));
+                add((int) row, (int) column);
+                c = next();
+            }
+        }
+    }
+
+    private int skipBlanks(int c) throws IOException
+    {
+        while (c == ' ' || c == '\t')
+        {
+            c = next();
+        }
+        return c;
+    }
+
+    /**
+     * Reads an integer, that starts with given character. The character following the integer is consumed.
+     */
+    private long readInteger(int c) throws IOException
+    {
+        boolean negative = c == '-';
+        if (negative || c == '+')
+            c = next();
+        if (c < '0' || c > '9')
+            throw new IOException("number expected inside Life 1.06 pattern");
+
+        long value = 0;
+        while (c >= '0' && c <= '9')
+        {
+            value = value * 10 + c - '0';
+            if (value > 1L << 31)
+                throw new IOException("coordinate out of range inside Life 1.06 pattern");
+            c = next();
+        }
+        if (c != EOF && !isWhitespace(c))
+            throw new IOException("unexpected character '" + (char) c + "' inside Life 1.06 pattern");
+        return negative
+               ? -value
+               : value;
+    }
+
+    private void readPlaintext() throws IOException
+    {
+        int row = 0;
+        int column = 0;
+        boolean lineStart = true;
+        for (int c = next(); c != EOF; c = next())
+        {
+            if (lineStart && c == '!')
+            {
+                String comment = readLine();
+                if (comment.startsWith("Name:"))
+                    name = comment.substring(5).trim();
+                continue;
+            }
+
+            lineStart = false;
+            if (c == '\n')
+            {
+                row++;
+                column = 0;
+                lineStart = true;
+            } else if (c == 'O' || c == '*')
+            {
+                add(row, column++);
+            } else if (c != '\r')
+            {
+                column++;
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package de.hindenbug.gameoflife;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>A <code>PatternWriter</code> writes the beings of a {@linkplain Universe} as pattern into a channel. The
+ * beings are sorted as packed cells by row and column and encoded straight into one buffer, no line or
+ * {@linkplain Being} is created per cell.</p>
+ * <p>RLE patterns contain an <code>#CXRLE Pos=x,y</code> line with the position of the upper left corner, so the
+ * pattern is read back at the same position. Lines of RLE patterns are at most 70 characters long. Plaintext
+ * patterns have no position, they start at the upper left living being.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 20:10
+ */
+public final class PatternWriter
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 70;
+
+    private final WritableByteChannel channel;
+    private final PatternFormat format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private int lineLength;
+
+    /**
+     * Creates a new writer into given channel. The channel is not closed by the writer.
+     *
+     * @param channel channel to write to, not null
+     * @param format  format of the pattern, not null
+     */
+    public PatternWriter(WritableByteChannel channel, PatternFormat format)
+    {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    /**
+     * Writes the beings of given universe into given file, the format is given by the extension of the file. An
+     * existing file is replaced.
+     *
+     * @param path     path of the pattern file, not null
+     * @param universe universe to write, not null
+     * @param name     name of the pattern, may be null
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Path path, Universe universe, String name) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            new PatternWriter(channel, PatternFormat.of(path)).write(universe, name);
+        }
+    }
+
+    /**
+     * Writes the beings of given snapshot into given file, the format is given by the extension of the file. An
+     * existing file is replaced. The snapshot is immutable, so the file is written without locking the universe.
+     *
+     * @param path     path of the pattern file, not null
+     * @param snapshot generation to write, not null
+     * @param rule     rule of the generation, not null
+     * @param name     name of the pattern, may be null
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Path path, GenerationSnapshot snapshot, Rule rule, String name) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            new PatternWriter(channel, PatternFormat.of(path)).write(snapshot, rule, name);
+        }
+    }
+
+    /**
+     * Writes the beings of given universe.
+     *
+     * @param universe universe to write, not null
+     * @param name     name of the pattern, may be null
+     * @throws IOException if the channel could not be written
+     */
+    public void write(Universe universe, String name) throws IOException
+    {
+        write(Cells.toArray(universe.getBeings()), universe.getRule(), name);
+    }
+
+    /**
+     * Writes the beings of given snapshot.
+     *
+     * @param snapshot generation to write, not null
+     * @param rule     rule of the generation, not null
+     * @param name     name of the pattern, may be null
+     * @throws IOException if the channel could not be written
+     */
+    public void write(GenerationSnapshot snapshot, Rule rule, String name) throws IOException
+    {
+        write(snapshot.getCells().toArray(), rule, name);
+    }
+
+    private void write(long[] cells, Rule rule, String name) throws IOException
+    {
+        Cells.sort(cells);
+        switch (format)
+        {
+            case RLE:
+                writeRle(cells, name, rule);
+                break;
+            case LIFE_106:
+                writeLife106(cells, name);
+                break;
+            case PLAINTEXT:
+                writePlaintext(cells, name);
+                break;
+        }
+        flush();
+    }
+
+    private void put(int b) throws IOException
+    {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.put((byte) b);
+        lineLength = b == '\n'
+                     ? 0
+                     : lineLength + 1;
+    }
+
+    private void put(String text) throws IOException
+    {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8))
+        {
+            put(b);
+        }
+    }
+
+    private void putInteger(long value) throws IOException
+    {
+        if (value < 0)
+        {
+            put('-');
+            value = -value;
+        }
+        int length = 0;
+        do
+        {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0)
+        {
+            put(digits[--length]);
+        }
+    }
+
+    private static int digitCount(int value)
+    {
+        int count = 1;
+        while (value >= 10)
+        {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeRle(long[] cells, String name, Rule rule) throws IOException
+    {
+        if (name != null)
+            put("#N " + name + "\n");
+
+        // the cells are sorted by row, so only the columns have to be searched
+        int minRow = 0;
+        int maxRow = -1;
+        int minColumn = 0;
+        int maxColumn = -1;
+        if (cells.length > 0)
+        {
+            minRow = Cells.row(cells[0]);
+            maxRow = Cells.row(cells[cells.length - 1]);
+            minColumn = Integer.MAX_VALUE;
+            maxColumn = Integer.MIN_VALUE;
+            for (long cell : cells)
+            {
+                minColumn = Math.min(minColumn, Cells.column(cell));
+                maxColumn = Math.max(maxColumn, Cells.column(cell));
+            }
+        }
+
+        put("#CXRLE Pos=");
+        putInteger(minColumn);
+        put(',');
+        putInteger(minRow);
+        put("\nx = ");
+        putInteger((long) maxColumn - minColumn + 1);
+        put(", y = ");
+        putInteger((long) maxRow - minRow + 1);
+        put(", rule = " + rule + "\n");
+
+        int row = minRow;
+        int column = minColumn;
+        int runStart = 0;
+        int runLength = 0;
+        for (long cell : cells)
+        {
+            int cellRow = Cells.row(cell);
+            int cellColumn = Cells.column(cell);
+            if (runLength > 0 && cellRow == row && cellColumn == runStart + runLength)
+            {
+                runLength++;
+                continue;
+            }
+
+            if (runLength > 0)
+            {
+                putRun(runLength, 'o');
+                column = runStart + runLength;
+                runLength = 0;
+            }
+            if (cellRow > row)
+            {
+                putRun(cellRow - row, '$');
+                row = cellRow;
+                column = minColumn;
+            }
+            if (cellColumn > column)
+                putRun(cellColumn - column, 'b');
+            runStart = cellColumn;
+            runLength = 1;
+        }
+        if (runLength > 0)
+            putRun(runLength, 'o');
+        put("!\n");
+    }
+
+    /**
+     * Writes one run of equal tokens, the line is broken before the run if it would be too long.
+     */
+    private void putRun(int length, char token) throws IOException
+    {
+        int tokenLength = length > 1
+                          ? digitCount(length) + 1
+                          : 1;
+        if (lineLength + tokenLength > MAX_LINE_LENGTH)
+            put('\n');
+        if (length > 1)
+            putInteger(length);
+        put(token);
+    }
+
+    private void writeLife106(long[] cells, String name) throws IOException
+    {
+        put("#Life 1.06\n");
+        if (name != null)
+            put("#N " + name + "\n");
+        for (long cell : cells)
+        {
+            putInteger(Cells.column(cell));
+            put(' ');
+            putInteger(Cells.row(cell));
+            put('\n');
+        }
+    }
+
+    private void writePlaintext(long[] cells, String name) throws IOException
+    {
+        if (name != null)
+            put("!Name: " + name + "\n");
+        if (cells.length == 0)
+            return;
+
+        int minColumn = Integer.MAX_VALUE;
+        for (long cell : cells)
+        {
+            minColumn = Math.min(minColumn, Cells.column(cell));
+        }
+
+        int row = Cells.row(cells[0]);
+        int column = minColumn;
+        for (long cell : cells)
+        {
+            int cellRow = Cells.row(cell);
+            int cellColumn = Cells.column(cell);
+            for (; row < cellRow; row++)
+            {
+                put('\n');
+                column = minColumn;
+            }
+            for (; column < cellColumn; column++)
+            {
+                put('.');
+            }
+            put('O');
+            column++;
+        }
+        put('\n');
+    }
+}
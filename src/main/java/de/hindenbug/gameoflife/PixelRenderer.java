@@ -0,0 +1,284 @@
+package de.hindenbug.gameoflife;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>A <code>PixelRenderer</code> draws the part of a {@linkplain DensityIndex} inside a {@linkplain Viewport}
+ * straight into an int ARGB buffer, that backs a {@linkplain WritableImage}. Only the changed region of the buffer
+ * is copied into the image and drawn onto the canvas, so drawing a generation costs one array fill per changed
+ * being instead of one canvas call.</p>
+ * <p>The background and the grid lines are rendered into a separate layer, that is only rendered again if the
+ * size of the canvas or the size of a being changes. Cells that die are restored from that layer. If a being is
+ * smaller than three pixels no grid is drawn and each being fills its whole cell.</p>
+ * <p>Only blocks inside the viewport are visited and empty regions are skipped with a coarser level of the index,
+ * so the cost of a full render depends on the viewport, not the population. If the viewport shows more than one
+ * cell per pixel, each pixel is shaded by the density of its block.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 17:45
+ */
+class PixelRenderer
+{
+    private static final PixelFormat<IntBuffer> FORMAT = PixelFormat.getIntArgbPreInstance();
+    private static final int MIN_GRID_SIZE = 3;
+    private static final int CULL_LEVELS = 3;
+    private static final double MIN_DENSITY_INTENSITY = .35;
+
+    private final DensityIndex index;
+    private final Viewport viewport;
+
+    private final int backgroundColor;
+    private final int gridColor;
+    private final int beingColor;
+    /*
+    colors between the background and the being color, used to shade blocks by their density
+     */
+    private final int[] densityColors = new int[256];
+
+    private int width;
+    private int height;
+
+    private int[] gridLayer;
+    private int[] frame;
+    private WritableImage image;
+
+    /*
+    viewport settings the grid layer was rendered for
+     */
+    private int gridBeingWidth;
+    private int gridBeingHeight;
+    private int gridLevel = -1;
+    private int gridRow;
+    private int gridColumn;
+
+    private int dirtyMinX;
+    private int dirtyMinY;
+    private int dirtyMaxX;
+    private int dirtyMaxY;
+
+    PixelRenderer(DensityIndex index, Viewport viewport, Color backgroundColor, Color gridColor, Color beingColor)
+    {
+        this.index = index;
+        this.viewport = viewport;
+        this.backgroundColor = toArgb(backgroundColor);
+        this.gridColor = toArgb(gridColor);
+        this.beingColor = toArgb(beingColor);
+        for (int i = 0; i < densityColors.length; i++)
+        {
+            densityColors[i] = toArgb(backgroundColor.interpolate(beingColor, i / 255.));
+        }
+        resetDirtyRegion();
+    }
+
+    private static int toArgb(Color color)
+    {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    /**
+     * Changes the size of the rendered image.
+     *
+     * @param width  width in pixels
+     * @param height height in pixels
+     */
+    void setSize(int width, int height)
+    {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width == this.width && height == this.height)
+            return;
+
+        this.width = width;
+        this.height = height;
+        this.frame = new int[width * height];
+        this.gridLayer = new int[width * height];
+        this.image = new WritableImage(width, height);
+        this.gridLevel = -1;
+    }
+
+    /**
+     * Renders the grid layer again if the settings of the viewport changed since it was rendered.
+     */
+    private void validateGridLayer()
+    {
+        if (gridLevel == viewport.getLevel()
+                && gridBeingWidth == viewport.getBeingWidth()
+                && gridBeingHeight == viewport.getBeingHeight())
+            return;
+
+        gridLevel = viewport.getLevel();
+        gridBeingWidth = viewport.getBeingWidth();
+        gridBeingHeight = viewport.getBeingHeight();
+
+        Arrays.fill(gridLayer, backgroundColor);
+        if (!isGridVisible())
+            return;
+
+        // rows
+        for (int y = 0; y < height; y += gridBeingHeight)
+        {
+            Arrays.fill(gridLayer, y * width, (y + 1) * width, gridColor);
+        }
+        // columns
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x += gridBeingWidth)
+            {
+                gridLayer[y * width + x] = gridColor;
+            }
+        }
+    }
+
+    private boolean isGridVisible()
+    {
+        return gridLevel == 0 && gridBeingWidth >= MIN_GRID_SIZE && gridBeingHeight >= MIN_GRID_SIZE;
+    }
+
+    /**
+     * Renders all blocks inside the viewport on top of the grid layer.
+     */
+    void render()
+    {
+        validateGridLayer();
+        System.arraycopy(gridLayer, 0, frame, 0, frame.length);
+        gridRow = viewport.getBlockRow();
+        gridColumn = viewport.getBlockColumn();
+
+        int level = viewport.getLevel();
+        int rows = (height + viewport.getBlockHeight() - 1) / viewport.getBlockHeight();
+        int columns = (width + viewport.getBlockWidth() - 1) / viewport.getBlockWidth();
+        int cullLevel = Math.min(DensityIndex.MAX_LEVEL, level + CULL_LEVELS);
+        int cullShift = cullLevel - level;
+
+        int lastRow = gridRow + rows - 1;
+        int lastColumn = gridColumn + columns - 1;
+        for (int cullRow = gridRow >> cullShift; cullRow <= lastRow >> cullShift; cullRow++)
+        {
+            for (int cullColumn = gridColumn >> cullShift; cullColumn <= lastColumn >> cullShift; cullColumn++)
+            {
+                if (index.count(cullLevel, cullRow, cullColumn) == 0)
+                    continue;
+
+                int fromRow = Math.max(gridRow, cullRow << cullShift);
+                int toRow = Math.min(lastRow, ((cullRow + 1) << cullShift) - 1);
+                int fromColumn = Math.max(gridColumn, cullColumn << cullShift);
+                int toColumn = Math.min(lastColumn, ((cullColumn + 1) << cullShift) - 1);
+                for (int row = fromRow; row <= toRow; row++)
+                {
+                    for (int column = fromColumn; column <= toColumn; column++)
+                    {
+                        int count = index.count(level, row, column);
+                        if (count > 0)
+                            drawBlock(row, column, count);
+                    }
+                }
+            }
+        }
+        markDirty(0, 0, width, height);
+    }
+
+    /**
+     * Draws the current state of the block containing given cell, for example after the cell was born or died.
+     *
+     * @param row    row of the cell
+     * @param column column of the cell
+     */
+    void drawCell(int row, int column)
+    {
+        if (gridLevel != viewport.getLevel())
+            return;
+
+        int level = viewport.getLevel();
+        drawBlock(row >> level, column >> level, index.count(level, row >> level, column >> level));
+    }
+
+    /**
+     * Draws a block of the current level, that is a being on level <code>0</code> or a shaded pixel on higher
+     * levels. Blocks without beings are restored from the grid layer.
+     */
+    private void drawBlock(int blockRow, int blockColumn, int count)
+    {
+        int blockWidth = gridLevel == 0
+                         ? gridBeingWidth
+                         : 1;
+        int blockHeight = gridLevel == 0
+                          ? gridBeingHeight
+                          : 1;
+        int inset = isGridVisible()
+                    ? 1
+                    : 0;
+        long left = (long) (blockColumn - gridColumn) * blockWidth + inset;
+        long top = (long) (blockRow - gridRow) * blockHeight + inset;
+        int fromX = (int) Math.max(0, left);
+        int fromY = (int) Math.max(0, top);
+        int toX = (int) Math.min(width, left + blockWidth - inset);
+        int toY = (int) Math.min(height, top + blockHeight - inset);
+        if (fromX >= toX || fromY >= toY)
+            return;
+
+        int color = colorOf(count);
+        for (int y = fromY; y < toY; y++)
+        {
+            int start = y * width;
+            if (count > 0)
+                Arrays.fill(frame, start + fromX, start + toX, color);
+            else
+                System.arraycopy(gridLayer, start + fromX, frame, start + fromX, toX - fromX);
+        }
+        markDirty(fromX, fromY, toX, toY);
+    }
+
+    private int colorOf(int count)
+    {
+        if (gridLevel == 0 || count == 0)
+            return beingColor;
+
+        // sparse blocks are still visible, dense blocks approach the being color
+        double density = count / (double) (1L << (gridLevel << 1));
+        double intensity = MIN_DENSITY_INTENSITY + (1 - MIN_DENSITY_INTENSITY) * Math.sqrt(density);
+        return densityColors[(int) (Math.min(1, intensity) * 255)];
+    }
+
+    private void markDirty(int fromX, int fromY, int toX, int toY)
+    {
+        dirtyMinX = Math.min(dirtyMinX, fromX);
+        dirtyMinY = Math.min(dirtyMinY, fromY);
+        dirtyMaxX = Math.max(dirtyMaxX, toX);
+        dirtyMaxY = Math.max(dirtyMaxY, toY);
+    }
+
+    private void resetDirtyRegion()
+    {
+        dirtyMinX = Integer.MAX_VALUE;
+        dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = Integer.MIN_VALUE;
+        dirtyMaxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Copies the changed region of the buffer into the image and draws it onto given canvas.
+     *
+     * @param canvas canvas to draw on, not null
+     */
+    void present(Canvas canvas)
+    {
+        if (image == null || dirtyMinX >= dirtyMaxX || dirtyMinY >= dirtyMaxY)
+            return;
+
+        int w = dirtyMaxX - dirtyMinX;
+        int h = dirtyMaxY - dirtyMinY;
+        image.getPixelWriter().setPixels(dirtyMinX, dirtyMinY, w, h, FORMAT,
+                frame, dirtyMinY * width + dirtyMinX, width);
+        canvas.getGraphicsContext2D().drawImage(image, dirtyMinX, dirtyMinY, w, h, dirtyMinX, dirtyMinY, w, h);
+        resetDirtyRegion();
+    }
+}
@@ -0,0 +1,69 @@
+package de.hindenbug.gameoflife;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A <code>RangeTask</code> splits a range of indices, for example rows or tiles, into partitions and processes
+ * them on a fork join pool. Each partition must only write state that belongs to its own indices.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 15:50
+ */
+class RangeTask extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Processes the indices between <code>from</code>, inclusive, and <code>to</code>, exclusive.
+     */
+    @FunctionalInterface
+    interface Body
+    {
+        void apply(int from, int to);
+    }
+
+    private final Body body;
+    private final int from;
+    private final int to;
+    private final int partitionSize;
+
+    /**
+     * @param body          processing of one partition, not null
+     * @param from          first index, inclusive
+     * @param to            last index, exclusive
+     * @param partitionSize maximum number of indices that are processed without splitting, greater than zero
+     */
+    RangeTask(Body body, int from, int to, int partitionSize)
+    {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.partitionSize = partitionSize;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= partitionSize)
+        {
+            body.apply(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(body, from, middle, partitionSize),
+                new RangeTask(body, middle, to, partitionSize));
+    }
+
+    /**
+     * Returns a partition size, so that each worker of the pool gets several partitions to balance the load.
+     *
+     * @param count       number of indices
+     * @param parallelism number of workers
+     * @param minimum     minimum size of a partition
+     * @return size of each partition
+     */
+    static int partitionSize(int count, int parallelism, int minimum)
+    {
+        return Math.max(minimum, count / (parallelism * 4));
+    }
+}
@@ -0,0 +1,82 @@
+package de.hindenbug.gameoflife;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A <code>RateMeter</code> measures how often an event happens per second, for example generations or rendered
+ * frames. The events are counted inside windows of a fixed length, the rate of the last complete window is
+ * published. Only one thread may {@linkplain #mark() mark} events, the rate may be read by any thread.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:10
+ */
+final class RateMeter
+{
+    static final long DEFAULT_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final long windowNanos;
+    private long windowStart;
+    private long count;
+    private volatile double rate;
+
+    RateMeter()
+    {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * @param windowNanos length of a window in nanoseconds, greater than zero
+     */
+    RateMeter(long windowNanos)
+    {
+        if (windowNanos <= 0)
+            throw new IllegalArgumentException("windowNanos must be greater than zero");
+
+        this.windowNanos = windowNanos;
+        this.windowStart = System.nanoTime();
+    }
+
+    /**
+     * Counts one event at the current time.
+     */
+    void mark()
+    {
+        mark(1, System.nanoTime());
+    }
+
+    /**
+     * Counts events, that happened at given time.
+     *
+     * @param events number of events
+     * @param now    current value of {@linkplain System#nanoTime()}
+     */
+    void mark(long events, long now)
+    {
+        count += events;
+        long elapsed = now - windowStart;
+        if (elapsed >= windowNanos)
+        {
+            rate = count * 1e9 / elapsed;
+            count = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * Starts a new window without events, for example after the measured activity was paused.
+     */
+    void reset()
+    {
+        count = 0;
+        windowStart = System.nanoTime();
+        rate = 0;
+    }
+
+    /**
+     * @return events per second inside the last complete window
+     */
+    double getRate()
+    {
+        return rate;
+    }
+}
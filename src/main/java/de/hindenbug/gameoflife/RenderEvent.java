@@ -0,0 +1,31 @@
+package de.hindenbug.gameoflife;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of one frame drawn by the {@linkplain UI}, that is committed by
+ * {@linkplain Metrics#recordRender}.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:40
+ */
+@Name("de.hindenbug.gameoflife.Render")
+@Label("Render")
+@Category("Game of Life")
+@Description("Drawing of one generation onto the canvas")
+class RenderEvent extends jdk.jfr.Event
+{
+    @Label("Generation")
+    long generation;
+
+    @Label("Render Time")
+    @Timespan
+    long renderNanos;
+
+    @Label("Full Redraw")
+    boolean fullRedraw;
+}
@@ -0,0 +1,273 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Locale;
+
+/**
+ * <p>A <code>Rule</code> is a life-like rule of a two state cellular automaton with the moore neighborhood, for
+ * example conway's game of life <code>B3/S23</code>, HighLife <code>B36/S23</code>, Day &amp; Night
+ * <code>B3678/S34678</code> or Seeds <code>B2/S</code>. A dead cell is born with one of the birth counts of living
+ * neighbors, a living cell survives with one of the survival counts.</p>
+ * <p>A rule is compiled into lookup tables once it is parsed, so the engines do not have to evaluate the rule:</p>
+ * <ul>
+ * <li>the next state per state and neighbor count for engines counting neighbors</li>
+ * <li>a word per state and neighbor count, that is either <code>0</code> or <code>-1</code>, for engines adding
+ * 64 neighborhoods at once (see {@linkplain BitLife})</li>
+ * <li>the center 2x2 cells of every 4x4 square after one generation for the {@linkplain HashLifeGameOfLife}</li>
+ * </ul>
+ * <p>Rules with birth on zero neighbors (<code>B0</code>) are rejected, because they would fill the empty infinite
+ * universe with beings.</p>
+ *
+ * @author Nils Verheyen
+ * @see <a href="https://conwaylife.com/wiki/Rulestring">Rulestring</a>
+ * @since 18.10.26 21:40
+ */
+public final class Rule
+{
+    private static final int MAX_NEIGHBORS = 8;
+    private static final int COUNTS = MAX_NEIGHBORS + 1;
+
+    /**
+     * Conway's game of life, <code>B3/S23</code>
+     */
+    public static final Rule CONWAY = new Rule(1 << 3, 1 << 2 | 1 << 3);
+
+    private final int birthMask;
+    private final int survivalMask;
+    private final boolean conway;
+    /*
+    next state of a dead cell at index count and of a living cell at index count + 9
+     */
+    private final boolean[] transitions;
+    /*
+    birth word of each neighbor count and the exclusive or of the birth and the survival word, they are fields
+    instead of arrays, so they are kept inside registers while a generation is calculated
+     */
+    final long birth0, birth1, birth2, birth3, birth4, birth5, birth6, birth7, birth8;
+    final long toggle0, toggle1, toggle2, toggle3, toggle4, toggle5, toggle6, toggle7, toggle8;
+    private volatile byte[] level2Results;
+
+    private Rule(int birthMask, int survivalMask)
+    {
+        this.birthMask = birthMask;
+        this.survivalMask = survivalMask;
+        this.conway = birthMask == 1 << 3 && survivalMask == (1 << 2 | 1 << 3);
+        this.transitions = new boolean[2 * COUNTS];
+        for (int count = 0; count < COUNTS; count++)
+        {
+            transitions[count] = (birthMask & 1 << count) != 0;
+            transitions[COUNTS + count] = (survivalMask & 1 << count) != 0;
+        }
+        this.birth0 = birthWord(0);
+        this.birth1 = birthWord(1);
+        this.birth2 = birthWord(2);
+        this.birth3 = birthWord(3);
+        this.birth4 = birthWord(4);
+        this.birth5 = birthWord(5);
+        this.birth6 = birthWord(6);
+        this.birth7 = birthWord(7);
+        this.birth8 = birthWord(8);
+        this.toggle0 = toggleWord(0);
+        this.toggle1 = toggleWord(1);
+        this.toggle2 = toggleWord(2);
+        this.toggle3 = toggleWord(3);
+        this.toggle4 = toggleWord(4);
+        this.toggle5 = toggleWord(5);
+        this.toggle6 = toggleWord(6);
+        this.toggle7 = toggleWord(7);
+        this.toggle8 = toggleWord(8);
+    }
+
+    /**
+     * @return <code>-1</code> if a dead cell with given neighbor count is born, otherwise <code>0</code>
+     */
+    private long birthWord(int count)
+    {
+        return transitions[count]
+               ? -1L
+               : 0L;
+    }
+
+    /**
+     * @return <code>-1</code> if the next state of a living cell with given neighbor count differs from the next
+     * state of a dead cell, otherwise <code>0</code>
+     */
+    private long toggleWord(int count)
+    {
+        return transitions[count] != transitions[COUNTS + count]
+               ? -1L
+               : 0L;
+    }
+
+    /**
+     * Parses a rulestring in <code>B/S</code> notation like <code>B36/S23</code> or in the older <code>S/B</code>
+     * notation like <code>23/36</code>. Letters are case insensitive.
+     *
+     * @param rule rulestring, not null
+     * @return parsed rule
+     * @throws IllegalArgumentException if the rule is malformed or contains <code>B0</code>
+     */
+    public static Rule parse(String rule)
+    {
+        String text = rule.trim().toUpperCase(Locale.ROOT);
+        String[] parts = text.split("/", -1);
+        if (parts.length != 2)
+            throw new IllegalArgumentException("rule " + rule + " is no B/S rulestring");
+
+        int birthMask;
+        int survivalMask;
+        if (parts[0].startsWith("B") && parts[1].startsWith("S"))
+        {
+            birthMask = parseCounts(rule, parts[0].substring(1));
+            survivalMask = parseCounts(rule, parts[1].substring(1));
+        } else if (parts[0].startsWith("S") && parts[1].startsWith("B"))
+        {
+            survivalMask = parseCounts(rule, parts[0].substring(1));
+            birthMask = parseCounts(rule, parts[1].substring(1));
+        } else
+        {
+            survivalMask = parseCounts(rule, parts[0]);
+            birthMask = parseCounts(rule, parts[1]);
+        }
+
+        if ((birthMask & 1) != 0)
+            throw new IllegalArgumentException("rule " + rule + " with B0 is not supported");
+
+        Rule parsed = new Rule(birthMask, survivalMask);
+        return parsed.conway
+               ? CONWAY
+               : parsed;
+    }
+
+    private static int parseCounts(String rule, String counts)
+    {
+        int mask = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            int count = counts.charAt(i) - '0';
+            if (count < 0 || count > MAX_NEIGHBORS)
+                throw new IllegalArgumentException("rule " + rule + " contains an invalid neighbor count");
+            mask |= 1 << count;
+        }
+        return mask;
+    }
+
+    /**
+     * @param alive         <code>true</code> if the cell is alive inside the current generation
+     * @param neighborCount number of living neighbors between <code>0</code> and <code>8</code>
+     * @return <code>true</code> if the cell is alive inside the next generation
+     */
+    boolean next(boolean alive, int neighborCount)
+    {
+        return transitions[alive
+                           ? COUNTS + neighborCount
+                           : neighborCount];
+    }
+
+    /**
+     * @return <code>true</code> if this is {@linkplain #CONWAY}, the engines use their hard-coded formula then
+     */
+    boolean isConway()
+    {
+        return conway;
+    }
+
+    /**
+     * Returns the center 2x2 cells of each 4x4 square after one generation. The cell in row r and column c is
+     * stored in bit r * 4 + c of the index and the result cells in row r and column c inside bit r * 2 + c. The
+     * table is created on first access.
+     *
+     * @return table with 65536 entries
+     */
+    byte[] getLevel2Results()
+    {
+        byte[] results = level2Results;
+        if (results == null)
+        {
+            results = createLevel2Results();
+            level2Results = results;
+        }
+        return results;
+    }
+
+    private byte[] createLevel2Results()
+    {
+        byte[] results = new byte[1 << 16];
+        for (int square = 0; square < results.length; square++)
+        {
+            int result = 0;
+            for (int row = 1; row <= 2; row++)
+            {
+                for (int column = 1; column <= 2; column++)
+                {
+                    int neighbors = 0;
+                    for (int i = row - 1; i <= row + 1; i++)
+                    {
+                        for (int j = column - 1; j <= column + 1; j++)
+                        {
+                            if (!(i == row && j == column))
+                                neighbors += (square >>> (i * 4 + j)) & 1;
+                        }
+                    }
+                    boolean alive = ((square >>> (row * 4 + column)) & 1) != 0;
+                    if (next(alive, neighbors))
+                        result |= 1 << ((row - 1) * 2 + column - 1);
+                }
+            }
+            results[square] = (byte) result;
+        }
+        return results;
+    }
+
+    /**
+     * @return bit n is set if a dead cell with n living neighbors is born
+     */
+    public int getBirthMask()
+    {
+        return birthMask;
+    }
+
+    /**
+     * @return bit n is set if a living cell with n living neighbors survives
+     */
+    public int getSurvivalMask()
+    {
+        return survivalMask;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof Rule)) return false;
+        Rule that = (Rule) o;
+        return birthMask == that.birthMask && survivalMask == that.survivalMask;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * birthMask + survivalMask;
+    }
+
+    /**
+     * @return rulestring in B/S notation, for example <code>B36/S23</code>
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder rule = new StringBuilder("B");
+        appendCounts(rule, birthMask);
+        rule.append("/S");
+        appendCounts(rule, survivalMask);
+        return rule.toString();
+    }
+
+    private static void appendCounts(StringBuilder rule, int mask)
+    {
+        for (int count = 0; count < COUNTS; count++)
+        {
+            if ((mask & 1 << count) != 0)
+                rule.append(count);
+        }
+    }
+}
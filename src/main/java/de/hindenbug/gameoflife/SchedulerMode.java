@@ -0,0 +1,25 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * Modes of the {@linkplain GameOfLifeService} to schedule the generations of a universe.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 22:10
+ */
+public enum SchedulerMode
+{
+    /**
+     * The service waits the generation time after each generation, so the rate drops with the time needed to
+     * calculate a generation.
+     */
+    FIXED_DELAY,
+    /**
+     * Generations start at multiples of the generation time. If a generation takes longer, the following ones
+     * start immediately, but the service never tries to catch up more than one generation.
+     */
+    FIXED_RATE,
+    /**
+     * Generations are calculated one after the other without waiting.
+     */
+    AS_FAST_AS_POSSIBLE
+}
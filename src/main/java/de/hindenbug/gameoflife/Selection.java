@@ -0,0 +1,130 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * A <code>Selection</code> is an immutable rectangle of cells of a {@linkplain Universe}, given by its upper left
+ * cell and its size. Selections are filled, cleared and copied as a whole (see {@linkplain Universe#fill(Selection)},
+ * {@linkplain Universe#clear(Selection)} and {@linkplain Universe#copy(Selection)}).
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 23:10
+ */
+public final class Selection
+{
+    private final int row;
+    private final int column;
+    private final int rows;
+    private final int columns;
+
+    /**
+     * @param row     row of the upper left cell, may be less than zero
+     * @param column  column of the upper left cell, may be less than zero
+     * @param rows    number of rows, not less than zero
+     * @param columns number of columns, not less than zero
+     */
+    public Selection(int row, int column, int rows, int columns)
+    {
+        if (rows < 0 || columns < 0)
+            throw new IllegalArgumentException("rows and columns must not be negative");
+        if ((long) row + rows - 1 > Integer.MAX_VALUE || (long) column + columns - 1 > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("selection exceeds the universe");
+
+        this.row = row;
+        this.column = column;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates the selection between two opposite corners, for example where the mouse was pressed and released.
+     *
+     * @param row1    row of the first corner
+     * @param column1 column of the first corner
+     * @param row2    row of the opposite corner
+     * @param column2 column of the opposite corner
+     * @return selection containing both corners
+     */
+    public static Selection between(int row1, int column1, int row2, int column2)
+    {
+        return new Selection(Math.min(row1, row2), Math.min(column1, column2),
+                Math.abs(row1 - row2) + 1, Math.abs(column1 - column2) + 1);
+    }
+
+    public int getRow()
+    {
+        return row;
+    }
+
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * @return row of the lower right cell
+     */
+    public int getLastRow()
+    {
+        return row + rows - 1;
+    }
+
+    /**
+     * @return column of the lower right cell
+     */
+    public int getLastColumn()
+    {
+        return column + columns - 1;
+    }
+
+    /**
+     * @return number of cells inside this selection
+     */
+    public long getArea()
+    {
+        return (long) rows * columns;
+    }
+
+    public boolean isEmpty()
+    {
+        return rows == 0 || columns == 0;
+    }
+
+    /**
+     * @return <code>true</code> if given cell is part of this selection
+     */
+    public boolean contains(int row, int column)
+    {
+        return (long) row - this.row >= 0 && (long) row - this.row < rows
+                && (long) column - this.column >= 0 && (long) column - this.column < columns;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof Selection)) return false;
+        Selection that = (Selection) o;
+        return row == that.row && column == that.column && rows == that.rows && columns == that.columns;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ((row * 31 + column) * 31 + rows) * 31 + columns;
+    }
+
+    @Override
+    public String toString()
+    {
+        return rows + "x" + columns + " at (" + row + ", " + column + ")";
+    }
+}
@@ -0,0 +1,408 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A <code>SimulationHost</code> advances many independent universes at once, for example the universes of a
+ * parameter sweep. Unlike a {@linkplain GameOfLifeService} it does not need JavaFX and does not bind a thread to a
+ * universe: all {@linkplain Simulation simulations} share a bounded work stealing pool, a simulation only costs
+ * its universe and a few dozen bytes.</p>
+ * <p>The simulations are time sliced. A worker takes the next simulation from a FIFO run queue, calculates
+ * generations until the slice is used up or the budget of the simulation is reached and queues the simulation again
+ * at the end. So every simulation gets its turn, no matter how many generations the others still have to
+ * calculate.</p>
+ * <p>A universe must not be accessed while its simulation runs. It may be read as soon as the simulation
+ * {@linkplain Simulation#isDone() is done}. Universes should be calculated on the calling thread (a parallelism of
+ * one), the host already keeps all workers busy.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 23:55
+ */
+public class SimulationHost implements AutoCloseable
+{
+    static final long DEFAULT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final long sliceNanos;
+    private final Queue<Simulation> runQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Object idle = new Object();
+
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LatencyHistogram sliceLatency = new LatencyHistogram();
+    private final long startNanos = System.nanoTime();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a host with one worker per available processor.
+     */
+    public SimulationHost()
+    {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE_NANOS);
+    }
+
+    /**
+     * @param parallelism maximum number of simulations that are calculated at the same time, greater than zero
+     * @param sliceNanos  time in nanoseconds a simulation runs before the next one gets its turn, greater than zero
+     */
+    public SimulationHost(int parallelism, long sliceNanos)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+        if (sliceNanos <= 0)
+            throw new IllegalArgumentException("sliceNanos must be greater than zero");
+
+        this.parallelism = parallelism;
+        this.sliceNanos = sliceNanos;
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * Starts to advance a universe. A simulation submitted while the host is being closed is cancelled right
+     * away.
+     *
+     * @param universe    universe that is owned by the host until the simulation is done, not null
+     * @param generations number of generations to calculate, {@linkplain Long#MAX_VALUE} to run until the simulation
+     *                    is cancelled
+     * @return handle of the simulation
+     * @throws IllegalStateException if the host is closed
+     */
+    public Simulation submit(Universe universe, long generations)
+    {
+        if (universe == null)
+            throw new IllegalArgumentException("universe must not be null");
+        if (generations < 0)
+            throw new IllegalArgumentException("generations must not be negative");
+        if (closed)
+            throw new IllegalStateException("host is closed");
+
+        Simulation simulation = new Simulation(universe, generations);
+        active.incrementAndGet();
+        runQueue.offer(simulation);
+        if (claimWorker())
+        {
+            try
+            {
+                pool.execute(this::work);
+            } catch (RejectedExecutionException e)
+            {
+                // the host was closed after the check, no worker takes the queued simulations anymore
+                workers.decrementAndGet();
+                cancelQueued();
+            }
+        }
+        return simulation;
+    }
+
+    /**
+     * Cancels the simulations waiting in the run queue, a simulation taken by a worker is not queued.
+     */
+    private void cancelQueued()
+    {
+        Simulation simulation;
+        while ((simulation = runQueue.poll()) != null)
+        {
+            simulation.finish(false);
+        }
+    }
+
+    private boolean claimWorker()
+    {
+        int count;
+        do
+        {
+            count = workers.get();
+            if (count >= parallelism)
+                return false;
+        }
+        while (!workers.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Runs slices of queued simulations until the run queue is empty.
+     */
+    private void work()
+    {
+        while (true)
+        {
+            Simulation simulation = runQueue.poll();
+            if (simulation == null)
+            {
+                workers.decrementAndGet();
+                // a simulation queued after the poll found no worker, that could take it
+                if (runQueue.isEmpty() || !claimWorker())
+                    return;
+                continue;
+            }
+            if (simulation.runSlice())
+                runQueue.offer(simulation);
+        }
+    }
+
+    /**
+     * Waits until all submitted simulations are done.
+     *
+     * @return <code>true</code> if no simulation is running anymore, <code>false</code> if the time elapsed
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle)
+        {
+            while (active.get() > 0)
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cancels all simulations and stops the workers. Simulations, that were submitted before, are
+     * {@linkplain Simulation#isCancelled() cancelled} at their next turn.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        pool.shutdown();
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * @return number of submitted simulations, that are not done
+     */
+    public int getActiveSimulations()
+    {
+        return active.get();
+    }
+
+    /**
+     * @return number of simulations, that calculated their whole budget
+     */
+    public long getCompletedSimulations()
+    {
+        return completed.sum();
+    }
+
+    /**
+     * @return number of simulations, that were cancelled or failed before they reached their budget
+     */
+    public long getCancelledSimulations()
+    {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return number of generations calculated by all simulations
+     */
+    public long getGenerations()
+    {
+        return generations.sum();
+    }
+
+    /**
+     * @return generations of all simulations per second since the host was created
+     */
+    public double getGenerationsPerSecond()
+    {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0
+               ? generations.sum() * 1e9 / elapsed
+               : 0;
+    }
+
+    /**
+     * @return fraction of the time since the host was created, that the workers calculated generations
+     */
+    public double getUtilization()
+    {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0
+               ? busyNanos.sum() / ((double) elapsed * parallelism)
+               : 0;
+    }
+
+    /**
+     * @return duration of the slices, a slice ends after the first generation that exceeds the slice time
+     */
+    public Metrics.LatencySummary getSliceLatency()
+    {
+        return sliceLatency.summarize();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SimulationHost " + active.get() + " active, " + completed.sum() + " completed, "
+                + generations.sum() + " generations";
+    }
+
+    /**
+     * Handle of a universe, that is advanced by the host.
+     */
+    public final class Simulation
+    {
+        private final Universe universe;
+        private final long budget;
+        private volatile long generation;
+        private volatile boolean cancelRequested;
+        private volatile boolean done;
+        private volatile Exception failure;
+
+        private Simulation(Universe universe, long budget)
+        {
+            this.universe = universe;
+            this.budget = budget;
+        }
+
+        /**
+         * Calculates generations until the slice is used up.
+         *
+         * @return <code>true</code> if the simulation must be queued again
+         */
+        private boolean runSlice()
+        {
+            long start = System.nanoTime();
+            long deadline = start + sliceNanos;
+            long now = start;
+            long current = generation;
+            try
+            {
+                while (current < budget && !cancelRequested && !closed)
+                {
+                    universe.generateNextGeneration();
+                    current++;
+                    now = System.nanoTime();
+                    if (now - deadline >= 0)
+                        break;
+                }
+            }
+            catch (Exception e)
+            {
+                // the worker goes on with the other simulations, errors of the virtual machine are not caught
+                failure = e;
+            }
+            generations.add(current - generation);
+            generation = current;
+            busyNanos.add(now - start);
+            sliceLatency.record(now - start);
+
+            if (current < budget && !cancelRequested && !closed && failure == null)
+                return true;
+
+            finish(current == budget);
+            return false;
+        }
+
+        private void finish(boolean complete)
+        {
+            if (complete)
+                completed.increment();
+            else
+                cancelled.increment();
+            synchronized (this)
+            {
+                done = true;
+                notifyAll();
+            }
+            if (active.decrementAndGet() == 0)
+            {
+                synchronized (idle)
+                {
+                    idle.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Stops the simulation at its next turn, at the latest after the current slice.
+         */
+        public void cancel()
+        {
+            cancelRequested = true;
+        }
+
+        /**
+         * Waits until the simulation is done.
+         *
+         * @throws InterruptedException if the waiting thread was interrupted
+         */
+        public synchronized void await() throws InterruptedException
+        {
+            while (!done)
+            {
+                wait();
+            }
+        }
+
+        /**
+         * @return universe of the simulation, that must only be accessed if the simulation is done
+         */
+        public Universe getUniverse()
+        {
+            return universe;
+        }
+
+        /**
+         * @return number of generations calculated so far, updated after each slice
+         */
+        public long getGeneration()
+        {
+            return generation;
+        }
+
+        public long getBudget()
+        {
+            return budget;
+        }
+
+        public boolean isDone()
+        {
+            return done;
+        }
+
+        /**
+         * @return <code>true</code> if the simulation is done before it reached its budget
+         */
+        public boolean isCancelled()
+        {
+            return done && generation < budget;
+        }
+
+        /**
+         * @return exception thrown by the universe, <code>null</code> if it did not fail
+         */
+        public Exception getFailure()
+        {
+            return failure;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Simulation " + generation + "/" + budget + (done ? ", done" : "");
+        }
+    }
+}
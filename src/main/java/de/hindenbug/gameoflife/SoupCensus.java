@@ -0,0 +1,382 @@
+package de.hindenbug.gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>A <code>SoupCensus</code> searches random soups for the objects they leave behind. Each soup is a square of
+ * random cells created from a seed, so equal seeds always give equal soups (the soup of a seed is the same as
+ * {@linkplain GameOfLifeSample#randomSoup(int, double, long)} with the same size and density). The soups are run on
+ * an infinite {@linkplain SparseGameOfLife} until the population became periodic, then the remaining ash is split into
+ * objects, that are named by an {@linkplain AshClassifier}.</p>
+ * <p>The soups are distributed over a fork join pool, each worker counts the objects of its soups and the counts
+ * are merged into one {@linkplain Census} at the end.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:20
+ */
+public class SoupCensus
+{
+    static final int DEFAULT_SOUP_SIZE = 16;
+    static final double DEFAULT_DENSITY = 0.5;
+    static final long DEFAULT_MAX_GENERATIONS = 50_000;
+    /**
+     * Name of soups, that did not stabilize within the maximum number of generations.
+     */
+    public static final String UNSTABILIZED = "unstabilized";
+    /**
+     * Name of objects, that are neither still lifes nor oscillators nor spaceships.
+     */
+    public static final String UNCLASSIFIED = "zz_UNCLASSIFIED";
+
+    /*
+    the population has to repeat over this many generations before a soup counts as stabilized
+     */
+    private static final int WINDOW = 4 * AshClassifier.MAX_PERIOD;
+
+    private final int soupSize;
+    private final double density;
+    private final long maxGenerations;
+    private final int parallelism;
+    private final AshClassifier classifier = new AshClassifier();
+
+    /**
+     * Creates a census of soups with 16 x 16 cells and a density of one half, that uses all processors.
+     */
+    public SoupCensus()
+    {
+        this(DEFAULT_SOUP_SIZE, DEFAULT_DENSITY, DEFAULT_MAX_GENERATIONS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param soupSize       number of rows and columns of a soup, greater than zero
+     * @param density        probability of each cell of a soup to be alive
+     * @param maxGenerations number of generations after which a soup counts as {@linkplain #UNSTABILIZED}
+     * @param parallelism    number of soups that are run at the same time, greater than zero
+     */
+    public SoupCensus(int soupSize, double density, long maxGenerations, int parallelism)
+    {
+        if (soupSize <= 0 || parallelism <= 0)
+            throw new IllegalArgumentException("soupSize and parallelism must be greater than zero");
+
+        this.soupSize = soupSize;
+        this.density = density;
+        this.maxGenerations = maxGenerations;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs the soups of consecutive seeds.
+     *
+     * @param firstSeed seed of the first soup
+     * @param soups     number of soups
+     * @return counted objects of all soups
+     */
+    public Census run(long firstSeed, int soups)
+    {
+        Map<String, Long> counts = new HashMap<>();
+        long[] generations = new long[1];
+        RangeTask.Body body = (from, to) ->
+        {
+            Map<String, Long> partition = new HashMap<>();
+            long partitionGenerations = 0;
+            for (int soup = from; soup < to; soup++)
+            {
+                partitionGenerations += runSoup(firstSeed + soup, partition);
+            }
+            synchronized (counts)
+            {
+                partition.forEach((name, count) -> counts.merge(name, count, Long::sum));
+                generations[0] += partitionGenerations;
+            }
+        };
+
+        long start = System.nanoTime();
+        if (parallelism == 1)
+        {
+            body.apply(0, soups);
+        } else
+        {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try
+            {
+                pool.invoke(new RangeTask(body, 0, soups, RangeTask.partitionSize(soups, parallelism, 1)));
+            } finally
+            {
+                pool.shutdown();
+            }
+        }
+        return new Census(counts, soups, generations[0], System.nanoTime() - start, parallelism);
+    }
+
+    /**
+     * Runs one soup until it stabilized and counts its objects.
+     *
+     * @return number of calculated generations
+     */
+    long runSoup(long seed, Map<String, Long> counts)
+    {
+        SparseGameOfLife universe = new SparseGameOfLife();
+        long[] soup = soup(seed);
+        universe.addCells(soup, soup.length);
+
+        int[] populations = new int[WINDOW];
+        for (long generation = 0; generation < maxGenerations; generation++)
+        {
+            populations[(int) (generation % WINDOW)] = universe.getPopulation();
+            // the window is checked when it is filled in order, from its oldest to its newest population
+            if (generation % WINDOW == WINDOW - 1 && isPeriodic(populations))
+            {
+                countObjects(universe, counts);
+                return generation;
+            }
+            universe.generateNextGeneration();
+        }
+        counts.merge(UNSTABILIZED, 1L, Long::sum);
+        return maxGenerations;
+    }
+
+    /**
+     * @return living cells of the soup
+     */
+    private long[] soup(long seed)
+    {
+        // the same sequence of random numbers as GameOfLifeSample.randomSoup
+        Random random = new Random(seed);
+        long[] cells = new long[soupSize * soupSize];
+        int count = 0;
+        for (int row = 0; row < soupSize; row++)
+        {
+            for (int column = 0; column < soupSize; column++)
+            {
+                if (random.nextDouble() < density)
+                    cells[count++] = Cells.pack(row, column);
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    private static boolean isPeriodic(int[] populations)
+    {
+        for (int period = 1; period <= AshClassifier.MAX_PERIOD; period++)
+        {
+            boolean periodic = true;
+            for (int i = period; i < populations.length && periodic; i++)
+            {
+                periodic = populations[i] == populations[i - period];
+            }
+            if (periodic)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits the cells into objects of neighboring cells. Objects, that can not be classified alone, may be parts
+     * of a larger object, for example the quarters of a pulsar, they are joined with the other unclassified objects
+     * within a distance of two cells and classified again.
+     */
+    private void countObjects(SparseGameOfLife universe, Map<String, Long> counts)
+    {
+        long[] cells = Cells.toArray(universe.getBeings());
+        LongHashSet remaining = new LongHashSet(cells.length);
+        for (long cell : cells)
+        {
+            remaining.add(cell);
+        }
+
+        List<long[]> unclassified = new ArrayList<>();
+        LongList component = new LongList();
+        for (long cell : cells)
+        {
+            if (!remaining.remove(cell))
+                continue;
+
+            component.clear();
+            component.add(cell);
+            for (int i = 0; i < component.size(); i++)
+            {
+                long current = component.get(i);
+                for (int row = -1; row <= 1; row++)
+                {
+                    for (int column = -1; column <= 1; column++)
+                    {
+                        long neighbor = Cells.pack(Cells.row(current) + row, Cells.column(current) + column);
+                        if (remaining.remove(neighbor))
+                            component.add(neighbor);
+                    }
+                }
+            }
+            long[] objectCells = component.toArray();
+            String name = classifier.classify(objectCells, objectCells.length);
+            if (name != null)
+                counts.merge(name, 1L, Long::sum);
+            else
+                unclassified.add(objectCells);
+        }
+
+        for (long[] joined : join(unclassified))
+        {
+            String name = classifier.classify(joined, joined.length);
+            counts.merge(name != null ? name : UNCLASSIFIED, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * @return objects, that contain all objects within a distance of two cells of each other
+     */
+    private static List<long[]> join(List<long[]> objects)
+    {
+        int[] parents = new int[objects.size()];
+        for (int i = 0; i < parents.length; i++)
+        {
+            parents[i] = i;
+        }
+        for (int i = 0; i < parents.length; i++)
+        {
+            for (int j = i + 1; j < parents.length; j++)
+            {
+                if (isNear(objects.get(i), objects.get(j)))
+                    parents[root(parents, i)] = root(parents, j);
+            }
+        }
+
+        Map<Integer, LongList> joined = new HashMap<>();
+        for (int i = 0; i < parents.length; i++)
+        {
+            LongList cells = joined.computeIfAbsent(root(parents, i), root -> new LongList());
+            for (long cell : objects.get(i))
+            {
+                cells.add(cell);
+            }
+        }
+        List<long[]> result = new ArrayList<>();
+        joined.values().forEach(cells -> result.add(cells.toArray()));
+        return result;
+    }
+
+    private static int root(int[] parents, int index)
+    {
+        while (parents[index] != index)
+        {
+            index = parents[index] = parents[parents[index]];
+        }
+        return index;
+    }
+
+    private static boolean isNear(long[] object, long[] other)
+    {
+        for (long cell : object)
+        {
+            for (long otherCell : other)
+            {
+                if (Math.abs(Cells.row(cell) - Cells.row(otherCell)) <= 2
+                        && Math.abs(Cells.column(cell) - Cells.column(otherCell)) <= 2)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    int getCachedShapes()
+    {
+        return classifier.getCachedShapes();
+    }
+
+    /**
+     * Result of a census with the number of each object over all soups.
+     */
+    public static final class Census
+    {
+        private final Map<String, Long> counts;
+        private final int soups;
+        private final long generations;
+        private final long nanos;
+        private final int parallelism;
+
+        Census(Map<String, Long> counts, int soups, long generations, long nanos, int parallelism)
+        {
+            this.counts = counts;
+            this.soups = soups;
+            this.generations = generations;
+            this.nanos = nanos;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * @param name apgcode of an object, {@linkplain #UNSTABILIZED} or {@linkplain #UNCLASSIFIED}
+         * @return number of found objects with given name
+         */
+        public long getCount(String name)
+        {
+            return counts.getOrDefault(name, 0L);
+        }
+
+        /**
+         * @return names and numbers of all found objects, the most common first
+         */
+        public List<Map.Entry<String, Long>> getCounts()
+        {
+            List<Map.Entry<String, Long>> sorted = new ArrayList<>(counts.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            return sorted;
+        }
+
+        public int getSoups()
+        {
+            return soups;
+        }
+
+        /**
+         * @return generations calculated for all soups
+         */
+        public long getGenerations()
+        {
+            return generations;
+        }
+
+        public double getSeconds()
+        {
+            return nanos / 1e9;
+        }
+
+        public double getSoupsPerSecond()
+        {
+            return nanos > 0
+                   ? soups * 1e9 / nanos
+                   : 0;
+        }
+
+        public double getSoupsPerSecondPerCore()
+        {
+            return getSoupsPerSecond() / parallelism;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof Census)) return false;
+            Census census = (Census) o;
+            return soups == census.soups && counts.equals(census.counts);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * soups + counts.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Census of " + soups + " soups, " + counts.size() + " objects";
+        }
+    }
+}
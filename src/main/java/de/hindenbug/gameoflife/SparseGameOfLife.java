@@ -0,0 +1,473 @@
+package de.hindenbug.gameoflife;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * <p>A <code>SparseGameOfLife</code> is an infinite universe, that stores the packed cells of its living beings
+ * inside a hash set. Its cost depends on the population only, not on the extent of the pattern, so it is the engine
+ * of choice for small and scattered patterns and the first engine of the {@linkplain GameOfLife} facade.</p>
+ * <p>Other life-like rules are set with {@linkplain #setRule(Rule)}.</p>
+ *
+ * @author Nils Verheyen
+ * @since 11.03.17 16:35
+ */
+public class SparseGameOfLife implements Universe
+{
+    /*
+    number of sets, that were shared with snapshots and are kept to be reused
+     */
+    private static final int POOL_SIZE = 3;
+
+    private LongHashSet cells;
+    private LongHashSet nextCells;
+    /*
+    held by all snapshots sharing the cells, null if the cells are not shared, they are copied before they are
+    changed otherwise
+     */
+    private Object lease;
+    /*
+    sets shared with snapshots of former generations, oldest first
+     */
+    private final ArrayDeque<PooledCells> pool = new ArrayDeque<>(POOL_SIZE);
+    private long reusedSets;
+    /*
+    zobrist hash of the cells, updated with every birth, death and change
+     */
+    private long stateHash;
+    private final LongIntHashMap neighborCounts;
+    private final LongList births;
+    private final LongList deaths;
+    /*
+    true if births and deaths belong to the current generation, that is unchanged since it was generated
+     */
+    private boolean deltaAvailable;
+    private final BeingSet beings;
+    private Rule rule = Rule.CONWAY;
+
+    /**
+     * Creates a new empty <code>SparseGameOfLife</code>
+     */
+    public SparseGameOfLife()
+    {
+        this(new LongHashSet());
+    }
+
+    /**
+     * Creates a new game of life with given beings as initial set of life forms
+     *
+     * @param beings initial set of beings, not null
+     */
+    public SparseGameOfLife(Set<Being> beings)
+    {
+        this(LongHashSet.copyOf(beings));
+    }
+
+    private SparseGameOfLife(LongHashSet cells)
+    {
+        this.cells = cells;
+        this.stateHash = Cells.zobrist(cells);
+        this.neighborCounts = new LongIntHashMap();
+        this.births = new LongList();
+        this.deaths = new LongList();
+        this.beings = new BeingSet(new SharedCells());
+    }
+
+    /**
+     * Generates the next generation according to the game of life rule set.
+     * <p>Every living being adds one to the neighbor count of each of its eight neighbors, so a single pass over
+     * the population is enough to know the neighbor count of every cell that may be alive in the next
+     * generation. Cells that are not contained inside the resulting map have no living neighbors at all. Living
+     * beings are always part of the map, so the births and deaths of the generation are recorded on the way.</p>
+     * <p>Cells are stored packed inside primitive sets. The set of the current generation and the set of the next
+     * generation are swapped after each step, so no memory is allocated once the tables are big enough. A set that
+     * is shared with a {@linkplain GenerationSnapshot} must not be changed while the snapshot is reachable. It is
+     * put into a small pool instead and reused once the garbage collector found all of its snapshots unreachable,
+     * so a snapshot taken after each generation costs a new set only until the first collection.</p>
+     */
+    @Override
+    public void generateNextGeneration()
+    {
+        neighborCounts.clear();
+        cells.forEach(this::countNeighbors);
+
+        if (nextCells == null)
+            nextCells = reuseSet();
+        nextCells.clear();
+        births.clear();
+        deaths.clear();
+        neighborCounts.forEach((cell, neighborCount) ->
+        {
+            boolean alive = cells.contains(cell);
+            if (rule.next(alive, neighborCount))
+            {
+                nextCells.add(cell);
+                if (!alive)
+                {
+                    births.add(cell);
+                    stateHash ^= Cells.zobrist(cell);
+                }
+            } else if (alive)
+            {
+                deaths.add(cell);
+                stateHash ^= Cells.zobrist(cell);
+            }
+        });
+
+        LongHashSet previousCells = cells;
+        cells = nextCells;
+        if (lease != null)
+        {
+            retire(previousCells);
+            nextCells = null;
+        } else
+        {
+            nextCells = previousCells;
+        }
+        deltaAvailable = true;
+    }
+
+    /**
+     * Puts cells, that are shared with snapshots, into the pool. The oldest set of a full pool is left to its
+     * snapshots.
+     */
+    private void retire(LongHashSet sharedCells)
+    {
+        if (pool.size() == POOL_SIZE)
+            pool.removeFirst();
+        pool.addLast(new PooledCells(sharedCells, lease));
+        lease = null;
+    }
+
+    /**
+     * @return set of the pool, whose snapshots are not reachable anymore, or a new set
+     */
+    private LongHashSet reuseSet()
+    {
+        for (Iterator<PooledCells> sets = pool.iterator(); sets.hasNext(); )
+        {
+            PooledCells pooled = sets.next();
+            if (isReleased(pooled.lease))
+            {
+                sets.remove();
+                reusedSets++;
+                return pooled.cells;
+            }
+        }
+        return new LongHashSet(cells.size());
+    }
+
+    private void countNeighbors(long cell)
+    {
+        // a living being without neighbors has to be part of the map as well, so its death is recorded
+        neighborCounts.addTo(cell, 0);
+        int row = Cells.row(cell);
+        int column = Cells.column(cell);
+        for (int i = row - 1; i <= row + 1; i++)
+        {
+            for (int j = column - 1; j <= column + 1; j++)
+            {
+                if (!(i == row && j == column))
+                    neighborCounts.addTo(Cells.pack(i, j), 1);
+            }
+        }
+    }
+
+    /**
+     * Add a new {@linkplain Being} to the set of this game of life.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     */
+    @Override
+    public void addBeing(int row, int column)
+    {
+        addCell(Cells.pack(row, column));
+    }
+
+    @Override
+    public void addCells(long[] cells, int count)
+    {
+        writableCells().ensureCapacity(this.cells.size() + count);
+        for (int i = 0; i < count; i++)
+        {
+            addCell(cells[i]);
+        }
+    }
+
+    @Override
+    public void removeCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            removeCell(cells[i]);
+        }
+    }
+
+    /**
+     * Adds a being to every cell of given selection. The set of cells is grown once for the whole selection.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void fill(Selection selection)
+    {
+        writableCells().ensureCapacity((int) Math.min(Integer.MAX_VALUE, cells.size() + selection.getArea()));
+        for (int i = 0; i < selection.getRows(); i++)
+        {
+            for (int j = 0; j < selection.getColumns(); j++)
+            {
+                addCell(Cells.pack(selection.getRow() + i, selection.getColumn() + j));
+            }
+        }
+    }
+
+    /**
+     * Copies the beings of given selection. Small selections are probed cell by cell, otherwise the living cells
+     * are looked at without creating any being.
+     *
+     * @param selection rectangle of cells, not null
+     * @return beings of the selection relative to its upper left cell
+     */
+    @Override
+    public CellBlock copy(Selection selection)
+    {
+        if (selection.getArea() <= cells.size())
+            return Universe.super.copy(selection);
+
+        LongList inside = new LongList();
+        cells.forEach(cell ->
+        {
+            if (selection.contains(Cells.row(cell), Cells.column(cell)))
+                inside.add(Cells.pack(Cells.row(cell) - selection.getRow(),
+                        Cells.column(cell) - selection.getColumn()));
+        });
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    /**
+     * Adds a new {@linkplain Being} to this game of life if none exists on given row and column, otherwise it is
+     * removed.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     * @return <code>true</code> if the being was added, <code>false</code> otherwise
+     */
+    @Override
+    public boolean toggleBeing(int row, int column)
+    {
+        long cell = Cells.pack(row, column);
+        if (removeCell(cell))
+            return false;
+
+        addCell(cell);
+        return true;
+    }
+
+    private boolean addCell(long cell)
+    {
+        if (!writableCells().add(cell))
+            return false;
+
+        stateHash ^= Cells.zobrist(cell);
+        return true;
+    }
+
+    private boolean removeCell(long cell)
+    {
+        if (!cells.contains(cell) || !writableCells().remove(cell))
+            return false;
+
+        stateHash ^= Cells.zobrist(cell);
+        return true;
+    }
+
+    /**
+     * Returns a view of all living beings of this game of life. The beings are created on access, changes of the
+     * returned set are written through to this game of life.
+     *
+     * @return view of all living beings
+     */
+    @Override
+    public Set<Being> getBeings()
+    {
+        return beings;
+    }
+
+    @Override
+    public boolean isAlive(int row, int column)
+    {
+        return cells.contains(Cells.pack(row, column));
+    }
+
+    @Override
+    public int getPopulation()
+    {
+        return cells.size();
+    }
+
+    @Override
+    public void clear()
+    {
+        writableCells().clear();
+        stateHash = 0;
+    }
+
+    @Override
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule)
+    {
+        this.rule = rule;
+    }
+
+    /**
+     * Returns the zobrist hash of the current generation, that is updated with each birth and death, so it is
+     * available without looking at the whole population.
+     *
+     * @return hash of the current generation
+     */
+    @Override
+    public long stateHash()
+    {
+        return stateHash;
+    }
+
+    /**
+     * Returns the current generation without copying. The cells of this game of life are shared with the snapshot
+     * until this game of life changes.
+     *
+     * @param generation number of the current generation
+     * @return snapshot of the current generation
+     */
+    @Override
+    public GenerationSnapshot snapshot(long generation)
+    {
+        if (lease == null)
+            lease = new Object();
+        return new GenerationSnapshot(generation, cells, lease);
+    }
+
+    @Override
+    public GenerationDelta getLastDelta(long generation)
+    {
+        if (!deltaAvailable)
+            return null;
+
+        return new GenerationDelta(generation, births.toArray(), deaths.toArray());
+    }
+
+    /**
+     * @return cells of the current generation, that may be changed
+     */
+    private LongHashSet writableCells()
+    {
+        deltaAvailable = false;
+        if (lease != null)
+        {
+            LongHashSet sharedCells = cells;
+            cells = new LongHashSet(sharedCells);
+            retire(sharedCells);
+        }
+        return cells;
+    }
+
+    /**
+     * Tells if the snapshots sharing a pooled set are unreachable, which is the case once the garbage collector
+     * cleared the reference to their lease. Tests override it, so they do not depend on a collection.
+     *
+     * @param lease reference to the lease of the snapshots sharing a pooled set
+     * @return <code>true</code> if the set may be reused
+     */
+    boolean isReleased(WeakReference<Object> lease)
+    {
+        return lease.get() == null;
+    }
+
+    /**
+     * @return number of sets, that were shared with snapshots and reused afterwards
+     */
+    long getReusedSets()
+    {
+        return reusedSets;
+    }
+
+    /**
+     * Presents the cells of this game of life to the {@linkplain BeingSet}, changes are made on writable cells.
+     */
+    private class SharedCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return cells.contains(cell);
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            return addCell(cell);
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            return removeCell(cell);
+        }
+
+        @Override
+        public int size()
+        {
+            return cells.size();
+        }
+
+        @Override
+        public void clear()
+        {
+            SparseGameOfLife.this.clear();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            return cells.toArray();
+        }
+    }
+
+    /**
+     * A set, that is shared with snapshots. The engine only watches the lease of the snapshots, so the set is
+     * reused once the lease was collected.
+     */
+    private static final class PooledCells
+    {
+        final LongHashSet cells;
+        final WeakReference<Object> lease;
+
+        PooledCells(LongHashSet cells, Object lease)
+        {
+            this.cells = cells;
+            this.lease = new WeakReference<>(lease);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof SparseGameOfLife)) return false;
+        SparseGameOfLife that = (SparseGameOfLife) o;
+        return stateHash == that.stateHash && cells.equals(that.cells);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(stateHash);
+    }
+}
@@ -0,0 +1,223 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p>A <code>TileIndex</code> is an immutable map of the rows of tiles by their packed tile coordinate (see
+ * {@linkplain TiledGameOfLife}). Changing the index returns a new index, that shares all unchanged parts with the
+ * previous one, so a snapshot of a universe is updated with the changed tiles only.</p>
+ * <p>The index is a hash trie with 32 children per node. The path of a tile is its zobrist key (see
+ * {@linkplain Cells#zobrist(long)}), which is a bijection of the tile coordinate, so two tiles never share their
+ * whole path and no collisions have to be resolved.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 14:10
+ */
+final class TileIndex
+{
+    static final TileIndex EMPTY = new TileIndex(new Node(0, new Object[0]));
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Consumer of the tiles of a <code>TileIndex</code>
+     */
+    @FunctionalInterface
+    interface TileConsumer
+    {
+        void accept(long key, long[] rows);
+    }
+
+    private final Node root;
+
+    private TileIndex(Node root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * @param key packed tile coordinate
+     * @return rows of the tile or <code>null</code> if it is missing
+     */
+    long[] get(long key)
+    {
+        long hash = Cells.zobrist(key);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS)
+        {
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0)
+                return null;
+
+            Object child = node.children[node.position(bit)];
+            if (child instanceof Leaf)
+            {
+                Leaf leaf = (Leaf) child;
+                return leaf.key == key
+                       ? leaf.rows
+                       : null;
+            }
+            node = (Node) child;
+        }
+    }
+
+    /**
+     * @param key  packed tile coordinate
+     * @param rows rows of the tile, must never be changed afterwards
+     * @return index containing given tile instead of a previous one with the same coordinate
+     */
+    TileIndex put(long key, long[] rows)
+    {
+        return new TileIndex(put(root, new Leaf(key, Cells.zobrist(key), rows), 0));
+    }
+
+    /**
+     * @param key packed tile coordinate
+     * @return index without given tile, this index if it is missing
+     */
+    TileIndex remove(long key)
+    {
+        Node removed = remove(root, key, Cells.zobrist(key), 0);
+        return removed != root
+               ? new TileIndex(removed)
+               : this;
+    }
+
+    /**
+     * Calls given consumer for each tile of this index in no specific order.
+     *
+     * @param consumer consumer of each tile, not null
+     */
+    void forEach(TileConsumer consumer)
+    {
+        forEach(root, consumer);
+    }
+
+    private static void forEach(Node node, TileConsumer consumer)
+    {
+        for (Object child : node.children)
+        {
+            if (child instanceof Leaf)
+                consumer.accept(((Leaf) child).key, ((Leaf) child).rows);
+            else
+                forEach((Node) child, consumer);
+        }
+    }
+
+    private static Node put(Node node, Leaf leaf, int shift)
+    {
+        int bit = bit(leaf.hash, shift);
+        int position = node.position(bit);
+        if ((node.bitmap & bit) == 0)
+            return node.insert(bit, position, leaf);
+
+        Object child = node.children[position];
+        if (child instanceof Node)
+            return node.replace(position, put((Node) child, leaf, shift + BITS));
+
+        Leaf existing = (Leaf) child;
+        return node.replace(position, existing.key == leaf.key
+                                      ? leaf
+                                      : pair(existing, leaf, shift + BITS));
+    }
+
+    /**
+     * @return node containing both leaves, that share their path down to given shift
+     */
+    private static Node pair(Leaf first, Leaf second, int shift)
+    {
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit)
+            return new Node(firstBit, new Object[]{pair(first, second, shift + BITS)});
+
+        return new Node(firstBit | secondBit, Integer.compareUnsigned(firstBit, secondBit) < 0
+                                              ? new Object[]{first, second}
+                                              : new Object[]{second, first});
+    }
+
+    private static Node remove(Node node, long key, long hash, int shift)
+    {
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0)
+            return node;
+
+        int position = node.position(bit);
+        Object child = node.children[position];
+        if (child instanceof Leaf)
+        {
+            return ((Leaf) child).key == key
+                   ? node.delete(bit, position)
+                   : node;
+        }
+
+        Node removed = remove((Node) child, key, hash, shift + BITS);
+        if (removed == child)
+            return node;
+        return removed.bitmap != 0
+               ? node.replace(position, removed)
+               : node.delete(bit, position);
+    }
+
+    private static int bit(long hash, int shift)
+    {
+        return 1 << ((int) (hash >>> shift) & MASK);
+    }
+
+    /**
+     * Inner node of the trie, the children of the set bits of the bitmap are stored in the order of their bits.
+     */
+    private static final class Node
+    {
+        final int bitmap;
+        final Object[] children;
+
+        Node(int bitmap, Object[] children)
+        {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int position(int bit)
+        {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node insert(int bit, int position, Object child)
+        {
+            Object[] inserted = new Object[children.length + 1];
+            System.arraycopy(children, 0, inserted, 0, position);
+            inserted[position] = child;
+            System.arraycopy(children, position, inserted, position + 1, children.length - position);
+            return new Node(bitmap | bit, inserted);
+        }
+
+        Node replace(int position, Object child)
+        {
+            Object[] replaced = children.clone();
+            replaced[position] = child;
+            return new Node(bitmap, replaced);
+        }
+
+        Node delete(int bit, int position)
+        {
+            Object[] deleted = new Object[children.length - 1];
+            System.arraycopy(children, 0, deleted, 0, position);
+            System.arraycopy(children, position + 1, deleted, position, deleted.length - position);
+            return new Node(bitmap & ~bit, deleted);
+        }
+    }
+
+    private static final class Leaf
+    {
+        final long key;
+        final long hash;
+        final long[] rows;
+
+        Leaf(long key, long hash, long[] rows)
+        {
+            this.key = key;
+            this.hash = hash;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,868 @@
+package de.hindenbug.gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>A <code>TiledGameOfLife</code> is an infinite universe of conway's game of life, that is split into tiles of
+ * 64 x 64 cells. Each tile is a bitmap of 64 longs, the next state of a tile is calculated with bitwise full adders
+ * (see {@linkplain BitLife}). Tiles are stored inside a hash map keyed by their packed tile coordinate.</p>
+ * <p>Only tiles that changed in the last generation and their neighbors are calculated. All other tiles are
+ * stable and skipped entirely, so the cost of a generation is proportional to the activity of the universe instead
+ * of its population. Empty stable tiles are removed.</p>
+ * <p>With a parallelism greater than one, the active tiles are calculated on a fork join pool. A tile reads the
+ * border rows of its neighbors from the current generation and writes only its own next state, so no locking is
+ * required and the result is identical to the sequential calculation.</p>
+ * <p>Snapshots share the rows of the tiles. A shared tile copies its rows before they are changed the next time.
+ * The rows of all populated tiles are kept inside an immutable {@linkplain TileIndex}, that is updated with the
+ * tiles changed since the last snapshot, so taking a snapshot costs time proportional to the activity of the
+ * universe as well.</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 13:45
+ */
+public class TiledGameOfLife implements Universe
+{
+    static final int TILE_SIZE = 64;
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int MIN_PARTITION_TILES = 4;
+
+    /**
+     * A <code>Tile</code> contains 64 x 64 cells, each row is one long with the column as bit index.
+     */
+    static final class Tile
+    {
+        final int tileRow;
+        final int tileColumn;
+        long[] cells = new long[TILE_SIZE];
+        /*
+        contains the next state while a generation is calculated and the previous state afterwards
+         */
+        long[] next = new long[TILE_SIZE];
+        /*
+        true if the rows are shared with a snapshot and must be copied before they are changed
+         */
+        boolean cellsShared;
+        boolean nextShared;
+        /*
+        true if the tile changed since the last snapshot, so the shared index does not contain its rows
+         */
+        boolean stale;
+        int population;
+        boolean changed;
+        long scheduled = -1;
+
+        Tile(int tileRow, int tileColumn)
+        {
+            this.tileRow = tileRow;
+            this.tileColumn = tileColumn;
+        }
+
+        long key()
+        {
+            return Cells.pack(tileRow, tileColumn);
+        }
+
+        long[] writableCells()
+        {
+            if (cellsShared)
+            {
+                cells = cells.clone();
+                cellsShared = false;
+            }
+            return cells;
+        }
+
+        long[] writableNext()
+        {
+            if (nextShared)
+            {
+                next = next.clone();
+                nextShared = false;
+            }
+            return next;
+        }
+    }
+
+    private final Map<Long, Tile> tiles;
+    private final List<Tile> changedTiles;
+    private final List<Tile> activeTiles;
+    private final BeingSet beings;
+    private long generation;
+    private int population;
+    private Rule rule = Rule.CONWAY;
+    private long stateHash;
+    /*
+    true if the previous generation of all changed tiles is still available and the universe is unchanged
+     */
+    private boolean deltaAvailable;
+    private ForkJoinPool pool;
+    /*
+    rows of all populated tiles as of the last snapshot and the tiles that changed since then
+     */
+    private TileIndex sharedTiles = TileIndex.EMPTY;
+    private final List<Tile> staleTiles;
+
+    /**
+     * Creates a new empty <code>TiledGameOfLife</code>
+     */
+    public TiledGameOfLife()
+    {
+        this.tiles = new HashMap<>();
+        this.changedTiles = new ArrayList<>();
+        this.activeTiles = new ArrayList<>();
+        this.staleTiles = new ArrayList<>();
+        this.beings = new BeingSet(new TileCells());
+    }
+
+    /**
+     * Creates a new tiled game of life with given beings as initial set of life forms
+     *
+     * @param beings initial set of beings, not null
+     */
+    public TiledGameOfLife(Set<Being> beings)
+    {
+        this();
+        beings.forEach(being -> addBeing(being.getRow(), being.getColumn()));
+    }
+
+    /**
+     * Generates the next generation according to the game of life rule set. Only tiles that changed inside the
+     * last generation or have a changed neighbor are calculated.
+     */
+    @Override
+    public void generateNextGeneration()
+    {
+        generation++;
+        activeTiles.clear();
+        for (Tile tile : changedTiles)
+        {
+            scheduleWithNeighbors(tile);
+        }
+
+        if (pool == null || activeTiles.size() <= MIN_PARTITION_TILES)
+        {
+            generateTiles(0, activeTiles.size());
+        } else
+        {
+            pool.invoke(new RangeTask(this::generateTiles, 0, activeTiles.size(),
+                    RangeTask.partitionSize(activeTiles.size(), pool.getParallelism(), MIN_PARTITION_TILES)));
+        }
+
+        changedTiles.clear();
+        for (Tile tile : activeTiles)
+        {
+            commitTile(tile);
+        }
+
+        // reclaim empty tiles, a changed tile is kept until its neighbors saw the change
+        for (Tile tile : activeTiles)
+        {
+            if (!tile.changed && tile.population == 0)
+            {
+                tiles.remove(tile.key());
+                markStale(tile);
+            }
+        }
+        deltaAvailable = true;
+    }
+
+    /**
+     * Compares the current and the previous state of all tiles that changed inside the last generation.
+     *
+     * @param generation number of the current generation
+     * @return delta of the last generation or <code>null</code> if this universe was changed afterwards
+     */
+    @Override
+    public GenerationDelta getLastDelta(long generation)
+    {
+        if (!deltaAvailable)
+            return null;
+
+        LongList births = new LongList();
+        LongList deaths = new LongList();
+        for (Tile tile : changedTiles)
+        {
+            for (int row = 0; row < TILE_SIZE; row++)
+            {
+                long current = tile.cells[row];
+                long previous = tile.next[row];
+                addCells(births, tile, row, current & ~previous);
+                addCells(deaths, tile, row, previous & ~current);
+            }
+        }
+        return new GenerationDelta(generation, births.toArray(), deaths.toArray());
+    }
+
+    private static void addCells(LongList list, Tile tile, int row, long bits)
+    {
+        while (bits != 0)
+        {
+            list.add(Cells.pack((tile.tileRow << TILE_SHIFT) + row,
+                    (tile.tileColumn << TILE_SHIFT) + Long.numberOfTrailingZeros(bits)));
+            bits &= bits - 1;
+        }
+    }
+
+    private void scheduleWithNeighbors(Tile tile)
+    {
+        for (int i = -1; i <= 1; i++)
+        {
+            for (int j = -1; j <= 1; j++)
+            {
+                Tile neighbor = getTile(tile.tileRow + i, tile.tileColumn + j);
+                if (neighbor == null && mayInfluence(tile, i, j))
+                    neighbor = createTile(tile.tileRow + i, tile.tileColumn + j);
+
+                if (neighbor != null && neighbor.scheduled != generation)
+                {
+                    neighbor.scheduled = generation;
+                    activeTiles.add(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the cells of given tile next to its neighbor in given direction are or were
+     * alive. Only then the missing neighbor may change its state.
+     */
+    private static boolean mayInfluence(Tile tile, int rowDirection, int columnDirection)
+    {
+        long columns = columnDirection < 0
+                       ? 1L
+                       : columnDirection > 0
+                         ? 1L << TILE_MASK
+                         : -1L;
+        int fromRow = rowDirection > 0
+                      ? TILE_MASK
+                      : 0;
+        int toRow = rowDirection < 0
+                    ? 0
+                    : TILE_MASK;
+        for (int row = fromRow; row <= toRow; row++)
+        {
+            if (((tile.cells[row] | tile.next[row]) & columns) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private void generateTiles(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            generateTile(activeTiles.get(i));
+        }
+    }
+
+    private void generateTile(Tile tile)
+    {
+        Tile north = getTile(tile.tileRow - 1, tile.tileColumn);
+        Tile south = getTile(tile.tileRow + 1, tile.tileColumn);
+        Tile west = getTile(tile.tileRow, tile.tileColumn - 1);
+        Tile east = getTile(tile.tileRow, tile.tileColumn + 1);
+        Tile northWest = getTile(tile.tileRow - 1, tile.tileColumn - 1);
+        Tile northEast = getTile(tile.tileRow - 1, tile.tileColumn + 1);
+        Tile southWest = getTile(tile.tileRow + 1, tile.tileColumn - 1);
+        Tile southEast = getTile(tile.tileRow + 1, tile.tileColumn + 1);
+
+        if (tile.nextShared)
+        {
+            // the previous state belongs to a snapshot, it is overwritten completely so it is not copied
+            tile.next = new long[TILE_SIZE];
+            tile.nextShared = false;
+        }
+
+        Rule rule = this.rule;
+        long[] cells = tile.cells;
+        for (int row = 0; row < TILE_SIZE; row++)
+        {
+            long upper, upperWest, upperEast;
+            if (row == 0)
+            {
+                upper = word(north, TILE_MASK);
+                upperWest = word(northWest, TILE_MASK);
+                upperEast = word(northEast, TILE_MASK);
+            } else
+            {
+                upper = cells[row - 1];
+                upperWest = word(west, row - 1);
+                upperEast = word(east, row - 1);
+            }
+
+            long lower, lowerWest, lowerEast;
+            if (row == TILE_MASK)
+            {
+                lower = word(south, 0);
+                lowerWest = word(southWest, 0);
+                lowerEast = word(southEast, 0);
+            } else
+            {
+                lower = cells[row + 1];
+                lowerWest = word(west, row + 1);
+                lowerEast = word(east, row + 1);
+            }
+
+            long center = cells[row];
+            tile.next[row] = BitLife.next(rule,
+                    BitLife.west(upper, upperWest), upper, BitLife.east(upper, upperEast),
+                    BitLife.west(center, word(west, row)), center, BitLife.east(center, word(east, row)),
+                    BitLife.west(lower, lowerWest), lower, BitLife.east(lower, lowerEast));
+        }
+    }
+
+    private static long word(Tile tile, int row)
+    {
+        return tile != null
+               ? tile.cells[row]
+               : 0L;
+    }
+
+    private void commitTile(Tile tile)
+    {
+        tile.changed = !Arrays.equals(tile.cells, tile.next);
+        if (!tile.changed)
+        {
+            // the rows are kept, so the shared index still contains them
+            return;
+        }
+
+        long[] previous = tile.cells;
+        tile.cells = tile.next;
+        tile.next = previous;
+        boolean previousShared = tile.cellsShared;
+        tile.cellsShared = tile.nextShared;
+        tile.nextShared = previousShared;
+
+        int tilePopulation = 0;
+        for (int row = 0; row < TILE_SIZE; row++)
+        {
+            tilePopulation += Long.bitCount(tile.cells[row]);
+            for (long changed = tile.cells[row] ^ tile.next[row]; changed != 0; changed &= changed - 1)
+            {
+                stateHash ^= Cells.zobrist(Cells.pack((tile.tileRow << TILE_SHIFT) + row,
+                        (tile.tileColumn << TILE_SHIFT) + Long.numberOfTrailingZeros(changed)));
+            }
+        }
+        population += tilePopulation - tile.population;
+        tile.population = tilePopulation;
+        changedTiles.add(tile);
+        markStale(tile);
+    }
+
+    private void markStale(Tile tile)
+    {
+        if (!tile.stale)
+        {
+            tile.stale = true;
+            staleTiles.add(tile);
+        }
+    }
+
+    private Tile getTile(int tileRow, int tileColumn)
+    {
+        return tiles.get(Cells.pack(tileRow, tileColumn));
+    }
+
+    private Tile createTile(int tileRow, int tileColumn)
+    {
+        Tile tile = new Tile(tileRow, tileColumn);
+        tiles.put(tile.key(), tile);
+        return tile;
+    }
+
+    @Override
+    public void addBeing(int row, int column)
+    {
+        setAlive(row, column, true);
+    }
+
+    @Override
+    public boolean toggleBeing(int row, int column)
+    {
+        boolean alive = !isAlive(row, column);
+        setAlive(row, column, alive);
+        return alive;
+    }
+
+    @Override
+    public boolean isAlive(int row, int column)
+    {
+        Tile tile = getTile(row >> TILE_SHIFT, column >> TILE_SHIFT);
+        return tile != null && (tile.cells[row & TILE_MASK] & (1L << column)) != 0;
+    }
+
+    /**
+     * @return <code>true</code> if the state of the cell was changed
+     */
+    private boolean setAlive(int row, int column, boolean alive)
+    {
+        Tile tile = getTile(row >> TILE_SHIFT, column >> TILE_SHIFT);
+        if (tile == null)
+        {
+            if (!alive)
+                return false;
+            tile = createTile(row >> TILE_SHIFT, column >> TILE_SHIFT);
+        }
+
+        long bit = 1L << column;
+        boolean wasAlive = (tile.cells[row & TILE_MASK] & bit) != 0;
+        if (wasAlive == alive)
+            return false;
+
+        tile.writableCells()[row & TILE_MASK] ^= bit;
+        stateHash ^= Cells.zobrist(Cells.pack(row, column));
+        deltaAvailable = false;
+        if (!alive)
+        {
+            // remember the removed being as previous state, so missing neighbors are created on the next step
+            tile.writableNext()[row & TILE_MASK] |= bit;
+        }
+        int delta = alive
+                    ? 1
+                    : -1;
+        tile.population += delta;
+        population += delta;
+        markStale(tile);
+        if (!tile.changed)
+        {
+            tile.changed = true;
+            changedTiles.add(tile);
+        }
+        return true;
+    }
+
+    @Override
+    public void removeCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            setAlive(Cells.row(cells[i]), Cells.column(cells[i]), false);
+        }
+    }
+
+    /**
+     * Adds a being to every cell of given selection with one word operation per row of each covered tile.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void fill(Selection selection)
+    {
+        forEachTile(selection, true, (tile, fromRow, toRow, mask) ->
+        {
+            for (int row = fromRow; row <= toRow; row++)
+            {
+                setBits(tile, row, mask, true);
+            }
+        });
+    }
+
+    /**
+     * Removes all beings of given selection with one word operation per row of each covered tile.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    @Override
+    public void clear(Selection selection)
+    {
+        forEachTile(selection, false, (tile, fromRow, toRow, mask) ->
+        {
+            for (int row = fromRow; row <= toRow; row++)
+            {
+                setBits(tile, row, mask, false);
+            }
+        });
+    }
+
+    @Override
+    public CellBlock copy(Selection selection)
+    {
+        LongList inside = new LongList();
+        forEachTile(selection, false, (tile, fromRow, toRow, mask) ->
+        {
+            for (int row = fromRow; row <= toRow; row++)
+            {
+                for (long bits = tile.cells[row] & mask; bits != 0; bits &= bits - 1)
+                {
+                    inside.add(Cells.pack((tile.tileRow << TILE_SHIFT) + row - selection.getRow(),
+                            (tile.tileColumn << TILE_SHIFT) + Long.numberOfTrailingZeros(bits)
+                                    - selection.getColumn()));
+                }
+            }
+        });
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    /**
+     * Passes every tile that overlaps given selection along with the overlapping rows and columns. Missing tiles
+     * are either created or skipped. If the selection covers more tiles than are allocated, the allocated tiles
+     * are looked at instead.
+     *
+     * @param create <code>true</code> if missing tiles are created
+     */
+    private void forEachTile(Selection selection, boolean create, TileRange action)
+    {
+        if (selection.isEmpty())
+            return;
+
+        int firstTileRow = selection.getRow() >> TILE_SHIFT;
+        int lastTileRow = selection.getLastRow() >> TILE_SHIFT;
+        int firstTileColumn = selection.getColumn() >> TILE_SHIFT;
+        int lastTileColumn = selection.getLastColumn() >> TILE_SHIFT;
+        long coveredTiles = (lastTileRow - (long) firstTileRow + 1) * (lastTileColumn - (long) firstTileColumn + 1);
+        if (!create && coveredTiles > tiles.size())
+        {
+            for (Tile tile : new ArrayList<>(tiles.values()))
+            {
+                if (tile.tileRow >= firstTileRow && tile.tileRow <= lastTileRow
+                        && tile.tileColumn >= firstTileColumn && tile.tileColumn <= lastTileColumn)
+                    acceptTile(selection, tile, action);
+            }
+            return;
+        }
+
+        for (int tileRow = firstTileRow; tileRow <= lastTileRow; tileRow++)
+        {
+            for (int tileColumn = firstTileColumn; tileColumn <= lastTileColumn; tileColumn++)
+            {
+                Tile tile = getTile(tileRow, tileColumn);
+                if (tile == null && create)
+                    tile = createTile(tileRow, tileColumn);
+                if (tile != null)
+                    acceptTile(selection, tile, action);
+            }
+        }
+    }
+
+    private static void acceptTile(Selection selection, Tile tile, TileRange action)
+    {
+        int top = tile.tileRow << TILE_SHIFT;
+        int left = tile.tileColumn << TILE_SHIFT;
+        int fromRow = Math.max(selection.getRow(), top) - top;
+        int toRow = Math.min(selection.getLastRow(), top + TILE_MASK) - top;
+        int fromColumn = Math.max(selection.getColumn(), left) - left;
+        int toColumn = Math.min(selection.getLastColumn(), left + TILE_MASK) - left;
+        action.accept(tile, fromRow, toRow, BitLife.range(fromColumn, toColumn + 1));
+    }
+
+    /**
+     * Sets the masked cells of one row of a tile.
+     */
+    private void setBits(Tile tile, int row, long mask, boolean alive)
+    {
+        long previous = tile.cells[row];
+        long current = alive
+                       ? previous | mask
+                       : previous & ~mask;
+        long changed = previous ^ current;
+        if (changed == 0)
+            return;
+
+        tile.writableCells()[row] = current;
+        if (!alive)
+        {
+            // remember the removed beings as previous state, so missing neighbors are created on the next step
+            tile.writableNext()[row] |= changed;
+        }
+        for (; changed != 0; changed &= changed - 1)
+        {
+            stateHash ^= Cells.zobrist(Cells.pack((tile.tileRow << TILE_SHIFT) + row,
+                    (tile.tileColumn << TILE_SHIFT) + Long.numberOfTrailingZeros(changed)));
+        }
+        int delta = Long.bitCount(current) - Long.bitCount(previous);
+        tile.population += delta;
+        population += delta;
+        deltaAvailable = false;
+        markStale(tile);
+        if (!tile.changed)
+        {
+            tile.changed = true;
+            changedTiles.add(tile);
+        }
+    }
+
+    /**
+     * Receives the rows and columns of a tile, that overlap a {@linkplain Selection}.
+     */
+    @FunctionalInterface
+    private interface TileRange
+    {
+        /**
+         * @param tile    overlapping tile
+         * @param fromRow first row inside the tile, inclusive
+         * @param toRow   last row inside the tile, inclusive
+         * @param mask    overlapping columns inside the tile
+         */
+        void accept(Tile tile, int fromRow, int toRow, long mask);
+    }
+
+    @Override
+    public Set<Being> getBeings()
+    {
+        return beings;
+    }
+
+    @Override
+    public int getPopulation()
+    {
+        return population;
+    }
+
+    /**
+     * Sets the number of threads used to calculate the active tiles of a generation. With one thread the
+     * generation is calculated on the calling thread.
+     *
+     * @param parallelism number of threads, greater than zero
+     */
+    @Override
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+        if (parallelism == getParallelism())
+            return;
+
+        if (pool != null)
+            pool.shutdown();
+        pool = parallelism > 1
+               ? new ForkJoinPool(parallelism)
+               : null;
+    }
+
+    @Override
+    public int getParallelism()
+    {
+        return pool != null
+               ? pool.getParallelism()
+               : 1;
+    }
+
+    /**
+     * @return number of tiles that are currently allocated
+     */
+    public int getTileCount()
+    {
+        return tiles.size();
+    }
+
+    /**
+     * @return number of tiles that were calculated inside the last generation
+     */
+    public int getActiveTileCount()
+    {
+        return activeTiles.size();
+    }
+
+    @Override
+    public void clear()
+    {
+        tiles.clear();
+        staleTiles.clear();
+        sharedTiles = TileIndex.EMPTY;
+        changedTiles.clear();
+        activeTiles.clear();
+        population = 0;
+        stateHash = 0;
+        deltaAvailable = false;
+    }
+
+    @Override
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule)
+    {
+        this.rule = rule;
+    }
+
+    /**
+     * Returns the zobrist hash of the current generation, that is updated from the changed tiles while a
+     * generation is committed.
+     *
+     * @return hash of the current generation
+     */
+    @Override
+    public long stateHash()
+    {
+        return stateHash;
+    }
+
+    /**
+     * Returns the current generation without copying its beings. The tiles changed since the last snapshot are
+     * updated inside the shared index, all other tiles are shared as they are.
+     *
+     * @param generation number of the current generation
+     * @return snapshot sharing the rows of the tiles
+     */
+    @Override
+    public GenerationSnapshot snapshot(long generation)
+    {
+        for (Tile tile : staleTiles)
+        {
+            tile.stale = false;
+            if (tile.population == 0 || tiles.get(tile.key()) != tile)
+            {
+                sharedTiles = sharedTiles.remove(tile.key());
+            } else
+            {
+                tile.cellsShared = true;
+                sharedTiles = sharedTiles.put(tile.key(), tile.cells);
+            }
+        }
+        staleTiles.clear();
+        return new GenerationSnapshot(generation, new SharedTiles(sharedTiles, population));
+    }
+
+    /**
+     * Presents the tiles of this universe as packed cells.
+     */
+    private class TileCells implements CellSet
+    {
+        @Override
+        public boolean contains(long cell)
+        {
+            return isAlive(Cells.row(cell), Cells.column(cell));
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), true);
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            return setAlive(Cells.row(cell), Cells.column(cell), false);
+        }
+
+        @Override
+        public int size()
+        {
+            return population;
+        }
+
+        @Override
+        public void clear()
+        {
+            TiledGameOfLife.this.clear();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            long[] result = new long[population];
+            int index = 0;
+            for (Tile tile : tiles.values())
+            {
+                for (int row = 0; row < TILE_SIZE; row++)
+                {
+                    long bits = tile.cells[row];
+                    while (bits != 0)
+                    {
+                        int column = Long.numberOfTrailingZeros(bits);
+                        result[index++] = Cells.pack((tile.tileRow << TILE_SHIFT) + row,
+                                (tile.tileColumn << TILE_SHIFT) + column);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read only cells of the rows of populated tiles, that were shared with a snapshot.
+     */
+    private static final class SharedTiles implements CellSet
+    {
+        private final TileIndex index;
+        private final int population;
+
+        SharedTiles(TileIndex index, int population)
+        {
+            this.index = index;
+            this.population = population;
+        }
+
+        @Override
+        public boolean contains(long cell)
+        {
+            int row = Cells.row(cell);
+            int column = Cells.column(cell);
+            long[] rows = index.get(Cells.pack(row >> TILE_SHIFT, column >> TILE_SHIFT));
+            return rows != null && (rows[row & TILE_MASK] & (1L << column)) != 0;
+        }
+
+        @Override
+        public boolean add(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(long cell)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size()
+        {
+            return population;
+        }
+
+        @Override
+        public void clear()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long[] toArray()
+        {
+            CellCollector collector = new CellCollector(population);
+            index.forEach(collector);
+            return collector.cells;
+        }
+    }
+
+    /**
+     * Collects the cells of the tiles of a {@linkplain TileIndex}.
+     */
+    private static final class CellCollector implements TileIndex.TileConsumer
+    {
+        final long[] cells;
+        private int count;
+
+        CellCollector(int population)
+        {
+            this.cells = new long[population];
+        }
+
+        @Override
+        public void accept(long key, long[] rows)
+        {
+            int top = Cells.row(key) << TILE_SHIFT;
+            int left = Cells.column(key) << TILE_SHIFT;
+            for (int row = 0; row < TILE_SIZE; row++)
+            {
+                for (long bits = rows[row]; bits != 0; bits &= bits - 1)
+                {
+                    cells[count++] = Cells.pack(top + row, left + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * The eight rotations and reflections of a rectangle of cells, that are applied to a {@linkplain CellBlock} before
+ * it is pasted. A transformed cell stays inside the bounding box of the block, the number of rows and columns is
+ * swapped by rotations by 90 degrees and by transpositions.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 23:10
+ */
+public enum Transform
+{
+    IDENTITY(false)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(row, column);
+                }
+            },
+    ROTATE_CLOCKWISE(true)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(column, rows - 1 - row);
+                }
+            },
+    ROTATE_180(false)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(rows - 1 - row, columns - 1 - column);
+                }
+            },
+    ROTATE_COUNTERCLOCKWISE(true)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(columns - 1 - column, row);
+                }
+            },
+    /**
+     * Mirrors the columns, left becomes right.
+     */
+    FLIP_HORIZONTAL(false)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(row, columns - 1 - column);
+                }
+            },
+    /**
+     * Mirrors the rows, top becomes bottom.
+     */
+    FLIP_VERTICAL(false)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(rows - 1 - row, column);
+                }
+            },
+    /**
+     * Mirrors along the diagonal from the upper left to the lower right corner.
+     */
+    TRANSPOSE(true)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(column, row);
+                }
+            },
+    /**
+     * Mirrors along the diagonal from the upper right to the lower left corner.
+     */
+    ANTI_TRANSPOSE(true)
+            {
+                @Override
+                long apply(int row, int column, int rows, int columns)
+                {
+                    return Cells.pack(columns - 1 - column, rows - 1 - row);
+                }
+            };
+
+    private final boolean swapsAxes;
+
+    Transform(boolean swapsAxes)
+    {
+        this.swapsAxes = swapsAxes;
+    }
+
+    /**
+     * Transforms a cell of a rectangle with given size.
+     *
+     * @param row     row of the cell relative to the upper left corner of the rectangle
+     * @param column  column of the cell relative to the upper left corner of the rectangle
+     * @param rows    number of rows of the rectangle
+     * @param columns number of columns of the rectangle
+     * @return packed cell relative to the upper left corner of the transformed rectangle
+     */
+    abstract long apply(int row, int column, int rows, int columns);
+
+    /**
+     * @return <code>true</code> if the rows of a rectangle become its columns
+     */
+    public boolean swapsAxes()
+    {
+        return swapsAxes;
+    }
+}
@@ -1,30 +1,41 @@
 package de.hindenbug.gameoflife;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
-import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.Paint;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
-import java.util.function.Predicate;
 
 public class UI extends Application
 {
@@ -32,40 +43,66 @@ public class UI extends Application
 
     private static final int BEING_WIDTH = 15;
     private static final int BEING_HEIGHT = 15;
-    private static final Paint CANVAS_BACKGROUND = Color.web("#eeeeee");
-    private static final Paint CANVAS_GRID_LINE_COLOR = new Color(.7, .7, .7, 1);
-    private static final Paint BEING_COLOR = new Color(.129, .586, .949, 1);
+    /*
+    generations calculated ahead, so slow generations do not make the playback stutter
+     */
+    private static final int LOOKAHEAD = 8;
+    private static final Color CANVAS_BACKGROUND = Color.web("#eeeeee");
+    private static final Color CANVAS_GRID_LINE_COLOR = new Color(.7, .7, .7, 1);
+    private static final Color BEING_COLOR = new Color(.129, .586, .949, 1);
 
-    private Semaphore gameOfLifeSync = new Semaphore(1);
-
-    private final Predicate<Being> isInvisible = new Predicate<Being>()
-    {
-        @Override
-        public boolean test(Being being)
-        {
-            /*
-            the offset is used as additional space so no being is removed if it
-            influences visible beings
-             */
-            int offset = 10;
-            return (being.getRow() - offset) * beingHeight > canvas.getHeight()
-                    || (being.getColumn() - offset) * beingWidth > canvas.getWidth()
-                    || being.getRow() < 0
-                    || being.getColumn() < 0;
-        }
-    };
+    private final Semaphore gameOfLifeSync = new Semaphore(1);
 
     private final GameOfLife gameOfLife = GameOfLifeSample.GosperGliderGun;
 
+    private final DensityIndex densityIndex = new DensityIndex();
+    private final Viewport viewport = new Viewport(BEING_WIDTH, BEING_HEIGHT);
+    private final PixelRenderer renderer = new PixelRenderer(densityIndex, viewport,
+            CANVAS_BACKGROUND, CANVAS_GRID_LINE_COLOR, BEING_COLOR);
+
     private Canvas canvas;
     private Scene scene;
     private HBox controls;
 
-    private int beingHeight = BEING_HEIGHT;
-    private int beingWidth = BEING_WIDTH;
+    private TextField tfRows;
+    private TextField tfColumns;
+    private TextField tfRule;
     private int generationTimeMS = GameOfLifeService.DEFAULT_GENERATION_TIME_MS;
 
+    private SchedulerMode schedulerMode = SchedulerMode.FIXED_RATE;
     private GameOfLifeService generator;
+    /*
+    steps the generator on request of the user, it waits for a running generation instead of the javafx application
+    thread, one request after the other
+     */
+    private final ExecutorService stepper = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "generation stepper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /*
+    snapshot of the generator, that is shown by the canvas
+     */
+    private GenerationSnapshot renderedSnapshot;
+    private final RateMeter frameRate = new RateMeter();
+    private final Metrics metrics = new Metrics();
+    /*
+    edits submitted to the generator and shown on the canvas, that are not contained in the drawn snapshot yet
+     */
+    private final Deque<ShownEdit> shownEdits = new ArrayDeque<>();
+    private Label lblRates;
+    /*
+    selection made by dragging with the shift key down and the beings copied from it
+     */
+    private Selection selection;
+    private CellBlock clipboard = CellBlock.EMPTY;
+    private Label lblSelection;
+
+    private double pressX;
+    private double pressY;
+    private int pressRow;
+    private int pressColumn;
 
     static void main(String[] args)
     {
@@ -83,19 +120,27 @@ public class UI extends Application
 
         Label lblRows = createLabel("Cell height");
         lblRows.getStyleClass().add("tf-label");
-        TextField tfRows = new TextField();
+        tfRows = new TextField();
         setTextFieldDefaults(tfRows,
-                keyEvent -> beingHeight = !tfRows.getText().isEmpty()
-                                          ? Integer.parseInt(tfRows.getText())
-                                          : BEING_HEIGHT, Integer.toString(BEING_HEIGHT),
+                keyEvent ->
+                {
+                    viewport.setBeingSize(viewport.getBeingWidth(), !tfRows.getText().isEmpty()
+                                                                    ? Integer.parseInt(tfRows.getText())
+                                                                    : BEING_HEIGHT);
+                    redraw();
+                }, Integer.toString(BEING_HEIGHT),
                 KeyEvent.KEY_TYPED, createBeingSizeTFHandler(2));
 
         Label lblColumns = createLabel("Cell width");
-        TextField tfColumns = new TextField();
+        tfColumns = new TextField();
         setTextFieldDefaults(tfColumns,
-                keyEvent -> beingWidth = !tfColumns.getText().isEmpty()
-                                         ? Integer.parseInt(tfColumns.getText())
-                                         : BEING_WIDTH, Integer.toString(BEING_WIDTH),
+                keyEvent ->
+                {
+                    viewport.setBeingSize(!tfColumns.getText().isEmpty()
+                                          ? Integer.parseInt(tfColumns.getText())
+                                          : BEING_WIDTH, viewport.getBeingHeight());
+                    redraw();
+                }, Integer.toString(BEING_WIDTH),
                 KeyEvent.KEY_TYPED, createBeingSizeTFHandler(2));
 
         Label lblTime = createLabel("Time to generate (ms)");
@@ -106,131 +151,369 @@ public class UI extends Application
                     generationTimeMS = !tfTime.getText().isEmpty()
                                        ? Integer.parseInt(tfTime.getText())
                                        : GameOfLifeService.DEFAULT_GENERATION_TIME_MS;
-                    if (generator != null)
-                        generator.setGenerationTime(generationTimeMS);
+                    generator.setGenerationTime(generationTimeMS);
                 },
                 Integer.toString(GameOfLifeService.DEFAULT_GENERATION_TIME_MS),
                 KeyEvent.KEY_TYPED, createBeingSizeTFHandler(4));
 
+        Label lblRule = createLabel("Rule");
+        tfRule = new TextField(gameOfLife.getRule().toString());
+        tfRule.setPrefColumnCount(10);
+        tfRule.setOnAction(this::onRuleChanged);
+
+        ChoiceBox<SchedulerMode> cbScheduler = new ChoiceBox<>(
+                FXCollections.observableArrayList(SchedulerMode.values()));
+        cbScheduler.setValue(schedulerMode);
+        cbScheduler.valueProperty().addListener((observable, oldMode, newMode) ->
+        {
+            schedulerMode = newMode;
+            generator.setSchedulerMode(newMode);
+        });
+
+        // the tiled engine calculates its active tiles on all cores
+        Label lblThreads = createLabel("Threads");
+        int processors = Runtime.getRuntime().availableProcessors();
+        ChoiceBox<Integer> cbThreads = new ChoiceBox<>();
+        for (int threads = 1; threads <= processors; threads++)
+        {
+            cbThreads.getItems().add(threads);
+        }
+        cbThreads.setValue(processors);
+        cbThreads.valueProperty().addListener((observable, oldThreads, newThreads) ->
+                generator.setParallelism(newThreads));
+
         Button btnStart = new Button("Start");
         btnStart.setOnAction(this::startGenerator);
 
         Button btnStop = new Button("Stop");
         btnStop.setOnAction(this::stopGenerator);
 
+        Button btnPreviousGeneration = new Button("Previous generation");
+        btnPreviousGeneration.setOnAction(this::onPreviousGeneration);
+
         Button btnNextGeneration = new Button("Next generation");
         btnNextGeneration.setOnAction(this::onNextGeneration);
 
         Button btnReset = new Button("Restart");
         btnReset.setOnAction(this::onReset);
 
+        Button btnOpen = new Button("Open pattern");
+        btnOpen.setOnAction(this::onOpenPattern);
+
+        Button btnSave = new Button("Save pattern");
+        btnSave.setOnAction(this::onSavePattern);
+
         controls = new HBox(5, lblRows, tfRows,
                 lblColumns, tfColumns,
                 lblTime, tfTime,
-                btnStart, btnStop, btnNextGeneration, btnReset);
+                lblRule, tfRule, cbScheduler, lblThreads, cbThreads,
+                btnStart, btnStop, btnPreviousGeneration, btnNextGeneration, btnReset, btnOpen, btnSave);
         controls.setPadding(new Insets(5));
 
+        lblRates = createLabel("");
+        lblSelection = createLabel("");
+        controls.getChildren().addAll(lblRates, lblSelection);
+
         canvas = new Canvas();
         canvas.getStyleClass().add("canvas");
+        canvas.setFocusTraversable(true);
 
         VBox container = new VBox(5, controls, canvas);
 
         scene = new Scene(container, primaryStage.getWidth(), primaryStage.getHeight());
         scene.getStylesheets().add("gameoflife.css");
 
+        canvas.setOnMousePressed(this::onMousePressed);
+        canvas.setOnMouseDragged(this::onMouseDragged);
         canvas.setOnMouseClicked(this::addBeing);
-
-        resizeCanvas();
-        drawField();
-        drawLines();
-        drawBeings();
+        canvas.setOnScroll(this::onScroll);
+        canvas.setOnKeyPressed(this::onKeyPressed);
+        scene.widthProperty().addListener(observable -> redraw());
+        scene.heightProperty().addListener(observable -> redraw());
+
+        generator = new GameOfLifeService(gameOfLife, generationTimeMS, gameOfLifeSync, metrics);
+        generator.setSchedulerMode(schedulerMode);
+        generator.setLookahead(LOOKAHEAD);
+        generator.setParallelism(cbThreads.getValue());
+        renderedSnapshot = generator.getSnapshot();
+        densityIndex.reset(renderedSnapshot.getBeings());
+        redraw();
 
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        gameOfLife.setMetrics(metrics);
+        try
+        {
+            metrics.register("ui");
+        } catch (JMException e)
+        {
+            LOG.warn("metrics could not be registered", e);
+        }
+
+        // the latest generation is pulled once per pulse, generations in between are never drawn
+        new AnimationTimer()
+        {
+            @Override
+            public void handle(long now)
+            {
+                onPulse(now);
+            }
+        }.start();
     }
 
     private void stopGenerator(ActionEvent event)
     {
-        if (generator != null)
-            generator.cancel();
+        generator.cancel();
     }
 
     private void startGenerator(ActionEvent event)
     {
-        if (generator == null)
-        {
-            generator = new GameOfLifeService(gameOfLife);
-            gameOfLifeSync = generator.getGameOfLifeSync();
-            generator.setGenerationTime(generationTimeMS);
-            generator.addListener(this::onGenerationGenerated);
+        if (generator.getState() == Worker.State.READY)
             generator.start();
-        } else
-        {
+        else
             generator.restart();
-        }
     }
 
-    private void onGenerationGenerated(ObservableValue observableValue,
-                                       Object oldValue,
-                                       Object newValue)
+    /**
+     * Draws the latest snapshot of the generator if it was not drawn yet. If the snapshot directly follows the
+     * drawn one, only its delta is drawn, otherwise the snapshots are compared once. If edits are shown on top of
+     * the drawn snapshot, the cells they touched are taken from the latest snapshot after the comparison and the
+     * edits it does not contain yet are shown again.
+     *
+     * @param now time of the pulse in nanoseconds
+     */
+    private void onPulse(long now)
     {
-        if (newValue != null)
+        GenerationSnapshot latest = generator.getSnapshot();
+        if (latest == renderedSnapshot)
         {
-            drawField();
-            drawLines();
-            try
+            frameRate.mark(0, now);
+        } else
+        {
+            long renderStart = metrics.isMeasuringRender()
+                               ? System.nanoTime()
+                               : 0;
+            boolean fullRedraw = true;
+            GenerationDelta delta = generator.getLastDelta();
+            if (!shownEdits.isEmpty())
             {
-                LOG.debug("acquire");
-                gameOfLifeSync.acquire();
-                LOG.debug("cs");
-                drawBeings();
-                removeInvisibleBeings();
-            } catch (InterruptedException e)
+                showEdits(latest);
+                redraw();
+            } else if (delta != null && delta.getGeneration() == latest.getGeneration()
+                    && latest.getGeneration() == renderedSnapshot.getGeneration() + 1)
             {
-                LOG.error("access to game of life interrupted");
-            } finally
+                onGenerationChanged(delta);
+                fullRedraw = false;
+            } else
             {
-                gameOfLifeSync.release();
-                LOG.debug("released");
+                densityIndex.apply(GenerationDelta.between(renderedSnapshot, latest));
+                redraw();
             }
+            renderedSnapshot = latest;
+            if (renderStart != 0)
+                metrics.recordRender(latest.getGeneration(), System.nanoTime() - renderStart, fullRedraw);
+            frameRate.mark(1, now);
         }
+        lblRates.setText(String.format("generation %d, %.1f gen/s, %.1f fps", latest.getGeneration(),
+                generator.getGenerationRate(), frameRate.getRate()));
     }
 
-    private void removeInvisibleBeings()
+    /**
+     * Moves the density index from the drawn snapshot with the shown edits on top to the latest snapshot with the
+     * edits it does not contain yet on top. Only an edit of the whole universe requires to index the latest
+     * snapshot completely.
+     */
+    private void showEdits(GenerationSnapshot latest)
     {
-        if (gameOfLife.getBeings().removeIf(isInvisible))
+        if (shownEdits.stream().allMatch(edit -> edit.settle != null))
+        {
+            // cells not touched by an edit are still those of the drawn snapshot
+            densityIndex.apply(GenerationDelta.between(renderedSnapshot, latest));
+            shownEdits.forEach(edit -> edit.settle.accept(latest));
+        } else
+        {
+            densityIndex.reset(latest.getBeings());
+        }
+        while (!shownEdits.isEmpty() && shownEdits.peekFirst().sequence <= latest.getLastEdit())
         {
-            LOG.debug("invisible beings removed");
+            shownEdits.removeFirst();
         }
+        shownEdits.forEach(edit -> edit.show.run());
+    }
+
+    private void onGenerationChanged(GenerationDelta delta)
+    {
+        densityIndex.apply(delta);
+        // only the changed beings are drawn, all other cells of the canvas are still valid
+        delta.getDeaths().forEach(being -> renderer.drawCell(being.getRow(), being.getColumn()));
+        delta.getBirths().forEach(being -> renderer.drawCell(being.getRow(), being.getColumn()));
+        renderer.present(canvas);
     }
 
     private void onReset(ActionEvent event)
     {
         stopGenerator(event);
-        gameOfLife.clear();
-        resizeCanvas();
-        drawField();
-        drawLines();
+        submitEdit(Universe::clear, densityIndex::clear, null);
+        redraw();
+    }
+
+    /**
+     * Submits an edit to the generator and shows it on the canvas right away. The edit is shown again on top of
+     * each drawn snapshot until a snapshot contains it.
+     *
+     * @param command edit of the universe
+     * @param show    applies the edit to the density index
+     * @param settle  takes the cells touched by the edit from a snapshot into the density index,
+     *                <code>null</code> if the edit touches the whole universe
+     */
+    private void submitEdit(EditCommand command, Runnable show, Consumer<GenerationSnapshot> settle)
+    {
+        long sequence = generator.submit(command);
+        show.run();
+        shownEdits.addLast(new ShownEdit(sequence, show, settle));
+    }
+
+    private void showCell(int row, int column, boolean alive)
+    {
+        if (alive)
+            densityIndex.add(row, column);
+        else
+            densityIndex.remove(row, column);
     }
 
+    /**
+     * Calculates the next generation by the stepper, so a running generation is never waited for by the javafx
+     * application thread. The new snapshot is drawn on the next pulse after it was published.
+     */
     private void onNextGeneration(ActionEvent event)
     {
-        drawField();
-        drawLines();
+        stepper.execute(() ->
+        {
+            try
+            {
+                generator.step();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
 
+    /**
+     * Stops the generator and steps back to the previous generation kept by its history. The stepper waits for the
+     * generation, that may still be calculated, and the rewound snapshot is drawn on the next pulse.
+     */
+    private void onPreviousGeneration(ActionEvent event)
+    {
+        stopGenerator(event);
+        stepper.execute(() ->
+        {
+            try
+            {
+                if (!generator.previousGeneration())
+                    LOG.info("generation {} is the oldest kept generation", generator.getGeneration());
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void onRuleChanged(ActionEvent event)
+    {
         try
         {
-            gameOfLifeSync.acquire();
-            gameOfLife.generateNextGeneration();
-            drawBeings();
-            removeInvisibleBeings();
-        } catch (InterruptedException e)
+            Rule rule = Rule.parse(tfRule.getText());
+            generator.submit(universe -> universe.setRule(rule));
+            tfRule.setText(rule.toString());
+        } catch (IllegalArgumentException e)
         {
-            LOG.error("access to game of life interrupted");
-        } finally
+            LOG.warn("invalid rule {}: {}", tfRule.getText(), e.getMessage());
+            tfRule.setText(gameOfLife.getRule().toString());
+        }
+    }
+
+    /**
+     * Reads a pattern without locking the universe and submits it as edit, that replaces all beings and the rule of
+     * the universe.
+     */
+    private void onOpenPattern(ActionEvent event)
+    {
+        File file = createPatternChooser().showOpenDialog(scene.getWindow());
+        if (file == null)
+            return;
+
+        stopGenerator(event);
+        SparseGameOfLife pattern = new SparseGameOfLife();
+        // patterns without rule keep the rule of the universe
+        pattern.setRule(gameOfLife.getRule());
+        try
+        {
+            PatternReader.read(file.toPath(), pattern);
+        } catch (IOException e)
         {
-            gameOfLifeSync.release();
+            LOG.error("pattern {} could not be read", file, e);
+            return;
         }
+
+        long[] cells = Cells.toArray(pattern.getBeings());
+        Rule rule = pattern.getRule();
+        submitEdit(universe ->
+        {
+            universe.clear();
+            universe.setRule(rule);
+            universe.addCells(cells, cells.length);
+        }, () -> densityIndex.reset(pattern.getBeings()), null);
+        tfRule.setText(rule.toString());
+        redraw();
+    }
+
+    /**
+     * Writes the presented generation by a background thread. Its snapshot is immutable, so neither the javafx
+     * application thread nor the writer wait for the universe, which may run ahead of the presented generation.
+     */
+    private void onSavePattern(ActionEvent event)
+    {
+        File file = createPatternChooser().showSaveDialog(scene.getWindow());
+        if (file == null)
+            return;
+
+        GenerationSnapshot snapshot = generator.getSnapshot();
+        Rule rule = gameOfLife.getRule();
+        Thread writer = new Thread(() ->
+        {
+            try
+            {
+                PatternWriter.write(file.toPath(), snapshot, rule, file.getName());
+                LOG.info("generation #{} written to {}", snapshot.getGeneration(), file);
+            } catch (IOException e)
+            {
+                LOG.error("pattern {} could not be written", file, e);
+            }
+        }, "pattern writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static FileChooser createPatternChooser()
+    {
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("RLE", "*.rle"),
+                new FileChooser.ExtensionFilter("Life 1.06", "*.lif", "*.life"),
+                new FileChooser.ExtensionFilter("Plaintext", "*.cells", "*.txt"));
+        return chooser;
+    }
+
+    /**
+     * Draws the whole canvas again, for example if the size of a being changed.
+     */
+    private void redraw()
+    {
+        resizeCanvas();
+        renderer.render();
+        renderer.present(canvas);
     }
 
     private void resizeCanvas()
@@ -243,71 +526,189 @@ public class UI extends Application
         double width = scene.getWidth();
         if (canvas.getWidth() != width)
             canvas.setWidth(width);
+
+        renderer.setSize((int) canvas.getWidth(), (int) canvas.getHeight());
     }
 
-    private void drawLines()
+    private void onMousePressed(MouseEvent mouseEvent)
     {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-
-        gc.setStroke(CANVAS_GRID_LINE_COLOR);
-        gc.setLineWidth(1);
-
-        // see http://stackoverflow.com/questions/27846659/how-to-draw-an-1-pixel-line-using-javafx-canvas
+        canvas.requestFocus();
+        pressX = mouseEvent.getX();
+        pressY = mouseEvent.getY();
+        pressRow = viewport.getRow();
+        pressColumn = viewport.getColumn();
+    }
 
-        // columns
-        for (double x = .5; x < canvas.getWidth(); x += beingWidth)
+    /**
+     * Moves the viewport along with the mouse, with the shift key down the cells between the press and the mouse
+     * are selected instead.
+     */
+    private void onMouseDragged(MouseEvent mouseEvent)
+    {
+        if (mouseEvent.isShiftDown())
         {
-            gc.strokeLine(x, 0, x, canvas.getHeight());
+            selection = Selection.between(viewport.rowAt(pressY), viewport.columnAt(pressX),
+                    viewport.rowAt(mouseEvent.getY()), viewport.columnAt(mouseEvent.getX()));
+            updateSelectionLabel();
+            return;
         }
 
-        // rows
-        for (double y = .5; y < canvas.getHeight(); y += beingHeight)
-        {
-            gc.strokeLine(0, y, canvas.getWidth(), y);
-        }
+        int dx = (int) (mouseEvent.getX() - pressX);
+        int dy = (int) (mouseEvent.getY() - pressY);
+        viewport.setOrigin(pressRow - viewport.rowsIn(dy), pressColumn - viewport.columnsIn(dx));
+        redraw();
     }
 
-    private void drawField()
+    private void onScroll(ScrollEvent scrollEvent)
     {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (scrollEvent.getDeltaY() > 0)
+            viewport.zoomIn(scrollEvent.getX(), scrollEvent.getY());
+        else if (scrollEvent.getDeltaY() < 0)
+            viewport.zoomOut(scrollEvent.getX(), scrollEvent.getY());
+        else
+            return;
+
+        tfRows.setText(Integer.toString(viewport.getBeingHeight()));
+        tfColumns.setText(Integer.toString(viewport.getBeingWidth()));
+        redraw();
+    }
 
-        gc.setFill(CANVAS_BACKGROUND);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    private void addBeing(MouseEvent mouseEvent)
+    {
+        // beings are only toggled by clicks, not at the end of a drag or on aggregated blocks
+        if (!mouseEvent.isStillSincePress() || viewport.getLevel() > 0)
+            return;
+
+        int row = viewport.rowAt(mouseEvent.getY());
+        int column = viewport.columnAt(mouseEvent.getX());
+        // the shown state is toggled, a running generator applies the edit before its next generation
+        boolean alive = !densityIndex.isAlive(row, column);
+        submitEdit(EditCommand.setAlive(row, column, alive), () -> showCell(row, column, alive),
+                snapshot -> showCell(row, column, snapshot.isAlive(row, column)));
+        renderer.drawCell(row, column);
+        renderer.present(canvas);
+    }
 
+    /**
+     * Applies the region operations to the selection: delete clears it, F fills it, shortcut C copies, X cuts and V
+     * pastes at its upper left cell, R rotates and M mirrors the copied beings, escape drops the selection.
+     */
+    private void onKeyPressed(KeyEvent keyEvent)
+    {
+        KeyCode code = keyEvent.getCode();
+        if (code == KeyCode.R)
+            clipboard = clipboard.transform(Transform.ROTATE_CLOCKWISE);
+        else if (code == KeyCode.M)
+            clipboard = clipboard.transform(Transform.FLIP_HORIZONTAL);
+        else if (code == KeyCode.ESCAPE)
+            selection = null;
+        else if (selection == null)
+            return;
+        else if (code == KeyCode.DELETE || code == KeyCode.BACK_SPACE)
+            clearSelection(selection);
+        else if (code == KeyCode.F)
+            fillSelection(selection);
+        else if (code == KeyCode.C && keyEvent.isShortcutDown())
+            clipboard = renderedSnapshot.copy(selection);
+        else if (code == KeyCode.X && keyEvent.isShortcutDown())
+        {
+            clipboard = renderedSnapshot.copy(selection);
+            clearSelection(selection);
+        } else if (code == KeyCode.V && keyEvent.isShortcutDown())
+            paste(clipboard, selection.getRow(), selection.getColumn());
+        else
+            return;
+
+        keyEvent.consume();
+        updateSelectionLabel();
     }
 
-    private void drawBeings()
+    private void clearSelection(Selection selection)
     {
-        gameOfLife.getBeings().forEach(this::drawBeing);
+        submitEdit(EditCommand.clear(selection), () -> showSelection(selection, false),
+                snapshot -> settleSelection(selection, snapshot));
+        redraw();
     }
 
-    private void drawBeing(double x, double y, Paint color)
+    private void fillSelection(Selection selection)
     {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        gc.setFill(color);
+        submitEdit(EditCommand.fill(selection), () -> showSelection(selection, true),
+                snapshot -> settleSelection(selection, snapshot));
+        redraw();
+    }
 
-        x = x - x % beingWidth + 1;
-        y = y - y % beingHeight + 1;
+    private void showSelection(Selection selection, boolean alive)
+    {
+        for (int i = 0; i < selection.getRows(); i++)
+        {
+            for (int j = 0; j < selection.getColumns(); j++)
+            {
+                showCell(selection.getRow() + i, selection.getColumn() + j, alive);
+            }
+        }
+    }
 
-        gc.fillRect(x, y, beingWidth - 1, beingHeight - 1);
+    private void settleSelection(Selection selection, GenerationSnapshot snapshot)
+    {
+        for (int i = 0; i < selection.getRows(); i++)
+        {
+            for (int j = 0; j < selection.getColumns(); j++)
+            {
+                int row = selection.getRow() + i;
+                int column = selection.getColumn() + j;
+                showCell(row, column, snapshot.isAlive(row, column));
+            }
+        }
+    }
+
+    private void paste(CellBlock block, int row, int column)
+    {
+        long[] cells = block.translate(row, column);
+        submitEdit(EditCommand.paste(block, row, column, Transform.IDENTITY), () ->
+        {
+            for (long cell : cells)
+            {
+                densityIndex.add(Cells.row(cell), Cells.column(cell));
+            }
+        }, snapshot ->
+        {
+            for (long cell : cells)
+            {
+                int cellRow = Cells.row(cell);
+                int cellColumn = Cells.column(cell);
+                showCell(cellRow, cellColumn, snapshot.isAlive(cellRow, cellColumn));
+            }
+        });
+        redraw();
     }
 
-    private void drawBeing(Being being)
+    private void updateSelectionLabel()
     {
-        double y = being.getRow() * beingHeight;
-        double x = being.getColumn() * beingWidth;
-        drawBeing(x, y, BEING_COLOR);
+        String text = selection != null
+                      ? "selection " + selection
+                      : "";
+        if (clipboard.getPopulation() > 0)
+            text += (text.isEmpty()
+                     ? ""
+                     : ", ") + "clipboard " + clipboard.getRows() + "x" + clipboard.getColumns();
+        lblSelection.setText(text);
     }
 
-    private void addBeing(MouseEvent mouseEvent)
+    /**
+     * An edit, that is shown on the canvas until the generator applied it.
+     */
+    private static final class ShownEdit
     {
-        double x = mouseEvent.getX();
-        double y = mouseEvent.getY();
-        boolean isPresent = gameOfLife.toggleBeing((int) (y / beingHeight), (int) (x / beingWidth));
-        Paint color = isPresent
-                      ? BEING_COLOR
-                      : CANVAS_BACKGROUND;
-        drawBeing(x, y, color);
+        final long sequence;
+        final Runnable show;
+        final Consumer<GenerationSnapshot> settle;
+
+        ShownEdit(long sequence, Runnable show, Consumer<GenerationSnapshot> settle)
+        {
+            this.sequence = sequence;
+            this.show = show;
+            this.settle = settle;
+        }
     }
 
     private static Label createLabel(String text)
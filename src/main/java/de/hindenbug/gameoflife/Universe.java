@@ -0,0 +1,251 @@
+package de.hindenbug.gameoflife;
+
+import java.util.Set;
+
+/**
+ * A <code>Universe</code> contains the operations every engine of conway's game of life supports. The
+ * {@linkplain GameOfLifeService} and the {@linkplain UI} only drive a universe through these operations, so the
+ * engine may be exchanged without touching them.
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 12:35
+ */
+public interface Universe
+{
+    /**
+     * Generates the next generation according to the {@linkplain #getRule() rule} of this universe.
+     */
+    void generateNextGeneration();
+
+    /**
+     * Add a new {@linkplain Being} to this universe.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     */
+    void addBeing(int row, int column);
+
+    /**
+     * Adds a new {@linkplain Being} to this universe if none exists on given row and column, otherwise it is
+     * removed.
+     *
+     * @param row    row of the being, may be less than zero
+     * @param column column of the being, may be less than zero
+     * @return <code>true</code> if the being was added, <code>false</code> otherwise
+     */
+    boolean toggleBeing(int row, int column);
+
+    /**
+     * @param row    row of the cell, may be less than zero
+     * @param column column of the cell, may be less than zero
+     * @return <code>true</code> if a being lives on given row and column
+     */
+    boolean isAlive(int row, int column);
+
+    /**
+     * Returns a view of all living beings of this universe. Changes of the returned set are written through to
+     * this universe.
+     *
+     * @return view of all living beings
+     */
+    Set<Being> getBeings();
+
+    /**
+     * @return number of living beings
+     */
+    int getPopulation();
+
+    /**
+     * Removes all beings of this universe.
+     */
+    void clear();
+
+    /**
+     * @return rule of this universe, {@linkplain Rule#CONWAY} by default
+     */
+    Rule getRule();
+
+    /**
+     * Sets the rule of the following generations, the beings of this universe are kept.
+     *
+     * @param rule rule of the universe, not null
+     */
+    void setRule(Rule rule);
+
+    /**
+     * Adds many beings at once, for example while a pattern is loaded. Each being is given as packed cell, the row
+     * is stored inside the upper 32 bits and the column inside the lower 32 bits of the long. The default
+     * implementation adds one being after the other, engines should override it to insert the cells straight into
+     * their storage.
+     *
+     * @param cells packed cells of the beings, the order of the cells may be changed by this method
+     * @param count number of cells inside the array to add
+     */
+    default void addCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            addBeing(Cells.row(cells[i]), Cells.column(cells[i]));
+        }
+    }
+
+    /**
+     * Removes many beings at once. Each being is given as packed cell like in {@linkplain #addCells(long[], int)},
+     * cells without a being are ignored. The default implementation toggles one being after the other.
+     *
+     * @param cells packed cells of the beings to remove
+     * @param count number of cells inside the array to remove
+     */
+    default void removeCells(long[] cells, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (isAlive(Cells.row(cells[i]), Cells.column(cells[i])))
+                toggleBeing(Cells.row(cells[i]), Cells.column(cells[i]));
+        }
+    }
+
+    /**
+     * Adds a being to every cell of given selection. The default implementation adds the cells row by row with
+     * {@linkplain #addCells(long[], int)}.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    default void fill(Selection selection)
+    {
+        if (selection.isEmpty())
+            return;
+
+        long[] cells = new long[selection.getColumns()];
+        for (int i = 0; i < selection.getRows(); i++)
+        {
+            for (int j = 0; j < cells.length; j++)
+            {
+                cells[j] = Cells.pack(selection.getRow() + i, selection.getColumn() + j);
+            }
+            addCells(cells, cells.length);
+        }
+    }
+
+    /**
+     * Removes all beings of given selection. The default implementation copies the selection and removes the
+     * copied beings with {@linkplain #removeCells(long[], int)}.
+     *
+     * @param selection rectangle of cells, not null
+     */
+    default void clear(Selection selection)
+    {
+        long[] cells = copy(selection).translate(selection.getRow(), selection.getColumn());
+        removeCells(cells, cells.length);
+    }
+
+    /**
+     * Copies the beings of given selection. The default implementation looks at every cell of the selection or at
+     * every being of this universe, whatever is less.
+     *
+     * @param selection rectangle of cells, not null
+     * @return beings of the selection relative to its upper left cell
+     */
+    default CellBlock copy(Selection selection)
+    {
+        LongList inside = new LongList();
+        if (selection.getArea() <= getPopulation())
+        {
+            for (int i = 0; i < selection.getRows(); i++)
+            {
+                for (int j = 0; j < selection.getColumns(); j++)
+                {
+                    if (isAlive(selection.getRow() + i, selection.getColumn() + j))
+                        inside.add(Cells.pack(i, j));
+                }
+            }
+        } else
+        {
+            for (long cell : Cells.toArray(getBeings()))
+            {
+                if (selection.contains(Cells.row(cell), Cells.column(cell)))
+                    inside.add(Cells.pack(Cells.row(cell) - selection.getRow(),
+                            Cells.column(cell) - selection.getColumn()));
+            }
+        }
+        return new CellBlock(selection.getRows(), selection.getColumns(), inside.toArray());
+    }
+
+    /**
+     * Adds the beings of a block to this universe. Beings already living inside the covered cells are kept.
+     *
+     * @param block     beings to add, not null
+     * @param row       row of the upper left cell of the transformed block
+     * @param column    column of the upper left cell of the transformed block
+     * @param transform rotation or reflection of the block, not null
+     */
+    default void paste(CellBlock block, int row, int column, Transform transform)
+    {
+        long[] cells = block.transform(transform).translate(row, column);
+        addCells(cells, cells.length);
+    }
+
+    /**
+     * Returns the zobrist hash of the current generation: the exclusive or of a 64 bit key per living being. Equal
+     * generations have equal hashes, so repeated generations are found by comparing hashes. The default
+     * implementation looks at every being, engines should update the hash with each birth and death.
+     *
+     * @return hash of the current generation
+     */
+    default long stateHash()
+    {
+        long hash = 0;
+        for (long cell : Cells.toArray(getBeings()))
+        {
+            hash ^= Cells.zobrist(cell);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current generation. The default implementation copies all beings, which
+     * costs time and memory proportional to the population. The {@linkplain GameOfLifeService} takes a snapshot
+     * after every generation, so engines that are able to share their storage should override it, like the sparse,
+     * tiled and HashLife engines do. Only the {@linkplain DenseGameOfLife} pays for this copy in each generation.
+     *
+     * @param generation number of the current generation
+     * @return snapshot of the current generation
+     */
+    default GenerationSnapshot snapshot(long generation)
+    {
+        return GenerationSnapshot.copyOf(generation, getBeings());
+    }
+
+    /**
+     * Returns the beings that were born and died inside the last call of {@linkplain #generateNextGeneration()}.
+     * The delta must be requested before the next generation is generated.
+     *
+     * @param generation number of the current generation
+     * @return delta of the last generation or <code>null</code> if this engine does not record deltas or this
+     * universe was changed after the last generation
+     */
+    default GenerationDelta getLastDelta(long generation)
+    {
+        return null;
+    }
+
+    /**
+     * Sets the number of threads used to calculate a generation. The default implementation calculates every
+     * generation on the calling thread and ignores the number.
+     *
+     * @param parallelism number of threads, greater than zero
+     */
+    default void setParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+    }
+
+    /**
+     * @return number of threads used to calculate a generation
+     */
+    default int getParallelism()
+    {
+        return 1;
+    }
+}
@@ -0,0 +1,176 @@
+package de.hindenbug.gameoflife;
+
+/**
+ * <p>A <code>Viewport</code> defines which part of a universe is visible on the canvas. Its origin is the cell in
+ * the upper left corner, the universe itself is unbounded, so the origin may be negative.</p>
+ * <p>On level <code>0</code> each being is drawn as a rectangle of the being width and height. On higher levels
+ * each pixel shows a block of 2<sup>level</sup> x 2<sup>level</sup> cells (see {@linkplain DensityIndex}).</p>
+ *
+ * @author Nils Verheyen
+ * @since 18.10.26 18:35
+ */
+final class Viewport
+{
+    static final int MAX_BEING_SIZE = 99;
+
+    private int row;
+    private int column;
+    private int beingWidth;
+    private int beingHeight;
+    private int level;
+
+    Viewport(int beingWidth, int beingHeight)
+    {
+        setBeingSize(beingWidth, beingHeight);
+    }
+
+    int getRow()
+    {
+        return row;
+    }
+
+    int getColumn()
+    {
+        return column;
+    }
+
+    void setOrigin(int row, int column)
+    {
+        this.row = row;
+        this.column = column;
+    }
+
+    int getBeingWidth()
+    {
+        return beingWidth;
+    }
+
+    int getBeingHeight()
+    {
+        return beingHeight;
+    }
+
+    /**
+     * Changes the size of a being. Sizes less than one are treated as one.
+     */
+    void setBeingSize(int beingWidth, int beingHeight)
+    {
+        this.beingWidth = Math.max(1, Math.min(MAX_BEING_SIZE, beingWidth));
+        this.beingHeight = Math.max(1, Math.min(MAX_BEING_SIZE, beingHeight));
+    }
+
+    int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @return width of a block on the canvas in pixels
+     */
+    int getBlockWidth()
+    {
+        return level == 0
+               ? beingWidth
+               : 1;
+    }
+
+    /**
+     * @return height of a block on the canvas in pixels
+     */
+    int getBlockHeight()
+    {
+        return level == 0
+               ? beingHeight
+               : 1;
+    }
+
+    /**
+     * @return row of the block in the upper left corner on the current level
+     */
+    int getBlockRow()
+    {
+        return row >> level;
+    }
+
+    /**
+     * @return column of the block in the upper left corner on the current level
+     */
+    int getBlockColumn()
+    {
+        return column >> level;
+    }
+
+    /**
+     * Returns the number of rows, that fit into given number of pixels. Negative pixels result in negative rows.
+     */
+    int rowsIn(int pixels)
+    {
+        return Math.floorDiv(pixels, getBlockHeight()) << level;
+    }
+
+    /**
+     * Returns the number of columns, that fit into given number of pixels. Negative pixels result in negative
+     * columns.
+     */
+    int columnsIn(int pixels)
+    {
+        return Math.floorDiv(pixels, getBlockWidth()) << level;
+    }
+
+    /**
+     * @return row of the cell at given position on the canvas
+     */
+    int rowAt(double y)
+    {
+        return (getBlockRow() << level) + rowsIn((int) Math.floor(y));
+    }
+
+    /**
+     * @return column of the cell at given position on the canvas
+     */
+    int columnAt(double x)
+    {
+        return (getBlockColumn() << level) + columnsIn((int) Math.floor(x));
+    }
+
+    /**
+     * Doubles the size of the beings or halves the number of cells per pixel. The cell at given position stays at
+     * its place.
+     *
+     * @param x horizontal position on the canvas
+     * @param y vertical position on the canvas
+     */
+    void zoomIn(double x, double y)
+    {
+        int anchorRow = rowAt(y);
+        int anchorColumn = columnAt(x);
+        if (level > 0)
+            level--;
+        else
+            setBeingSize(beingWidth * 2, beingHeight * 2);
+        anchor(anchorRow, anchorColumn, x, y);
+    }
+
+    /**
+     * Halves the size of the beings or, if a being is already one pixel, doubles the number of cells per pixel up
+     * to {@linkplain DensityIndex#MAX_LEVEL}. The cell at given position stays at its place.
+     *
+     * @param x horizontal position on the canvas
+     * @param y vertical position on the canvas
+     */
+    void zoomOut(double x, double y)
+    {
+        int anchorRow = rowAt(y);
+        int anchorColumn = columnAt(x);
+        if (beingWidth > 1 || beingHeight > 1)
+            setBeingSize(beingWidth / 2, beingHeight / 2);
+        else if (level < DensityIndex.MAX_LEVEL)
+            level++;
+        anchor(anchorRow, anchorColumn, x, y);
+    }
+
+    private void anchor(int anchorRow, int anchorColumn, double x, double y)
+    {
+        setOrigin(anchorRow - rowsIn((int) Math.floor(y)), anchorColumn - columnsIn((int) Math.floor(x)));
+    }
+}
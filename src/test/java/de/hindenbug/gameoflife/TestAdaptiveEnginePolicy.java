@@ -0,0 +1,123 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 12:27
+ */
+public class TestAdaptiveEnginePolicy
+{
+    @Test
+    public void testDenseSoupMovesToTiledEngine()
+    {
+        GameOfLife adaptive = new GameOfLife(GameOfLifeSample.randomSoup(200, .5, 11));
+        SparseGameOfLife expected = new SparseGameOfLife(GameOfLifeSample.randomSoup(200, .5, 11));
+        Assert.assertEquals(adaptive.getEngine(), Engine.SPARSE);
+
+        // the loaded soup is moved before its first generation
+        for (int generation = 1; generation <= 3 * GameOfLife.SAMPLE_INTERVAL; generation++)
+        {
+            adaptive.generateNextGeneration();
+            expected.generateNextGeneration();
+            Assert.assertEquals(adaptive.getEngine(), Engine.TILED);
+            Assert.assertEquals(adaptive.getLastDelta(generation).getBirthCount(),
+                    expected.getLastDelta(generation).getBirthCount());
+        }
+        Assert.assertEquals(adaptive.getMigrations(), 1);
+        Assert.assertEquals(adaptive.getBeings(), expected.getBeings());
+        Assert.assertEquals(adaptive.stateHash(), expected.stateHash());
+    }
+
+    @Test
+    public void testParallelismIsKeptAcrossMigrations()
+    {
+        GameOfLife adaptive = new GameOfLife(GameOfLifeSample.randomSoup(300, .5, 7));
+        SparseGameOfLife expected = new SparseGameOfLife(GameOfLifeSample.randomSoup(300, .5, 7));
+        adaptive.setParallelism(4);
+
+        for (int generation = 1; generation <= GameOfLife.SAMPLE_INTERVAL; generation++)
+        {
+            adaptive.generateNextGeneration();
+            expected.generateNextGeneration();
+        }
+        Assert.assertEquals(adaptive.getEngine(), Engine.TILED);
+        Assert.assertEquals(adaptive.getParallelism(), 4);
+        Assert.assertEquals(adaptive.getBeings(), expected.getBeings());
+        adaptive.setParallelism(1);
+    }
+
+    @Test
+    public void testPeriodicUniverseMovesToHashLife()
+    {
+        GameOfLife adaptive = new GameOfLife();
+        // 400 blinkers with a period of two
+        for (int row = 0; row < 20; row++)
+        {
+            for (int column = 0; column < 20; column++)
+            {
+                adaptive.paste(CellBlock.of(new long[]{Cells.pack(0, 0), Cells.pack(0, 1), Cells.pack(0, 2)}, 3),
+                        row * 5, column * 5, Transform.IDENTITY);
+            }
+        }
+        Metrics metrics = new Metrics();
+        adaptive.setMetrics(metrics);
+
+        adaptive.generateNextGeneration();
+        Assert.assertEquals(adaptive.getEngine(), Engine.TILED);
+        for (int generation = 1; generation < 3 * GameOfLife.SAMPLE_INTERVAL; generation++)
+        {
+            int migrations = adaptive.getMigrations();
+            adaptive.generateNextGeneration();
+            if (adaptive.getMigrations() != migrations)
+                Assert.assertNull(adaptive.getLastDelta(generation));
+        }
+        Assert.assertEquals(adaptive.getEngine(), Engine.HASHLIFE);
+        Assert.assertEquals(metrics.getEngine(), Engine.HASHLIFE.name());
+        Assert.assertEquals(metrics.getMigrationTime().getCount(), 2);
+
+        // a single being dies right away, the universe repeats its generations again
+        adaptive.addBeing(500, 500);
+        for (int generation = 0; generation < 4 * GameOfLife.SAMPLE_INTERVAL; generation++)
+        {
+            adaptive.generateNextGeneration();
+        }
+        Assert.assertEquals(adaptive.getEngine(), Engine.HASHLIFE);
+        Assert.assertEquals(adaptive.getMigrations(), 2);
+        Assert.assertEquals(adaptive.getPopulation(), 1200);
+        Assert.assertTrue(adaptive.isAlive(0, 1));
+        Assert.assertTrue(adaptive.getBeings().contains(new Being(0, 2)));
+    }
+
+    @Test
+    public void testEngineChangesAfterConfirmations()
+    {
+        AdaptiveEnginePolicy policy = new AdaptiveEnginePolicy(100, .1, .05, 2);
+        EngineStatistics dense = new EngineStatistics(64, 1000, 2000, .5, 0, false);
+        EngineStatistics scattered = new EngineStatistics(64, 1000, 1_000_000, .5, 0, false);
+        EngineStatistics calm = new EngineStatistics(64, 1000, 1_000_000, .01, 0, false);
+        EngineStatistics small = new EngineStatistics(64, 10, 20, 0, 3, false);
+
+        Assert.assertEquals(policy.choose(Engine.SPARSE, dense), Engine.SPARSE);
+        Assert.assertEquals(policy.choose(Engine.SPARSE, dense), Engine.TILED);
+        Assert.assertEquals(policy.choose(Engine.TILED, scattered), Engine.TILED);
+        Assert.assertEquals(policy.choose(Engine.TILED, calm), Engine.TILED);
+        Assert.assertEquals(policy.choose(Engine.TILED, small), Engine.TILED);
+        Assert.assertEquals(policy.choose(Engine.TILED, small), Engine.SPARSE);
+
+        // the tiled engine is kept until the density clearly falls below the threshold
+        EngineStatistics thinned = new EngineStatistics(64, 1000, 15000, .5, 0, false);
+        Assert.assertEquals(policy.prefer(Engine.TILED, thinned), Engine.TILED);
+        Assert.assertEquals(policy.prefer(Engine.SPARSE, thinned), Engine.SPARSE);
+        Assert.assertEquals(policy.prefer(Engine.SPARSE, new EngineStatistics(64, 1000, 15000, Double.NaN, 4, false)),
+                Engine.HASHLIFE);
+
+        // a loaded pattern moves at once, a single edit does not
+        AdaptiveEnginePolicy loading = new AdaptiveEnginePolicy(100, .1, .05, 2);
+        Assert.assertEquals(loading.choose(Engine.SPARSE, new EngineStatistics(0, 1000, 2000, Double.NaN, 0, true)),
+                Engine.TILED);
+        Assert.assertEquals(loading.choose(Engine.TILED, new EngineStatistics(9, 1001, 1_000_000, Double.NaN, 0,
+                true)), Engine.TILED);
+    }
+}
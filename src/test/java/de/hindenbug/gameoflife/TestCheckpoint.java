@@ -0,0 +1,80 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 21:30
+ */
+public class TestCheckpoint
+{
+    @Test
+    public void testWriteAndRead() throws IOException
+    {
+        // a dense soup uses bitmap tiles, the scattered beings run length encoded tiles
+        Set<Being> beings = new HashSet<>(GameOfLifeSample.randomSoup(150, .4, 17));
+        beings.add(new Being(-1_000_000, 2_000_000));
+        beings.add(new Being(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        beings.add(new Being(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        beings.add(new Being(-65, -64));
+        GameOfLife gameOfLife = new GameOfLife(beings);
+
+        Path path = Files.createTempFile("gameoflife", ".golc");
+        try
+        {
+            Checkpoint written = Checkpoint.write(path, gameOfLife, 12345);
+            Assert.assertEquals(written.getPopulation(), beings.size());
+            Assert.assertEquals(written.getMinRow(), Integer.MIN_VALUE);
+            Assert.assertEquals(written.getMaxColumn(), Integer.MAX_VALUE);
+
+            TiledGameOfLife restored = new TiledGameOfLife();
+            restored.addBeing(3, 3);
+            Checkpoint read = Checkpoint.read(path, restored);
+            Assert.assertEquals(read.getGeneration(), 12345);
+            Assert.assertEquals(read.getRule(), "B3/S23");
+            Assert.assertEquals(new HashSet<>(restored.getBeings()), beings);
+        } finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testCorruptedCheckpointIsRejected() throws IOException
+    {
+        Path path = Files.createTempFile("gameoflife", ".golc");
+        try
+        {
+            Checkpoint.write(path, new GameOfLife(GameOfLifeSample.gosperGliderGun()), 7);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+            {
+                channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() / 2);
+            }
+
+            GameOfLife gameOfLife = new GameOfLife(GameOfLifeSample.blinker());
+            try
+            {
+                Checkpoint.read(path, gameOfLife);
+                Assert.fail("corrupted checkpoint was read");
+            } catch (IOException e)
+            {
+                Assert.assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+            }
+            // the universe is not touched
+            Assert.assertEquals(gameOfLife.getBeings(), GameOfLifeSample.blinker());
+        } finally
+        {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 21:15
+ */
+public class TestCycleDetector
+{
+    @Test
+    public void testStillLife()
+    {
+        GameOfLife block = new GameOfLife();
+        block.addBeing(0, 0);
+        block.addBeing(0, 1);
+        block.addBeing(1, 0);
+        block.addBeing(1, 1);
+        Assert.assertEquals(findPeriod(block, 10), 1);
+    }
+
+    @Test
+    public void testOscillator()
+    {
+        Assert.assertEquals(findPeriod(new GameOfLife(GameOfLifeSample.blinker()), 10), 2);
+    }
+
+    @Test
+    public void testPatternsWithoutCycle()
+    {
+        GameOfLife glider = new GameOfLife();
+        glider.addBeing(0, 1);
+        glider.addBeing(1, 2);
+        glider.addBeing(2, 0);
+        glider.addBeing(2, 1);
+        glider.addBeing(2, 2);
+        Assert.assertEquals(findPeriod(glider, 200), 0);
+        Assert.assertEquals(findPeriod(new GameOfLife(GameOfLifeSample.gosperGliderGun()), 200), 0);
+    }
+
+    @Test
+    public void testOldGenerationsAreForgotten()
+    {
+        CycleDetector detector = new CycleDetector(2);
+        Assert.assertEquals(detector.update(1, 11, 1), 0);
+        Assert.assertEquals(detector.update(2, 12, 1), 0);
+        Assert.assertEquals(detector.update(3, 13, 1), 0);
+        Assert.assertEquals(detector.update(4, 11, 1), 0);
+        Assert.assertEquals(detector.update(5, 13, 1), 2);
+        Assert.assertEquals(detector.update(6, 13, 2), 0);
+    }
+
+    @Test
+    public void testIncrementalHashEqualsFullHash()
+    {
+        Universe[] universes = {new GameOfLife(), new DenseGameOfLife(128, 128), new TiledGameOfLife(),
+                new HashLifeGameOfLife()};
+        for (Universe universe : universes)
+        {
+            GameOfLifeSample.rPentomino().forEach(being -> universe.addBeing(being.getRow() + 60,
+                    being.getColumn() + 60));
+            universe.toggleBeing(3, 3);
+            universe.toggleBeing(3, 3);
+            universe.getBeings().remove(new Being(61, 61));
+            for (int generation = 0; generation < 100; generation++)
+            {
+                universe.generateNextGeneration();
+                Assert.assertEquals(universe.stateHash(), fullHash(universe), universe.getClass().getSimpleName());
+            }
+            Assert.assertEquals(universe.stateHash(), universes[0].stateHash());
+            universe.clear();
+            Assert.assertEquals(universe.stateHash(), 0L);
+        }
+    }
+
+    private static int findPeriod(Universe universe, int generations)
+    {
+        CycleDetector detector = new CycleDetector();
+        for (int generation = 1; generation <= generations; generation++)
+        {
+            universe.generateNextGeneration();
+            int period = detector.update(generation, universe.stateHash(), universe.getPopulation());
+            if (period > 0)
+                return period;
+        }
+        return 0;
+    }
+
+    private static long fullHash(Universe universe)
+    {
+        long hash = 0;
+        for (long cell : Cells.toArray(universe.getBeings()))
+        {
+            hash ^= Cells.zobrist(cell);
+        }
+        return hash;
+    }
+}
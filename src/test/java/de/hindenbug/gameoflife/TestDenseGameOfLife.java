@@ -0,0 +1,110 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 13:30
+ */
+public class TestDenseGameOfLife
+{
+    @Test
+    public void testSoupMatchesGameOfLife()
+    {
+        DenseGameOfLife dense = new DenseGameOfLife(200, 150);
+        GameOfLife gameOfLife = new GameOfLife();
+
+        Random random = new Random(7);
+        for (int row = 80; row < 120; row++)
+        {
+            for (int column = 55; column < 95; column++)
+            {
+                if (random.nextInt(3) == 0)
+                {
+                    dense.addBeing(row, column);
+                    gameOfLife.addBeing(row, column);
+                }
+            }
+        }
+
+        for (int i = 0; i < 30; i++)
+        {
+            dense.generateNextGeneration();
+            gameOfLife.generateNextGeneration();
+            Assert.assertEquals(dense.getBeings(), gameOfLife.getBeings(), "generation " + i);
+            Assert.assertEquals(dense.getPopulation(), gameOfLife.getPopulation());
+        }
+    }
+
+    @Test
+    public void testGliderWrapsAroundTorus()
+    {
+        DenseGameOfLife dense = new DenseGameOfLife(10, 70, DenseGameOfLife.Border.TOROIDAL);
+        dense.addBeing(0, 1);
+        dense.addBeing(1, 2);
+        dense.addBeing(2, 0);
+        dense.addBeing(2, 1);
+        dense.addBeing(2, 2);
+        Set<Being> initial = new HashSet<>(dense.getBeings());
+
+        // a glider moves one cell diagonally every four generations
+        for (int i = 0; i < 4 * 70; i++)
+        {
+            dense.generateNextGeneration();
+        }
+
+        Assert.assertEquals(dense.getBeings(), initial);
+    }
+
+    @Test
+    public void testParallelMatchesSequential()
+    {
+        int maxParallelism = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism++)
+        {
+            DenseGameOfLife sequential = new DenseGameOfLife(300, 200, DenseGameOfLife.Border.TOROIDAL);
+            DenseGameOfLife parallel = new DenseGameOfLife(300, 200, DenseGameOfLife.Border.TOROIDAL);
+            parallel.setParallelism(parallelism);
+
+            Random random = new Random(13);
+            for (int row = 0; row < 300; row++)
+            {
+                for (int column = 0; column < 200; column++)
+                {
+                    if (random.nextBoolean())
+                    {
+                        sequential.addBeing(row, column);
+                        parallel.addBeing(row, column);
+                    }
+                }
+            }
+
+            for (int generation = 1; generation <= 20; generation++)
+            {
+                sequential.generateNextGeneration();
+                parallel.generateNextGeneration();
+                String message = parallelism + " threads, generation " + generation;
+                Assert.assertEquals(parallel.stateHash(), sequential.stateHash(), message);
+                Assert.assertEquals(parallel.getPopulation(), sequential.getPopulation(), message);
+            }
+            Assert.assertEquals(parallel.getBeings(), sequential.getBeings(), parallelism + " threads");
+            parallel.setParallelism(1);
+        }
+    }
+
+    @Test
+    public void testDeadBorderIgnoresOutsideBeings()
+    {
+        DenseGameOfLife dense = new DenseGameOfLife(4, 4);
+        dense.addBeing(-1, 2);
+        dense.addBeing(2, 4);
+
+        Assert.assertFalse(dense.toggleBeing(4, 0));
+        Assert.assertEquals(dense.getPopulation(), 0);
+    }
+}
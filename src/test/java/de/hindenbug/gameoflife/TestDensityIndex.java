@@ -0,0 +1,69 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 18:50
+ */
+public class TestDensityIndex
+{
+    @Test
+    public void testCountsFollowDeltas()
+    {
+        // glider at negative coordinates, that crosses the origin
+        GameOfLife gameOfLife = new GameOfLife();
+        gameOfLife.addBeing(-1, -2);
+        gameOfLife.addBeing(-1, -1);
+        gameOfLife.addBeing(-1, 0);
+        gameOfLife.addBeing(-2, 0);
+        gameOfLife.addBeing(-3, -1);
+
+        DensityIndex index = new DensityIndex();
+        index.reset(gameOfLife.getBeings());
+        for (int generation = 1; generation <= 200; generation++)
+        {
+            gameOfLife.generateNextGeneration();
+            index.apply(gameOfLife.getLastDelta(generation));
+            assertCounts(index, gameOfLife);
+        }
+    }
+
+    @Test
+    public void testRemovedBlocksAreEmpty()
+    {
+        DensityIndex index = new DensityIndex();
+        Assert.assertTrue(index.add(5, -7));
+        Assert.assertFalse(index.add(5, -7));
+        Assert.assertEquals(index.count(DensityIndex.MAX_LEVEL, 0, -1), 1);
+
+        Assert.assertTrue(index.remove(5, -7));
+        Assert.assertFalse(index.remove(5, -7));
+        for (int level = 0; level <= DensityIndex.MAX_LEVEL; level++)
+        {
+            Assert.assertEquals(index.count(level, 5 >> level, -7 >> level), 0);
+        }
+        Assert.assertEquals(index.getPopulation(), 0);
+    }
+
+    private static void assertCounts(DensityIndex index, GameOfLife gameOfLife)
+    {
+        Assert.assertEquals(index.getPopulation(), gameOfLife.getPopulation());
+        for (Being being : gameOfLife.getBeings())
+        {
+            for (int level = 0; level <= DensityIndex.MAX_LEVEL; level++)
+            {
+                int blockRow = being.getRow() >> level;
+                int blockColumn = being.getColumn() >> level;
+                int expected = 0;
+                for (Being other : gameOfLife.getBeings())
+                {
+                    if (other.getRow() >> level == blockRow && other.getColumn() >> level == blockColumn)
+                        expected++;
+                }
+                Assert.assertEquals(index.count(level, blockRow, blockColumn), expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 23:40
+ */
+public class TestEditQueue
+{
+    @Test
+    public void testEditIsPublishedWhileIdle()
+    {
+        GameOfLifeService service = new GameOfLifeService(new GameOfLife());
+
+        long sequence = service.submit(EditCommand.setAlive(3, 4, true));
+        Assert.assertEquals(sequence, 1);
+        Assert.assertTrue(service.getSnapshot().isAlive(3, 4));
+        Assert.assertEquals(service.getSnapshot().getLastEdit(), 1);
+        Assert.assertNull(service.getLastDelta());
+    }
+
+    @Test
+    public void testEditsOfManyThreadsAreAppliedInOrder() throws InterruptedException
+    {
+        Semaphore sync = new Semaphore(1);
+        GameOfLifeService service = new GameOfLifeService(new GameOfLife(), 1, sync);
+
+        // while the universe is locked all edits are queued
+        sync.acquire();
+        List<Thread> editors = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            int row = t;
+            Thread editor = new Thread(() ->
+            {
+                for (int column = 0; column < 1000; column++)
+                {
+                    service.submit(EditCommand.setAlive(row, column, true));
+                    // each thread removes every second being again, which requires the order of its edits
+                    if (column % 2 == 1)
+                        service.submit(EditCommand.setAlive(row, column, false));
+                }
+            });
+            editors.add(editor);
+            editor.start();
+        }
+        for (Thread editor : editors)
+        {
+            editor.join();
+        }
+        Assert.assertEquals(service.getSnapshot().getPopulation(), 0);
+        sync.release();
+
+        long last = service.submit(EditCommand.fill(new Selection(10, 0, 1, 10)));
+        Assert.assertEquals(last, 4 * 1500 + 1);
+        GenerationSnapshot snapshot = service.getSnapshot();
+        Assert.assertEquals(snapshot.getLastEdit(), last);
+        Assert.assertEquals(snapshot.getPopulation(), 4 * 500 + 10);
+        Assert.assertTrue(snapshot.isAlive(2, 998));
+        Assert.assertFalse(snapshot.isAlive(2, 999));
+    }
+
+    @Test
+    public void testStepPublishesTheNextGeneration() throws InterruptedException
+    {
+        GameOfLifeService service = new GameOfLifeService(new GameOfLife(GameOfLifeSample.blinker()));
+
+        for (int i = 1; i <= 3; i++)
+        {
+            GenerationSnapshot snapshot = service.step();
+            Assert.assertEquals(snapshot.getGeneration(), i);
+            Assert.assertSame(service.getSnapshot(), snapshot);
+            GenerationDelta delta = service.getLastDelta();
+            Assert.assertEquals(delta.getGeneration(), i);
+            Assert.assertEquals(delta.getBirthCount(), 2);
+            Assert.assertEquals(delta.getDeathCount(), 2);
+        }
+        Assert.assertEquals(service.getGeneration(), 3);
+        Assert.assertTrue(service.getSnapshot().isAlive(0, 1));
+        Assert.assertEquals(service.getHistory().getOldestGeneration(), 0);
+        Assert.assertEquals(service.getHistory().getLatestGeneration(), 3);
+        Assert.assertEquals(service.getHistory().getKeyframes(), 1);
+    }
+
+    @Test
+    public void testStepAppliesQueuedEditsFirst() throws InterruptedException
+    {
+        Semaphore sync = new Semaphore(1);
+        GameOfLifeService service = new GameOfLifeService(new GameOfLife(), 1, sync);
+
+        sync.acquire();
+        long sequence = service.submit(EditCommand.fill(new Selection(0, 0, 1, 3)));
+        sync.release();
+
+        GenerationSnapshot snapshot = service.step();
+        Assert.assertEquals(snapshot.getGeneration(), 1);
+        Assert.assertEquals(snapshot.getLastEdit(), sequence);
+        Assert.assertEquals(snapshot.getPopulation(), 3);
+        Assert.assertTrue(snapshot.isAlive(-1, 1));
+        // the delta of the step misses the edit
+        Assert.assertNull(service.getLastDelta());
+    }
+}
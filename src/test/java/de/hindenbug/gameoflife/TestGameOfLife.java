@@ -3,6 +3,7 @@ package de.hindenbug.gameoflife;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -44,6 +45,96 @@ public class TestGameOfLife
         Assert.assertEquals(initialBeings, expected);
     }
 
+    @Test
+    public void testGlider()
+    {
+        GameOfLife gameOfLife = new GameOfLife(beings(new Being(0, 1),
+                new Being(1, 2),
+                new Being(2, 0),
+                new Being(2, 1),
+                new Being(2, 2)));
+
+        for (int i = 0; i < 4; i++)
+        {
+            gameOfLife.generateNextGeneration();
+        }
+
+        Set<Being> expected = beings(new Being(1, 2),
+                new Being(2, 3),
+                new Being(3, 1),
+                new Being(3, 2),
+                new Being(3, 3));
+        Assert.assertEquals(gameOfLife.getBeings(), expected);
+    }
+
+    @Test
+    public void testSnapshotIsNotChanged()
+    {
+        GameOfLife gameOfLife = new GameOfLife();
+        gameOfLife.addBeing(3, 3);
+        gameOfLife.addBeing(3, 4);
+        gameOfLife.addBeing(3, 5);
+
+        GenerationSnapshot snapshot = gameOfLife.snapshot(0);
+        gameOfLife.generateNextGeneration();
+        gameOfLife.toggleBeing(0, 0);
+        GenerationSnapshot next = gameOfLife.snapshot(1);
+        gameOfLife.getBeings().remove(new Being(0, 0));
+
+        Assert.assertEquals(snapshot.getBeings(), beings(new Being(3, 3),
+                new Being(3, 4),
+                new Being(3, 5)));
+        Assert.assertEquals(next.getBeings(), beings(new Being(0, 0),
+                new Being(2, 4),
+                new Being(3, 4),
+                new Being(4, 4)));
+        Assert.assertEquals(gameOfLife.getPopulation(), 3);
+    }
+
+    @Test
+    public void testSetsOfUnreachableSnapshotsAreReused()
+    {
+        // the snapshot of each generation is dropped right away, like a published snapshot after rendering, so
+        // the leases of all pooled sets are unreachable without waiting for the garbage collector
+        SparseGameOfLife gameOfLife = new SparseGameOfLife(GameOfLifeSample.gosperGliderGun())
+        {
+            @Override
+            boolean isReleased(WeakReference<Object> lease)
+            {
+                return true;
+            }
+        };
+        SparseGameOfLife reference = new SparseGameOfLife(GameOfLifeSample.gosperGliderGun());
+
+        for (int generation = 1; generation <= 200; generation++)
+        {
+            gameOfLife.generateNextGeneration();
+            reference.generateNextGeneration();
+            Assert.assertEquals(gameOfLife.snapshot(generation).getPopulation(), reference.getPopulation());
+        }
+
+        Assert.assertTrue(gameOfLife.getReusedSets() > 0);
+        Assert.assertEquals(gameOfLife, reference);
+    }
+
+    @Test
+    public void testSetsOfReachableSnapshotsAreKept()
+    {
+        SparseGameOfLife gameOfLife = new SparseGameOfLife(GameOfLifeSample.gosperGliderGun());
+        GenerationSnapshot kept = gameOfLife.snapshot(0);
+        LongHashSet keptCells = LongHashSet.copyOf(kept.getCells());
+
+        for (int generation = 1; generation <= 200; generation++)
+        {
+            gameOfLife.generateNextGeneration();
+            gameOfLife.snapshot(generation);
+            if (generation % 20 == 0)
+                System.gc();
+        }
+
+        Assert.assertEquals(kept.getCells(), keptCells);
+    }
+
     private static Set<Being> beings(Being... beings)
     {
         return Stream.of(beings)
@@ -0,0 +1,100 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 17:30
+ */
+public class TestGenerationDelta
+{
+    @Test
+    public void testGameOfLifeDelta()
+    {
+        assertDeltas(new GameOfLife());
+    }
+
+    @Test
+    public void testDenseGameOfLifeDelta()
+    {
+        assertDeltas(new DenseGameOfLife(100, 100));
+    }
+
+    @Test
+    public void testTiledGameOfLifeDelta()
+    {
+        assertDeltas(new TiledGameOfLife());
+    }
+
+    @Test
+    public void testEditDropsDelta()
+    {
+        assertEditsDropDelta(SparseGameOfLife::new);
+        assertEditsDropDelta(() -> new DenseGameOfLife(100, 100));
+        assertEditsDropDelta(TiledGameOfLife::new);
+    }
+
+    private static void assertEditsDropDelta(Supplier<Universe> engine)
+    {
+        CellBlock block = CellBlock.of(new long[]{Cells.pack(0, 0), Cells.pack(1, 1)}, 2);
+        List<Consumer<Universe>> edits = Arrays.asList(
+                universe -> universe.addBeing(70, 70),
+                universe -> universe.toggleBeing(11, 11),
+                Universe::clear,
+                universe -> universe.paste(block, 80, 80, Transform.IDENTITY));
+        for (Consumer<Universe> edit : edits)
+        {
+            Universe universe = engine.get();
+            // a blinker
+            universe.addBeing(10, 10);
+            universe.addBeing(10, 11);
+            universe.addBeing(10, 12);
+            universe.generateNextGeneration();
+            Assert.assertNotNull(universe.getLastDelta(1));
+
+            edit.accept(universe);
+            Assert.assertNull(universe.getLastDelta(1), universe.getClass().getSimpleName());
+
+            universe.generateNextGeneration();
+            Assert.assertEquals(universe.getLastDelta(2).getGeneration(), 2);
+        }
+    }
+
+    private static void assertDeltas(Universe universe)
+    {
+        Random random = new Random(5);
+        for (int row = 30; row < 60; row++)
+        {
+            for (int column = 30; column < 90; column++)
+            {
+                if (random.nextInt(3) == 0)
+                    universe.addBeing(row, column);
+            }
+        }
+
+        for (int generation = 1; generation <= 50; generation++)
+        {
+            Set<Being> previous = new HashSet<>(universe.getBeings());
+            universe.generateNextGeneration();
+            GenerationDelta delta = universe.getLastDelta(generation);
+
+            Set<Being> expectedBirths = new HashSet<>(universe.getBeings());
+            expectedBirths.removeAll(previous);
+            Set<Being> expectedDeaths = new HashSet<>(previous);
+            expectedDeaths.removeAll(universe.getBeings());
+
+            Assert.assertEquals(delta.getGeneration(), generation);
+            Assert.assertEquals(new HashSet<>(delta.getBirths()), expectedBirths);
+            Assert.assertEquals(new HashSet<>(delta.getDeaths()), expectedDeaths);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 12:31
+ */
+public class TestGenerationHistory
+{
+    /**
+     * Runs the glider gun and records each generation.
+     *
+     * @return snapshots of all generations, the index is the generation
+     */
+    private static List<GenerationSnapshot> record(GenerationHistory history, int generations)
+    {
+        Universe universe = new SparseGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings());
+        List<GenerationSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(universe.snapshot(0));
+        history.record(snapshots.get(0), null);
+        for (long generation = 1; generation <= generations; generation++)
+        {
+            universe.generateNextGeneration();
+            GenerationSnapshot snapshot = universe.snapshot(generation);
+            snapshots.add(snapshot);
+            history.record(snapshot, universe.getLastDelta(generation));
+        }
+        return snapshots;
+    }
+
+    @Test
+    public void testSeekRestoresEveryGeneration()
+    {
+        GenerationHistory history = new GenerationHistory(GenerationHistory.DEFAULT_BUDGET_BYTES, 16);
+        List<GenerationSnapshot> snapshots = record(history, 300);
+
+        Assert.assertEquals(history.getOldestGeneration(), 0);
+        Assert.assertEquals(history.getLatestGeneration(), 300);
+        Assert.assertEquals(history.getKeyframes(), 300 / 16 + 1);
+        for (GenerationSnapshot expected : snapshots)
+        {
+            GenerationSnapshot actual = history.seek(expected.getGeneration());
+            Assert.assertEquals(actual.getGeneration(), expected.getGeneration());
+            Assert.assertEquals(actual.getCells(), expected.getCells());
+        }
+        Assert.assertNull(history.seek(301));
+        Assert.assertNull(history.getDelta(32));
+        Assert.assertEquals(history.getDelta(33).getGeneration(), 33);
+
+        // a replaced generation drops the generations after it
+        history.record(snapshots.get(100), null);
+        Assert.assertEquals(history.getLatestGeneration(), 100);
+        Assert.assertFalse(history.contains(101));
+        Assert.assertEquals(history.seek(99).getCells(), snapshots.get(99).getCells());
+    }
+
+    @Test
+    public void testKeyframesOfSharedEnginesAreCompacted()
+    {
+        GenerationHistory history = new GenerationHistory(GenerationHistory.DEFAULT_BUDGET_BYTES, 16);
+        Universe[] universes = {new TiledGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings()),
+                new HashLifeGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings())};
+        for (Universe universe : universes)
+        {
+            GenerationSnapshot snapshot = universe.snapshot(0);
+            history.record(snapshot, null);
+
+            // the keyframe does not retain the tiles or nodes of the universe
+            GenerationSnapshot keyframe = history.seek(0);
+            Assert.assertTrue(keyframe.getCells() instanceof LongHashSet, universe.getClass().getSimpleName());
+            Assert.assertEquals(keyframe.getCells(), LongHashSet.copyOf(snapshot.getCells()));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKeyframesAreDropped()
+    {
+        GenerationHistory unbounded = new GenerationHistory(Long.MAX_VALUE, 10);
+        record(unbounded, 99);
+        long segmentBytes = unbounded.getRetainedBytes() / unbounded.getKeyframes();
+
+        // room for about four of the ten segments
+        GenerationHistory history = new GenerationHistory(4 * segmentBytes, 10);
+        Universe universe = new SparseGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings());
+        history.record(universe.snapshot(0), null);
+        for (long generation = 1; generation < 100; generation++)
+        {
+            universe.generateNextGeneration();
+            history.record(universe.snapshot(generation), universe.getLastDelta(generation));
+            // the user returns to the first generations again and again
+            if (generation % 10 == 0)
+                Assert.assertNotNull(history.seek(5));
+        }
+
+        Assert.assertTrue(history.getRetainedBytes() <= history.getBudgetBytes());
+        Assert.assertTrue(history.getEvictions() > 0);
+        Assert.assertTrue(history.contains(0));
+        Assert.assertTrue(history.contains(99));
+        Assert.assertFalse(history.contains(50));
+        Assert.assertEquals(history.getLatestGeneration(), 99);
+    }
+
+    @Test
+    public void testLatestKeyframeIsKeptBeyondBudget()
+    {
+        GenerationHistory history = new GenerationHistory(0, 4);
+        List<GenerationSnapshot> snapshots = record(history, 6);
+
+        Assert.assertEquals(history.getKeyframes(), 1);
+        Assert.assertEquals(history.getOldestGeneration(), 4);
+        Assert.assertEquals(history.seek(6).getCells(), snapshots.get(6).getCells());
+        Assert.assertFalse(history.contains(3));
+    }
+
+    /**
+     * @return service of the glider gun with a keyframe every 16 generations
+     */
+    private static GameOfLifeService createService()
+    {
+        return new GameOfLifeService(new GameOfLife(GameOfLifeSample.gosperGliderGun()), 1, new Semaphore(1),
+                new Metrics(), new GenerationHistory(GenerationHistory.DEFAULT_BUDGET_BYTES, 16));
+    }
+
+    @Test
+    public void testServiceRewindsToRecordedGenerations() throws InterruptedException
+    {
+        GameOfLifeService service = createService();
+        List<GenerationSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(service.getSnapshot());
+        for (int i = 0; i < 100; i++)
+        {
+            snapshots.add(service.step());
+        }
+
+        Assert.assertTrue(service.rewind(37));
+        GenerationSnapshot rewound = service.getSnapshot();
+        Assert.assertEquals(rewound.getGeneration(), 37);
+        Assert.assertEquals(rewound.getPopulation(), snapshots.get(37).getPopulation());
+        Assert.assertEquals(rewound.getCells(), snapshots.get(37).getCells());
+        Assert.assertEquals(service.getHistory().getLatestGeneration(), 37);
+
+        // one step back takes back the births and deaths of the generation
+        Assert.assertTrue(service.previousGeneration());
+        Assert.assertEquals(service.getGeneration(), 36);
+        Assert.assertEquals(service.getSnapshot().getCells(), snapshots.get(36).getCells());
+        Assert.assertEquals(service.getLastDelta().getGeneration(), 36);
+        GenerationDelta expected = GenerationDelta.between(snapshots.get(37), snapshots.get(36));
+        Assert.assertEquals(service.getLastDelta().getBirthCount(), expected.getBirthCount());
+        Assert.assertEquals(service.getLastDelta().getDeathCount(), expected.getDeathCount());
+
+        // the universe continues with the rewound generation
+        Assert.assertEquals(service.step().getCells(), snapshots.get(37).getCells());
+        Assert.assertFalse(service.rewind(38));
+        Assert.assertFalse(service.rewind(-1));
+        Assert.assertTrue(service.rewind(0));
+        Assert.assertEquals(service.getSnapshot().getCells(), snapshots.get(0).getCells());
+        Assert.assertFalse(service.previousGeneration());
+    }
+
+    @Test
+    public void testEditAfterRewindDropsLaterGenerations() throws InterruptedException
+    {
+        GameOfLifeService service = createService();
+        for (int i = 0; i < 20; i++)
+        {
+            service.step();
+        }
+        Assert.assertTrue(service.rewind(10));
+        Assert.assertTrue(service.getHistory().contains(10));
+
+        service.submit(EditCommand.fill(new Selection(-20, -20, 2, 2)));
+        Assert.assertEquals(service.getGeneration(), 10);
+        Assert.assertEquals(service.getHistory().getLatestGeneration(), 10);
+        Assert.assertFalse(service.getHistory().contains(11));
+
+        // the edited generation replaced the recorded one
+        service.step();
+        Assert.assertTrue(service.previousGeneration());
+        Assert.assertEquals(service.getGeneration(), 10);
+        Assert.assertTrue(service.getSnapshot().isAlive(-20, -20));
+        Assert.assertTrue(service.rewind(9));
+        Assert.assertFalse(service.getSnapshot().isAlive(-20, -20));
+    }
+}
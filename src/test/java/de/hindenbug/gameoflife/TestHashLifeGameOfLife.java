@@ -0,0 +1,117 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 15:30
+ */
+public class TestHashLifeGameOfLife
+{
+    @Test
+    public void testSoupMatchesGameOfLife()
+    {
+        HashLifeGameOfLife hashLife = new HashLifeGameOfLife();
+        GameOfLife gameOfLife = new GameOfLife();
+
+        Random random = new Random(3);
+        for (int row = -20; row < 20; row++)
+        {
+            for (int column = -20; column < 20; column++)
+            {
+                if (random.nextInt(3) == 0)
+                {
+                    hashLife.addBeing(row, column);
+                    gameOfLife.addBeing(row, column);
+                }
+            }
+        }
+
+        for (int i = 0; i < 100; i++)
+        {
+            hashLife.generateNextGeneration();
+            gameOfLife.generateNextGeneration();
+            Assert.assertEquals(hashLife.getBeings(), gameOfLife.getBeings(), "generation " + i);
+        }
+    }
+
+    @Test
+    public void testAdvanceMatchesSingleSteps()
+    {
+        HashLifeGameOfLife hashLife = new HashLifeGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings());
+        GameOfLife gameOfLife = new GameOfLife(GameOfLifeSample.GosperGliderGun.getBeings());
+
+        hashLife.advance(1000);
+        for (int i = 0; i < 1000; i++)
+        {
+            gameOfLife.generateNextGeneration();
+        }
+
+        Assert.assertEquals(hashLife.getGeneration(), 1000);
+        Assert.assertEquals(hashLife.getBeings(), gameOfLife.getBeings());
+        Assert.assertEquals(hashLife.stateHash(), gameOfLife.stateHash());
+    }
+
+    @Test
+    public void testAdvanceWithGarbageCollection()
+    {
+        HashLifeGameOfLife expected = new HashLifeGameOfLife(GameOfLifeSample.GosperGliderGun.getBeings());
+        HashLifeGameOfLife collected = new HashLifeGameOfLife(256);
+        GameOfLifeSample.GosperGliderGun.getBeings()
+                .forEach(being -> collected.addBeing(being.getRow(), being.getColumn()));
+        // the hash is updated from a root, whose nodes were collected meanwhile
+        long initialHash = collected.stateHash();
+
+        expected.advance((1 << 20) + 12345);
+        collected.advance((1 << 20) + 12345);
+
+        // the gun emits one glider with five beings every 30 generations
+        Assert.assertTrue(expected.getLongPopulation() > 5 * ((1 << 20) / 30));
+        Assert.assertEquals(collected.getLongPopulation(), expected.getLongPopulation());
+        Assert.assertEquals(collected.getBeings(), expected.getBeings());
+        Assert.assertNotEquals(collected.stateHash(), initialHash);
+        Assert.assertEquals(collected.stateHash(), expected.stateHash());
+    }
+
+    @Test
+    public void testSnapshotAndDelta()
+    {
+        HashLifeGameOfLife hashLife = new HashLifeGameOfLife(GameOfLifeSample.randomSoup(80, .35, 4));
+        GameOfLife gameOfLife = new GameOfLife(hashLife.getBeings());
+
+        GenerationSnapshot previous = hashLife.snapshot(0);
+        Set<Being> previousBeings = new HashSet<>(hashLife.getBeings());
+        for (int i = 1; i <= 60; i++)
+        {
+            hashLife.generateNextGeneration();
+            gameOfLife.generateNextGeneration();
+            GenerationDelta delta = hashLife.getLastDelta(i);
+            GenerationSnapshot current = hashLife.snapshot(i);
+
+            GenerationDelta expected = GenerationDelta.between(previous, current);
+            Assert.assertEquals(sorted(delta.getBirthCells()), sorted(expected.getBirthCells()), "generation " + i);
+            Assert.assertEquals(sorted(delta.getDeathCells()), sorted(expected.getDeathCells()), "generation " + i);
+            Assert.assertEquals(hashLife.stateHash(), gameOfLife.stateHash(), "generation " + i);
+            // the previous snapshot shares its root, that is not changed by the step
+            Assert.assertEquals(new HashSet<>(previous.getBeings()), previousBeings, "generation " + i);
+            previous = current;
+            previousBeings = new HashSet<>(hashLife.getBeings());
+        }
+
+        hashLife.addBeing(500, 500);
+        Assert.assertNull(hashLife.getLastDelta(60));
+    }
+
+    private static long[] sorted(long[] cells)
+    {
+        long[] result = cells.clone();
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 22:55
+ */
+public class TestLatencyHistogram
+{
+    @Test
+    public void testBuckets()
+    {
+        for (long nanos : new long[]{0, 1, 7, 8, 9, 15, 16, 1000, 123_456_789, Long.MAX_VALUE})
+        {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            Assert.assertTrue(LatencyHistogram.lowerBoundOf(bucket) <= nanos, "lower bound of " + nanos);
+            if (nanos < Long.MAX_VALUE)
+                Assert.assertTrue(LatencyHistogram.lowerBoundOf(bucket + 1) > nanos, "upper bound of " + nanos);
+        }
+        Assert.assertEquals(LatencyHistogram.bucketOf(8), 8);
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++)
+        {
+            histogram.record(micros * 1000L);
+        }
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.percentile(.5), 500_000, 500_000 / 8);
+        Assert.assertEquals(histogram.percentile(.99), 990_000, 990_000 / 8);
+        Assert.assertEquals(histogram.percentile(1), 1_000_000);
+
+        Metrics.LatencySummary summary = histogram.summarize();
+        Assert.assertEquals(summary.getCount(), 1000);
+        Assert.assertEquals(summary.getMean(), 500.5, 1e-9);
+        Assert.assertEquals(summary.getMax(), 1000.0);
+
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.summarize().getP99(), 0.0);
+    }
+}
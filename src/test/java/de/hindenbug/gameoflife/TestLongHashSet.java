@@ -0,0 +1,47 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 12:05
+ */
+public class TestLongHashSet
+{
+    @Test
+    public void testAddRemoveAgainstHashSet()
+    {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            long cell = Cells.pack(random.nextInt(64) - 32, random.nextInt(64) - 32);
+            if (random.nextBoolean())
+                Assert.assertEquals(set.add(cell), expected.add(cell));
+            else
+                Assert.assertEquals(set.remove(cell), expected.remove(cell));
+        }
+
+        Assert.assertEquals(set.size(), expected.size());
+        for (long cell : set.toArray())
+        {
+            Assert.assertTrue(expected.contains(cell));
+        }
+    }
+
+    @Test
+    public void testPackedCells()
+    {
+        long cell = Cells.pack(-3, -7);
+        Assert.assertEquals(Cells.row(cell), -3);
+        Assert.assertEquals(Cells.column(cell), -7);
+        Assert.assertEquals(Cells.toBeing(cell), new Being(-3, -7));
+    }
+}
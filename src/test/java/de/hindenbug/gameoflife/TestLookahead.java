@@ -0,0 +1,213 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 12:44
+ */
+public class TestLookahead
+{
+    /**
+     * Sparse universe, whose every tenth generation is slow.
+     */
+    private static final class UnevenUniverse extends SparseGameOfLife
+    {
+        final AtomicInteger steps = new AtomicInteger();
+        private final long slowMillis;
+
+        UnevenUniverse(Set<Being> beings, long slowMillis)
+        {
+            super(beings);
+            this.slowMillis = slowMillis;
+        }
+
+        @Override
+        public void generateNextGeneration()
+        {
+            super.generateNextGeneration();
+            if (steps.incrementAndGet() % 10 == 0 && slowMillis > 0)
+            {
+                try
+                {
+                    Thread.sleep(slowMillis);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the simulation of a service like its task, but without javafx.
+     */
+    private static final class Simulation
+    {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Thread thread;
+
+        Simulation(GameOfLifeService service)
+        {
+            thread = new Thread(() ->
+            {
+                try
+                {
+                    service.simulate(cancelled::get);
+                } catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+            thread.start();
+        }
+
+        void cancel() throws InterruptedException
+        {
+            cancelled.set(true);
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static GameOfLifeService createService(Universe universe, int interval, int lookahead)
+    {
+        GameOfLifeService service = new GameOfLifeService(universe, interval, new Semaphore(1));
+        service.setLookahead(lookahead);
+        return service;
+    }
+
+    /**
+     * Waits until a condition holds, the test fails if it does not hold within ten seconds.
+     */
+    private static void awaitCondition(BooleanSupplier condition, String description) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean())
+        {
+            if (System.nanoTime() - deadline >= 0)
+                Assert.fail("timed out waiting until " + description);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * @return snapshots of the glider gun, the index is the generation
+     */
+    private static List<GenerationSnapshot> gliderGun(int generations)
+    {
+        SparseGameOfLife universe = new SparseGameOfLife(GameOfLifeSample.gosperGliderGun());
+        List<GenerationSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(universe.snapshot(0));
+        for (int generation = 1; generation <= generations; generation++)
+        {
+            universe.generateNextGeneration();
+            snapshots.add(universe.snapshot(generation));
+        }
+        return snapshots;
+    }
+
+    @Test
+    public void testGenerationsArePresentedInOrder() throws InterruptedException
+    {
+        UnevenUniverse universe = new UnevenUniverse(GameOfLifeSample.gosperGliderGun(), 30);
+        GameOfLifeService service = createService(universe, 10, 4);
+        List<Long> presented = new CopyOnWriteArrayList<>();
+        List<Long> deltas = new CopyOnWriteArrayList<>();
+        service.addDeltaListener(delta ->
+        {
+            presented.add(service.getSnapshot().getGeneration());
+            deltas.add(delta.getGeneration());
+        });
+
+        Simulation simulation = new Simulation(service);
+        // several slow generations are covered by the queue
+        awaitCondition(() -> presented.size() > 20, "more than 20 generations are presented");
+        simulation.cancel();
+
+        for (int i = 0; i < presented.size(); i++)
+        {
+            Assert.assertEquals((long) presented.get(i), i + 1);
+            Assert.assertEquals(deltas.get(i), presented.get(i));
+        }
+        // the generations calculated ahead were taken back
+        Assert.assertEquals(LongHashSet.copyOf(universe.getBeings()), service.getSnapshot().getCells());
+        Assert.assertEquals(service.getBufferedGenerations(), 0);
+    }
+
+    @Test
+    public void testProducerWaitsWhileQueueIsFull() throws InterruptedException
+    {
+        UnevenUniverse universe = new UnevenUniverse(GameOfLifeSample.gosperGliderGun(), 0);
+        // the first generation is presented at once, the next one not before the test is done
+        GameOfLifeService service = createService(universe, (int) TimeUnit.MINUTES.toMillis(1), 4);
+
+        Simulation simulation = new Simulation(service);
+        awaitCondition(() -> service.getBufferedGenerations() == 4, "the queue is full");
+        // a producer, that does not wait, would keep on calculating meanwhile
+        Thread.sleep(100);
+        int steps = universe.steps.get();
+        long generation = service.getGeneration();
+        int buffered = service.getBufferedGenerations();
+        simulation.cancel();
+
+        Assert.assertEquals(generation, 1);
+        Assert.assertEquals(buffered, 4);
+        // the queue and at most one generation waiting to be queued
+        Assert.assertTrue(steps >= generation + 4, steps + " steps, generation " + generation);
+        Assert.assertTrue(steps <= generation + 4 + 1, steps + " steps, generation " + generation);
+        Assert.assertEquals(LongHashSet.copyOf(universe.getBeings()), service.getSnapshot().getCells());
+    }
+
+    @Test
+    public void testEditDropsGenerationsCalculatedBefore() throws InterruptedException
+    {
+        UnevenUniverse universe = new UnevenUniverse(GameOfLifeSample.gosperGliderGun(), 20);
+        GameOfLifeService service = createService(universe, 10, 8);
+        List<GenerationSnapshot> presented = new CopyOnWriteArrayList<>();
+        service.addDeltaListener(delta -> presented.add(service.getSnapshot()));
+
+        Simulation simulation = new Simulation(service);
+        awaitCondition(() -> presented.size() >= 10, "10 generations are presented");
+        // a block far away from the gun and its gliders
+        long sequence = service.submit(EditCommand.fill(new Selection(-100, -100, 2, 2)));
+        awaitCondition(() -> presented.stream().filter(snapshot -> snapshot.getLastEdit() >= sequence).count() >= 10,
+                "10 edited generations are presented");
+        simulation.cancel();
+
+        List<GenerationSnapshot> expected = gliderGun((int) service.getGeneration());
+        boolean edited = false;
+        for (int i = 0; i < presented.size(); i++)
+        {
+            GenerationSnapshot snapshot = presented.get(i);
+            Assert.assertEquals(snapshot.getGeneration(), i + 1);
+            if (snapshot.getLastEdit() >= sequence)
+                edited = true;
+            else
+                Assert.assertFalse(edited, "generation " + snapshot.getGeneration() + " misses the edit");
+
+            LongHashSet cells = LongHashSet.copyOf(expected.get(i + 1).getCells());
+            if (edited)
+            {
+                cells.add(Cells.pack(-100, -100));
+                cells.add(Cells.pack(-100, -99));
+                cells.add(Cells.pack(-99, -100));
+                cells.add(Cells.pack(-99, -99));
+            }
+            Assert.assertEquals(snapshot.getCells(), cells, "generation " + snapshot.getGeneration());
+        }
+        Assert.assertTrue(edited);
+        Assert.assertEquals(LongHashSet.copyOf(universe.getBeings()), service.getSnapshot().getCells());
+    }
+}
@@ -0,0 +1,132 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 20:40
+ */
+public class TestPatternFormats
+{
+    private static final String GOSPER_GLIDER_GUN_RLE = "#N Gosper glider gun\n"
+            + "#C comment\n"
+            + "#P 1 1\n"
+            + "x = 36, y = 9, rule = B3/S23\n"
+            + "24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$2o8bo5bo3b2o$2o8bo3bob2o4b\n"
+            + "obo$10bo5bo7bo$11bo3bo$12b2o!\n";
+
+    @Test
+    public void testReadRle() throws IOException
+    {
+        GameOfLife gameOfLife = new GameOfLife();
+        PatternReader reader = new PatternReader(channelOf(GOSPER_GLIDER_GUN_RLE), PatternFormat.RLE);
+        Assert.assertEquals(reader.read(gameOfLife), 36);
+
+        Assert.assertEquals(reader.getName(), "Gosper glider gun");
+        Assert.assertEquals(reader.getRule(), "B3/S23");
+        Assert.assertEquals(reader.getWidth(), 36);
+        Assert.assertEquals(reader.getHeight(), 9);
+        Assert.assertEquals(new HashSet<>(gameOfLife.getBeings()), GameOfLifeSample.gosperGliderGun());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        Set<Being> soup = GameOfLifeSample.randomSoup(200, .3, 11);
+        GameOfLife expected = new GameOfLife();
+        soup.forEach(being -> expected.addBeing(being.getRow() - 100, being.getColumn() - 77));
+
+        for (PatternFormat format : PatternFormat.values())
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new PatternWriter(Channels.newChannel(out), format).write(expected, "soup");
+
+            GameOfLife actual = new GameOfLife();
+            PatternReader reader = new PatternReader(channelOf(out.toString("UTF-8")), format);
+            reader.read(actual);
+            Assert.assertEquals(reader.getName(), "soup");
+
+            if (format == PatternFormat.PLAINTEXT)
+            {
+                // plaintext patterns have no position
+                Set<Being> moved = new HashSet<>();
+                actual.getBeings().forEach(being -> moved.add(new Being(being.getRow() - 100,
+                        being.getColumn() - 77)));
+                Assert.assertEquals(moved, expected.getBeings(), format.name());
+            } else
+            {
+                Assert.assertEquals(actual.getBeings(), expected.getBeings(), format.name());
+            }
+        }
+    }
+
+    @Test
+    public void testRleLinesAreShort() throws IOException
+    {
+        GameOfLife soup = new GameOfLife(GameOfLifeSample.randomSoup(100, .5, 3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PatternWriter(Channels.newChannel(out), PatternFormat.RLE).write(soup, null);
+        for (String line : out.toString("UTF-8").split("\n"))
+        {
+            Assert.assertTrue(line.length() <= 70, line);
+        }
+    }
+
+    @Test
+    public void testWriteSnapshot() throws IOException
+    {
+        GameOfLife soup = new GameOfLife(GameOfLifeSample.randomSoup(100, .4, 7));
+        soup.setRule(Rule.parse("B36/S23"));
+        GenerationSnapshot snapshot = soup.snapshot(0);
+        // the snapshot is written as it was taken
+        soup.generateNextGeneration();
+        GameOfLife taken = new GameOfLife(snapshot.getBeings());
+        taken.setRule(soup.getRule());
+
+        for (PatternFormat format : PatternFormat.values())
+        {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new PatternWriter(Channels.newChannel(expected), format).write(taken, "soup");
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new PatternWriter(Channels.newChannel(actual), format).write(snapshot, soup.getRule(), "soup");
+            Assert.assertEquals(actual.toString("UTF-8"), expected.toString("UTF-8"), format.name());
+        }
+    }
+
+    @Test
+    public void testAddCellsOfAllEngines() throws IOException
+    {
+        Set<Being> soup = GameOfLifeSample.randomSoup(300, .4, 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PatternWriter(Channels.newChannel(out), PatternFormat.RLE).write(new GameOfLife(soup), null);
+        String rle = out.toString("UTF-8");
+
+        Universe[] universes = {new GameOfLife(), new DenseGameOfLife(300, 300), new TiledGameOfLife(),
+                new HashLifeGameOfLife()};
+        for (Universe universe : universes)
+        {
+            universe.addBeing(0, 0);
+            new PatternReader(channelOf(rle), PatternFormat.RLE).read(universe);
+            Set<Being> expected = new HashSet<>(soup);
+            expected.add(new Being(0, 0));
+            Assert.assertEquals(new HashSet<>(universe.getBeings()), expected,
+                    universe.getClass().getSimpleName());
+            Assert.assertEquals(universe.getPopulation(), expected.size());
+        }
+    }
+
+    private static ReadableByteChannel channelOf(String text)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
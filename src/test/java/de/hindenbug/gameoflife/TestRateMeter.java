@@ -0,0 +1,36 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 22:10
+ */
+public class TestRateMeter
+{
+    @Test
+    public void testRateOfCompleteWindows()
+    {
+        RateMeter meter = new RateMeter(1_000_000_000L);
+        long start = System.nanoTime();
+        for (int i = 1; i <= 30; i++)
+        {
+            meter.mark(1, start + i * 20_000_000L);
+        }
+        // the first window is not complete yet
+        Assert.assertEquals(meter.getRate(), 0.0);
+
+        for (int i = 31; i <= 60; i++)
+        {
+            meter.mark(1, start + i * 20_000_000L);
+        }
+        Assert.assertEquals(meter.getRate(), 50.0, 1.0);
+
+        // ten events after the first window, measured over two seconds
+        meter.mark(0, start + 3_000_000_000L);
+        Assert.assertEquals(meter.getRate(), 5.0, 0.1);
+        meter.mark(0, start + 4_500_000_000L);
+        Assert.assertEquals(meter.getRate(), 0.0);
+    }
+}
@@ -0,0 +1,114 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 23:10
+ */
+public class TestRegionOperations
+{
+    @DataProvider
+    public Object[][] universes()
+    {
+        return new Object[][]{
+                {(Supplier<Universe>) GameOfLife::new},
+                {(Supplier<Universe>) SparseGameOfLife::new},
+                {(Supplier<Universe>) () -> new DenseGameOfLife(200, 200)},
+                {(Supplier<Universe>) () -> new DenseGameOfLife(200, 200, DenseGameOfLife.Border.TOROIDAL)},
+                {(Supplier<Universe>) TiledGameOfLife::new},
+                {(Supplier<Universe>) HashLifeGameOfLife::new}
+        };
+    }
+
+    @Test(dataProvider = "universes")
+    public void testRegionsMatchSingleCells(Supplier<Universe> engine)
+    {
+        Universe universe = engine.get();
+        Universe expected = new GameOfLife();
+        Random random = new Random(5);
+        for (int i = 0; i < 3000; i++)
+        {
+            int row = 20 + random.nextInt(150);
+            int column = 30 + random.nextInt(150);
+            universe.addBeing(row, column);
+            expected.addBeing(row, column);
+        }
+
+        // the selections cross the words of the dense engine and the tiles of the tiled engine
+        Selection filled = new Selection(50, 60, 70, 90);
+        Selection cleared = new Selection(100, 10, 30, 150);
+        universe.fill(filled);
+        universe.clear(cleared);
+        for (int row = 0; row < 200; row++)
+        {
+            for (int column = 0; column < 200; column++)
+            {
+                if (cleared.contains(row, column))
+                    expected.getBeings().remove(new Being(row, column));
+                else if (filled.contains(row, column))
+                    expected.addBeing(row, column);
+            }
+        }
+
+        Assert.assertEquals(universe.getBeings(), expected.getBeings());
+        Assert.assertEquals(universe.getPopulation(), expected.getPopulation());
+        Assert.assertEquals(universe.stateHash(), expected.stateHash());
+
+        Selection copied = new Selection(90, 50, 40, 120);
+        Assert.assertEquals(universe.copy(copied), expected.copy(copied));
+    }
+
+    @Test(dataProvider = "universes")
+    public void testPasteTransformedBlock(Supplier<Universe> engine)
+    {
+        Universe universe = engine.get();
+        // glider
+        universe.addBeing(10, 11);
+        universe.addBeing(11, 12);
+        universe.addBeing(12, 10);
+        universe.addBeing(12, 11);
+        universe.addBeing(12, 12);
+
+        CellBlock glider = universe.copy(new Selection(10, 10, 3, 3));
+        Assert.assertEquals(glider.getPopulation(), 5);
+
+        universe.paste(glider, 50, 60, Transform.ROTATE_CLOCKWISE);
+        Assert.assertEquals(universe.getPopulation(), 10);
+        Assert.assertTrue(universe.isAlive(50, 60));
+        Assert.assertTrue(universe.isAlive(51, 60));
+        Assert.assertTrue(universe.isAlive(51, 62));
+        Assert.assertTrue(universe.isAlive(52, 60));
+        Assert.assertTrue(universe.isAlive(52, 61));
+        Assert.assertEquals(universe.copy(new Selection(50, 60, 3, 3)),
+                glider.transform(Transform.ROTATE_CLOCKWISE));
+    }
+
+    @Test
+    public void testTransformsFormGroup()
+    {
+        CellBlock block = CellBlock.of(new long[]{Cells.pack(0, 0), Cells.pack(0, 1), Cells.pack(0, 2),
+                Cells.pack(1, 0)}, 4);
+        Assert.assertEquals(block.getRows(), 2);
+        Assert.assertEquals(block.getColumns(), 3);
+
+        CellBlock rotated = block;
+        for (int i = 0; i < 4; i++)
+        {
+            rotated = rotated.transform(Transform.ROTATE_CLOCKWISE);
+        }
+        Assert.assertEquals(rotated, block);
+        Assert.assertEquals(block.transform(Transform.ROTATE_CLOCKWISE).transform(Transform.ROTATE_COUNTERCLOCKWISE),
+                block);
+        Assert.assertEquals(block.transform(Transform.FLIP_HORIZONTAL).transform(Transform.FLIP_VERTICAL),
+                block.transform(Transform.ROTATE_180));
+        Assert.assertEquals(block.transform(Transform.TRANSPOSE).transform(Transform.ROTATE_180),
+                block.transform(Transform.ANTI_TRANSPOSE));
+        Assert.assertEquals(block.transform(Transform.TRANSPOSE).getRows(), 3);
+    }
+}
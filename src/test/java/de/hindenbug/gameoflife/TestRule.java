@@ -0,0 +1,106 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 21:40
+ */
+public class TestRule
+{
+    private static final String[] RULES = {"B36/S23", "B3678/S34678", "B2/S", "B1/S012345678", "B345/S5"};
+
+    @Test
+    public void testParse()
+    {
+        Assert.assertSame(Rule.parse("B3/S23"), Rule.CONWAY);
+        Assert.assertSame(Rule.parse(" b3/s32 "), Rule.CONWAY);
+        Assert.assertSame(Rule.parse("S23/B3"), Rule.CONWAY);
+        Assert.assertSame(Rule.parse("23/3"), Rule.CONWAY);
+
+        Rule highLife = Rule.parse("B36/S23");
+        Assert.assertEquals(highLife.toString(), "B36/S23");
+        Assert.assertEquals(highLife.getBirthMask(), 1 << 3 | 1 << 6);
+        Assert.assertEquals(highLife, Rule.parse("23/36"));
+        Assert.assertEquals(Rule.parse("B2/S").toString(), "B2/S");
+    }
+
+    @Test
+    public void testInvalidRules()
+    {
+        for (String rule : new String[]{"B03/S23", "B3/S29", "B3S23", "B3/S2a", "X3/S23", ""})
+        {
+            try
+            {
+                Rule.parse(rule);
+                Assert.fail("rule " + rule + " was parsed");
+            } catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testTransitions()
+    {
+        Rule highLife = Rule.parse("B36/S23");
+        for (int count = 0; count <= 8; count++)
+        {
+            Assert.assertEquals(highLife.next(false, count), count == 3 || count == 6);
+            Assert.assertEquals(highLife.next(true, count), count == 2 || count == 3);
+        }
+    }
+
+    @Test
+    public void testEnginesAgree()
+    {
+        Set<Being> soup = GameOfLifeSample.randomSoup(32, 0.4, 7);
+        for (String text : RULES)
+        {
+            Rule rule = Rule.parse(text);
+            Universe[] universes = {new GameOfLife(), new DenseGameOfLife(256, 256), new TiledGameOfLife(),
+                    new HashLifeGameOfLife()};
+            for (Universe universe : universes)
+            {
+                universe.setRule(rule);
+                soup.forEach(being -> universe.addBeing(being.getRow() + 112, being.getColumn() + 112));
+            }
+            for (int generation = 1; generation <= 40; generation++)
+            {
+                for (Universe universe : universes)
+                {
+                    universe.generateNextGeneration();
+                    Assert.assertEquals(universe.getBeings(), universes[0].getBeings(),
+                            text + " " + universe.getClass().getSimpleName() + " generation " + generation);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHighLifeReplicator()
+    {
+        GameOfLife conway = new GameOfLife();
+        GameOfLife highLife = new GameOfLife();
+        highLife.setRule(Rule.parse("B36/S23"));
+        int[][] replicator = {{0, 2}, {0, 3}, {0, 4}, {1, 1}, {1, 4}, {2, 0}, {2, 4}, {3, 0}, {3, 3}, {4, 0},
+                {4, 1}, {4, 2}};
+        for (int[] being : replicator)
+        {
+            conway.addBeing(being[0], being[1]);
+            highLife.addBeing(being[0], being[1]);
+        }
+        for (int generation = 0; generation < 12; generation++)
+        {
+            conway.generateNextGeneration();
+            highLife.generateNextGeneration();
+        }
+        // the replicator copied itself twice, conway's rule lets it decay
+        Assert.assertEquals(highLife.getPopulation(), 2 * replicator.length);
+        Assert.assertNotEquals(conway.getBeings(), highLife.getBeings());
+    }
+}
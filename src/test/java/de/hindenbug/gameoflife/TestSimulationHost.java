@@ -0,0 +1,98 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 23:55
+ */
+public class TestSimulationHost
+{
+    @Test
+    public void testManySimulationsReachTheirBudget() throws InterruptedException
+    {
+        try (SimulationHost host = new SimulationHost(4, TimeUnit.MICROSECONDS.toNanos(200)))
+        {
+            List<SimulationHost.Simulation> simulations = new ArrayList<>();
+            for (int seed = 0; seed < 500; seed++)
+            {
+                GameOfLife universe = new GameOfLife(GameOfLifeSample.randomSoup(16, 0.4, seed));
+                simulations.add(host.submit(universe, 50 + seed % 7));
+            }
+            Assert.assertTrue(host.awaitIdle(30, TimeUnit.SECONDS));
+
+            long total = 0;
+            for (int seed = 0; seed < simulations.size(); seed++)
+            {
+                SimulationHost.Simulation simulation = simulations.get(seed);
+                Assert.assertTrue(simulation.isDone());
+                Assert.assertFalse(simulation.isCancelled());
+                Assert.assertEquals(simulation.getGeneration(), 50 + seed % 7);
+                total += simulation.getGeneration();
+
+                // the same soup calculated alone
+                GameOfLife expected = new GameOfLife(GameOfLifeSample.randomSoup(16, 0.4, seed));
+                for (int i = 0; i < simulation.getBudget(); i++)
+                {
+                    expected.generateNextGeneration();
+                }
+                Assert.assertEquals(simulation.getUniverse().getBeings(), expected.getBeings());
+            }
+            Assert.assertEquals(host.getGenerations(), total);
+            Assert.assertEquals(host.getCompletedSimulations(), 500);
+            Assert.assertEquals(host.getActiveSimulations(), 0);
+        }
+    }
+
+    @Test
+    public void testEndlessSimulationIsCancelled() throws InterruptedException
+    {
+        try (SimulationHost host = new SimulationHost(1, TimeUnit.MICROSECONDS.toNanos(100)))
+        {
+            SimulationHost.Simulation endless = host.submit(new GameOfLife(GameOfLifeSample.blinker()),
+                    Long.MAX_VALUE);
+            // time slicing lets a short simulation finish while the endless one still runs on the only worker
+            SimulationHost.Simulation finite = host.submit(new GameOfLife(GameOfLifeSample.blinker()), 1000);
+            finite.await();
+            Assert.assertFalse(endless.isDone());
+
+            endless.cancel();
+            endless.await();
+            Assert.assertTrue(endless.isCancelled());
+            Assert.assertTrue(endless.getGeneration() > 0);
+            Assert.assertEquals(host.getCancelledSimulations(), 1);
+            Assert.assertTrue(host.awaitIdle(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testExceptionOfUniverseEndsItsSimulation() throws InterruptedException
+    {
+        try (SimulationHost host = new SimulationHost(1, TimeUnit.MICROSECONDS.toNanos(100)))
+        {
+            SparseGameOfLife failing = new SparseGameOfLife(GameOfLifeSample.blinker())
+            {
+                @Override
+                public void generateNextGeneration()
+                {
+                    throw new IllegalStateException("failing universe");
+                }
+            };
+            SimulationHost.Simulation failed = host.submit(failing, 10);
+            // the only worker survives the exception and calculates the next simulation
+            SimulationHost.Simulation next = host.submit(new GameOfLife(GameOfLifeSample.blinker()), 10);
+            Assert.assertTrue(host.awaitIdle(5, TimeUnit.SECONDS));
+
+            Assert.assertTrue(failed.isCancelled());
+            Assert.assertTrue(failed.getFailure() instanceof IllegalStateException);
+            Assert.assertTrue(next.isDone());
+            Assert.assertFalse(next.isCancelled());
+            Assert.assertEquals(host.getActiveSimulations(), 0);
+        }
+    }
+}
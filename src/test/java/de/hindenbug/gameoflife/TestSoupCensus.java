@@ -0,0 +1,59 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 12:20
+ */
+public class TestSoupCensus
+{
+    @Test
+    public void testObjectsAreNamedByApgcode()
+    {
+        AshClassifier classifier = new AshClassifier();
+        Assert.assertEquals(classify(classifier, 5, 5, 5, 6, 6, 5, 6, 6), "xs4_33");
+        Assert.assertEquals(classify(classifier, 0, 0, 0, 1, 0, 2), "xp2_7");
+        Assert.assertEquals(classify(classifier, 10, 11, 11, 12, 12, 10, 12, 11, 12, 12), "xq4_153");
+        // beehive
+        Assert.assertEquals(classify(classifier, 0, 1, 0, 2, 1, 0, 1, 3, 2, 1, 2, 2), "xs6_696");
+        // the other phase of the blinker is cached
+        Assert.assertEquals(classifier.getCachedShapes(), 4 + 1 + 3);
+        Assert.assertEquals(classify(classifier, 7, 3, 8, 3, 9, 3), "xp2_7");
+        Assert.assertEquals(classifier.getCachedShapes(), 8);
+        // a single cell dies
+        Assert.assertNull(classify(classifier, 0, 0));
+    }
+
+    private static String classify(AshClassifier classifier, int... coordinates)
+    {
+        long[] cells = new long[coordinates.length / 2];
+        for (int i = 0; i < cells.length; i++)
+        {
+            cells[i] = Cells.pack(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        return classifier.classify(cells, cells.length);
+    }
+
+    @Test
+    public void testWechslerFormatShortensEmptyColumns()
+    {
+        long[] cells = {Cells.pack(0, 0), Cells.pack(0, 4), Cells.pack(5, 0), Cells.pack(5, 7)};
+        // three empty columns in the first strip, six in the second one
+        Assert.assertEquals(AshClassifier.wechsler(CellBlock.of(cells, cells.length)), "1x1z1y21");
+    }
+
+    @Test
+    public void testCensusIsReproducible()
+    {
+        SoupCensus.Census sequential = new SoupCensus(16, 0.5, 20_000, 1).run(1, 40);
+        SoupCensus.Census parallel = new SoupCensus(16, 0.5, 20_000, 4).run(1, 40);
+        Assert.assertEquals(parallel, sequential);
+        Assert.assertEquals(parallel.getGenerations(), sequential.getGenerations());
+        // blocks are the most common object of random soups
+        Assert.assertEquals(sequential.getCounts().get(0).getKey(), "xs4_33");
+        Assert.assertTrue(sequential.getCount("xp2_7") > 0);
+        Assert.assertEquals(sequential.getCount(SoupCensus.UNSTABILIZED), 0);
+    }
+}
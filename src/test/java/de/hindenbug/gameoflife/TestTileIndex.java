@@ -0,0 +1,57 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 14:25
+ */
+public class TestTileIndex
+{
+    @Test
+    public void testPutRemoveAgainstHashMap()
+    {
+        Random random = new Random(5);
+        TileIndex index = TileIndex.EMPTY;
+        Map<Long, long[]> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++)
+        {
+            long key = Cells.pack(random.nextInt(40) - 20, random.nextInt(40) - 20);
+            if (random.nextBoolean())
+            {
+                long[] rows = new long[TiledGameOfLife.TILE_SIZE];
+                index = index.put(key, rows);
+                expected.put(key, rows);
+            } else
+            {
+                index = index.remove(key);
+                expected.remove(key);
+            }
+            Assert.assertSame(index.get(key), expected.get(key));
+        }
+
+        Map<Long, long[]> actual = new HashMap<>();
+        index.forEach(actual::put);
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testPreviousIndexIsNotChanged()
+    {
+        long[] rows = new long[TiledGameOfLife.TILE_SIZE];
+        TileIndex previous = TileIndex.EMPTY.put(0, rows).put(Cells.pack(-1, 3), rows);
+        TileIndex changed = previous.remove(0).put(Cells.pack(7, 7), rows);
+
+        Assert.assertSame(previous.get(0), rows);
+        Assert.assertNull(previous.get(Cells.pack(7, 7)));
+        Assert.assertNull(changed.get(0));
+        Assert.assertSame(changed.get(Cells.pack(-1, 3)), rows);
+        Assert.assertSame(TileIndex.EMPTY.remove(0), TileIndex.EMPTY);
+    }
+}
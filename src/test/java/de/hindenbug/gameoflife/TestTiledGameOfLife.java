@@ -0,0 +1,156 @@
+package de.hindenbug.gameoflife;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Nils Verheyen
+ * @since 18.10.26 14:20
+ */
+public class TestTiledGameOfLife
+{
+    @Test
+    public void testSoupMatchesGameOfLife()
+    {
+        TiledGameOfLife tiled = new TiledGameOfLife();
+        GameOfLife gameOfLife = new GameOfLife();
+
+        // the soup covers the borders of several tiles including negative coordinates
+        Random random = new Random(11);
+        for (int row = -40; row < 40; row++)
+        {
+            for (int column = -70; column < 10; column++)
+            {
+                if (random.nextInt(3) == 0)
+                {
+                    tiled.addBeing(row, column);
+                    gameOfLife.addBeing(row, column);
+                }
+            }
+        }
+
+        for (int i = 0; i < 200; i++)
+        {
+            tiled.generateNextGeneration();
+            gameOfLife.generateNextGeneration();
+            Assert.assertEquals(tiled.getBeings(), gameOfLife.getBeings(), "generation " + i);
+        }
+        Assert.assertEquals(tiled.getPopulation(), gameOfLife.getPopulation());
+    }
+
+    @Test
+    public void testParallelMatchesSequential()
+    {
+        TiledGameOfLife soup = new TiledGameOfLife();
+        Random random = new Random(17);
+        for (int row = -200; row < 200; row++)
+        {
+            for (int column = -200; column < 200; column++)
+            {
+                if (random.nextInt(3) == 0)
+                    soup.addBeing(row, column);
+            }
+        }
+        long[] cells = Cells.toArray(soup.getBeings());
+
+        int maxParallelism = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism++)
+        {
+            TiledGameOfLife reference = new TiledGameOfLife();
+            reference.addCells(cells, cells.length);
+            TiledGameOfLife parallel = new TiledGameOfLife();
+            parallel.addCells(cells, cells.length);
+            parallel.setParallelism(parallelism);
+
+            for (int generation = 1; generation <= 30; generation++)
+            {
+                reference.generateNextGeneration();
+                parallel.generateNextGeneration();
+                String message = parallelism + " threads, generation " + generation;
+                Assert.assertEquals(parallel.stateHash(), reference.stateHash(), message);
+                Assert.assertEquals(parallel.getActiveTileCount(), reference.getActiveTileCount(), message);
+                Assert.assertEquals(parallel.getLastDelta(generation).getBirthCount(),
+                        reference.getLastDelta(generation).getBirthCount(), message);
+                Assert.assertEquals(parallel.getLastDelta(generation).getDeathCount(),
+                        reference.getLastDelta(generation).getDeathCount(), message);
+            }
+            Assert.assertEquals(parallel.getBeings(), reference.getBeings(), parallelism + " threads");
+            parallel.setParallelism(1);
+        }
+    }
+
+    @Test
+    public void testEmptyTilesAreReclaimed()
+    {
+        TiledGameOfLife tiled = new TiledGameOfLife();
+        tiled.addBeing(0, 1);
+        tiled.addBeing(1, 2);
+        tiled.addBeing(2, 0);
+        tiled.addBeing(2, 1);
+        tiled.addBeing(2, 2);
+
+        for (int i = 0; i < 4 * 500; i++)
+        {
+            tiled.generateNextGeneration();
+        }
+
+        Assert.assertEquals(tiled.getPopulation(), 5);
+        Assert.assertTrue(tiled.isAlive(501, 502));
+        Assert.assertTrue(tiled.getTileCount() <= 4, "tiles: " + tiled.getTileCount());
+    }
+
+    @Test
+    public void testStableTilesAreSkipped()
+    {
+        TiledGameOfLife tiled = new TiledGameOfLife();
+        // a block is a still life
+        tiled.addBeing(10, 10);
+        tiled.addBeing(10, 11);
+        tiled.addBeing(11, 10);
+        tiled.addBeing(11, 11);
+
+        tiled.generateNextGeneration();
+        tiled.generateNextGeneration();
+
+        Assert.assertEquals(tiled.getActiveTileCount(), 0);
+        Assert.assertEquals(tiled.getPopulation(), 4);
+    }
+
+    @Test
+    public void testSnapshotsAreNotChangedAfterwards()
+    {
+        TiledGameOfLife tiled = new TiledGameOfLife(GameOfLifeSample.randomSoup(150, .35, 9));
+        List<GenerationSnapshot> snapshots = new ArrayList<>();
+        List<Set<Being>> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            snapshots.add(tiled.snapshot(i));
+            expected.add(new HashSet<>(tiled.getBeings()));
+            // edits write into rows that are shared with the last snapshot
+            if (i % 10 == 5)
+            {
+                tiled.fill(new Selection(60, 60, 20, 20));
+                tiled.clear(new Selection(0, 0, 30, 30));
+                tiled.toggleBeing(100, 100);
+            }
+            tiled.generateNextGeneration();
+        }
+
+        for (int i = 0; i < snapshots.size(); i++)
+        {
+            GenerationSnapshot snapshot = snapshots.get(i);
+            Assert.assertEquals(new HashSet<>(snapshot.getBeings()), expected.get(i), "generation " + i);
+            Assert.assertEquals(snapshot.getPopulation(), expected.get(i).size());
+            for (Being being : expected.get(i))
+            {
+                Assert.assertTrue(snapshot.isAlive(being.getRow(), being.getColumn()));
+            }
+        }
+    }
+}